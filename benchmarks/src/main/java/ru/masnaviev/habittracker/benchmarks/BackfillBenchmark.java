@@ -0,0 +1,91 @@
+package ru.masnaviev.habittracker.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
+import ru.masnaviev.habittracker.services.HabitService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк импорта прошлых выполнений вместе с чтением той же истории.
+ * <p>
+ * Один поток импортирует в привычку {@code batch} случайных дат за последние 30 лет, другой в это время
+ * считает выполнения за месяц; группа {@code read} - то же чтение без импорта. Перед каждой итерацией
+ * история привычки возвращается к исходной, чтобы импорт добавлял новые даты. Пропускная способность
+ * импорта в отметках - число операций, умноженное на {@code batch}.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BackfillBenchmark {
+
+    private static final long USER_ID = 1;
+    private static final int YEARS_DAYS = 30 * 365;
+
+    @Param({"100", "10000"})
+    private int batch;
+
+    private HabitService habitService;
+    private Habit habit;
+    private List<List<LocalDate>> batches;
+    private int next;
+    private LocalDate monthAgo;
+    private LocalDate today;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryHabitRepository habitRepository = new InMemoryHabitRepository();
+        habit = habitRepository.add(Datasets.habit(USER_ID, 0, Datasets.DAYS_PER_HABIT));
+        habitService = new HabitService(habitRepository);
+        today = LocalDate.now();
+        monthAgo = today.minusMonths(1);
+        Random random = new Random(42);
+        batches = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            List<LocalDate> dates = new ArrayList<>(batch);
+            for (int j = 0; j < batch; j++) {
+                dates.add(today.minusDays(1 + random.nextInt(YEARS_DAYS)));
+            }
+            batches.add(dates);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetHistory() {
+        synchronized (habit.getExecutionHistory()) {
+            habit.getExecutionHistory().clear();
+            habit.getExecutionHistory().addAll(Datasets.habit(USER_ID, 0, Datasets.DAYS_PER_HABIT)
+                    .getExecutionHistory());
+        }
+    }
+
+    @Benchmark
+    @Group("backfill")
+    @GroupThreads(1)
+    public int importExecutions() {
+        next = (next + 1) & (batches.size() - 1);
+        return habitService.importExecutions(habit.getId(), batches.get(next));
+    }
+
+    @Benchmark
+    @Group("backfill")
+    @GroupThreads(1)
+    public int countWhileImporting() {
+        return habit.getExecutionHistory().countBetween(monthAgo, today);
+    }
+
+    @Benchmark
+    @Group("read")
+    @GroupThreads(1)
+    public int countAlone() {
+        return habit.getExecutionHistory().countBetween(monthAgo, today);
+    }
+}
@@ -0,0 +1,83 @@
+package ru.masnaviev.habittracker.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.masnaviev.habittracker.models.Frequency;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.out.repositories.HabitRepository;
+import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
+import ru.masnaviev.habittracker.out.repositories.JdbcStore;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пропускная способность репозитория привычек при одновременной работе нескольких потоков.
+ * <p>
+ * Операция - жизненный цикл привычки: создание, отметка выполнения, поиск по id, статистика за день
+ * и удаление. Каждый поток работает со своим пользователем, а репозиторий общий: в памяти или в H2
+ * в памяти через пул соединений. По умолчанию потоков столько же, сколько процессоров; для сравнения
+ * масштабирования запустите также с {@code -t 1}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class ConcurrentRepositoryBenchmark {
+
+    private static final int POOL_SIZE = 8;
+
+    @Param({"memory", "jdbc"})
+    private String repository;
+
+    private final AtomicLong users = new AtomicLong();
+    private JdbcStore jdbcStore;
+    private HabitRepository habitRepository;
+    private LocalDate today;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        if (repository.equals("jdbc")) {
+            jdbcStore = JdbcStore.open("jdbc:h2:mem:" + UUID.randomUUID(), "sa", "", POOL_SIZE);
+            habitRepository = jdbcStore.getHabitRepository();
+        } else {
+            habitRepository = new InMemoryHabitRepository();
+        }
+        today = LocalDate.now();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (jdbcStore != null) {
+            jdbcStore.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Owner {
+        private long userId;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrentRepositoryBenchmark benchmark) {
+            userId = benchmark.users.incrementAndGet();
+        }
+    }
+
+    @Benchmark
+    public List<LocalDate> habitLifecycle(Owner owner) {
+        Habit habit = new Habit("Habit", "Description", Frequency.DAILY);
+        habit.setUserId(owner.userId);
+        long id = habitRepository.add(habit).getId();
+        habitRepository.saveExecution(id, today);
+        habitRepository.findById(id);
+        List<LocalDate> statistic = habitRepository.getStatistic(id, today, today);
+        habitRepository.delete(id);
+        return statistic;
+    }
+}
@@ -0,0 +1,67 @@
+package ru.masnaviev.habittracker.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.masnaviev.habittracker.controllers.HabitController;
+import ru.masnaviev.habittracker.controllers.UserController;
+import ru.masnaviev.habittracker.in.dto.LoginUserRequest;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.models.User;
+import ru.masnaviev.habittracker.monitoring.MetricsRegistry;
+import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
+import ru.masnaviev.habittracker.out.repositories.InMemoryUserRepository;
+import ru.masnaviev.habittracker.services.HabitService;
+import ru.masnaviev.habittracker.services.UserService;
+
+import javax.management.MBeanServerFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы метрик контроллеров на самых коротких вызовах.
+ * <p>
+ * Сравниваются контроллеры с выключенными метриками и с метриками при разной частоте замера задержек
+ * ({@code sampleRate}, при выключенных метриках не влияет). Отсутствие выделения памяти
+ * при записи проверяется профайлером {@code -prof gc}: {@code gc.alloc.rate.norm} должен совпадать.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerMetricsBenchmark {
+
+    @Param({"true", "false"})
+    private boolean metrics;
+
+    @Param({"1", "16", "64"})
+    private int sampleRate;
+
+    private HabitController habitController;
+    private UserController userController;
+    private LoginUserRequest loginRequest;
+    private long habitId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MetricsRegistry registry = metrics
+                ? new MetricsRegistry(MBeanServerFactory.newMBeanServer(), sampleRate) : MetricsRegistry.disabled();
+        InMemoryUserRepository userRepository = new InMemoryUserRepository();
+        InMemoryHabitRepository habitRepository = new InMemoryHabitRepository();
+        Datasets.addUsers(userRepository, 1_000);
+        User user = Datasets.user(500);
+        loginRequest = new LoginUserRequest(user.getEmail(), user.getPassword());
+        habitId = habitRepository.add(Datasets.habit(1, 0, 100)).getId();
+        habitController = new HabitController(new HabitService(habitRepository), registry);
+        userController = new UserController(new UserService(userRepository), registry);
+    }
+
+    @Benchmark
+    public Habit getHabit() {
+        return habitController.get(habitId);
+    }
+
+    @Benchmark
+    public User authenticateUser() {
+        return userController.authenticateUser(loginRequest);
+    }
+}
@@ -0,0 +1,64 @@
+package ru.masnaviev.habittracker.benchmarks;
+
+import ru.masnaviev.habittracker.models.Frequency;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.models.User;
+import ru.masnaviev.habittracker.out.repositories.HabitRepository;
+import ru.masnaviev.habittracker.out.repositories.UserRepository;
+
+import java.time.LocalDate;
+
+/**
+ * Наборы данных для бенчмарков.
+ */
+final class Datasets {
+
+    /**
+     * Количество отметок в истории одной привычки, около трех лет ежедневного выполнения.
+     */
+    static final int DAYS_PER_HABIT = 1_000;
+
+    private Datasets() {
+    }
+
+    static User user(int index) {
+        return new User("user" + index + "@mail.ru", "password" + index, "User " + index);
+    }
+
+    static void addUsers(UserRepository userRepository, int users) {
+        for (int i = 0; i < users; i++) {
+            userRepository.add(user(i));
+        }
+    }
+
+    /**
+     * Добавляет пользователю ежедневные привычки так, чтобы всего у них было заданное количество отметок.
+     * Истории заканчиваются вчерашним днем, каждый десятый день пропущен.
+     *
+     * @return количество добавленных привычек.
+     */
+    static int addHabits(HabitRepository habitRepository, long userId, int executions) {
+        int habits = Math.max(1, executions / DAYS_PER_HABIT);
+        int daysPerHabit = Math.min(executions, DAYS_PER_HABIT);
+        for (int i = 0; i < habits; i++) {
+            habitRepository.add(habit(userId, i, daysPerHabit));
+        }
+        return habits;
+    }
+
+    static Habit habit(long userId, int index, int days) {
+        Habit habit = new Habit("Habit " + index, "Description " + index, Frequency.DAILY);
+        habit.setUserId(userId);
+        int yesterday = Math.toIntExact(LocalDate.now().minusDays(1).toEpochDay());
+        int[] epochDays = new int[days];
+        int day = yesterday;
+        for (int i = 0; i < days; i++) {
+            if ((yesterday - day) % 10 == 9) {
+                day--;
+            }
+            epochDays[i] = day--;
+        }
+        habit.getExecutionHistory().addEpochDays(epochDays);
+        return habit;
+    }
+}
@@ -0,0 +1,94 @@
+package ru.masnaviev.habittracker.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
+import ru.masnaviev.habittracker.services.HabitService;
+import ru.masnaviev.habittracker.services.util.DailyRollup;
+import ru.masnaviev.habittracker.services.util.ExecutionAudit;
+import ru.masnaviev.habittracker.services.util.ExecutionEvent;
+import ru.masnaviev.habittracker.services.util.ExecutionEventHandler;
+import ru.masnaviev.habittracker.services.util.ExecutionPipeline;
+import ru.masnaviev.habittracker.services.util.StatisticCache;
+import ru.masnaviev.habittracker.services.util.StatisticSettings;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк задержки отметки выполнения с конвейером событий и без него.
+ * <p>
+ * Режим {@code off} - отметка без конвейера: история, сохранение и сброс кэша статистики.
+ * {@code inline} - то же, плюс те же производные данные, что обновляет конвейер (удаление записей кэша,
+ * сводка по дням, аудит в файл), но на пути запроса. {@code pipeline} - отметка публикует событие
+ * в {@link ExecutionPipeline}, а производные данные обновляют его обработчики. Задержка замеряется
+ * выборочно, поэтому в результатах есть перцентили, а не только среднее.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutionPipelineBenchmark {
+
+    private static final long USER_ID = 1;
+
+    @Param({"off", "inline", "pipeline"})
+    private String mode;
+
+    private Path auditFile;
+    private ExecutionAudit audit;
+    private ExecutionPipeline pipeline;
+    private ExecutionEventHandler[] handlers;
+    private final ExecutionEvent event = new ExecutionEvent();
+    private HabitService habitService;
+    private Habit habit;
+    private LocalDate today;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        InMemoryHabitRepository habitRepository = new InMemoryHabitRepository();
+        Datasets.addHabits(habitRepository, USER_ID, Datasets.DAYS_PER_HABIT);
+        habit = habitRepository.getAll(USER_ID).get(0);
+        today = LocalDate.now();
+        StatisticCache statisticCache = new StatisticCache(1_000);
+        auditFile = Files.createTempFile("execution-audit", ".log");
+        audit = ExecutionAudit.open(auditFile);
+        handlers = new ExecutionEventHandler[]{
+                new DailyRollup(), e -> statisticCache.removeStale(e.getUserId()), audit};
+        if (mode.equals("pipeline")) {
+            pipeline = new ExecutionPipeline(1024, 1000, handlers);
+        }
+        habitService = new HabitService(habitRepository, statisticCache, StatisticSettings.sequential(), pipeline);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        audit.close();
+        Files.deleteIfExists(auditFile);
+    }
+
+    @Setup(Level.Invocation)
+    public void unmarkToday() {
+        habit.getExecutionHistory().remove(today);
+    }
+
+    @Benchmark
+    public void addHabitExecution() {
+        habitService.addHabitExecution(habit.getId());
+        if (mode.equals("inline")) {
+            event.set(habit.getId(), USER_ID, today, System.currentTimeMillis());
+            for (ExecutionEventHandler handler : handlers) {
+                handler.onEvent(event);
+                handler.onBatchEnd();
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ru.masnaviev.habittracker.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
+import ru.masnaviev.habittracker.services.HabitService;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк отметки выполнения привычки.
+ * <p>
+ * Перед каждым вызовом сегодняшняя отметка снимается, чтобы привычку можно было отметить снова;
+ * снятие в замер не входит.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HabitExecutionBenchmark {
+
+    private static final long USER_ID = 1;
+
+    @Param({"1000", "100000", "10000000"})
+    private int executions;
+
+    @Param({"heap", "off-heap", "bitmap"})
+    private String storage;
+
+    private HabitService habitService;
+    private Habit habit;
+    private LocalDate today;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("habittracker.history.storage", storage);
+        InMemoryHabitRepository habitRepository = new InMemoryHabitRepository();
+        Datasets.addHabits(habitRepository, USER_ID, executions);
+        habitService = new HabitService(habitRepository);
+        habit = habitRepository.getAll(USER_ID).get(0);
+        today = LocalDate.now();
+    }
+
+    @Setup(Level.Invocation)
+    public void unmark() {
+        habit.getExecutionHistory().remove(today);
+    }
+
+    @Benchmark
+    public void addHabitExecution() {
+        habitService.addHabitExecution(habit.getId());
+    }
+}
@@ -0,0 +1,82 @@
+package ru.masnaviev.habittracker.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.masnaviev.habittracker.controllers.util.StatisticEntity;
+import ru.masnaviev.habittracker.controllers.util.TimePeriod;
+import ru.masnaviev.habittracker.models.ExecutionHistory;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
+import ru.masnaviev.habittracker.services.HabitService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки статистики и серий выполнения привычек.
+ * <p>
+ * Пользователь владеет привычками с историей по {@value Datasets#DAYS_PER_HABIT} дней,
+ * общее количество отметок задается параметром {@code executions}. Параметр {@code storage}
+ * переключает хранение историй массивами в куче, вне ее и битовыми картами дней; для сравнения нагрузки
+ * на сборщик мусора запускайте с профайлером {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HabitServiceBenchmark {
+
+    private static final long USER_ID = 1;
+
+    @Param({"1000", "100000", "10000000"})
+    private int executions;
+
+    @Param({"heap", "off-heap", "bitmap"})
+    private String storage;
+
+    private HabitService habitService;
+    private List<Habit> habits;
+    private LocalDate monthStart;
+    private LocalDate today;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Каждый набор параметров запускается в отдельной JVM, и хранилище историй
+        // выбирается при первом создании истории, поэтому свойство задается до заполнения данных.
+        System.setProperty("habittracker.history.storage", storage);
+        InMemoryHabitRepository habitRepository = new InMemoryHabitRepository();
+        Datasets.addHabits(habitRepository, USER_ID, executions);
+        habitService = new HabitService(habitRepository);
+        habits = habitRepository.getAll(USER_ID);
+        today = LocalDate.now();
+        monthStart = today.minusMonths(1);
+    }
+
+    @Benchmark
+    public List<StatisticEntity> getStatistic() {
+        return habitService.getStatistic(USER_ID, TimePeriod.MONTH);
+    }
+
+    /**
+     * Серии за месяц по всем привычкам пользователя, как при расчете статистики.
+     */
+    @Benchmark
+    public void streak(Blackhole blackhole) {
+        for (Habit habit : habits) {
+            ExecutionHistory history = habit.getExecutionHistory();
+            blackhole.consume(history.streakBetween(monthStart, today));
+            blackhole.consume(history.longestStreak());
+        }
+    }
+
+    /**
+     * Дни месяца, когда выполнены все привычки пользователя: пересечение отметок всех историй.
+     */
+    @Benchmark
+    public List<LocalDate> getDaysAllCompleted() {
+        return habitService.getDaysAllCompleted(USER_ID, TimePeriod.MONTH);
+    }
+}
@@ -0,0 +1,84 @@
+package ru.masnaviev.habittracker.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.masnaviev.habittracker.models.memory.DeltaVarint;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк кодировки истории выполнения {@link DeltaVarint}: кодирование, полное декодирование
+ * и потоковый подсчет отметок за последний месяц на историях за {@code years} лет.
+ * <p>
+ * Шаблоны: {@code daily} - каждый день, {@code daily-gaps} - ежедневная привычка, пропущенная
+ * в каждый десятый и еще в случайные 10% дней, {@code weekly} - раз в неделю со сдвигом дня недели.
+ * Степень сжатия - байт на отметку против четырех у массива номеров дней - печатается перед замером.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryEncodingBenchmark {
+
+    private static final int TODAY = 20_000;
+
+    @Param({"daily", "daily-gaps", "weekly"})
+    private String pattern;
+
+    @Param({"10"})
+    private int years;
+
+    private int[] days;
+    private byte[] encoded;
+    private ByteBuffer output;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        int span = years * 365;
+        int[] generated = new int[span];
+        int count = 0;
+        for (int day = TODAY - span + 1; day <= TODAY; day++) {
+            boolean marked = switch (pattern) {
+                case "daily" -> true;
+                case "daily-gaps" -> day % 10 != 0 && random.nextInt(10) != 0;
+                case "weekly" -> day % 7 == 0;
+                default -> throw new IllegalArgumentException("Неизвестный шаблон: " + pattern);
+            };
+            if (marked) {
+                generated[count++] = pattern.equals("weekly") ? day + random.nextInt(3) - 1 : day;
+            }
+        }
+        days = Arrays.copyOf(generated, count);
+        encoded = DeltaVarint.encode(days, 0, days.length);
+        output = ByteBuffer.allocate(DeltaVarint.maxEncodedLength(days.length));
+        System.out.printf("%n%s: %d отметок, %d байт, %.2f байт на отметку (массив - 4)%n", pattern,
+                days.length, encoded.length, (double) encoded.length / days.length);
+    }
+
+    @Benchmark
+    public int encode() {
+        output.clear();
+        DeltaVarint.encode(days, 0, days.length, output);
+        return output.position();
+    }
+
+    @Benchmark
+    public int[] decode() {
+        return DeltaVarint.decode(ByteBuffer.wrap(encoded));
+    }
+
+    @Benchmark
+    public int countLastMonth() {
+        return DeltaVarint.countBetween(ByteBuffer.wrap(encoded), TODAY - 30, TODAY);
+    }
+
+    @Benchmark
+    public int countFirstMonth() {
+        return DeltaVarint.countBetween(ByteBuffer.wrap(encoded), days[0], days[0] + 30);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.masnaviev.habittracker.benchmarks;
+
+import ru.masnaviev.habittracker.controllers.util.TimePeriod;
+import ru.masnaviev.habittracker.models.memory.HistoryStorage;
+import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
+import ru.masnaviev.habittracker.services.HabitService;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+
+/**
+ * Занятость старого поколения кучи историями выполнения в куче, вне ее и битовыми картами.
+ * <p>
+ * Заполняет репозиторий привычками с заданным количеством отметок, выполняет полную сборку мусора
+ * и печатает занятость старого поколения после сборки, занятость всей кучи и память прямых буферов.
+ * Затем рассчитывает статистику за месяц {@code passes} раз и печатает количество и время сборок
+ * за это время. Хранилище историй выбирается при первом создании истории, поэтому каждый вариант
+ * запускается в отдельной JVM со свойством {@code habittracker.history.storage}.
+ * Параметры - аргументы вида {@code ключ=значение}: {@code executions} (по умолчанию 10000000),
+ * {@code passes} (по умолчанию 200).
+ */
+public class HistoryFootprint {
+
+    private static final long USER_ID = 1;
+    private static final long MB = 1024 * 1024;
+
+    public static void main(String[] args) {
+        int executions = 10_000_000;
+        int passes = 200;
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Ожидался аргумент вида ключ=значение: " + arg);
+            }
+            int value = Integer.parseInt(arg.substring(separator + 1));
+            switch (arg.substring(0, separator)) {
+                case "executions" -> executions = value;
+                case "passes" -> passes = value;
+                default -> throw new IllegalArgumentException("Неизвестный параметр: " + arg);
+            }
+        }
+
+        InMemoryHabitRepository habitRepository = new InMemoryHabitRepository();
+        int habits = Datasets.addHabits(habitRepository, USER_ID, executions);
+        HabitService habitService = new HabitService(habitRepository);
+        collect();
+
+        System.out.printf("storage=%s executions=%d habits=%d%n",
+                HistoryStorage.getDefault(), executions, habits);
+        System.out.printf("old gen after GC: %d MB%n", oldGenAfterCollection() / MB);
+        System.out.printf("heap used:        %d MB%n",
+                ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / MB);
+        System.out.printf("direct buffers:   %d MB%n", directMemory() / MB);
+
+        long[] before = gcTotals();
+        long started = System.nanoTime();
+        for (int i = 0; i < passes; i++) {
+            habitService.getStatistic(USER_ID, TimePeriod.MONTH);
+        }
+        long elapsed = System.nanoTime() - started;
+        long[] after = gcTotals();
+        System.out.printf("%d statistic passes: %d ms, GC count %d, GC time %d ms%n",
+                passes, elapsed / 1_000_000, after[0] - before[0], after[1] - before[1]);
+    }
+
+    private static void collect() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+    }
+
+    private static long oldGenAfterCollection() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            String name = pool.getName();
+            if (pool.getType() == MemoryType.HEAP && (name.contains("Old") || name.contains("Tenured"))) {
+                return pool.getCollectionUsage().getUsed();
+            }
+        }
+        throw new IllegalStateException("Сборщик мусора не сообщает о старом поколении");
+    }
+
+    private static long directMemory() {
+        List<BufferPoolMXBean> pools = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+        for (BufferPoolMXBean pool : pools) {
+            if (pool.getName().equals("direct")) {
+                return pool.getTotalCapacity();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Возвращает суммарные количество и время сборок всех сборщиков.
+     */
+    private static long[] gcTotals() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[]{count, time};
+    }
+}
@@ -0,0 +1,53 @@
+package ru.masnaviev.habittracker.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.masnaviev.habittracker.controllers.util.StatisticEntity;
+import ru.masnaviev.habittracker.controllers.util.TimePeriod;
+import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
+import ru.masnaviev.habittracker.services.HabitService;
+import ru.masnaviev.habittracker.services.util.StatisticSettings;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Статистика за месяц, рассчитанная последовательно и параллельно, в зависимости от количества привычек.
+ * <p>
+ * У пользователя {@code habits} привычек с историей за год. Параметр {@code parallel} включает расчет
+ * в общем {@code ForkJoinPool} начиная с одной привычки; точка, где параллельный расчет начинает
+ * выигрывать, подсказывает значение {@code habittracker.statistic.parallel-threshold}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelStatisticBenchmark {
+
+    private static final long USER_ID = 1;
+    private static final int DAYS = 365;
+
+    @Param({"10", "100", "1000", "10000"})
+    private int habits;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private HabitService habitService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryHabitRepository habitRepository = new InMemoryHabitRepository();
+        for (int i = 0; i < habits; i++) {
+            habitRepository.add(Datasets.habit(USER_ID, i, DAYS));
+        }
+        habitService = new HabitService(habitRepository, null,
+                parallel ? new StatisticSettings(1) : StatisticSettings.sequential());
+    }
+
+    @Benchmark
+    public List<StatisticEntity> getStatistic() {
+        return habitService.getStatistic(USER_ID, TimePeriod.MONTH);
+    }
+}
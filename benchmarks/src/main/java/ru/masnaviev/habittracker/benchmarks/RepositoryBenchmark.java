@@ -0,0 +1,76 @@
+package ru.masnaviev.habittracker.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.models.User;
+import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
+import ru.masnaviev.habittracker.out.repositories.InMemoryUserRepository;
+import ru.masnaviev.habittracker.services.UserService;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Бенчмарки поиска пользователей, аутентификации и выборки привычек пользователя.
+ * <p>
+ * У каждого пользователя одна привычка с историей в 10 дней, так что параметр {@code users}
+ * задает и количество привычек. {@link #getAllByScan()} повторяет прежнюю выборку
+ * полным перебором и служит базой для сравнения с индексом по владельцу.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int users;
+
+    private InMemoryUserRepository userRepository;
+    private InMemoryHabitRepository habitRepository;
+    private UserService userService;
+    private User credentials;
+    private String email;
+    private long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userRepository = new InMemoryUserRepository();
+        habitRepository = new InMemoryHabitRepository();
+        Datasets.addUsers(userRepository, users);
+        for (User user : userRepository.getAll()) {
+            habitRepository.add(Datasets.habit(user.getId(), 0, 10));
+        }
+        userService = new UserService(userRepository);
+        User user = Datasets.user(users / 2);
+        email = user.getEmail().toUpperCase();
+        credentials = new User(user.getEmail(), user.getPassword());
+        userId = userRepository.findByEmail(email).orElseThrow().getId();
+    }
+
+    @Benchmark
+    public Optional<User> findByEmail() {
+        return userRepository.findByEmail(email);
+    }
+
+    @Benchmark
+    public User authenticateUser() {
+        return userService.authenticateUser(credentials);
+    }
+
+    @Benchmark
+    public List<Habit> getAllByUser() {
+        return habitRepository.getAll(userId);
+    }
+
+    @Benchmark
+    public List<Habit> getAllByScan() {
+        return habitRepository.getAll().stream()
+                .filter(habit -> habit.getUserId() == userId)
+                .collect(Collectors.toList());
+    }
+}
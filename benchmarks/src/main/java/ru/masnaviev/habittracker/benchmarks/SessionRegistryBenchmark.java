@@ -0,0 +1,65 @@
+package ru.masnaviev.habittracker.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.masnaviev.habittracker.models.User;
+import ru.masnaviev.habittracker.security.Session;
+import ru.masnaviev.habittracker.security.SessionRegistry;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки реестра сессий: поиск по токену среди {@code sessions} открытых сессий и заполнение нового
+ * реестра {@code sessions} сессиями с раскладкой по колесу таймеров. Время в реестре не идет, поэтому
+ * сессии не истекают. Память на сессию показывает профайлер {@code -prof gc} при заполнении.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionRegistryBenchmark {
+
+    private static final long TIMEOUT = TimeUnit.HOURS.toMillis(1);
+
+    @Param({"1000", "1000000"})
+    private int sessions;
+
+    private SessionRegistry registry;
+    private User user;
+    private String[] tokens;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = new SessionRegistry(TIMEOUT, TIMEOUT, 1_000, () -> 0);
+        user = Datasets.user(0);
+        tokens = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            tokens[i] = registry.open(user);
+        }
+        registry.expire();
+    }
+
+    @Benchmark
+    public Optional<Session> find() {
+        String token = tokens[next];
+        next = next + 1 == tokens.length ? 0 : next + 1;
+        return registry.find(token);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public SessionRegistry openAll() {
+        SessionRegistry filled = new SessionRegistry(TIMEOUT, TIMEOUT, 1_000, () -> 0);
+        for (int i = 0; i < sessions; i++) {
+            filled.open(user);
+        }
+        filled.expire();
+        return filled;
+    }
+}
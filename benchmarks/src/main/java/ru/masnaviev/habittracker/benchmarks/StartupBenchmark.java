@@ -0,0 +1,75 @@
+package ru.masnaviev.habittracker.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.out.persistence.JournalSettings;
+import ru.masnaviev.habittracker.out.repositories.DurableStore;
+import ru.masnaviev.habittracker.out.repositories.HabitRepository;
+import ru.masnaviev.habittracker.out.repositories.UserRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Время запуска долговременного хранилища до ответа на первый запрос в зависимости от объема данных.
+ * <p>
+ * Хранилище заполняется один раз на набор параметров и сохраняется в снимок. Каждый замер открывает
+ * его заново и читает одну привычку: при {@code lazy=false} снимок читается целиком,
+ * при {@code lazy=true} отображается в память. Память процесса после запуска показывает
+ * профайлер {@code -prof gc} или внешние средства.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+
+    private static final int HABITS_PER_USER = 10;
+
+    @Param({"10000", "100000", "1000000"})
+    private int habits;
+
+    @Param({"true", "false"})
+    private boolean lazy;
+
+    private Path directory;
+    private JournalSettings settings;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("habittracker-startup");
+        settings = new JournalSettings(4096, 10, false, 0, lazy);
+        try (DurableStore store = DurableStore.open(directory, settings)) {
+            UserRepository userRepository = store.getUserRepository();
+            HabitRepository habitRepository = store.getHabitRepository();
+            int users = Math.max(1, habits / HABITS_PER_USER);
+            Datasets.addUsers(userRepository, users);
+            for (int i = 0; i < habits; i++) {
+                habitRepository.add(Datasets.habit(1 + i % users, i, 30));
+            }
+            store.checkpoint();
+        }
+    }
+
+    @Benchmark
+    public Habit openAndFindFirstHabit() throws IOException {
+        try (DurableStore store = DurableStore.open(directory, settings)) {
+            return store.getHabitRepository().findById(habits / 2).orElseThrow();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package ru.masnaviev.habittracker.benchmarks.load;
+
+import ru.masnaviev.habittracker.app.util.Components;
+import ru.masnaviev.habittracker.in.http.HttpApi;
+import ru.masnaviev.habittracker.monitoring.LatencyHistogram;
+import ru.masnaviev.habittracker.security.SessionRegistry;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Нагрузочный тест HTTP API: много одновременных соединений к серверу, запущенному в том же процессе.
+ * <p>
+ * Нагрузку создают замкнутые циклы запросов с экспоненциальной паузой между ними; запросы отправляются
+ * асинхронно одним {@link HttpClient} по HTTP/1.1, который переиспользует простаивающие соединения.
+ * Чтобы проверить сервер с десятками тысяч открытых соединений, как у реальных клиентов, дополнительно
+ * открываются простаивающие keep-alive соединения: каждое выполняет один запрос до замера и один после,
+ * в конце печатается, сколько из них сервер продержал открытыми. Параметры - аргументы вида
+ * {@code ключ=значение}:
+ * <ul>
+ *     <li>{@code connections} - количество циклов запросов (по умолчанию 1000);</li>
+ *     <li>{@code idle} - количество простаивающих соединений (по умолчанию 0);</li>
+ *     <li>{@code users} - количество зарегистрированных пользователей, соединения делят их сессии
+ *     (по умолчанию 100);</li>
+ *     <li>{@code duration}, {@code warmup} - длительность замера и прогрева в секундах (по умолчанию 30 и 5);</li>
+ *     <li>{@code think-ms} - средняя пауза соединения между запросами (по умолчанию 1000).</li>
+ * </ul>
+ * Хранилище и параметры сервера задаются теми же системными свойствами, что и в приложении.
+ * Для десятков тысяч соединений нужно поднять лимит открытых файлов ({@code ulimit -n}), а также
+ * ограничения встроенного сервера {@code sun.net.httpserver.maxIdleConnections} и
+ * {@code sun.net.httpserver.idleInterval}, если они не заданы, тест задает их сам.
+ */
+public class HttpLoadTest {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+    private static final Pattern CONTENT_LENGTH = Pattern.compile("(?i)content-length: *(\\d+)");
+
+    private final int connections;
+    private final int idle;
+    private final int users;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final int thinkMillis;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+    private final List<Request> requests = new ArrayList<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean measuring;
+    private volatile boolean stopped;
+    private URI base;
+
+    private HttpLoadTest(int connections, int idle, int users, int durationSeconds, int warmupSeconds,
+                         int thinkMillis) {
+        this.connections = connections;
+        this.idle = idle;
+        this.users = users;
+        this.durationSeconds = durationSeconds;
+        this.warmupSeconds = warmupSeconds;
+        this.thinkMillis = thinkMillis;
+        requests.add(new Request("list-habits", 45));
+        requests.add(new Request("statistic", 45));
+        requests.add(new Request("mark", 10));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int connections = 1000;
+        int idle = 0;
+        int users = 100;
+        int duration = 30;
+        int warmup = 5;
+        int thinkMillis = 1000;
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Ожидался аргумент вида ключ=значение: " + arg);
+            }
+            int value = Integer.parseInt(arg.substring(separator + 1));
+            switch (arg.substring(0, separator)) {
+                case "connections" -> connections = value;
+                case "idle" -> idle = value;
+                case "users" -> users = value;
+                case "duration" -> duration = value;
+                case "warmup" -> warmup = value;
+                case "think-ms" -> thinkMillis = value;
+                default -> throw new IllegalArgumentException("Неизвестный параметр: " + arg);
+            }
+        }
+
+        System.getProperties().putIfAbsent("sun.net.httpserver.maxIdleConnections", String.valueOf(idle + 1_000));
+        System.getProperties().putIfAbsent("sun.net.httpserver.idleInterval", "3600");
+        try (Components components = Components.fromSystemProperties();
+             SessionRegistry sessionRegistry = SessionRegistry.start(3_600_000, 3_600_000)) {
+            HttpApi httpApi = new HttpApi(components.getUserController(), components.getHabitController(),
+                    components.getAdminController(), sessionRegistry);
+            httpApi.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                    Integer.getInteger("habittracker.http.backlog", 4096),
+                    Integer.getInteger("habittracker.http.threads", 200));
+            try {
+                new HttpLoadTest(connections, idle, users, duration, warmup, thinkMillis)
+                        .run(URI.create("http://127.0.0.1:" + httpApi.getPort()), System.out);
+            } finally {
+                httpApi.stop(0);
+            }
+        }
+    }
+
+    private void run(URI base, PrintStream out) throws Exception {
+        this.base = base;
+        List<String> tokens = new ArrayList<>();
+        List<Long> habits = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String email = "http-" + i + "-" + System.nanoTime() + "@load.test";
+            send("POST", "/api/users", null,
+                    "{\"email\":\"" + email + "\",\"password\":\"password\",\"name\":\"User " + i + "\"}").join();
+            String token = find(TOKEN, send("POST", "/api/sessions", null,
+                    "{\"email\":\"" + email + "\",\"password\":\"password\"}").join().body());
+            tokens.add(token);
+            habits.add(Long.parseLong(find(ID, send("POST", "/api/habits", token,
+                    "{\"title\":\"Habit\",\"description\":\"Load\",\"frequency\":\"daily\"}").join().body())));
+        }
+
+        List<SocketChannel> idleConnections = new ArrayList<>();
+        for (int i = 0; i < idle; i++) {
+            SocketChannel channel = SocketChannel.open(new InetSocketAddress(base.getHost(), base.getPort()));
+            idleConnections.add(channel);
+            exchange(channel, tokens.get(i % users));
+        }
+
+        out.printf("Циклов: %d, простаивающих соединений: %d, пользователей: %d, прогрев: %d с, замер: %d с,"
+                + " пауза: %d мс%n", connections, idle, users, warmupSeconds, durationSeconds, thinkMillis);
+        for (int i = 0; i < connections; i++) {
+            loop(tokens.get(i % users), habits.get(i % users),
+                    ThreadLocalRandom.current().nextLong(Math.max(1, thinkMillis)));
+        }
+        Thread.sleep(warmupSeconds * 1000L);
+        measuring = true;
+        long started = System.nanoTime();
+        int peakActive = 0;
+        for (long end = started + durationSeconds * 1_000_000_000L; System.nanoTime() < end; ) {
+            Thread.sleep(100);
+            peakActive = Math.max(peakActive, active.get());
+        }
+        stopped = true;
+        double seconds = (System.nanoTime() - started) / 1e9;
+        for (long deadline = System.nanoTime() + 60_000_000_000L; active.get() > 0 && System.nanoTime() < deadline; ) {
+            Thread.sleep(100);
+        }
+        report(seconds, peakActive, out);
+
+        int alive = 0;
+        for (int i = 0; i < idleConnections.size(); i++) {
+            try (SocketChannel channel = idleConnections.get(i)) {
+                if (exchange(channel, tokens.get(i % users))) {
+                    alive++;
+                }
+            } catch (IOException e) {
+                // соединение закрыто сервером
+            }
+        }
+        if (idle > 0) {
+            out.printf("Простаивающих соединений, открытых до конца теста: %d из %d%n", alive, idle);
+        }
+    }
+
+    /**
+     * Выполняет запрос списка привычек по открытому соединению и читает ответ целиком.
+     *
+     * @return {@code true}, если сервер ответил 200.
+     */
+    private static boolean exchange(SocketChannel channel, String token) throws IOException {
+        String request = "GET /api/habits HTTP/1.1\r\nHost: localhost\r\nAuthorization: Bearer " + token
+                + "\r\n\r\n";
+        ByteBuffer buffer = ByteBuffer.wrap(request.getBytes(StandardCharsets.US_ASCII));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        ByteBuffer response = ByteBuffer.allocate(8192);
+        while (true) {
+            if (channel.read(response) < 0) {
+                return false;
+            }
+            String text = new String(response.array(), 0, response.position(), StandardCharsets.US_ASCII);
+            int headersEnd = text.indexOf("\r\n\r\n");
+            if (headersEnd < 0) {
+                continue;
+            }
+            Matcher length = CONTENT_LENGTH.matcher(text);
+            int bodyLength = length.find() ? Integer.parseInt(length.group(1)) : 0;
+            if (response.position() >= headersEnd + 4 + bodyLength) {
+                return text.startsWith("HTTP/1.1 200");
+            }
+        }
+    }
+
+    /**
+     * Шаг цикла одного соединения: пауза, случайный запрос, запись задержки и планирование следующего шага.
+     * Шаги не вкладываются друг в друга, поэтому длина цикла не ограничена. После остановки цикл
+     * завершается на следующем шаге, не дожидаясь которого тест ждет только незавершенные запросы.
+     */
+    private void loop(String token, long habitId, long delayMillis) {
+        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (stopped) {
+                return;
+            }
+            Request request = choose();
+            long started = System.nanoTime();
+            active.incrementAndGet();
+            CompletableFuture<HttpResponse<String>> response = switch (request.name) {
+                case "list-habits" -> send("GET", "/api/habits", token, null);
+                case "statistic" -> send("GET", "/api/statistics?period=week", token, null);
+                default -> send("POST", "/api/habits/" + habitId + "/executions", token, null);
+            };
+            response.whenComplete((result, error) -> {
+                active.decrementAndGet();
+                if (measuring && !stopped) {
+                    request.latency.record(System.nanoTime() - started);
+                    if (error != null || result.statusCode() >= 500) {
+                        request.errors.increment();
+                    } else if (result.statusCode() >= 400) {
+                        request.rejections.increment();
+                    }
+                }
+                loop(token, habitId, thinkTime());
+            });
+        });
+    }
+
+    private Request choose() {
+        int point = ThreadLocalRandom.current().nextInt(100);
+        for (Request request : requests) {
+            point -= request.weight;
+            if (point < 0) {
+                return request;
+            }
+        }
+        return requests.get(requests.size() - 1);
+    }
+
+    private long thinkTime() {
+        if (thinkMillis == 0) {
+            return 0;
+        }
+        return (long) (-thinkMillis * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(String method, String path, String token, String body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path))
+                .timeout(Duration.ofSeconds(60))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void report(double seconds, int peakActive, PrintStream out) {
+        out.printf("Одновременных запросов в пике: %d%n", peakActive);
+        out.printf("%-14s %10s %8s %8s %10s %10s %10s %10s %10s%n", "Запрос", "Вызовы", "Отказы", "Ошибки",
+                "Зап/с", "p50, мкс", "p99, мкс", "p999, мкс", "max, мкс");
+        for (Request request : requests) {
+            LatencyHistogram latency = request.latency;
+            out.printf("%-14s %10d %8d %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n", request.name, latency.getCount(),
+                    request.rejections.sum(), request.errors.sum(), latency.getCount() / seconds,
+                    latency.valueAt(0.5) / 1_000.0, latency.valueAt(0.99) / 1_000.0,
+                    latency.valueAt(0.999) / 1_000.0, latency.getMaxNanos() / 1_000.0);
+        }
+    }
+
+    private static String find(Pattern pattern, String body) throws IOException {
+        Matcher matcher = pattern.matcher(body);
+        if (!matcher.find()) {
+            throw new IOException("Неожиданный ответ сервера: " + body);
+        }
+        return matcher.group(1);
+    }
+
+    /**
+     * Вид запроса с его весом и результатами.
+     */
+    private static final class Request {
+        private final String name;
+        private final int weight;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rejections = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private Request(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package ru.masnaviev.habittracker.benchmarks.load;
+
+import ru.masnaviev.habittracker.app.util.Storage;
+import ru.masnaviev.habittracker.controllers.AdminController;
+import ru.masnaviev.habittracker.controllers.HabitController;
+import ru.masnaviev.habittracker.controllers.UserController;
+import ru.masnaviev.habittracker.in.dto.LoginUserRequest;
+import ru.masnaviev.habittracker.security.Session;
+import ru.masnaviev.habittracker.services.HabitService;
+import ru.masnaviev.habittracker.services.UserService;
+import ru.masnaviev.habittracker.services.util.StatisticCache;
+import ru.masnaviev.habittracker.services.util.StatisticSettings;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Генератор нагрузки: N одновременных пользователей работают с контроллерами в одном процессе.
+ * <p>
+ * Хранилище выбирается теми же системными свойствами, что и в приложении. После прогрева
+ * собираются задержки каждой операции, а в конце печатаются пропускная способность,
+ * количество отказов и перцентили p50/p99/p999. Параметры нагрузки описаны в {@link LoadSettings}.
+ * <pre>
+ * java -cp target/benchmarks.jar ru.masnaviev.habittracker.benchmarks.load.LoadGenerator users=200 duration=60
+ * </pre>
+ */
+public class LoadGenerator {
+
+    private static final String ADMIN_EMAIL = "admin@mail.ru";
+    private static final String ADMIN_PASSWORD = "admin";
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        LoadSettings settings = LoadSettings.parse(args);
+        try (Storage storage = Storage.fromSystemProperties()) {
+            run(settings, storage, System.out);
+        }
+    }
+
+    static void run(LoadSettings settings, Storage storage, PrintStream out) throws InterruptedException {
+        UserService userService = new UserService(storage.getUserRepository());
+        int statisticCacheSize = Integer.getInteger("habittracker.statistic-cache.size", 10_000);
+        HabitService habitService = new HabitService(storage.getHabitRepository(),
+                statisticCacheSize > 0 ? new StatisticCache(statisticCacheSize) : null,
+                new StatisticSettings(Integer.getInteger("habittracker.statistic.parallel-threshold", 0)));
+        UserController userController = new UserController(userService);
+        HabitController habitController = new HabitController(habitService);
+        AdminController adminController = new AdminController(userService, habitService);
+        Session adminSession = new Session();
+        adminSession.setUser(userController.authenticateUser(new LoginUserRequest(ADMIN_EMAIL, ADMIN_PASSWORD)));
+
+        Phase phase = new Phase();
+        List<VirtualUser> users = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < settings.getUsers(); i++) {
+            VirtualUser user = new VirtualUser(i, settings, userController, habitController, adminController,
+                    adminSession, phase);
+            Thread thread = new Thread(user, "load-user-" + i);
+            thread.setDaemon(true);
+            users.add(user);
+            threads.add(thread);
+        }
+        out.printf("Пользователей: %d, прогрев: %d с, замер: %d с, пауза: %d мс%n", settings.getUsers(),
+                settings.getWarmupSeconds(), settings.getDurationSeconds(), settings.getThinkMillis());
+        threads.forEach(Thread::start);
+        Thread.sleep(settings.getWarmupSeconds() * 1000L);
+        phase.startMeasuring();
+        long started = System.nanoTime();
+        Thread.sleep(settings.getDurationSeconds() * 1000L);
+        phase.stop();
+        double seconds = (System.nanoTime() - started) / 1e9;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        report(users, seconds, out);
+    }
+
+    private static void report(List<VirtualUser> users, double seconds, PrintStream out) {
+        out.printf("%-14s %10s %8s %10s %10s %10s %10s %10s%n",
+                "Операция", "Вызовы", "Отказы", "Оп/с", "p50, мкс", "p99, мкс", "p999, мкс", "max, мкс");
+        LatencyHistogram total = new LatencyHistogram();
+        long totalFailures = 0;
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            long failures = 0;
+            for (VirtualUser user : users) {
+                histogram.add(user.getHistogram(operation));
+                failures += user.getFailures(operation);
+            }
+            if (histogram.getCount() > 0) {
+                print(out, operation.getKey(), histogram, failures, seconds);
+                total.add(histogram);
+                totalFailures += failures;
+            }
+        }
+        print(out, "total", total, totalFailures, seconds);
+    }
+
+    private static void print(PrintStream out, String name, LatencyHistogram histogram, long failures,
+                              double seconds) {
+        out.printf("%-14s %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n", name, histogram.getCount(), failures,
+                histogram.getCount() / seconds, micros(histogram.valueAt(0.5)), micros(histogram.valueAt(0.99)),
+                micros(histogram.valueAt(0.999)), micros(histogram.getMax()));
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+
+    /**
+     * Фаза нагрузки, общая для всех пользователей.
+     */
+    static class Phase {
+        private volatile boolean measuring;
+        private volatile boolean stopped;
+
+        boolean isMeasuring() {
+            return measuring;
+        }
+
+        boolean isStopped() {
+            return stopped;
+        }
+
+        void startMeasuring() {
+            measuring = true;
+        }
+
+        void stop() {
+            stopped = true;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.masnaviev.habittracker.benchmarks.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Параметры нагрузки, заданные аргументами вида {@code ключ=значение}.
+ * <ul>
+ *     <li>{@code users} - количество одновременных пользователей (по умолчанию 100);</li>
+ *     <li>{@code duration} - длительность замера в секундах (по умолчанию 60);</li>
+ *     <li>{@code warmup} - длительность прогрева в секундах, его результаты не учитываются (по умолчанию 10);</li>
+ *     <li>{@code think-ms} - среднее время между операциями пользователя, 0 - без пауз (по умолчанию 100);</li>
+ *     <li>{@code habits} - количество привычек, создаваемых пользователем при регистрации (по умолчанию 5);</li>
+ *     <li>{@code mix} - веса операций, например {@code mark:50,statistic:30,login:0};
+ *     неуказанные операции сохраняют вес по умолчанию.</li>
+ * </ul>
+ */
+class LoadSettings {
+    private int users = 100;
+    private int durationSeconds = 60;
+    private int warmupSeconds = 10;
+    private int thinkMillis = 100;
+    private int habitsPerUser = 5;
+    private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+
+    private LoadSettings() {
+        for (Operation operation : Operation.values()) {
+            mix.put(operation, operation.getDefaultWeight());
+        }
+    }
+
+    static LoadSettings parse(String... args) {
+        LoadSettings settings = new LoadSettings();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Ожидался аргумент вида ключ=значение: " + arg);
+            }
+            String key = arg.substring(0, separator);
+            String value = arg.substring(separator + 1);
+            switch (key) {
+                case "users" -> settings.users = positive(key, value);
+                case "duration" -> settings.durationSeconds = positive(key, value);
+                case "warmup" -> settings.warmupSeconds = nonNegative(key, value);
+                case "think-ms" -> settings.thinkMillis = nonNegative(key, value);
+                case "habits" -> settings.habitsPerUser = nonNegative(key, value);
+                case "mix" -> settings.parseMix(value);
+                default -> throw new IllegalArgumentException("Неизвестный параметр: " + key);
+            }
+        }
+        if (settings.mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("Хотя бы одна операция должна иметь положительный вес");
+        }
+        return settings;
+    }
+
+    private void parseMix(String value) {
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Ожидался вес вида операция:вес: " + entry);
+            }
+            mix.put(Operation.fromKey(parts[0].trim()), nonNegative(parts[0], parts[1].trim()));
+        }
+    }
+
+    private static int positive(String key, String value) {
+        int number = nonNegative(key, value);
+        if (number == 0) {
+            throw new IllegalArgumentException("Параметр " + key + " должен быть положительным");
+        }
+        return number;
+    }
+
+    private static int nonNegative(String key, String value) {
+        int number = Integer.parseInt(value);
+        if (number < 0) {
+            throw new IllegalArgumentException("Параметр " + key + " не может быть отрицательным");
+        }
+        return number;
+    }
+
+    int getUsers() {
+        return users;
+    }
+
+    int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    int getThinkMillis() {
+        return thinkMillis;
+    }
+
+    int getHabitsPerUser() {
+        return habitsPerUser;
+    }
+
+    int getWeight(Operation operation) {
+        return mix.get(operation);
+    }
+}
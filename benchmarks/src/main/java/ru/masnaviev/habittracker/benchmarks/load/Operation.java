@@ -0,0 +1,41 @@
+package ru.masnaviev.habittracker.benchmarks.load;
+
+/**
+ * Операция, которую виртуальный пользователь выполняет через контроллеры.
+ */
+enum Operation {
+    REGISTER("register", 5),
+    LOGIN("login", 5),
+    CREATE_HABIT("create-habit", 10),
+    UPDATE_HABIT("update-habit", 5),
+    DELETE_HABIT("delete-habit", 4),
+    LIST_HABITS("list-habits", 20),
+    MARK("mark", 25),
+    STATISTIC("statistic", 25),
+    ADMIN("admin", 1);
+
+    private final String key;
+    private final int defaultWeight;
+
+    Operation(String key, int defaultWeight) {
+        this.key = key;
+        this.defaultWeight = defaultWeight;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    int getDefaultWeight() {
+        return defaultWeight;
+    }
+
+    static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестная операция: " + key);
+    }
+}
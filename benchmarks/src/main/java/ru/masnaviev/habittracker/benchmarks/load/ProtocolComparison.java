@@ -0,0 +1,288 @@
+package ru.masnaviev.habittracker.benchmarks.load;
+
+import ru.masnaviev.habittracker.app.util.Components;
+import ru.masnaviev.habittracker.controllers.HabitController;
+import ru.masnaviev.habittracker.controllers.UserController;
+import ru.masnaviev.habittracker.controllers.util.TimePeriod;
+import ru.masnaviev.habittracker.in.binary.BinaryClient;
+import ru.masnaviev.habittracker.in.binary.BinaryProtocol;
+import ru.masnaviev.habittracker.in.binary.BinaryServer;
+import ru.masnaviev.habittracker.in.dto.CreateHabitRequest;
+import ru.masnaviev.habittracker.in.dto.CreateUserRequest;
+import ru.masnaviev.habittracker.in.http.HttpApi;
+import ru.masnaviev.habittracker.models.Frequency;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.models.User;
+import ru.masnaviev.habittracker.security.SessionRegistry;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Сравнение HTTP/JSON и двоичного протокола на одних и тех же запросах: список привычек и статистика за месяц.
+ * <p>
+ * Оба сервера запускаются в одном процессе с общим хранилищем, каждый клиент держит одно соединение.
+ * Печатаются пропускная способность, процессорное время процесса (клиенты и сервер вместе) и байты
+ * запроса и ответа на один запрос. Двоичный протокол замеряется без конвейера и с отправкой
+ * {@code pipeline} запросов подряд. Параметры - аргументы вида {@code ключ=значение}:
+ * {@code clients} (по умолчанию 4), {@code requests} - запросов на клиента (по умолчанию 20000),
+ * {@code habits} - привычек у пользователя (по умолчанию 10), {@code pipeline} (по умолчанию 32).
+ */
+public class ProtocolComparison {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+    private static final Pattern CONTENT_LENGTH = Pattern.compile("(?i)content-length: *(\\d+)");
+    private static final String PASSWORD = "password";
+
+    public static void main(String[] args) throws Exception {
+        int clients = 4;
+        int requests = 20_000;
+        int habits = 10;
+        int pipeline = 32;
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Ожидался аргумент вида ключ=значение: " + arg);
+            }
+            int value = Integer.parseInt(arg.substring(separator + 1));
+            switch (arg.substring(0, separator)) {
+                case "clients" -> clients = value;
+                case "requests" -> requests = value;
+                case "habits" -> habits = value;
+                case "pipeline" -> pipeline = value;
+                default -> throw new IllegalArgumentException("Неизвестный параметр: " + arg);
+            }
+        }
+
+        try (Components components = Components.fromSystemProperties();
+             SessionRegistry sessionRegistry = SessionRegistry.start(3_600_000, 3_600_000)) {
+            List<String> emails = createUsers(components.getUserController(), components.getHabitController(),
+                    clients, habits);
+            HttpApi httpApi = new HttpApi(components.getUserController(), components.getHabitController(),
+                    components.getAdminController(), sessionRegistry);
+            BinaryServer binaryServer = new BinaryServer(components.getUserController(),
+                    components.getHabitController(), sessionRegistry);
+            InetAddress loopback = InetAddress.getLoopbackAddress();
+            httpApi.start(new InetSocketAddress(loopback, 0), 0, clients);
+            binaryServer.start(new InetSocketAddress(loopback, 0), 1);
+            try {
+                InetSocketAddress http = new InetSocketAddress(loopback, httpApi.getPort());
+                InetSocketAddress binary = new InetSocketAddress(loopback, binaryServer.getPort());
+                PrintStream out = System.out;
+                out.printf("Клиентов: %d, запросов на клиента: %d, привычек у пользователя: %d%n",
+                        clients, requests, habits);
+                out.printf("%-22s %10s %14s %14s %14s%n", "Протокол", "Зап/с", "ЦП, мкс/зап",
+                        "Запрос, байт", "Ответ, байт");
+                for (int round = 0; round < 2; round++) {
+                    boolean print = round == 1;
+                    run(out, print, "http/json", emails, requests, email -> httpClient(http, email));
+                    run(out, print, "binary", emails, requests, email -> binaryClient(binary, email, 1));
+                    int depth = pipeline;
+                    run(out, print, "binary, конвейер " + pipeline, emails, requests,
+                            email -> binaryClient(binary, email, depth));
+                }
+            } finally {
+                httpApi.stop(0);
+                binaryServer.stop();
+            }
+        }
+    }
+
+    private static List<String> createUsers(UserController userController, HabitController habitController,
+                                            int users, int habits) {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String email = "protocol-" + i + "-" + System.nanoTime() + "@load.test";
+            User user = userController.create(new CreateUserRequest(email, PASSWORD, "User " + i));
+            for (int j = 0; j < habits; j++) {
+                Habit habit = habitController.create(new CreateHabitRequest("Habit " + j, "Description " + j,
+                        Frequency.DAILY), user.getId());
+                int today = Math.toIntExact(LocalDate.now().toEpochDay());
+                for (int day = 1; day < 30; day += 2) {
+                    habit.getExecutionHistory().addEpochDays(today - day);
+                }
+            }
+            emails.add(email);
+        }
+        return emails;
+    }
+
+    private static void run(PrintStream out, boolean print, String name, List<String> emails, int requests,
+                            ClientFactory factory) throws Exception {
+        List<Client> clients = new ArrayList<>();
+        for (String email : emails) {
+            clients.add(factory.open(email));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(clients.size());
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        try {
+            long cpuStarted = os.getProcessCpuTime();
+            long started = System.nanoTime();
+            List<Future<long[]>> results = new ArrayList<>();
+            for (Client client : clients) {
+                results.add(executor.submit((Callable<long[]>) () -> client.run(requests)));
+            }
+            long sent = 0;
+            long received = 0;
+            for (Future<long[]> result : results) {
+                long[] bytes = result.get();
+                sent += bytes[0];
+                received += bytes[1];
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+            long cpu = os.getProcessCpuTime() - cpuStarted;
+            long total = (long) requests * clients.size();
+            if (print) {
+                out.printf("%-22s %10.0f %14.1f %14.1f %14.1f%n", name, total / seconds, cpu / 1_000.0 / total,
+                        (double) sent / total, (double) received / total);
+            }
+        } finally {
+            executor.shutdown();
+            for (Client client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    private static Client httpClient(InetSocketAddress address, String email) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        ByteBuffer response = ByteBuffer.allocate(256 * 1024);
+        String login = "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}";
+        int headersEnd = exchange(channel, ("POST /api/sessions HTTP/1.1\r\nHost: localhost\r\nContent-Length: "
+                + login.length() + "\r\nContent-Type: application/json\r\n\r\n" + login)
+                .getBytes(StandardCharsets.UTF_8), response, new long[2]);
+        String body = new String(response.array(), headersEnd, response.position() - headersEnd,
+                StandardCharsets.UTF_8);
+        Matcher token = TOKEN.matcher(body);
+        if (!token.find()) {
+            throw new IOException("Неожиданный ответ сервера: " + body);
+        }
+        String headers = "Host: localhost\r\nAuthorization: Bearer " + token.group(1) + "\r\n\r\n";
+        byte[] list = ("GET /api/habits HTTP/1.1\r\n" + headers).getBytes(StandardCharsets.US_ASCII);
+        byte[] statistic = ("GET /api/statistics?period=month HTTP/1.1\r\n" + headers)
+                .getBytes(StandardCharsets.US_ASCII);
+        return new Client() {
+            @Override
+            public long[] run(int requests) throws IOException {
+                long[] bytes = new long[2];
+                for (int i = 0; i < requests; i++) {
+                    exchange(channel, i % 2 == 0 ? list : statistic, response, bytes);
+                }
+                return bytes;
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    private static Client binaryClient(InetSocketAddress address, String email, int depth) throws IOException {
+        BinaryClient client = new BinaryClient(address);
+        client.login(0, email, PASSWORD);
+        if (client.receive().getStatus() != BinaryProtocol.OK) {
+            throw new IOException("Не удалось войти по двоичному протоколу");
+        }
+        return new Client() {
+            @Override
+            public long[] run(int requests) throws IOException {
+                long sentBefore = client.getBytesSent();
+                long receivedBefore = client.getBytesReceived();
+                for (int i = 0; i < requests; i += depth) {
+                    int batch = Math.min(depth, requests - i);
+                    for (int j = 0; j < batch; j++) {
+                        if ((i + j) % 2 == 0) {
+                            client.listHabits(i + j);
+                        } else {
+                            client.statistic(i + j, TimePeriod.MONTH);
+                        }
+                    }
+                    for (int j = 0; j < batch; j++) {
+                        if (client.receive().getStatus() != BinaryProtocol.OK) {
+                            throw new IOException("Сервер вернул ошибку");
+                        }
+                    }
+                }
+                return new long[]{client.getBytesSent() - sentBefore, client.getBytesReceived() - receivedBefore};
+            }
+
+            @Override
+            public void close() throws IOException {
+                client.close();
+            }
+        };
+    }
+
+    /**
+     * Отправляет HTTP-запрос по открытому соединению и читает ответ целиком.
+     *
+     * @param response буфер ответа, переиспользуется между запросами.
+     * @param bytes    счетчики отправленных и полученных байт.
+     * @return длина заголовков ответа; тело лежит в буфере сразу за ними.
+     */
+    private static int exchange(SocketChannel channel, byte[] request, ByteBuffer response, long[] bytes)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(request);
+        while (buffer.hasRemaining()) {
+            bytes[0] += channel.write(buffer);
+        }
+        response.clear();
+        int headersEnd = -1;
+        int bodyLength = 0;
+        while (true) {
+            int read = channel.read(response);
+            if (read < 0) {
+                throw new IOException("Сервер закрыл соединение");
+            }
+            bytes[1] += read;
+            if (headersEnd < 0) {
+                headersEnd = indexOfHeadersEnd(response.array(), response.position());
+                if (headersEnd < 0) {
+                    continue;
+                }
+                Matcher length = CONTENT_LENGTH.matcher(
+                        new String(response.array(), 0, headersEnd, StandardCharsets.US_ASCII));
+                bodyLength = length.find() ? Integer.parseInt(length.group(1)) : 0;
+            }
+            if (response.position() >= headersEnd + bodyLength) {
+                return headersEnd;
+            }
+        }
+    }
+
+    private static int indexOfHeadersEnd(byte[] data, int length) {
+        for (int i = 3; i < length; i++) {
+            if (data[i] == '\n' && data[i - 1] == '\r' && data[i - 2] == '\n' && data[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private interface Client {
+        long[] run(int requests) throws IOException;
+
+        void close() throws IOException;
+    }
+
+    private interface ClientFactory {
+        Client open(String email) throws IOException;
+    }
+}
@@ -0,0 +1,158 @@
+package ru.masnaviev.habittracker.benchmarks.load;
+
+import ru.masnaviev.habittracker.controllers.AdminController;
+import ru.masnaviev.habittracker.controllers.HabitController;
+import ru.masnaviev.habittracker.controllers.UserController;
+import ru.masnaviev.habittracker.controllers.util.TimePeriod;
+import ru.masnaviev.habittracker.in.dto.CreateHabitRequest;
+import ru.masnaviev.habittracker.in.dto.CreateUserRequest;
+import ru.masnaviev.habittracker.in.dto.LoginUserRequest;
+import ru.masnaviev.habittracker.in.dto.UpdateHabitRequest;
+import ru.masnaviev.habittracker.models.Frequency;
+import ru.masnaviev.habittracker.security.Session;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Виртуальный пользователь: регистрируется, входит в систему и выполняет операции
+ * в заданной пропорции с паузами между ними.
+ * <p>
+ * Нагрузка замкнутая: следующая операция начинается после завершения предыдущей и паузы,
+ * поэтому при перегрузке сервиса падает пропускная способность, а не растет очередь.
+ */
+class VirtualUser implements Runnable {
+
+    private static final TimePeriod[] TIME_PERIODS = TimePeriod.values();
+
+    private final int index;
+    private final LoadSettings settings;
+    private final UserController userController;
+    private final HabitController habitController;
+    private final AdminController adminController;
+    private final Session adminSession;
+    private final LoadGenerator.Phase phase;
+    private final SplittableRandom random;
+    private final Operation[] schedule;
+    private final Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, Long> failures = new EnumMap<>(Operation.class);
+    private final List<Long> habitIds = new ArrayList<>();
+    private final String email;
+    private final String password;
+    private long userId;
+    private int sequence;
+
+    VirtualUser(int index, LoadSettings settings, UserController userController, HabitController habitController,
+                AdminController adminController, Session adminSession, LoadGenerator.Phase phase) {
+        this.index = index;
+        this.settings = settings;
+        this.userController = userController;
+        this.habitController = habitController;
+        this.adminController = adminController;
+        this.adminSession = adminSession;
+        this.phase = phase;
+        this.random = new SplittableRandom(index);
+        this.schedule = schedule(settings);
+        this.email = "load-" + index + "@mail.ru";
+        this.password = "password-" + index;
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new LatencyHistogram());
+            failures.put(operation, 0L);
+        }
+    }
+
+    @Override
+    public void run() {
+        userId = userController.create(new CreateUserRequest(email, password, "Load user " + index)).getId();
+        for (int i = 0; i < settings.getHabitsPerUser(); i++) {
+            createHabit();
+        }
+        while (!phase.isStopped()) {
+            Operation operation = schedule[random.nextInt(schedule.length)];
+            long started = System.nanoTime();
+            boolean failed = false;
+            try {
+                operation = execute(operation);
+            } catch (RuntimeException e) {
+                failed = true;
+            }
+            long elapsed = System.nanoTime() - started;
+            if (phase.isMeasuring()) {
+                histograms.get(operation).record(elapsed);
+                if (failed) {
+                    failures.merge(operation, 1L, Long::sum);
+                }
+            }
+            think();
+        }
+    }
+
+    LatencyHistogram getHistogram(Operation operation) {
+        return histograms.get(operation);
+    }
+
+    long getFailures(Operation operation) {
+        return failures.get(operation);
+    }
+
+    /**
+     * Выполняет операцию. Операции над привычками при пустом списке привычек заменяются созданием привычки.
+     *
+     * @return фактически выполненная операция.
+     */
+    private Operation execute(Operation operation) {
+        if (habitIds.isEmpty() && (operation == Operation.UPDATE_HABIT || operation == Operation.DELETE_HABIT
+                || operation == Operation.MARK)) {
+            operation = Operation.CREATE_HABIT;
+        }
+        switch (operation) {
+            case REGISTER -> userController.create(new CreateUserRequest(
+                    "load-" + index + "-" + sequence++ + "@mail.ru", password, "Load user " + index));
+            case LOGIN -> userController.authenticateUser(new LoginUserRequest(email, password));
+            case CREATE_HABIT -> createHabit();
+            case UPDATE_HABIT -> habitController.update(
+                    new UpdateHabitRequest("Habit " + sequence++, null, null), randomHabit());
+            case DELETE_HABIT -> habitController.delete(habitIds.remove(random.nextInt(habitIds.size())));
+            case LIST_HABITS -> habitController.getAll(userId);
+            case MARK -> habitController.addHabitExecution(randomHabit());
+            case STATISTIC -> habitController.getStatistic(userId, TIME_PERIODS[random.nextInt(TIME_PERIODS.length)]);
+            case ADMIN -> adminController.getAllUsers(adminSession);
+        }
+        return operation;
+    }
+
+    private void createHabit() {
+        Frequency frequency = random.nextInt(4) == 0 ? Frequency.WEEKLY : Frequency.DAILY;
+        habitIds.add(habitController.create(
+                new CreateHabitRequest("Habit " + sequence++, "Load test habit", frequency), userId).getId());
+    }
+
+    private long randomHabit() {
+        return habitIds.get(random.nextInt(habitIds.size()));
+    }
+
+    /**
+     * Пауза с экспоненциальным распределением вокруг заданного среднего.
+     */
+    private void think() {
+        if (settings.getThinkMillis() > 0) {
+            double pause = -Math.log(1 - random.nextDouble()) * settings.getThinkMillis();
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos((long) (pause * 1000)));
+        }
+    }
+
+    private static Operation[] schedule(LoadSettings settings) {
+        List<Operation> schedule = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            for (int i = 0; i < settings.getWeight(operation); i++) {
+                schedule.add(operation);
+            }
+        }
+        return schedule.toArray(new Operation[0]);
+    }
+}
@@ -1,10 +1,16 @@
 package ru.masnaviev.habittracker;
 
 import ru.masnaviev.habittracker.app.HabitTracker;
+import ru.masnaviev.habittracker.app.HabitTrackerServer;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("habittracker.http.port") != null
+                || System.getProperty("habittracker.binary.port") != null) {
+            new HabitTrackerServer().start();
+            return;
+        }
         HabitTracker habitTracker = new HabitTracker();
         habitTracker.start();
     }
-}
\ No newline at end of file
+}
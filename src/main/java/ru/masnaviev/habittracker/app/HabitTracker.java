@@ -1,18 +1,15 @@
 package ru.masnaviev.habittracker.app;
 
+import ru.masnaviev.habittracker.app.util.Components;
 import ru.masnaviev.habittracker.controllers.AdminController;
 import ru.masnaviev.habittracker.controllers.HabitController;
 import ru.masnaviev.habittracker.controllers.UserController;
 import ru.masnaviev.habittracker.handlers.AdminInputHandler;
 import ru.masnaviev.habittracker.handlers.HabitInputHandler;
 import ru.masnaviev.habittracker.handlers.UserInputHandler;
-import ru.masnaviev.habittracker.out.repositories.HabitRepository;
-import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
-import ru.masnaviev.habittracker.out.repositories.InMemoryUserRepository;
-import ru.masnaviev.habittracker.out.repositories.UserRepository;
 import ru.masnaviev.habittracker.security.Session;
-import ru.masnaviev.habittracker.services.HabitService;
-import ru.masnaviev.habittracker.services.UserService;
+
+import java.io.IOException;
 
 import static ru.masnaviev.habittracker.app.util.ConsoleView.*;
 import static ru.masnaviev.habittracker.handlers.util.InputHandler.getUserInputInt;
@@ -22,17 +19,13 @@ public class HabitTracker {
     private final HabitInputHandler habitInputHandler;
     private final AdminInputHandler adminInputHandler;
     private final Session session;
+    private final Components components;
 
     public HabitTracker() {
-        HabitRepository habitRepository = new InMemoryHabitRepository();
-        UserRepository userRepository = new InMemoryUserRepository();
-
-        UserService userService = new UserService(userRepository);
-        HabitService habitService = new HabitService(habitRepository);
-
-        HabitController habitController = new HabitController(habitService);
-        UserController userController = new UserController(userService);
-        AdminController adminController = new AdminController(userService, habitService);
+        this.components = Components.fromSystemProperties();
+        HabitController habitController = components.getHabitController();
+        UserController userController = components.getUserController();
+        AdminController adminController = components.getAdminController();
 
         this.session = new Session();
         this.userInputHandler = new UserInputHandler(session, userController);
@@ -66,6 +59,15 @@ public class HabitTracker {
                 }
             }
         }
+        closeStorage();
+    }
+
+    private void closeStorage() {
+        try {
+            components.close();
+        } catch (IOException e) {
+            System.out.println("Ошибка при сохранении данных: " + e.getMessage());
+        }
     }
 
     private void logout() {
@@ -0,0 +1,83 @@
+package ru.masnaviev.habittracker.app;
+
+import ru.masnaviev.habittracker.app.util.Components;
+import ru.masnaviev.habittracker.in.binary.BinaryServer;
+import ru.masnaviev.habittracker.in.http.HttpApi;
+import ru.masnaviev.habittracker.security.SessionRegistry;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Запуск трекера привычек как сервера вместо консольного меню. Запускаются те серверы, для которых задан порт.
+ * <ul>
+ *     <li>{@code habittracker.http.port} - порт HTTP API;</li>
+ *     <li>{@code habittracker.http.backlog} - длина очереди входящих соединений (по умолчанию 1024);</li>
+ *     <li>{@code habittracker.http.threads} - количество потоков обработки, если JDK не поддерживает
+ *     виртуальные потоки (по умолчанию 200);</li>
+ *     <li>{@code habittracker.binary.port} - порт двоичного протокола;</li>
+ *     <li>{@code habittracker.binary.event-loops} - количество циклов событий двоичного протокола
+ *     (по умолчанию - количество процессоров);</li>
+ *     <li>{@code habittracker.session.idle-timeout-ms}, {@code habittracker.session.absolute-timeout-ms} -
+ *     тайм-ауты сессии (по умолчанию 30 минут и 12 часов).</li>
+ * </ul>
+ * Встроенный сервер JDK по умолчанию держит открытыми не больше 200 простаивающих keep-alive соединений,
+ * остальные закрывает после ответа. Если свойство {@code sun.net.httpserver.maxIdleConnections} не задано,
+ * ограничение поднимается до 10000.
+ */
+public class HabitTrackerServer {
+    private final Components components;
+    private final SessionRegistry sessionRegistry;
+    private final HttpApi httpApi;
+    private final BinaryServer binaryServer;
+
+    public HabitTrackerServer() {
+        System.getProperties().putIfAbsent("sun.net.httpserver.maxIdleConnections", "10000");
+        this.components = Components.fromSystemProperties();
+        this.sessionRegistry = SessionRegistry.start(
+                Long.getLong("habittracker.session.idle-timeout-ms", 30 * 60 * 1000L),
+                Long.getLong("habittracker.session.absolute-timeout-ms", 12 * 60 * 60 * 1000L));
+        this.httpApi = new HttpApi(components.getUserController(), components.getHabitController(),
+                components.getAdminController(), sessionRegistry);
+        this.binaryServer = new BinaryServer(components.getUserController(), components.getHabitController(),
+                sessionRegistry);
+    }
+
+    /**
+     * Запускает серверы и ждет завершения процесса, после чего сохраняет данные.
+     */
+    public void start() throws IOException, InterruptedException {
+        Integer httpPort = Integer.getInteger("habittracker.http.port");
+        if (httpPort != null) {
+            httpApi.start(new InetSocketAddress(httpPort),
+                    Integer.getInteger("habittracker.http.backlog", 1024),
+                    Integer.getInteger("habittracker.http.threads", 200));
+            System.out.println("HTTP API запущен на порту " + httpApi.getPort());
+        }
+        Integer binaryPort = Integer.getInteger("habittracker.binary.port");
+        if (binaryPort != null) {
+            binaryServer.start(new InetSocketAddress(binaryPort),
+                    Integer.getInteger("habittracker.binary.event-loops", Runtime.getRuntime().availableProcessors()));
+            System.out.println("Двоичный протокол запущен на порту " + binaryServer.getPort());
+        }
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            httpApi.stop(1);
+            try {
+                binaryServer.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sessionRegistry.close();
+            try {
+                components.close();
+            } catch (IOException e) {
+                System.out.println("Ошибка при сохранении данных: " + e.getMessage());
+            }
+            stopped.countDown();
+        }));
+        stopped.await();
+    }
+}
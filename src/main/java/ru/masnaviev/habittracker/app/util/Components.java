@@ -0,0 +1,135 @@
+package ru.masnaviev.habittracker.app.util;
+
+import ru.masnaviev.habittracker.controllers.AdminController;
+import ru.masnaviev.habittracker.controllers.HabitController;
+import ru.masnaviev.habittracker.controllers.UserController;
+import ru.masnaviev.habittracker.monitoring.MetricsRegistry;
+import ru.masnaviev.habittracker.services.HabitService;
+import ru.masnaviev.habittracker.services.UserService;
+import ru.masnaviev.habittracker.services.util.DailyRollup;
+import ru.masnaviev.habittracker.services.util.ExecutionAudit;
+import ru.masnaviev.habittracker.services.util.ExecutionEventHandler;
+import ru.masnaviev.habittracker.services.util.ExecutionPipeline;
+import ru.masnaviev.habittracker.services.util.StatisticCache;
+import ru.masnaviev.habittracker.services.util.StatisticSettings;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сервисы и контроллеры приложения поверх выбранного хранилища, общие для всех точек входа.
+ * <ul>
+ *     <li>{@code habittracker.statistic-cache.size} - размер кэша статистики, 0 - не кэшировать;</li>
+ *     <li>{@code habittracker.statistic.parallel-threshold} - количество привычек, начиная с которого
+ *     статистика рассчитывается параллельно;</li>
+ *     <li>{@code habittracker.pipeline.buffer-size} - размер кольцевого буфера событий отметки выполнения
+ *     (по умолчанию 1024), 0 - обновлять производные данные при записи, без сводки по дням и аудита;</li>
+ *     <li>{@code habittracker.pipeline.publish-timeout-ms} - сколько отметка ждет свободного места в буфере,
+ *     если обработчики отстают, прежде чем будет отклонена (по умолчанию 1000);</li>
+ *     <li>{@code habittracker.audit.file} - файл журнала аудита отметок; не задан - аудит не ведется;</li>
+ *     <li>{@code habittracker.metrics.enabled}, {@code habittracker.metrics.sample-rate} - метрики контроллеров
+ *     и счетчики кэша статистики.</li>
+ * </ul>
+ * Хранилище выбирается по свойствам, описанным в {@link Storage}.
+ */
+public class Components implements Closeable {
+
+    private final Storage storage;
+    private final ExecutionPipeline executionPipeline;
+    private final ExecutionAudit executionAudit;
+    private final UserController userController;
+    private final HabitController habitController;
+    private final AdminController adminController;
+
+    private Components(Storage storage) {
+        this.storage = storage;
+        UserService userService = new UserService(storage.getUserRepository());
+        int statisticCacheSize = Integer.getInteger("habittracker.statistic-cache.size", 10_000);
+        StatisticCache statisticCache = statisticCacheSize > 0 ? new StatisticCache(statisticCacheSize) : null;
+
+        int pipelineSize = Integer.getInteger("habittracker.pipeline.buffer-size", 1024);
+        String auditFile = System.getProperty("habittracker.audit.file");
+        DailyRollup dailyRollup = null;
+        if (pipelineSize > 0) {
+            dailyRollup = new DailyRollup();
+            List<ExecutionEventHandler> handlers = new ArrayList<>();
+            handlers.add(dailyRollup);
+            if (statisticCache != null) {
+                handlers.add(event -> statisticCache.removeStale(event.getUserId()));
+            }
+            executionAudit = auditFile == null || auditFile.isBlank() ? null : openAudit(Path.of(auditFile));
+            if (executionAudit != null) {
+                handlers.add(executionAudit);
+            }
+            executionPipeline = new ExecutionPipeline(pipelineSize,
+                    Long.getLong("habittracker.pipeline.publish-timeout-ms", 1000),
+                    handlers.toArray(new ExecutionEventHandler[0]));
+        } else {
+            executionAudit = null;
+            executionPipeline = null;
+        }
+        HabitService habitService = new HabitService(storage.getHabitRepository(), statisticCache,
+                new StatisticSettings(Integer.getInteger("habittracker.statistic.parallel-threshold", 0)),
+                executionPipeline);
+
+        boolean metricsEnabled = Boolean.parseBoolean(System.getProperty("habittracker.metrics.enabled", "true"));
+        MetricsRegistry metricsRegistry = metricsEnabled
+                ? MetricsRegistry.platform(Integer.getInteger("habittracker.metrics.sample-rate", 16))
+                : MetricsRegistry.disabled();
+        if (statisticCache != null) {
+            metricsRegistry.publish(statisticCache, "HabitService", "statisticCache");
+        }
+        this.habitController = new HabitController(habitService, metricsRegistry);
+        this.userController = new UserController(userService, metricsRegistry);
+        this.adminController = new AdminController(userService, habitService, dailyRollup, metricsRegistry);
+    }
+
+    public static Components fromSystemProperties() {
+        return new Components(Storage.fromSystemProperties());
+    }
+
+    public UserController getUserController() {
+        return userController;
+    }
+
+    public HabitController getHabitController() {
+        return habitController;
+    }
+
+    public AdminController getAdminController() {
+        return adminController;
+    }
+
+    /**
+     * Возвращает конвейер событий отметки выполнения или {@code null}, если он отключен.
+     */
+    public ExecutionPipeline getExecutionPipeline() {
+        return executionPipeline;
+    }
+
+    /**
+     * Дожидается обработки опубликованных событий отметки выполнения и закрывает хранилище.
+     */
+    @Override
+    public void close() throws IOException {
+        if (executionPipeline != null) {
+            executionPipeline.close();
+        }
+        if (executionAudit != null) {
+            executionAudit.close();
+        }
+        storage.close();
+    }
+
+    private static ExecutionAudit openAudit(Path file) {
+        try {
+            return ExecutionAudit.open(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал аудита " + file, e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ru.masnaviev.habittracker.app.util;
+
+import ru.masnaviev.habittracker.out.persistence.JournalSettings;
+import ru.masnaviev.habittracker.out.repositories.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/**
+ * Выбор хранилища приложения по системным свойствам.
+ * <ul>
+ *     <li>{@code habittracker.storage} - {@code memory} (по умолчанию), {@code wal} или {@code jdbc};</li>
+ *     <li>{@code habittracker.data-dir} - каталог с данными, по умолчанию {@code data};</li>
+ *     <li>{@code habittracker.wal.batch-size}, {@code habittracker.wal.flush-interval-ms},
+ *     {@code habittracker.wal.fsync} - параметры сброса журнала на диск;</li>
+ *     <li>{@code habittracker.checkpoint-interval-ms} - период создания снимков хранилища;</li>
+ *     <li>{@code habittracker.snapshot.lazy} - читать ли привычки из снимка при первом обращении;</li>
+ *     <li>{@code habittracker.jdbc.url}, {@code habittracker.jdbc.user}, {@code habittracker.jdbc.password},
+ *     {@code habittracker.jdbc.pool-size} - подключение к базе данных, по умолчанию встроенная H2
+ *     в каталоге с данными.</li>
+ * </ul>
+ */
+public class Storage implements Closeable {
+
+    private final UserRepository userRepository;
+    private final HabitRepository habitRepository;
+    private final Closeable resource;
+
+    private Storage(UserRepository userRepository, HabitRepository habitRepository, Closeable resource) {
+        this.userRepository = userRepository;
+        this.habitRepository = habitRepository;
+        this.resource = resource;
+    }
+
+    public static Storage fromSystemProperties() {
+        String type = System.getProperty("habittracker.storage", "memory");
+        Path dataDir = Path.of(System.getProperty("habittracker.data-dir", "data"));
+        try {
+            return switch (type) {
+                case "memory" -> new Storage(new InMemoryUserRepository(), new InMemoryHabitRepository(), () -> {
+                });
+                case "wal" -> {
+                    DurableStore store = DurableStore.open(dataDir, journalSettings());
+                    yield new Storage(store.getUserRepository(), store.getHabitRepository(), store);
+                }
+                case "jdbc" -> {
+                    JdbcStore store = JdbcStore.open(
+                            System.getProperty("habittracker.jdbc.url",
+                                    "jdbc:h2:file:" + dataDir.toAbsolutePath().resolve("habittracker")),
+                            System.getProperty("habittracker.jdbc.user", "sa"),
+                            System.getProperty("habittracker.jdbc.password", ""),
+                            Integer.getInteger("habittracker.jdbc.pool-size",
+                                    Runtime.getRuntime().availableProcessors() * 2));
+                    yield new Storage(store.getUserRepository(), store.getHabitRepository(), store);
+                }
+                default -> throw new IllegalArgumentException("Неизвестный тип хранилища: " + type);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть хранилище в " + dataDir, e);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось подключиться к базе данных", e);
+        }
+    }
+
+    private static JournalSettings journalSettings() {
+        JournalSettings defaults = JournalSettings.defaults();
+        return new JournalSettings(
+                Integer.getInteger("habittracker.wal.batch-size", defaults.getBatchSize()),
+                Long.getLong("habittracker.wal.flush-interval-ms", defaults.getFlushIntervalMillis()),
+                Boolean.parseBoolean(System.getProperty("habittracker.wal.fsync", String.valueOf(defaults.isFsync()))),
+                Long.getLong("habittracker.checkpoint-interval-ms", defaults.getCheckpointIntervalMillis()),
+                Boolean.parseBoolean(System.getProperty("habittracker.snapshot.lazy",
+                        String.valueOf(defaults.isLazySnapshotLoading()))));
+    }
+
+    public UserRepository getUserRepository() {
+        return userRepository;
+    }
+
+    public HabitRepository getHabitRepository() {
+        return habitRepository;
+    }
+
+    @Override
+    public void close() throws IOException {
+        resource.close();
+    }
+}
@@ -2,23 +2,70 @@ package ru.masnaviev.habittracker.controllers;
 
 import ru.masnaviev.habittracker.models.Habit;
 import ru.masnaviev.habittracker.models.User;
+import ru.masnaviev.habittracker.monitoring.MetricsRegistry;
+import ru.masnaviev.habittracker.monitoring.OperationMetrics;
 import ru.masnaviev.habittracker.security.Session;
 import ru.masnaviev.habittracker.services.HabitService;
 import ru.masnaviev.habittracker.services.UserService;
+import ru.masnaviev.habittracker.services.util.DailyRollup;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Контроллер для управления функциями администратора, включая управление пользователями и привычками.
+ * Количество вызовов, ошибок и задержки каждого публичного метода учитываются в {@link MetricsRegistry}.
  */
 public class AdminController {
 
     private final UserService userService;
     private final HabitService habitService;
+    private final DailyRollup dailyRollup;
+    private final OperationMetrics getAllUsersMetrics;
+    private final OperationMetrics blockUserMetrics;
+    private final OperationMetrics unblockUserMetrics;
+    private final OperationMetrics deleteUserMetrics;
+    private final OperationMetrics getAllHabitsMetrics;
+    private final OperationMetrics deleteHabitMetrics;
+    private final OperationMetrics getDailyExecutionsMetrics;
 
     public AdminController(UserService userService, HabitService habitService) {
+        this(userService, habitService, MetricsRegistry.disabled());
+    }
+
+    /**
+     * @param userService     сервис пользователей.
+     * @param habitService    сервис привычек.
+     * @param metricsRegistry реестр, в котором публикуются метрики методов контроллера,
+     *                        {@code null} - не собирать метрики.
+     */
+    public AdminController(UserService userService, HabitService habitService, MetricsRegistry metricsRegistry) {
+        this(userService, habitService, null, metricsRegistry);
+    }
+
+    /**
+     * @param userService     сервис пользователей.
+     * @param habitService    сервис привычек.
+     * @param dailyRollup     сводка отметок по дням или {@code null}, если конвейер событий выполнения отключен.
+     * @param metricsRegistry реестр, в котором публикуются метрики методов контроллера,
+     *                        {@code null} - не собирать метрики.
+     */
+    public AdminController(UserService userService, HabitService habitService, DailyRollup dailyRollup,
+                           MetricsRegistry metricsRegistry) {
+        if (metricsRegistry == null) {
+            metricsRegistry = MetricsRegistry.disabled();
+        }
         this.userService = userService;
         this.habitService = habitService;
+        this.dailyRollup = dailyRollup;
+        this.getAllUsersMetrics = metricsRegistry.operation("AdminController", "getAllUsers");
+        this.blockUserMetrics = metricsRegistry.operation("AdminController", "blockUser");
+        this.unblockUserMetrics = metricsRegistry.operation("AdminController", "unblockUser");
+        this.deleteUserMetrics = metricsRegistry.operation("AdminController", "deleteUser");
+        this.getAllHabitsMetrics = metricsRegistry.operation("AdminController", "getAllHabits");
+        this.deleteHabitMetrics = metricsRegistry.operation("AdminController", "deleteHabit");
+        this.getDailyExecutionsMetrics = metricsRegistry.operation("AdminController", "getDailyExecutions");
     }
 
     /**
@@ -29,8 +76,13 @@ public class AdminController {
      * @throws SecurityException если у текущего пользователя нет прав администратора
      */
     public List<User> getAllUsers(Session session) {
-        userService.checkAdminRights(session);
-        return userService.getAllUsers();
+        long started = getAllUsersMetrics.start();
+        try {
+            userService.checkAdminRights(session);
+            return getAllUsersMetrics.succeeded(started, userService.getAllUsers());
+        } catch (RuntimeException e) {
+            throw getAllUsersMetrics.failed(started, e);
+        }
     }
 
     /**
@@ -41,8 +93,14 @@ public class AdminController {
      * @throws SecurityException если у текущего пользователя нет прав администратора
      */
     public void blockUser(long userId, Session session) {
-        userService.checkAdminRights(session);
-        userService.blockUser(userId);
+        long started = blockUserMetrics.start();
+        try {
+            userService.checkAdminRights(session);
+            userService.blockUser(userId);
+            blockUserMetrics.succeeded(started);
+        } catch (RuntimeException e) {
+            throw blockUserMetrics.failed(started, e);
+        }
     }
 
     /**
@@ -53,8 +111,14 @@ public class AdminController {
      * @throws SecurityException если у текущего пользователя нет прав администратора
      */
     public void unblockUser(long userId, Session session) {
-        userService.checkAdminRights(session);
-        userService.unblockUser(userId);
+        long started = unblockUserMetrics.start();
+        try {
+            userService.checkAdminRights(session);
+            userService.unblockUser(userId);
+            unblockUserMetrics.succeeded(started);
+        } catch (RuntimeException e) {
+            throw unblockUserMetrics.failed(started, e);
+        }
     }
 
     /**
@@ -65,8 +129,14 @@ public class AdminController {
      * @throws SecurityException если у текущего пользователя нет прав администратора
      */
     public void deleteUser(long userId, Session session) {
-        userService.checkAdminRights(session);
-        userService.deleteUserByAdmin(userId);
+        long started = deleteUserMetrics.start();
+        try {
+            userService.checkAdminRights(session);
+            userService.deleteUserByAdmin(userId);
+            deleteUserMetrics.succeeded(started);
+        } catch (RuntimeException e) {
+            throw deleteUserMetrics.failed(started, e);
+        }
     }
 
     /**
@@ -77,8 +147,13 @@ public class AdminController {
      * @throws SecurityException если у текущего пользователя нет прав администратора
      */
     public List<Habit> getAllHabits(Session session) {
-        userService.checkAdminRights(session);
-        return habitService.getAllHabits();
+        long started = getAllHabitsMetrics.start();
+        try {
+            userService.checkAdminRights(session);
+            return getAllHabitsMetrics.succeeded(started, habitService.getAllHabits());
+        } catch (RuntimeException e) {
+            throw getAllHabitsMetrics.failed(started, e);
+        }
     }
 
     /**
@@ -89,7 +164,35 @@ public class AdminController {
      * @throws SecurityException если у текущего пользователя нет прав администратора
      */
     public void deleteHabit(long habitId, Session session) {
-        userService.checkAdminRights(session);
-        habitService.deleteHabit(habitId);
+        long started = deleteHabitMetrics.start();
+        try {
+            userService.checkAdminRights(session);
+            habitService.deleteHabit(habitId);
+            deleteHabitMetrics.succeeded(started);
+        } catch (RuntimeException e) {
+            throw deleteHabitMetrics.failed(started, e);
+        }
+    }
+
+    /**
+     * Получает количество отметок выполнения всех пользователей по дням.
+     *
+     * @param days    за сколько последних дней, включая сегодня
+     * @param session текущая сессия пользователя (должна быть с правами администратора)
+     * @return количество отметок по дням в порядке возрастания дат, дни без отметок не входят
+     * @throws SecurityException     если у текущего пользователя нет прав администратора
+     * @throws IllegalStateException если конвейер событий выполнения отключен
+     */
+    public Map<LocalDate, Long> getDailyExecutions(int days, Session session) {
+        long started = getDailyExecutionsMetrics.start();
+        try {
+            userService.checkAdminRights(session);
+            if (dailyRollup == null) {
+                throw new IllegalStateException("Сводка отметок по дням недоступна: конвейер событий выполнения отключен");
+            }
+            return getDailyExecutionsMetrics.succeeded(started, dailyRollup.getCounts(days));
+        } catch (RuntimeException e) {
+            throw getDailyExecutionsMetrics.failed(started, e);
+        }
     }
 }
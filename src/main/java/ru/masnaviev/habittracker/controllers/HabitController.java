@@ -1,11 +1,15 @@
 package ru.masnaviev.habittracker.controllers;
 
+import ru.masnaviev.habittracker.controllers.util.ExecutionMark;
+import ru.masnaviev.habittracker.controllers.util.MarkResult;
 import ru.masnaviev.habittracker.controllers.util.StatisticEntity;
 import ru.masnaviev.habittracker.controllers.util.TimePeriod;
 import ru.masnaviev.habittracker.in.converter.HabitConverter;
 import ru.masnaviev.habittracker.in.dto.CreateHabitRequest;
 import ru.masnaviev.habittracker.in.dto.UpdateHabitRequest;
 import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.monitoring.MetricsRegistry;
+import ru.masnaviev.habittracker.monitoring.OperationMetrics;
 import ru.masnaviev.habittracker.services.HabitService;
 
 import java.time.LocalDate;
@@ -15,15 +19,58 @@ import java.util.List;
  * Контроллер для управления привычками пользователей.
  * Предоставляет методы для создания, обновления, удаления и получения привычек,
  * а также для работы с выполнением привычек и статистикой.
+ * Количество вызовов, ошибок и задержки каждого публичного метода учитываются в {@link MetricsRegistry}.
  */
 public class HabitController {
 
+    /**
+     * Наибольшее количество отметок в одном пакете.
+     */
+    public static final int MAX_MARKS = 10_000;
+    public static final int MAX_IMPORTED_DATES = 100_000;
+
     private final HabitService habitService;
     private final HabitConverter habitConverter;
+    private final OperationMetrics createMetrics;
+    private final OperationMetrics updateMetrics;
+    private final OperationMetrics deleteMetrics;
+    private final OperationMetrics getMetrics;
+    private final OperationMetrics getAllMetrics;
+    private final OperationMetrics addHabitExecutionMetrics;
+    private final OperationMetrics addHabitExecutionsMetrics;
+    private final OperationMetrics importExecutionsMetrics;
+    private final OperationMetrics getExecutionsMetrics;
+    private final OperationMetrics countExecutionsMetrics;
+    private final OperationMetrics getStatisticMetrics;
+    private final OperationMetrics getDaysAllCompletedMetrics;
 
     public HabitController(HabitService habitService) {
+        this(habitService, MetricsRegistry.disabled());
+    }
+
+    /**
+     * @param habitService    сервис привычек.
+     * @param metricsRegistry реестр, в котором публикуются метрики методов контроллера,
+     *                        {@code null} - не собирать метрики.
+     */
+    public HabitController(HabitService habitService, MetricsRegistry metricsRegistry) {
+        if (metricsRegistry == null) {
+            metricsRegistry = MetricsRegistry.disabled();
+        }
         this.habitService = habitService;
         this.habitConverter = new HabitConverter();
+        this.createMetrics = metricsRegistry.operation("HabitController", "create");
+        this.updateMetrics = metricsRegistry.operation("HabitController", "update");
+        this.deleteMetrics = metricsRegistry.operation("HabitController", "delete");
+        this.getMetrics = metricsRegistry.operation("HabitController", "get");
+        this.getAllMetrics = metricsRegistry.operation("HabitController", "getAll");
+        this.addHabitExecutionMetrics = metricsRegistry.operation("HabitController", "addHabitExecution");
+        this.addHabitExecutionsMetrics = metricsRegistry.operation("HabitController", "addHabitExecutions");
+        this.importExecutionsMetrics = metricsRegistry.operation("HabitController", "importExecutions");
+        this.getExecutionsMetrics = metricsRegistry.operation("HabitController", "getExecutions");
+        this.countExecutionsMetrics = metricsRegistry.operation("HabitController", "countExecutions");
+        this.getStatisticMetrics = metricsRegistry.operation("HabitController", "getStatistic");
+        this.getDaysAllCompletedMetrics = metricsRegistry.operation("HabitController", "getDaysAllCompleted");
     }
 
     /**
@@ -35,9 +82,14 @@ public class HabitController {
      * @throws IllegalArgumentException если данные в запросе некорректны.
      */
     public Habit create(CreateHabitRequest createRequest, long userId) {
-        validCreateHabitRequest(createRequest);
-        Habit habit = habitConverter.createHabitRequestConvertToHabit(createRequest);
-        return habitService.create(habit, userId);
+        long started = createMetrics.start();
+        try {
+            validCreateHabitRequest(createRequest);
+            Habit habit = habitConverter.createHabitRequestConvertToHabit(createRequest);
+            return createMetrics.succeeded(started, habitService.create(habit, userId));
+        } catch (RuntimeException e) {
+            throw createMetrics.failed(started, e);
+        }
     }
 
     /**
@@ -48,8 +100,13 @@ public class HabitController {
      * @return обновленная привычка.
      */
     public Habit update(UpdateHabitRequest updateRequest, long id) {
-        Habit habit = habitConverter.updateHabitRequestConvertToHabit(updateRequest);
-        return habitService.update(habit, id);
+        long started = updateMetrics.start();
+        try {
+            Habit habit = habitConverter.updateHabitRequestConvertToHabit(updateRequest);
+            return updateMetrics.succeeded(started, habitService.update(habit, id));
+        } catch (RuntimeException e) {
+            throw updateMetrics.failed(started, e);
+        }
     }
 
     /**
@@ -58,7 +115,13 @@ public class HabitController {
      * @param id идентификатор привычки.
      */
     public void delete(long id) {
-        habitService.delete(id);
+        long started = deleteMetrics.start();
+        try {
+            habitService.delete(id);
+            deleteMetrics.succeeded(started);
+        } catch (RuntimeException e) {
+            throw deleteMetrics.failed(started, e);
+        }
     }
 
     /**
@@ -68,7 +131,12 @@ public class HabitController {
      * @return привычка.
      */
     public Habit get(long id) {
-        return habitService.get(id);
+        long started = getMetrics.start();
+        try {
+            return getMetrics.succeeded(started, habitService.get(id));
+        } catch (RuntimeException e) {
+            throw getMetrics.failed(started, e);
+        }
     }
 
     /**
@@ -78,7 +146,12 @@ public class HabitController {
      * @return список привычек пользователя.
      */
     public List<Habit> getAll(long userId) {
-        return habitService.getAll(userId);
+        long started = getAllMetrics.start();
+        try {
+            return getAllMetrics.succeeded(started, habitService.getAll(userId));
+        } catch (RuntimeException e) {
+            throw getAllMetrics.failed(started, e);
+        }
     }
 
     /**
@@ -87,7 +160,49 @@ public class HabitController {
      * @param id идентификатор привычки.
      */
     public void addHabitExecution(long id) {
-        habitService.addHabitExecution(id);
+        long started = addHabitExecutionMetrics.start();
+        try {
+            habitService.addHabitExecution(id);
+            addHabitExecutionMetrics.succeeded(started);
+        } catch (RuntimeException e) {
+            throw addHabitExecutionMetrics.failed(started, e);
+        }
+    }
+
+    /**
+     * Отмечает выполнения привычек пользователя за указанные дни одним пакетом.
+     *
+     * @param userId идентификатор пользователя.
+     * @param marks  отметки, не больше {@link #MAX_MARKS}.
+     * @return результат каждой отметки в порядке отметок.
+     * @throws IllegalArgumentException если отметок нет или их слишком много.
+     */
+    public List<MarkResult> addHabitExecutions(long userId, List<ExecutionMark> marks) {
+        long started = addHabitExecutionsMetrics.start();
+        try {
+            validExecutionMarks(marks);
+            return addHabitExecutionsMetrics.succeeded(started, habitService.addHabitExecutions(userId, marks));
+        } catch (RuntimeException e) {
+            throw addHabitExecutionsMetrics.failed(started, e);
+        }
+    }
+
+    /**
+     * Импортирует прошлые выполнения привычки.
+     *
+     * @param id    идентификатор привычки.
+     * @param dates даты выполнения, не больше {@link #MAX_IMPORTED_DATES}.
+     * @return количество добавленных дат.
+     * @throws IllegalArgumentException если дат нет, их слишком много или среди них есть будущий день.
+     */
+    public int importExecutions(long id, List<LocalDate> dates) {
+        long started = importExecutionsMetrics.start();
+        try {
+            validImportedDates(dates);
+            return importExecutionsMetrics.succeeded(started, habitService.importExecutions(id, dates));
+        } catch (RuntimeException e) {
+            throw importExecutionsMetrics.failed(started, e);
+        }
     }
 
     /**
@@ -98,7 +213,28 @@ public class HabitController {
      * @return список дат выполнений.
      */
     public List<LocalDate> getExecutions(long habitId, TimePeriod timePeriod) {
-        return habitService.getExecutions(habitId, timePeriod);
+        long started = getExecutionsMetrics.start();
+        try {
+            return getExecutionsMetrics.succeeded(started, habitService.getExecutions(habitId, timePeriod));
+        } catch (RuntimeException e) {
+            throw getExecutionsMetrics.failed(started, e);
+        }
+    }
+
+    /**
+     * Получает количество выполнений привычки за указанный период времени.
+     *
+     * @param habitId    идентификатор привычки.
+     * @param timePeriod период времени для подсчета выполнений.
+     * @return количество выполнений.
+     */
+    public int countExecutions(long habitId, TimePeriod timePeriod) {
+        long started = countExecutionsMetrics.start();
+        try {
+            return countExecutionsMetrics.succeeded(started, habitService.countExecutions(habitId, timePeriod));
+        } catch (RuntimeException e) {
+            throw countExecutionsMetrics.failed(started, e);
+        }
     }
 
     /**
@@ -109,7 +245,28 @@ public class HabitController {
      * @return список статистики.
      */
     public List<StatisticEntity> getStatistic(long userId, TimePeriod timePeriod) {
-        return habitService.getStatistic(userId, timePeriod);
+        long started = getStatisticMetrics.start();
+        try {
+            return getStatisticMetrics.succeeded(started, habitService.getStatistic(userId, timePeriod));
+        } catch (RuntimeException e) {
+            throw getStatisticMetrics.failed(started, e);
+        }
+    }
+
+    /**
+     * Получает дни периода, в которые пользователь выполнил все свои привычки.
+     *
+     * @param userId     идентификатор пользователя.
+     * @param timePeriod период времени.
+     * @return список дней.
+     */
+    public List<LocalDate> getDaysAllCompleted(long userId, TimePeriod timePeriod) {
+        long started = getDaysAllCompletedMetrics.start();
+        try {
+            return getDaysAllCompletedMetrics.succeeded(started, habitService.getDaysAllCompleted(userId, timePeriod));
+        } catch (RuntimeException e) {
+            throw getDaysAllCompletedMetrics.failed(started, e);
+        }
     }
 
     private void validCreateHabitRequest(CreateHabitRequest createRequest) {
@@ -121,4 +278,19 @@ public class HabitController {
             throw new IllegalArgumentException("Частота привычки не может быть пустой.");
         }
     }
-}
\ No newline at end of file
+
+    private void validExecutionMarks(List<ExecutionMark> marks) {
+        if (marks == null || marks.isEmpty())
+            throw new IllegalArgumentException("Список отметок не может быть пустым.");
+        if (marks.size() > MAX_MARKS)
+            throw new IllegalArgumentException("В одном пакете не может быть больше " + MAX_MARKS + " отметок.");
+    }
+
+    private void validImportedDates(List<LocalDate> dates) {
+        if (dates == null || dates.isEmpty())
+            throw new IllegalArgumentException("Список дат не может быть пустым.");
+        if (dates.size() > MAX_IMPORTED_DATES)
+            throw new IllegalArgumentException("За один импорт нельзя передать больше " + MAX_IMPORTED_DATES
+                    + " дат.");
+    }
+}
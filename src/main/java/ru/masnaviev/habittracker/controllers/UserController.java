@@ -5,20 +5,43 @@ import ru.masnaviev.habittracker.in.dto.CreateUserRequest;
 import ru.masnaviev.habittracker.in.dto.LoginUserRequest;
 import ru.masnaviev.habittracker.in.dto.UpdateUserRequest;
 import ru.masnaviev.habittracker.models.User;
+import ru.masnaviev.habittracker.monitoring.MetricsRegistry;
+import ru.masnaviev.habittracker.monitoring.OperationMetrics;
 import ru.masnaviev.habittracker.services.UserService;
 
 /**
  * Контроллер для управления пользователями.
  * Предоставляет методы для создания, обновления, удаления и аутентификации пользователей.
+ * Количество вызовов, ошибок и задержки каждого публичного метода учитываются в {@link MetricsRegistry}.
  */
 public class UserController {
 
     private final UserService userService;
     private final UserConverter converter;
+    private final OperationMetrics createMetrics;
+    private final OperationMetrics updateMetrics;
+    private final OperationMetrics deleteMetrics;
+    private final OperationMetrics authenticateUserMetrics;
 
     public UserController(UserService userService) {
+        this(userService, MetricsRegistry.disabled());
+    }
+
+    /**
+     * @param userService     сервис пользователей.
+     * @param metricsRegistry реестр, в котором публикуются метрики методов контроллера,
+     *                        {@code null} - не собирать метрики.
+     */
+    public UserController(UserService userService, MetricsRegistry metricsRegistry) {
+        if (metricsRegistry == null) {
+            metricsRegistry = MetricsRegistry.disabled();
+        }
         this.converter = new UserConverter();
         this.userService = userService;
+        this.createMetrics = metricsRegistry.operation("UserController", "create");
+        this.updateMetrics = metricsRegistry.operation("UserController", "update");
+        this.deleteMetrics = metricsRegistry.operation("UserController", "delete");
+        this.authenticateUserMetrics = metricsRegistry.operation("UserController", "authenticateUser");
     }
 
     /**
@@ -29,9 +52,14 @@ public class UserController {
      * @throws IllegalArgumentException если данные в запросе некорректны.
      */
     public User create(CreateUserRequest createRequest) {
-        validCreateUserRequest(createRequest);
-        User user = converter.createUserRequestConvertToUser(createRequest);
-        return userService.create(user);
+        long started = createMetrics.start();
+        try {
+            validCreateUserRequest(createRequest);
+            User user = converter.createUserRequestConvertToUser(createRequest);
+            return createMetrics.succeeded(started, userService.create(user));
+        } catch (RuntimeException e) {
+            throw createMetrics.failed(started, e);
+        }
     }
 
     /**
@@ -43,9 +71,14 @@ public class UserController {
      * @throws IllegalArgumentException если данные в запросе некорректны.
      */
     public User update(UpdateUserRequest updateRequest, long id) {
-        validUpdateUserRequest(updateRequest);
-        User user = converter.updateUserRequestConvertToUser(updateRequest);
-        return userService.update(user, id);
+        long started = updateMetrics.start();
+        try {
+            validUpdateUserRequest(updateRequest);
+            User user = converter.updateUserRequestConvertToUser(updateRequest);
+            return updateMetrics.succeeded(started, userService.update(user, id));
+        } catch (RuntimeException e) {
+            throw updateMetrics.failed(started, e);
+        }
     }
 
     /**
@@ -54,7 +87,13 @@ public class UserController {
      * @param id идентификатор пользователя.
      */
     public void delete(Long id) {
-        userService.delete(id);
+        long started = deleteMetrics.start();
+        try {
+            userService.delete(id);
+            deleteMetrics.succeeded(started);
+        } catch (RuntimeException e) {
+            throw deleteMetrics.failed(started, e);
+        }
     }
 
     /**
@@ -65,9 +104,14 @@ public class UserController {
      * @throws IllegalArgumentException если данные в запросе некорректны.
      */
     public User authenticateUser(LoginUserRequest loginRequest) {
-        validLoginUserRequest(loginRequest);
-        User user = converter.loginUserRequestConvertToUser(loginRequest);
-        return userService.authenticateUser(user);
+        long started = authenticateUserMetrics.start();
+        try {
+            validLoginUserRequest(loginRequest);
+            User user = converter.loginUserRequestConvertToUser(loginRequest);
+            return authenticateUserMetrics.succeeded(started, userService.authenticateUser(user));
+        } catch (RuntimeException e) {
+            throw authenticateUserMetrics.failed(started, e);
+        }
     }
 
     private void validCreateUserRequest(CreateUserRequest createRequest) {
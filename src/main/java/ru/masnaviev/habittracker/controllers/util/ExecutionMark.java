@@ -0,0 +1,32 @@
+package ru.masnaviev.habittracker.controllers.util;
+
+import java.time.LocalDate;
+
+/**
+ * Отметка выполнения привычки за указанный день, например накопленная клиентом без связи.
+ */
+public class ExecutionMark {
+    private final long habitId;
+    private final LocalDate date;
+
+    public ExecutionMark(long habitId, LocalDate date) {
+        this.habitId = habitId;
+        this.date = date;
+    }
+
+    public long getHabitId() {
+        return habitId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionMark{" +
+                "habitId=" + habitId +
+                ", date=" + date +
+                '}';
+    }
+}
@@ -0,0 +1,68 @@
+package ru.masnaviev.habittracker.controllers.util;
+
+import java.time.LocalDate;
+
+/**
+ * Результат одной отметки из пакета {@link ExecutionMark}.
+ */
+public class MarkResult {
+    private final long habitId;
+    private final LocalDate date;
+    private final Outcome outcome;
+    private final String message;
+
+    public MarkResult(long habitId, LocalDate date, Outcome outcome, String message) {
+        this.habitId = habitId;
+        this.date = date;
+        this.outcome = outcome;
+        this.message = message;
+    }
+
+    public long getHabitId() {
+        return habitId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Причина отказа или {@code null}, если выполнение отмечено.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "MarkResult{" +
+                "habitId=" + habitId +
+                ", date=" + date +
+                ", outcome=" + outcome +
+                ", message='" + message + '\'' +
+                '}';
+    }
+
+    public enum Outcome {
+        /**
+         * Выполнение отмечено.
+         */
+        MARKED,
+        /**
+         * Привычка уже выполнена в этот день или, для еженедельной привычки, в пределах недели от него.
+         */
+        ALREADY_COMPLETED,
+        /**
+         * Привычки нет или она принадлежит другому пользователю.
+         */
+        NOT_FOUND,
+        /**
+         * Дата не указана или еще не наступила.
+         */
+        INVALID_DATE
+    }
+}
@@ -7,6 +7,7 @@ public class StatisticEntity {
     private long habitId;
     private List<LocalDate> habitExecutions;
     private long currentStreak;
+    private long longestStreak;
     private double successRate;
 
     public long getHabitId() {
@@ -33,6 +34,14 @@ public class StatisticEntity {
         this.currentStreak = currentStreak;
     }
 
+    public long getLongestStreak() {
+        return longestStreak;
+    }
+
+    public void setLongestStreak(long longestStreak) {
+        this.longestStreak = longestStreak;
+    }
+
     public double getSuccessRate() {
         return successRate;
     }
@@ -47,6 +56,7 @@ public class StatisticEntity {
                 "habitId=" + habitId +
                 ", habitExecutions=" + habitExecutions +
                 ", currentStreak=" + currentStreak +
+                ", longestStreak=" + longestStreak +
                 ", successRate=" + successRate +
                 '}';
     }
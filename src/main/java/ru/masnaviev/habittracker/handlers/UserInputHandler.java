@@ -50,7 +50,7 @@ public class UserInputHandler {
         updateRequest.setEmail(promptForUpdate("Введите почту", currentUser.getEmail()));
         updateRequest.setPassword(promptForUpdate("Введите пароль", currentUser.getPassword()));
 
-        executeAction(() -> userController.update(updateRequest, currentUser.getId()),
+        executeAction(() -> session.setUser(userController.update(updateRequest, currentUser.getId())),
                 "Пользователь успешно обновлен.");
     }
 
@@ -0,0 +1,192 @@
+package ru.masnaviev.habittracker.in.binary;
+
+import ru.masnaviev.habittracker.controllers.util.TimePeriod;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.LocalDate;
+
+/**
+ * Блокирующий клиент двоичного протокола {@link BinaryProtocol}.
+ * <p>
+ * Запросы накапливаются в буфере и отправляются {@link #flush()}, поэтому несколько запросов
+ * можно отправить одной записью и затем прочитать ответы по порядку через {@link #receive()}.
+ * Не потокобезопасен.
+ */
+public class BinaryClient implements Closeable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer output = ByteBuffer.allocate(BinaryServer.BUFFER_SIZE);
+    private ByteBuffer input = ByteBuffer.allocate(BinaryServer.BUFFER_SIZE);
+    private long bytesSent;
+    private long bytesReceived;
+
+    public BinaryClient(InetSocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        input.flip();
+    }
+
+    public void login(int requestId, String email, String password) throws IOException {
+        int start = begin(BinaryProtocol.LOGIN, requestId);
+        BinaryProtocol.putString(output, email);
+        BinaryProtocol.putString(output, password);
+        end(start);
+    }
+
+    public void mark(int requestId, long habitId) throws IOException {
+        int start = begin(BinaryProtocol.MARK, requestId);
+        output.putLong(habitId);
+        end(start);
+    }
+
+    /**
+     * Добавляет запрос пакета отметок. Пакет из больше чем 1300 отметок не помещается в кадр запроса.
+     */
+    public void markBatch(int requestId, long[] habitIds, LocalDate[] dates) throws IOException {
+        int start = begin(BinaryProtocol.MARK_BATCH, requestId);
+        output.putInt(habitIds.length);
+        for (int i = 0; i < habitIds.length; i++) {
+            output.putLong(habitIds[i]);
+            output.putInt(Math.toIntExact(dates[i].toEpochDay()));
+        }
+        end(start);
+    }
+
+    /**
+     * Добавляет запрос всей истории выполнения привычки. Ответ декодируется {@code DeltaVarint.decode}.
+     */
+    public void history(int requestId, long habitId) throws IOException {
+        int start = begin(BinaryProtocol.HISTORY, requestId);
+        output.putLong(habitId);
+        end(start);
+    }
+
+    public void statistic(int requestId, TimePeriod timePeriod) throws IOException {
+        int start = begin(BinaryProtocol.STATISTIC, requestId);
+        output.put((byte) timePeriod.ordinal());
+        end(start);
+    }
+
+    public void listHabits(int requestId) throws IOException {
+        end(begin(BinaryProtocol.LIST_HABITS, requestId));
+    }
+
+    /**
+     * Отправляет накопленные запросы.
+     */
+    public void flush() throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            bytesSent += channel.write(output);
+        }
+        output.clear();
+    }
+
+    /**
+     * Читает следующий ответ, отправляя перед этим накопленные запросы.
+     */
+    public Response receive() throws IOException {
+        flush();
+        fill(BinaryProtocol.LENGTH_BYTES);
+        int length = input.getInt(input.position());
+        if (length < Integer.BYTES + Byte.BYTES || length > BinaryServer.MAX_RESPONSE_BYTES) {
+            throw new IOException("Некорректная длина кадра ответа: " + length);
+        }
+        fill(BinaryProtocol.LENGTH_BYTES + length);
+        input.position(input.position() + BinaryProtocol.LENGTH_BYTES);
+        ByteBuffer frame = input.slice().limit(length);
+        input.position(input.position() + length);
+        ByteBuffer body = ByteBuffer.allocate(length).put(frame).flip();
+        return new Response(body.getInt(), body.get(), body.slice());
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int begin(byte operation, int requestId) throws IOException {
+        if (output.remaining() < BinaryServer.BUFFER_SIZE / 2) {
+            flush();
+        }
+        int start = output.position();
+        output.putInt(0);
+        output.put(operation);
+        output.putInt(requestId);
+        return start;
+    }
+
+    private void end(int start) {
+        output.putInt(start, output.position() - start - BinaryProtocol.LENGTH_BYTES);
+    }
+
+    /**
+     * Дочитывает из сокета, пока в буфере не окажется хотя бы {@code bytes} байт.
+     */
+    private void fill(int bytes) throws IOException {
+        if (input.remaining() >= bytes) {
+            return;
+        }
+        if (input.capacity() < bytes) {
+            input = ByteBuffer.allocate(Math.max(bytes, input.capacity() * 2)).put(input);
+        } else {
+            input.compact();
+        }
+        while (input.position() < bytes) {
+            int read = channel.read(input);
+            if (read < 0) {
+                throw new EOFException("Сервер закрыл соединение");
+            }
+            bytesReceived += read;
+        }
+        input.flip();
+    }
+
+    /**
+     * Ответ сервера.
+     */
+    public static final class Response {
+        private final int requestId;
+        private final byte status;
+        private final ByteBuffer body;
+
+        private Response(int requestId, byte status, ByteBuffer body) {
+            this.requestId = requestId;
+            this.status = status;
+            this.body = body;
+        }
+
+        public int getRequestId() {
+            return requestId;
+        }
+
+        public byte getStatus() {
+            return status;
+        }
+
+        /**
+         * Результат операции или, если статус не {@link BinaryProtocol#OK}, сообщение об ошибке.
+         */
+        public ByteBuffer getBody() {
+            return body;
+        }
+
+        public String getError() {
+            return status == BinaryProtocol.OK ? null : BinaryProtocol.getString(body.duplicate());
+        }
+    }
+}
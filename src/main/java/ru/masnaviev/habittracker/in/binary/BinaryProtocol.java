@@ -0,0 +1,84 @@
+package ru.masnaviev.habittracker.in.binary;
+
+import ru.masnaviev.habittracker.models.memory.DeltaVarint;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Двоичный протокол мобильной синхронизации.
+ * <p>
+ * Каждое сообщение - кадр: длина содержимого (int32) и содержимое. Числа записываются в порядке big-endian,
+ * строки - длиной в байтах (uint16) и байтами UTF-8.
+ * <pre>
+ * запрос:  длина | код операции (int8) | номер запроса (int32) | аргументы
+ * ответ:   длина | номер запроса (int32) | статус (int8) | результат или сообщение об ошибке (строка)
+ * </pre>
+ * Операции и их аргументы и результаты:
+ * <ul>
+ *     <li>{@link #LOGIN}: email, пароль -> id пользователя (int64), имя, роль (int8);
+ *     сессия привязывается к соединению;</li>
+ *     <li>{@link #MARK}: id привычки (int64) -> пусто;</li>
+ *     <li>{@link #MARK_BATCH}: количество отметок (int32), для каждой: id привычки (int64) и день (int32) -> для каждой отметки результат (int8, порядковый номер
+ *     {@link ru.masnaviev.habittracker.controllers.util.MarkResult.Outcome});</li>
+ *     <li>{@link #STATISTIC}: период (int8: 0 - день, 1 - неделя, 2 - месяц) -> количество привычек (int32),
+ *     для каждой: id (int64), текущая серия (int32), лучшая серия (int32), доля выполнения (float64)
+ *     и дни выполнений в кодировке {@link DeltaVarint};</li>
+ *     <li>{@link #HISTORY}: id привычки (int64) -> все дни выполнения в кодировке {@link DeltaVarint};</li>
+ *     <li>{@link #LIST_HABITS}: пусто -> количество привычек (int32), для каждой: id (int64), название, описание,
+ *     частота (int8), статус (int8), время создания (int64, секунды от 1970-01-01T00:00),
+ *     количество выполнений (int32).</li>
+ * </ul>
+ * Дни - номера дней от 1970-01-01. Клиент может отправлять запросы, не дожидаясь ответов: ответы приходят
+ * в порядке запросов.
+ */
+public final class BinaryProtocol {
+
+    public static final byte LOGIN = 1;
+    public static final byte MARK = 2;
+    public static final byte STATISTIC = 3;
+    public static final byte LIST_HABITS = 4;
+    public static final byte MARK_BATCH = 5;
+    public static final byte HISTORY = 6;
+
+    public static final byte OK = 0;
+    public static final byte BAD_REQUEST = 1;
+    public static final byte UNAUTHORIZED = 2;
+    public static final byte FORBIDDEN = 3;
+    public static final byte NOT_FOUND = 4;
+    public static final byte CONFLICT = 5;
+    public static final byte ERROR = 6;
+    /**
+     * Сервер перегружен и отклонил запрос, ничего не изменив; запрос можно повторить позже.
+     */
+    public static final byte BUSY = 7;
+
+    /**
+     * Размер заголовка кадра - поля длины.
+     */
+    public static final int LENGTH_BYTES = Integer.BYTES;
+
+    private BinaryProtocol() {
+    }
+
+    public static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Строка длиннее 65535 байт");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Читает строку.
+     *
+     * @throws java.nio.BufferUnderflowException если строка обрывается раньше конца буфера.
+     */
+    public static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
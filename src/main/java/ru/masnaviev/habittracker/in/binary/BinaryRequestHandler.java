@@ -0,0 +1,235 @@
+package ru.masnaviev.habittracker.in.binary;
+
+import ru.masnaviev.habittracker.controllers.HabitController;
+import ru.masnaviev.habittracker.controllers.UserController;
+import ru.masnaviev.habittracker.controllers.util.ExecutionMark;
+import ru.masnaviev.habittracker.controllers.util.MarkResult;
+import ru.masnaviev.habittracker.controllers.util.StatisticEntity;
+import ru.masnaviev.habittracker.controllers.util.TimePeriod;
+import ru.masnaviev.habittracker.in.dto.LoginUserRequest;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.models.User;
+import ru.masnaviev.habittracker.models.memory.DeltaVarint;
+import ru.masnaviev.habittracker.security.Session;
+import ru.masnaviev.habittracker.security.SessionRegistry;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static ru.masnaviev.habittracker.in.binary.BinaryProtocol.*;
+
+/**
+ * Выполняет запросы двоичного протокола через контроллеры и записывает ответы.
+ * Ошибки контроллеров отображаются в статусы так же, как в HTTP API.
+ */
+final class BinaryRequestHandler {
+
+    private static final TimePeriod[] PERIODS = TimePeriod.values();
+
+    private final UserController userController;
+    private final HabitController habitController;
+    private final SessionRegistry sessionRegistry;
+
+    BinaryRequestHandler(UserController userController, HabitController habitController,
+                         SessionRegistry sessionRegistry) {
+        this.userController = userController;
+        this.habitController = habitController;
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    /**
+     * Выполняет запрос и записывает кадр ответа.
+     *
+     * @param connection соединение, к которому привязана сессия.
+     * @param request    содержимое кадра запроса без поля длины.
+     * @param response   буфер, в который записывается кадр ответа вместе с полем длины.
+     */
+    void handle(Connection connection, ByteBuffer request, ByteBuffer response) {
+        int requestId = 0;
+        try {
+            byte operation = request.get();
+            requestId = request.getInt();
+            int start = begin(response, requestId, OK);
+            switch (operation) {
+                case LOGIN -> login(connection, request, response);
+                case MARK -> mark(connection, request);
+                case STATISTIC -> statistic(connection, request, response);
+                case LIST_HABITS -> listHabits(connection, response);
+                case MARK_BATCH -> markBatch(connection, request, response);
+                case HISTORY -> history(connection, request, response);
+                default -> throw new IllegalArgumentException("Неизвестная операция " + operation);
+            }
+            end(response, start);
+        } catch (BufferUnderflowException e) {
+            error(response, requestId, BAD_REQUEST, "Запрос обрывается раньше конца кадра");
+        } catch (BufferOverflowException e) {
+            error(response, requestId, ERROR, "Ответ слишком большой");
+        } catch (ProtocolException e) {
+            error(response, requestId, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            error(response, requestId, BAD_REQUEST, e.getMessage());
+        } catch (SecurityException e) {
+            error(response, requestId, FORBIDDEN, e.getMessage());
+        } catch (NoSuchElementException e) {
+            error(response, requestId, NOT_FOUND, e.getMessage());
+        } catch (IllegalStateException e) {
+            error(response, requestId, CONFLICT, e.getMessage());
+        } catch (RejectedExecutionException e) {
+            error(response, requestId, BUSY, e.getMessage());
+        } catch (RuntimeException e) {
+            error(response, requestId, ERROR, "Внутренняя ошибка сервера");
+        }
+    }
+
+    /**
+     * Закрывает сессию соединения.
+     */
+    void disconnect(Connection connection) {
+        sessionRegistry.close(connection.getToken());
+        connection.setToken(null);
+    }
+
+    private void login(Connection connection, ByteBuffer request, ByteBuffer response) {
+        String email = getString(request);
+        String password = getString(request);
+        User user = userController.authenticateUser(new LoginUserRequest(email, password));
+        disconnect(connection);
+        connection.setToken(sessionRegistry.open(user));
+        response.putLong(user.getId());
+        putString(response, user.getName());
+        response.put((byte) user.getRole().ordinal());
+    }
+
+    private void mark(Connection connection, ByteBuffer request) {
+        long userId = authenticate(connection).getUser().getId();
+        long habitId = request.getLong();
+        ownHabit(habitId, userId);
+        habitController.addHabitExecution(habitId);
+    }
+
+    private void history(Connection connection, ByteBuffer request, ByteBuffer response) {
+        long userId = authenticate(connection).getUser().getId();
+        int[] days = ownHabit(request.getLong(), userId).getExecutionHistory().toEpochDays();
+        if (response.remaining() < DeltaVarint.maxEncodedLength(days.length)) {
+            throw new BufferOverflowException();
+        }
+        DeltaVarint.encode(days, 0, days.length, response);
+    }
+
+    private void markBatch(Connection connection, ByteBuffer request, ByteBuffer response) {
+        long userId = authenticate(connection).getUser().getId();
+        int count = request.getInt();
+        if (count < 0 || count > request.remaining() / (Long.BYTES + Integer.BYTES)) {
+            throw new IllegalArgumentException("Некорректное количество отметок " + count);
+        }
+        List<ExecutionMark> marks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            marks.add(new ExecutionMark(request.getLong(), LocalDate.ofEpochDay(request.getInt())));
+        }
+        List<MarkResult> results = habitController.addHabitExecutions(userId, marks);
+        response.putInt(results.size());
+        for (MarkResult result : results) {
+            response.put((byte) result.getOutcome().ordinal());
+        }
+    }
+
+    private void statistic(Connection connection, ByteBuffer request, ByteBuffer response) {
+        long userId = authenticate(connection).getUser().getId();
+        int period = request.get();
+        if (period < 0 || period >= PERIODS.length) {
+            throw new IllegalArgumentException("Неизвестный период " + period);
+        }
+        List<StatisticEntity> statistics = habitController.getStatistic(userId, PERIODS[period]);
+        response.putInt(statistics.size());
+        for (StatisticEntity statistic : statistics) {
+            response.putLong(statistic.getHabitId());
+            response.putInt((int) statistic.getCurrentStreak());
+            response.putInt((int) statistic.getLongestStreak());
+            response.putDouble(statistic.getSuccessRate());
+            List<LocalDate> executions = statistic.getHabitExecutions();
+            int[] days = new int[executions.size()];
+            for (int i = 0; i < days.length; i++) {
+                days[i] = (int) executions.get(i).toEpochDay();
+            }
+            DeltaVarint.encode(days, 0, days.length, response);
+        }
+    }
+
+    private void listHabits(Connection connection, ByteBuffer response) {
+        long userId = authenticate(connection).getUser().getId();
+        List<Habit> habits;
+        try {
+            habits = habitController.getAll(userId);
+        } catch (NoSuchElementException e) {
+            habits = List.of();
+        }
+        response.putInt(habits.size());
+        for (Habit habit : habits) {
+            response.putLong(habit.getId());
+            putString(response, habit.getTitle());
+            putString(response, habit.getDescription());
+            response.put((byte) habit.getFrequency().ordinal());
+            response.put((byte) habit.getStatus().ordinal());
+            response.putLong(habit.getCreated().toEpochSecond(ZoneOffset.UTC));
+            response.putInt(habit.getExecutionHistory().size());
+        }
+    }
+
+    private Habit ownHabit(long habitId, long userId) {
+        Habit habit = habitController.get(habitId);
+        if (habit.getUserId() != userId) {
+            throw new NoSuchElementException("Привычки с таким id не существует");
+        }
+        return habit;
+    }
+
+    private Session authenticate(Connection connection) {
+        return sessionRegistry.find(connection.getToken())
+                .orElseThrow(() -> new ProtocolException(UNAUTHORIZED, "Требуется вход в систему"));
+    }
+
+    /**
+     * Начинает кадр ответа.
+     *
+     * @return позиция начала кадра.
+     */
+    private static int begin(ByteBuffer response, int requestId, byte status) {
+        int start = response.position();
+        response.putInt(0);
+        response.putInt(requestId);
+        response.put(status);
+        return start;
+    }
+
+    private static void end(ByteBuffer response, int start) {
+        response.putInt(start, response.position() - start - LENGTH_BYTES);
+    }
+
+    private static void error(ByteBuffer response, int requestId, byte status, String message) {
+        response.clear();
+        int start = begin(response, requestId, status);
+        putString(response, message);
+        end(response, start);
+    }
+
+    /**
+     * Ошибка запроса с заданным статусом ответа.
+     */
+    private static final class ProtocolException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final byte status;
+
+        private ProtocolException(byte status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package ru.masnaviev.habittracker.in.binary;
+
+import ru.masnaviev.habittracker.controllers.HabitController;
+import ru.masnaviev.habittracker.controllers.UserController;
+import ru.masnaviev.habittracker.security.SessionRegistry;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Сервер двоичного протокола {@link BinaryProtocol} на неблокирующих каналах {@code java.nio}.
+ * <p>
+ * Соединения распределяются по кругу между циклами событий, каждый цикл - один поток со своим селектором
+ * и пулом прямых буферов. Цикл читает все пришедшие кадры соединения, выполняет их по порядку и отправляет
+ * ответы одной записью, поэтому запросы, отправленные подряд без ожидания ответов, обрабатываются пачкой.
+ * Пока у соединения накоплено больше {@link #MAX_PENDING_OUTPUT_BUFFERS} буферов неотправленных ответов,
+ * его запросы не читаются: медленный клиент не может занять всю память сервера.
+ * <p>
+ * Запросы выполняются в потоке цикла, поэтому хранилище с блокирующим вводом-выводом задерживает
+ * все соединения цикла; количество циклов задается при запуске.
+ */
+public class BinaryServer {
+
+    static final int BUFFER_SIZE = 16 * 1024;
+    static final int MAX_RESPONSE_BYTES = 1024 * 1024;
+    static final int MAX_PENDING_OUTPUT_BUFFERS = 8;
+    private static final int MAX_POOLED_BUFFERS = 1024;
+
+    private final BinaryRequestHandler handler;
+    private final List<EventLoop> loops = new ArrayList<>();
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+
+    public BinaryServer(UserController userController, HabitController habitController,
+                        SessionRegistry sessionRegistry) {
+        this.handler = new BinaryRequestHandler(userController, habitController, sessionRegistry);
+    }
+
+    /**
+     * Запускает сервер.
+     *
+     * @param address    адрес, порт 0 - любой свободный порт.
+     * @param eventLoops количество циклов событий.
+     * @throws IOException если не удалось открыть порт.
+     */
+    public synchronized void start(InetSocketAddress address, int eventLoops) throws IOException {
+        if (serverChannel != null) {
+            throw new IllegalStateException("Сервер уже запущен");
+        }
+        if (eventLoops <= 0) {
+            throw new IllegalArgumentException("Количество циклов событий должно быть положительным");
+        }
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        for (int i = 0; i < eventLoops; i++) {
+            EventLoop loop = new EventLoop(Selector.open(), i);
+            loops.add(loop);
+            loop.thread.start();
+        }
+        acceptor = new Thread(this::accept, "binary-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Останавливает сервер и закрывает все соединения.
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (serverChannel == null) {
+            return;
+        }
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            // сервер останавливается
+        }
+        acceptor.join();
+        for (EventLoop loop : loops) {
+            loop.stop();
+        }
+        loops.clear();
+        serverChannel = null;
+    }
+
+    /**
+     * Возвращает порт запущенного сервера.
+     */
+    public synchronized int getPort() throws IOException {
+        if (serverChannel == null) {
+            throw new IllegalStateException("Сервер не запущен");
+        }
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    private void accept() {
+        int next = 0;
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                return;
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                loops.get(next++ % loops.size()).register(channel);
+            } catch (IOException e) {
+                close(channel);
+            }
+        }
+    }
+
+    private static void close(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // соединение уже закрыто
+        }
+    }
+
+    /**
+     * Цикл событий: один поток, селектор и пул буферов.
+     */
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final ConcurrentLinkedQueue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        private final BufferPool pool = new BufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+        private final ByteBuffer response = ByteBuffer.allocate(MAX_RESPONSE_BYTES);
+        private volatile boolean running = true;
+        private final Thread thread;
+
+        private EventLoop(Selector selector, int index) {
+            this.selector = selector;
+            this.thread = new Thread(this, "binary-loop-" + index);
+            thread.setDaemon(true);
+        }
+
+        private void register(SocketChannel channel) {
+            accepted.add(channel);
+            selector.wakeup();
+        }
+
+        private void stop() throws InterruptedException {
+            running = false;
+            selector.wakeup();
+            thread.join();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    registerAccepted();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isWritable()) {
+                                write(connection);
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                read(connection);
+                            }
+                        } catch (IOException e) {
+                            close(connection);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // селектор закрыт
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    close((Connection) key.attachment());
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    // сервер останавливается
+                }
+            }
+        }
+
+        private void registerAccepted() {
+            SocketChannel channel;
+            while ((channel = accepted.poll()) != null) {
+                try {
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                    key.attach(new Connection(channel, key));
+                } catch (ClosedChannelException e) {
+                    BinaryServer.close(channel);
+                }
+            }
+        }
+
+        private void read(Connection connection) throws IOException {
+            ByteBuffer input = connection.getInput();
+            if (input == null) {
+                input = pool.acquire();
+                connection.setInput(input);
+            }
+            if (connection.getChannel().read(input) < 0) {
+                close(connection);
+                return;
+            }
+            process(connection);
+        }
+
+        /**
+         * Выполняет все полностью пришедшие запросы соединения и отправляет ответы. Если ответы
+         * перестали помещаться в очередь отправки, оставшиеся запросы выполняются после ее отправки.
+         */
+        private void process(Connection connection) throws IOException {
+            boolean limited;
+            do {
+                limited = handleRequests(connection);
+                if (!connection.getChannel().isOpen()) {
+                    return;
+                }
+                flush(connection);
+            } while (limited && connection.getOutput().isEmpty());
+        }
+
+        /**
+         * @return {@code true}, если выполнение остановлено переполнением очереди ответов.
+         */
+        private boolean handleRequests(Connection connection) {
+            ByteBuffer input = connection.getInput();
+            if (input == null) {
+                return false;
+            }
+            boolean limited = false;
+            input.flip();
+            while (input.remaining() >= BinaryProtocol.LENGTH_BYTES) {
+                if (connection.getOutput().size() >= MAX_PENDING_OUTPUT_BUFFERS) {
+                    limited = true;
+                    break;
+                }
+                int length = input.getInt(input.position());
+                if (length < Byte.BYTES + Integer.BYTES || length > BUFFER_SIZE - BinaryProtocol.LENGTH_BYTES) {
+                    close(connection);
+                    return false;
+                }
+                if (input.remaining() < BinaryProtocol.LENGTH_BYTES + length) {
+                    break;
+                }
+                int end = input.position() + BinaryProtocol.LENGTH_BYTES + length;
+                ByteBuffer request = input.duplicate();
+                request.position(input.position() + BinaryProtocol.LENGTH_BYTES).limit(end);
+                response.clear();
+                handler.handle(connection, request, response);
+                response.flip();
+                append(connection, response);
+                input.position(end);
+            }
+            input.compact();
+            if (input.position() == 0) {
+                pool.release(input);
+                connection.setInput(null);
+            }
+            return limited;
+        }
+
+        private void append(Connection connection, ByteBuffer data) {
+            ArrayDeque<ByteBuffer> output = connection.getOutput();
+            while (data.hasRemaining()) {
+                ByteBuffer last = output.peekLast();
+                if (last == null || !last.hasRemaining()) {
+                    last = pool.acquire();
+                    output.addLast(last);
+                }
+                int chunk = Math.min(last.remaining(), data.remaining());
+                last.put(data.slice().limit(chunk));
+                data.position(data.position() + chunk);
+            }
+        }
+
+        private void write(Connection connection) throws IOException {
+            flush(connection);
+            if (connection.getOutput().isEmpty()) {
+                process(connection);
+            }
+        }
+
+        /**
+         * Отправляет накопленные ответы, пока сокет их принимает. Остаток отправляется, когда сокет
+         * станет доступен для записи; до этого новые запросы соединения не читаются.
+         */
+        private void flush(Connection connection) throws IOException {
+            ArrayDeque<ByteBuffer> output = connection.getOutput();
+            while (!output.isEmpty()) {
+                ByteBuffer head = output.peekFirst();
+                head.flip();
+                connection.getChannel().write(head);
+                if (head.hasRemaining()) {
+                    head.compact();
+                    interest(connection, SelectionKey.OP_WRITE);
+                    return;
+                }
+                pool.release(output.pollFirst());
+            }
+            interest(connection, SelectionKey.OP_READ);
+        }
+
+        private void interest(Connection connection, int ops) {
+            if (connection.getKey().interestOps() != ops) {
+                connection.getKey().interestOps(ops);
+            }
+        }
+
+        private void close(Connection connection) {
+            if (connection == null) {
+                return;
+            }
+            handler.disconnect(connection);
+            connection.getKey().cancel();
+            BinaryServer.close(connection.getChannel());
+            if (connection.getInput() != null) {
+                pool.release(connection.getInput());
+                connection.setInput(null);
+            }
+            ByteBuffer buffer;
+            while ((buffer = connection.getOutput().pollFirst()) != null) {
+                pool.release(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.masnaviev.habittracker.in.binary;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Пул прямых буферов одного цикла событий. Не потокобезопасен.
+ * <p>
+ * Соединение берет буфер только на время, пока в нем есть непрочитанный запрос или неотправленный ответ,
+ * поэтому простаивающие соединения не занимают памяти под буферы.
+ */
+final class BufferPool {
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<>();
+
+    BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.pollLast();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    void release(ByteBuffer buffer) {
+        buffer.clear();
+        if (buffers.size() < maxPooled) {
+            buffers.addLast(buffer);
+        }
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+}
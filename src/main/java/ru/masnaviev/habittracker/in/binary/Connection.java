@@ -0,0 +1,57 @@
+package ru.masnaviev.habittracker.in.binary;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * Состояние соединения двоичного протокола. Используется только потоком своего цикла событий.
+ */
+final class Connection {
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+    private ByteBuffer input;
+    private String token;
+
+    Connection(SocketChannel channel, SelectionKey key) {
+        this.channel = channel;
+        this.key = key;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    SelectionKey getKey() {
+        return key;
+    }
+
+    /**
+     * Буферы неотправленных ответов в режиме записи; отправляются с первого.
+     */
+    ArrayDeque<ByteBuffer> getOutput() {
+        return output;
+    }
+
+    /**
+     * Буфер непрочитанных запросов в режиме записи или {@code null}, если их нет.
+     */
+    ByteBuffer getInput() {
+        return input;
+    }
+
+    void setInput(ByteBuffer input) {
+        this.input = input;
+    }
+
+    String getToken() {
+        return token;
+    }
+
+    void setToken(String token) {
+        this.token = token;
+    }
+}
@@ -0,0 +1,635 @@
+package ru.masnaviev.habittracker.in.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import ru.masnaviev.habittracker.controllers.AdminController;
+import ru.masnaviev.habittracker.controllers.HabitController;
+import ru.masnaviev.habittracker.controllers.UserController;
+import ru.masnaviev.habittracker.controllers.util.ExecutionMark;
+import ru.masnaviev.habittracker.controllers.util.MarkResult;
+import ru.masnaviev.habittracker.controllers.util.StatisticEntity;
+import ru.masnaviev.habittracker.controllers.util.TimePeriod;
+import ru.masnaviev.habittracker.in.dto.CreateHabitRequest;
+import ru.masnaviev.habittracker.in.dto.CreateUserRequest;
+import ru.masnaviev.habittracker.in.dto.LoginUserRequest;
+import ru.masnaviev.habittracker.in.dto.UpdateHabitRequest;
+import ru.masnaviev.habittracker.in.dto.UpdateUserRequest;
+import ru.masnaviev.habittracker.models.Frequency;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.models.User;
+import ru.masnaviev.habittracker.security.Session;
+import ru.masnaviev.habittracker.security.SessionRegistry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JSON API трекера привычек поверх встроенного {@link HttpServer}.
+ * <p>
+ * Все запросы, кроме регистрации и входа, требуют заголовка {@code Authorization: Bearer <токен>},
+ * токен выдается при входе и проверяется в {@link SessionRegistry}. Запросы обрабатываются в виртуальных
+ * потоках, если их поддерживает JDK, иначе - в пуле платформенных потоков. Открытые соединения держит
+ * поток-селектор сервера, поэтому их количество не ограничено количеством потоков обработки.
+ * <p>
+ * Ошибки контроллеров отображаются в коды ответа: {@link IllegalArgumentException} - 400,
+ * {@link SecurityException} - 403, {@link NoSuchElementException} - 404, {@link IllegalStateException} - 409,
+ * {@link RejectedExecutionException} (сервер перегружен) - 503.
+ * Тело ответа с ошибкой - {@code {"error": "сообщение"}}.
+ */
+public class HttpApi {
+
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int DEFAULT_ROLLUP_DAYS = 7;
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private final UserController userController;
+    private final HabitController habitController;
+    private final AdminController adminController;
+    private final SessionRegistry sessionRegistry;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public HttpApi(UserController userController, HabitController habitController, AdminController adminController,
+                   SessionRegistry sessionRegistry) {
+        this.userController = userController;
+        this.habitController = habitController;
+        this.adminController = adminController;
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    /**
+     * Запускает сервер.
+     * <p>
+     * Встроенный сервер JDK отправляет заголовки и тело ответа отдельными записями, и с алгоритмом Нейгла
+     * тело ждет подтверждения заголовков, которое клиент откладывает до 40 мс. Поэтому, если свойство
+     * {@code sun.net.httpserver.nodelay} не задано, оно включается до создания первого сервера.
+     *
+     * @param address адрес, порт 0 - любой свободный порт.
+     * @param backlog длина очереди входящих соединений, 0 - значение по умолчанию системы.
+     * @param threads количество потоков обработки, если виртуальные потоки недоступны.
+     * @throws IOException если не удалось открыть порт.
+     */
+    public synchronized void start(InetSocketAddress address, int backlog, int threads) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Сервер уже запущен");
+        }
+        System.getProperties().putIfAbsent("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(address, backlog);
+        executor = newExecutor(threads);
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Останавливает сервер, давая начатым запросам завершиться.
+     *
+     * @param delaySeconds максимальное время ожидания начатых запросов в секундах.
+     */
+    public synchronized void stop(int delaySeconds) {
+        if (server == null) {
+            return;
+        }
+        server.stop(delaySeconds);
+        executor.shutdownNow();
+        server = null;
+        executor = null;
+    }
+
+    /**
+     * Возвращает порт запущенного сервера.
+     */
+    public synchronized int getPort() {
+        if (server == null) {
+            throw new IllegalStateException("Сервер не запущен");
+        }
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Создает исполнитель с виртуальным потоком на запрос. В JDK 17 виртуальных потоков нет,
+     * поэтому метод ищется через reflection, а при его отсутствии используется пул платформенных потоков.
+     */
+    static ExecutorService newExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "http-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newFixedThreadPool(threads, threadFactory);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            int status;
+            Object body;
+            try {
+                Response response = route(exchange);
+                status = response.status;
+                body = response.body;
+            } catch (ApiException e) {
+                status = e.status;
+                body = error(e.getMessage());
+            } catch (IllegalArgumentException e) {
+                status = 400;
+                body = error(e.getMessage());
+            } catch (SecurityException e) {
+                status = 403;
+                body = error(e.getMessage());
+            } catch (NoSuchElementException e) {
+                status = 404;
+                body = error(e.getMessage());
+            } catch (IllegalStateException e) {
+                status = 409;
+                body = error(e.getMessage());
+            } catch (RejectedExecutionException e) {
+                status = 503;
+                body = error(e.getMessage());
+            } catch (RuntimeException e) {
+                status = 500;
+                body = error("Внутренняя ошибка сервера");
+            }
+            // Непрочитанное тело запроса, даже пустое, заставляет сервер JDK закрыть соединение после ответа
+            // без заголовка Connection: close, и клиент отправляет следующий запрос в закрытое соединение.
+            // Закрытие дочитывает тело.
+            exchange.getRequestBody().close();
+            send(exchange, status, body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Response route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+        String resource = path[0];
+
+        if (resource.equals("users") && path.length == 1 && method.equals("POST")) {
+            return createUser(readObject(exchange));
+        }
+        if (resource.equals("sessions") && path.length == 1 && method.equals("POST")) {
+            return login(readObject(exchange));
+        }
+
+        Session session = authenticate(exchange);
+        switch (resource) {
+            case "sessions":
+                if (path.length == 1 && method.equals("DELETE")) {
+                    sessionRegistry.close(token(exchange));
+                    return Response.noContent();
+                }
+                break;
+            case "users":
+                if (path.length == 2 && path[1].equals("me")) {
+                    return currentUser(method, session, exchange);
+                }
+                break;
+            case "habits":
+                return habits(method, path, session, exchange);
+            case "executions":
+                if (path.length == 1 && method.equals("POST")) {
+                    return markExecutions(readObject(exchange), session);
+                }
+                break;
+            case "statistics":
+                if (path.length == 1 && method.equals("GET")) {
+                    TimePeriod timePeriod = period(exchange);
+                    List<Object> statistics = new ArrayList<>();
+                    for (StatisticEntity statistic : habitController.getStatistic(userId(session), timePeriod)) {
+                        statistics.add(statisticToJson(statistic));
+                    }
+                    return Response.ok(statistics);
+                }
+                if (path.length == 2 && path[1].equals("all-completed") && method.equals("GET")) {
+                    return Response.ok(habitController.getDaysAllCompleted(userId(session), period(exchange)));
+                }
+                break;
+            case "admin":
+                return admin(method, path, session, exchange);
+            default:
+                break;
+        }
+        throw notFound();
+    }
+
+    private Response createUser(Map<String, Object> body) {
+        User user = userController.create(new CreateUserRequest(string(body, "email"), string(body, "password"),
+                string(body, "name")));
+        return new Response(201, userToJson(user));
+    }
+
+    private Response login(Map<String, Object> body) {
+        User user = userController.authenticateUser(new LoginUserRequest(string(body, "email"),
+                string(body, "password")));
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("token", sessionRegistry.open(user));
+        json.put("user", userToJson(user));
+        return new Response(201, json);
+    }
+
+    private Response currentUser(String method, Session session, HttpExchange exchange) throws IOException {
+        switch (method) {
+            case "GET":
+                return Response.ok(userToJson(session.getUser()));
+            case "PATCH":
+                Map<String, Object> body = readObject(exchange);
+                User user = userController.update(new UpdateUserRequest(string(body, "email"),
+                        string(body, "password"), string(body, "name")), userId(session));
+                sessionRegistry.updateUser(user);
+                return Response.ok(userToJson(user));
+            case "DELETE":
+                long userId = userId(session);
+                userController.delete(userId);
+                sessionRegistry.closeAll(userId);
+                return Response.noContent();
+            default:
+                throw notFound();
+        }
+    }
+
+    private Response habits(String method, String[] path, Session session, HttpExchange exchange) throws IOException {
+        if (path.length == 1) {
+            if (method.equals("GET")) {
+                List<Object> habits = new ArrayList<>();
+                try {
+                    for (Habit habit : habitController.getAll(userId(session))) {
+                        habits.add(habitToJson(habit));
+                    }
+                } catch (NoSuchElementException e) {
+                    // пустой список привычек - не ошибка для API
+                }
+                return Response.ok(habits);
+            }
+            if (method.equals("POST")) {
+                Map<String, Object> body = readObject(exchange);
+                Habit habit = habitController.create(new CreateHabitRequest(string(body, "title"),
+                        string(body, "description"), frequency(body)), userId(session));
+                return new Response(201, habitToJson(habit));
+            }
+            throw notFound();
+        }
+
+        long habitId = id(path[1]);
+        Habit habit = ownHabit(habitId, session);
+        if (path.length == 2) {
+            switch (method) {
+                case "GET":
+                    return Response.ok(habitToJson(habit));
+                case "PATCH":
+                    Map<String, Object> body = readObject(exchange);
+                    Habit updated = habitController.update(new UpdateHabitRequest(string(body, "title"),
+                            string(body, "description"), frequency(body)), habitId);
+                    return Response.ok(habitToJson(updated));
+                case "DELETE":
+                    habitController.delete(habitId);
+                    return Response.noContent();
+                default:
+                    throw notFound();
+            }
+        }
+        if (path[2].equals("executions")) {
+            if (path.length == 3 && method.equals("POST")) {
+                habitController.addHabitExecution(habitId);
+                return Response.noContent();
+            }
+            if (path.length == 3 && method.equals("GET")) {
+                return Response.ok(habitController.getExecutions(habitId, period(exchange)));
+            }
+            if (path.length == 4 && path[3].equals("import") && method.equals("POST")) {
+                return Response.ok(Map.of("imported", habitController.importExecutions(habitId,
+                        dates(readObject(exchange)))));
+            }
+            if (path.length == 4 && path[3].equals("count") && method.equals("GET")) {
+                return Response.ok(Map.of("count", habitController.countExecutions(habitId, period(exchange))));
+            }
+        }
+        throw notFound();
+    }
+
+    /**
+     * Отмечает пакет выполнений: {@code {"executions": [{"habitId": 1, "date": "2024-05-01"}, ...]}}.
+     * Ответ - результат каждой отметки в том же порядке.
+     */
+    private Response markExecutions(Map<String, Object> body, Session session) {
+        if (!(body.get("executions") instanceof List<?> items)) {
+            throw new IllegalArgumentException("Поле executions должно быть массивом.");
+        }
+        List<ExecutionMark> marks = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (!(item instanceof Map<?, ?> mark) || !(mark.get("habitId") instanceof Long habitId)
+                    || !(mark.get("date") instanceof String date)) {
+                throw new IllegalArgumentException("Каждая отметка должна содержать habitId и date.");
+            }
+            marks.add(new ExecutionMark(habitId, date(date)));
+        }
+        List<Object> results = new ArrayList<>(marks.size());
+        for (MarkResult result : habitController.addHabitExecutions(userId(session), marks)) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("habitId", result.getHabitId());
+            json.put("date", result.getDate());
+            json.put("outcome", result.getOutcome());
+            if (result.getMessage() != null) {
+                json.put("message", result.getMessage());
+            }
+            results.add(json);
+        }
+        return Response.ok(results);
+    }
+
+    /**
+     * Читает даты импорта: {@code {"dates": ["2024-05-01", ...]}}.
+     */
+    private static List<LocalDate> dates(Map<String, Object> body) {
+        if (!(body.get("dates") instanceof List<?> items)) {
+            throw new IllegalArgumentException("Поле dates должно быть массивом.");
+        }
+        List<LocalDate> dates = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (!(item instanceof String date)) {
+                throw new IllegalArgumentException("Каждая дата должна быть строкой.");
+            }
+            dates.add(date(date));
+        }
+        return dates;
+    }
+
+    private static LocalDate date(String date) {
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Дата должна быть в формате ГГГГ-ММ-ДД: " + date);
+        }
+    }
+
+    private Response admin(String method, String[] path, Session session, HttpExchange exchange) {
+        if (path.length < 2) {
+            throw notFound();
+        }
+        if (path[1].equals("users")) {
+            if (path.length == 2 && method.equals("GET")) {
+                List<Object> users = new ArrayList<>();
+                for (User user : adminController.getAllUsers(session)) {
+                    users.add(userToJson(user));
+                }
+                return Response.ok(users);
+            }
+            if (path.length == 3 && method.equals("DELETE")) {
+                long userId = id(path[2]);
+                adminController.deleteUser(userId, session);
+                sessionRegistry.closeAll(userId);
+                return Response.noContent();
+            }
+            if (path.length == 4 && method.equals("POST") && path[3].equals("block")) {
+                long userId = id(path[2]);
+                adminController.blockUser(userId, session);
+                sessionRegistry.closeAll(userId);
+                return Response.noContent();
+            }
+            if (path.length == 4 && method.equals("POST") && path[3].equals("unblock")) {
+                adminController.unblockUser(id(path[2]), session);
+                return Response.noContent();
+            }
+        }
+        if (path[1].equals("habits")) {
+            if (path.length == 2 && method.equals("GET")) {
+                List<Object> habits = new ArrayList<>();
+                for (Habit habit : adminController.getAllHabits(session)) {
+                    habits.add(habitToJson(habit));
+                }
+                return Response.ok(habits);
+            }
+            if (path.length == 3 && method.equals("DELETE")) {
+                adminController.deleteHabit(id(path[2]), session);
+                return Response.noContent();
+            }
+        }
+        if (path[1].equals("executions") && path.length == 3 && path[2].equals("daily") && method.equals("GET")) {
+            Map<String, Object> counts = new LinkedHashMap<>();
+            adminController.getDailyExecutions(days(exchange), session)
+                    .forEach((date, count) -> counts.put(date.toString(), count));
+            return Response.ok(counts);
+        }
+        throw notFound();
+    }
+
+    /**
+     * Возвращает привычку текущего пользователя. Чужая привычка не отличается от несуществующей,
+     * чтобы по ответу нельзя было перебирать идентификаторы.
+     */
+    private Habit ownHabit(long habitId, Session session) {
+        Habit habit = habitController.get(habitId);
+        if (habit.getUserId() != userId(session)) {
+            throw new NoSuchElementException("Привычки с таким id не существует");
+        }
+        return habit;
+    }
+
+    private Session authenticate(HttpExchange exchange) {
+        return sessionRegistry.find(token(exchange))
+                .orElseThrow(() -> new ApiException(401, "Требуется вход в систему"));
+    }
+
+    private static String token(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return authorization.substring(7).trim();
+    }
+
+    private static long userId(Session session) {
+        return session.getUser().getId();
+    }
+
+    private static long id(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw notFound();
+        }
+    }
+
+    private static TimePeriod period(HttpExchange exchange) {
+        String period = query(exchange, "period");
+        if (period == null) {
+            return TimePeriod.MONTH;
+        }
+        try {
+            return TimePeriod.valueOf(period.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Период должен быть одним из: day, week, month.");
+        }
+    }
+
+    private static int days(HttpExchange exchange) {
+        String days = query(exchange, "days");
+        if (days == null) {
+            return DEFAULT_ROLLUP_DAYS;
+        }
+        try {
+            return Integer.parseInt(days);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Количество дней должно быть числом.");
+        }
+    }
+
+    private static Frequency frequency(Map<String, Object> body) {
+        String frequency = string(body, "frequency");
+        if (frequency == null) {
+            return null;
+        }
+        try {
+            return Frequency.valueOf(frequency.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Частота должна быть одной из: daily, weekly.");
+        }
+    }
+
+    private static String query(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0 && parameter.substring(0, separator).equals(name)) {
+                return URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static String string(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException("Поле " + name + " должно быть строкой.");
+        }
+        return (String) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> readObject(HttpExchange exchange) throws IOException {
+        byte[] bytes;
+        try (InputStream in = exchange.getRequestBody()) {
+            bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (bytes.length > MAX_BODY_BYTES) {
+            throw new ApiException(413, "Тело запроса слишком большое");
+        }
+        Object body = Json.parse(new String(bytes, StandardCharsets.UTF_8));
+        if (!(body instanceof Map)) {
+            throw new IllegalArgumentException("Тело запроса должно быть JSON-объектом.");
+        }
+        return (Map<String, Object>) body;
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("error", message);
+        return json;
+    }
+
+    private static ApiException notFound() {
+        return new ApiException(404, "Ресурс не найден");
+    }
+
+    private static Map<String, Object> userToJson(User user) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", user.getId());
+        json.put("email", user.getEmail());
+        json.put("name", user.getName());
+        json.put("role", user.getRole());
+        json.put("blocked", user.isBlocked());
+        return json;
+    }
+
+    private static Map<String, Object> habitToJson(Habit habit) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", habit.getId());
+        json.put("userId", habit.getUserId());
+        json.put("title", habit.getTitle());
+        json.put("description", habit.getDescription());
+        json.put("frequency", habit.getFrequency());
+        json.put("status", habit.getStatus());
+        json.put("created", habit.getCreated());
+        json.put("executionCount", habit.getExecutionHistory().size());
+        return json;
+    }
+
+    private static Map<String, Object> statisticToJson(StatisticEntity statistic) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("habitId", statistic.getHabitId());
+        json.put("executions", statistic.getHabitExecutions());
+        json.put("currentStreak", statistic.getCurrentStreak());
+        json.put("longestStreak", statistic.getLongestStreak());
+        json.put("successRate", statistic.getSuccessRate());
+        return json;
+    }
+
+    private static final class Response {
+        private final int status;
+        private final Object body;
+
+        private Response(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        private static Response ok(Object body) {
+            return new Response(200, body);
+        }
+
+        private static Response noContent() {
+            return new Response(204, null);
+        }
+    }
+
+    /**
+     * Ошибка запроса с заданным кодом ответа.
+     */
+    private static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        private ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
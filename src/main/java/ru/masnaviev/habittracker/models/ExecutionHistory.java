@@ -0,0 +1,627 @@
+package ru.masnaviev.habittracker.models;
+
+import ru.masnaviev.habittracker.models.memory.ColdHistory;
+import ru.masnaviev.habittracker.models.memory.ColdStore;
+import ru.masnaviev.habittracker.models.memory.DayArray;
+import ru.masnaviev.habittracker.models.memory.DayBitmap;
+import ru.masnaviev.habittracker.models.memory.HistoryStorage;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * История выполнения привычки.
+ * <p>
+ * Хранит отсортированное множество дат без повторов в виде массива номеров дней эпохи,
+ * поэтому одна отметка занимает 4 байта, а проверка наличия даты выполняется бинарным поиском.
+ * Длины серий подряд идущих дней поддерживаются инкрементально при записи.
+ * Массив располагается в куче или вне ее в зависимости от {@link HistoryStorage}.
+ * <p>
+ * Если задано {@link ColdStore}, в массиве остается только горячее окно последних отметок, а более старые
+ * запечатываются в сегменты на диске ({@link ColdHistory}). Запросы за последние недели обслуживаются
+ * горячим окном, размер и серии всей истории - сводками сегментов, а с диска отметки читаются только
+ * запросами, которые заходят в старые даты.
+ * <p>
+ * При {@link HistoryStorage#BITMAP} история хранится битовой картой {@link DayBitmap}: проверка дня,
+ * количество отметок в окне и серии считаются операциями над словами по 64 дня, а карты нескольких
+ * привычек пересекаются без разворачивания в даты ({@link #toBitmap}). Карта занимает 128 байт на
+ * 1024 дня, поэтому холодные сегменты в этом режиме не используются.
+ * Все операции синхронизированы на самом объекте истории.
+ */
+public class ExecutionHistory extends AbstractSet<LocalDate> {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final HistoryStorage storage;
+    private final ColdStore coldStore;
+    private DayArray days;
+    private ColdHistory cold;
+    private DayBitmap bitmap;
+    private int size;
+    private int currentRun;
+    private int longestRun;
+
+    public ExecutionHistory() {
+        this(HistoryStorage.getDefault());
+    }
+
+    public ExecutionHistory(HistoryStorage storage) {
+        this(storage, ColdStore.getDefault());
+    }
+
+    /**
+     * @param storage   место хранения горячего окна.
+     * @param coldStore хранилище старых отметок или {@code null}, если вся история хранится в памяти.
+     */
+    public ExecutionHistory(HistoryStorage storage, ColdStore coldStore) {
+        this.storage = storage;
+        if (storage == HistoryStorage.BITMAP) {
+            this.coldStore = null;
+            bitmap = new DayBitmap();
+            days = storage.allocate(0);
+        } else {
+            this.coldStore = coldStore;
+            days = storage.allocate(INITIAL_CAPACITY);
+        }
+    }
+
+    public ExecutionHistory(Collection<LocalDate> dates) {
+        this(HistoryStorage.getDefault());
+        if (bitmap == null) {
+            ensureCapacity(dates.size());
+        }
+        for (LocalDate date : dates) {
+            add(date);
+        }
+    }
+
+    @Override
+    public synchronized boolean add(LocalDate date) {
+        int day = toDay(date);
+        if (bitmap != null) {
+            int last = bitmap.last();
+            if (!bitmap.add(day)) {
+                return false;
+            }
+            if (day > last) {
+                currentRun = last == day - 1 ? currentRun + 1 : 1;
+                longestRun = Math.max(longestRun, currentRun);
+            } else {
+                recalculateRuns();
+            }
+            return true;
+        }
+        if (day <= coldLastDay()) {
+            if (cold.merge(new int[]{day}).length == 0) {
+                return false;
+            }
+            recalculateRuns();
+            return true;
+        }
+        if (size == 0 || days.get(size - 1) < day) {
+            ensureCapacity(size + 1);
+            currentRun = previousDay() == day - 1 ? currentRun + 1 : 1;
+            longestRun = Math.max(longestRun, currentRun);
+            days.set(size++, day);
+            sealIfNeeded();
+            return true;
+        }
+        int insertionPoint = lowerBound(day);
+        if (days.get(insertionPoint) == day) {
+            return false;
+        }
+        ensureCapacity(size + 1);
+        days.move(insertionPoint, insertionPoint + 1, size - insertionPoint);
+        days.set(insertionPoint, day);
+        size++;
+        recalculateRuns();
+        sealIfNeeded();
+        return true;
+    }
+
+    /**
+     * Добавляет даты, заданные номерами дней эпохи, за один проход слиянием с уже отмеченными датами.
+     * Сортировка выполняется до блокировки истории.
+     *
+     * @param epochDays номера дней в любом порядке, возможно с повторами.
+     * @return количество добавленных дат.
+     */
+    public int addEpochDays(int... epochDays) {
+        return mergeSortedEpochDays(sortedDistinct(epochDays)).length;
+    }
+
+    /**
+     * Сливает отсортированные номера дней без повторов с историей за один линейный проход.
+     * Блокировка истории удерживается только на время слияния; если все дни позже последней отметки,
+     * они дописываются в конец без копирования истории. Дни старше горячего окна сливаются
+     * с затронутыми холодными сегментами.
+     *
+     * @param epochDays номера дней по строгому возрастанию, например результат {@link #sortedDistinct}.
+     * @return номера добавленных дней по возрастанию; дни, которые уже были в истории, не входят.
+     */
+    public synchronized int[] mergeSortedEpochDays(int[] epochDays) {
+        if (bitmap != null) {
+            int[] added = bitmap.addAll(epochDays);
+            if (added.length > 0) {
+                recalculateRuns();
+            }
+            return added;
+        }
+        int coldCount = upperBound(epochDays, coldLastDay());
+        if (coldCount > 0) {
+            int[] coldAdded = cold.merge(Arrays.copyOf(epochDays, coldCount));
+            int[] hotAdded = mergeHot(Arrays.copyOfRange(epochDays, coldCount, epochDays.length));
+            if (coldAdded.length > 0) {
+                recalculateRuns();
+            }
+            int[] added = Arrays.copyOf(coldAdded, coldAdded.length + hotAdded.length);
+            System.arraycopy(hotAdded, 0, added, coldAdded.length, hotAdded.length);
+            return added;
+        }
+        return mergeHot(epochDays);
+    }
+
+    private int[] mergeHot(int[] epochDays) {
+        if (epochDays.length == 0) {
+            return epochDays;
+        }
+        if (size == 0 || days.get(size - 1) < epochDays[0]) {
+            ensureCapacity(size + epochDays.length);
+            for (int day : epochDays) {
+                currentRun = previousDay() == day - 1 ? currentRun + 1 : 1;
+                longestRun = Math.max(longestRun, currentRun);
+                days.set(size++, day);
+            }
+            sealIfNeeded();
+            return epochDays;
+        }
+        DayArray merged = storage.allocate(Math.max(INITIAL_CAPACITY, size + epochDays.length));
+        int[] added = new int[epochDays.length];
+        int addedCount = 0;
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size || j < epochDays.length) {
+            if (j == epochDays.length) {
+                merged.set(count++, days.get(i++));
+                continue;
+            }
+            int day = epochDays[j];
+            int existing = i < size ? days.get(i) : Integer.MAX_VALUE;
+            if (existing < day) {
+                merged.set(count++, existing);
+                i++;
+            } else {
+                if (existing > day) {
+                    added[addedCount++] = day;
+                }
+                merged.set(count++, day);
+                j++;
+                if (existing == day) {
+                    i++;
+                }
+            }
+        }
+        if (addedCount > 0) {
+            days.release();
+            days = merged;
+            size = count;
+            recalculateRuns();
+            sealIfNeeded();
+        } else {
+            merged.release();
+        }
+        return addedCount == added.length ? added : Arrays.copyOf(added, addedCount);
+    }
+
+    /**
+     * Возвращает отсортированную копию номеров дней без повторов.
+     *
+     * @param epochDays номера дней в любом порядке.
+     * @return номера дней по строгому возрастанию.
+     */
+    public static int[] sortedDistinct(int... epochDays) {
+        int[] sorted = epochDays.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (count == 0 || sorted[count - 1] != sorted[i]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+    }
+
+    @Override
+    public synchronized boolean remove(Object o) {
+        if (!(o instanceof LocalDate date)) {
+            return false;
+        }
+        int day = toDay(date);
+        if (bitmap != null) {
+            if (!bitmap.remove(day)) {
+                return false;
+            }
+            recalculateRuns();
+            return true;
+        }
+        if (day <= coldLastDay()) {
+            if (!cold.remove(day)) {
+                return false;
+            }
+            recalculateRuns();
+            return true;
+        }
+        int index = indexOf(day);
+        if (index < 0) {
+            return false;
+        }
+        days.move(index + 1, index, size - index - 1);
+        size--;
+        recalculateRuns();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean contains(Object o) {
+        if (!(o instanceof LocalDate date)) {
+            return false;
+        }
+        int day = toDay(date);
+        if (bitmap != null) {
+            return bitmap.contains(day);
+        }
+        return day <= coldLastDay() ? cold.contains(day) : indexOf(day) >= 0;
+    }
+
+    @Override
+    public synchronized void clear() {
+        if (cold != null) {
+            cold.clear();
+            cold = null;
+        }
+        if (bitmap != null) {
+            bitmap.clear();
+        }
+        size = 0;
+        currentRun = 0;
+        longestRun = 0;
+    }
+
+    /**
+     * Очищает историю и освобождает занятую ей память. Вызывается при удалении привычки,
+     * чтобы память вне кучи сразу вернулась распределителю.
+     */
+    public synchronized void release() {
+        days.release();
+        days = HistoryStorage.HEAP.allocate(0);
+        clear();
+    }
+
+    @Override
+    public synchronized int size() {
+        if (bitmap != null) {
+            return bitmap.cardinality();
+        }
+        return cold == null ? size : size + cold.size();
+    }
+
+    /**
+     * Возвращает количество выполнений в диапазоне дат включительно.
+     *
+     * @param start начало диапазона.
+     * @param end   конец диапазона.
+     * @return количество дат выполнения в диапазоне.
+     */
+    public synchronized int countBetween(LocalDate start, LocalDate end) {
+        int startDay = toDay(start);
+        int endDay = toDay(end);
+        if (bitmap != null) {
+            return bitmap.countBetween(startDay, endDay);
+        }
+        int from = lowerBound(startDay);
+        int to = upperBound(endDay);
+        int count = Math.max(0, to - from);
+        if (startDay <= coldLastDay() && startDay <= endDay) {
+            count += cold.count(startDay, endDay);
+        }
+        return count;
+    }
+
+    /**
+     * Возвращает даты выполнения в диапазоне дат включительно, отсортированные по возрастанию.
+     *
+     * @param start начало диапазона.
+     * @param end   конец диапазона.
+     * @return список дат выполнения в диапазоне.
+     */
+    public synchronized List<LocalDate> between(LocalDate start, LocalDate end) {
+        int startDay = toDay(start);
+        int endDay = toDay(end);
+        if (bitmap != null) {
+            return toDates(bitmap.toArray(startDay, endDay));
+        }
+        int from = lowerBound(startDay);
+        int to = upperBound(endDay);
+        int[] coldDays = startDay <= coldLastDay() && startDay <= endDay ? cold.between(startDay, endDay)
+                : new int[0];
+        List<LocalDate> dates = new ArrayList<>(coldDays.length + Math.max(0, to - from));
+        for (int day : coldDays) {
+            dates.add(LocalDate.ofEpochDay(day));
+        }
+        for (int i = from; i < to; i++) {
+            dates.add(LocalDate.ofEpochDay(days.get(i)));
+        }
+        return dates;
+    }
+
+    /**
+     * Возвращает последнюю дату выполнения.
+     *
+     * @return последняя дата выполнения или {@code null}, если история пуста.
+     */
+    public synchronized LocalDate latest() {
+        if (bitmap != null) {
+            return bitmap.cardinality() == 0 ? null : LocalDate.ofEpochDay(bitmap.last());
+        }
+        if (size == 0) {
+            return cold == null || cold.size() == 0 ? null : LocalDate.ofEpochDay(cold.lastDay());
+        }
+        return LocalDate.ofEpochDay(days.get(size - 1));
+    }
+
+    /**
+     * Возвращает длину серии подряд идущих дней, заканчивающейся последней датой выполнения.
+     *
+     * @return длина текущей серии.
+     */
+    public synchronized int currentStreak() {
+        return currentRun;
+    }
+
+    /**
+     * Возвращает длину самой длинной серии подряд идущих дней за всю историю.
+     *
+     * @return длина самой длинной серии.
+     */
+    public synchronized int longestStreak() {
+        return longestRun;
+    }
+
+    /**
+     * Возвращает длину серии подряд идущих дней, заканчивающейся последним выполнением в диапазоне.
+     * Серия обрезается началом диапазона.
+     *
+     * @param start начало диапазона.
+     * @param end   конец диапазона.
+     * @return длина серии в диапазоне.
+     */
+    public synchronized int streakBetween(LocalDate start, LocalDate end) {
+        int startDay = toDay(start);
+        int endDay = toDay(end);
+        if (bitmap != null) {
+            int last = bitmap.last();
+            if (last <= endDay) {
+                return last < startDay ? 0 : Math.min(currentRun, last - startDay + 1);
+            }
+            return bitmap.runEndingAt(bitmap.lastBetween(startDay, endDay), startDay);
+        }
+        int coldLast = coldLastDay();
+        if ((size == 0 && coldLast == Integer.MIN_VALUE) || startDay > endDay) {
+            return 0;
+        }
+        int last = size == 0 ? coldLast : days.get(size - 1);
+        if (last <= endDay) {
+            return last < startDay ? 0 : Math.min(currentRun, last - startDay + 1);
+        }
+        int index = upperBound(endDay) - 1;
+        if (index < 0) {
+            return startDay <= coldLast ? cold.streakBetween(startDay, endDay) : 0;
+        }
+        if (days.get(index) < startDay) {
+            return 0;
+        }
+        int streak = 1;
+        while (index > 0 && days.get(index - 1) == days.get(index) - 1 && days.get(index - 1) >= startDay) {
+            streak++;
+            index--;
+        }
+        if (index == 0 && days.get(0) - 1 == coldLast && coldLast >= startDay) {
+            streak += Math.min(cold.trailingRun(), coldLast - startDay + 1);
+        }
+        return streak;
+    }
+
+    /**
+     * Возвращает копию истории в виде отсортированного массива номеров дней эпохи.
+     *
+     * @return массив номеров дней.
+     */
+    public synchronized int[] toEpochDays() {
+        if (bitmap != null) {
+            return bitmap.toArray();
+        }
+        if (cold == null || cold.size() == 0) {
+            return days.toArray(size);
+        }
+        int[] coldDays = cold.between(Integer.MIN_VALUE, cold.lastDay());
+        int[] all = Arrays.copyOf(coldDays, coldDays.length + size);
+        for (int i = 0; i < size; i++) {
+            all[coldDays.length + i] = days.get(i);
+        }
+        return all;
+    }
+
+    /**
+     * Возвращает битовую карту отметок в диапазоне дат включительно. Карты разных привычек можно
+     * пересекать и объединять ({@link DayBitmap#and}, {@link DayBitmap#or}); история, которая хранится
+     * массивом, строит карту из отметок диапазона.
+     *
+     * @param start начало диапазона.
+     * @param end   конец диапазона.
+     * @return новая карта, не связанная с историей.
+     */
+    public synchronized DayBitmap toBitmap(LocalDate start, LocalDate end) {
+        int startDay = toDay(start);
+        int endDay = toDay(end);
+        if (bitmap != null) {
+            return bitmap.between(startDay, endDay);
+        }
+        DayBitmap result = new DayBitmap();
+        if (startDay <= coldLastDay() && startDay <= endDay) {
+            result.addAll(cold.between(startDay, endDay));
+        }
+        for (int i = lowerBound(startDay), to = upperBound(endDay); i < to; i++) {
+            result.add(days.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает количество отметок горячего окна, которые хранятся в памяти.
+     */
+    synchronized int hotSize() {
+        return size;
+    }
+
+    @Override
+    public Iterator<LocalDate> iterator() {
+        int[] snapshot = toEpochDays();
+        return new Iterator<>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < snapshot.length;
+            }
+
+            @Override
+            public LocalDate next() {
+                if (index >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                return LocalDate.ofEpochDay(snapshot[index++]);
+            }
+        };
+    }
+
+    private int lowerBound(int day) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days.get(mid) < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(int day) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days.get(mid) <= day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void recalculateRuns() {
+        if (bitmap != null) {
+            int last = bitmap.last();
+            currentRun = bitmap.runEndingAt(last, Integer.MIN_VALUE);
+            longestRun = bitmap.longestRun();
+            return;
+        }
+        int run = cold == null ? 0 : cold.trailingRun();
+        int longest = cold == null ? 0 : cold.longestRun();
+        int previous = coldLastDay();
+        for (int i = 0; i < size; i++) {
+            int day = days.get(i);
+            run = previous == day - 1 ? run + 1 : 1;
+            previous = day;
+            longest = Math.max(longest, run);
+        }
+        currentRun = run;
+        longestRun = longest;
+    }
+
+    /**
+     * Запечатывает отметки старше горячего окна в холодный сегмент, если их накопилось достаточно,
+     * и сжимает массив горячего окна. Набор отметок не меняется, поэтому серии не пересчитываются.
+     */
+    private void sealIfNeeded() {
+        if (coldStore == null || size == 0) {
+            return;
+        }
+        int sealed = lowerBound(days.get(size - 1) - coldStore.getHotDays());
+        if (sealed < coldStore.getSegmentDays()) {
+            return;
+        }
+        if (cold == null) {
+            cold = new ColdHistory(coldStore);
+        }
+        cold.append(days.toArray(sealed));
+        int remaining = size - sealed;
+        DayArray hot = storage.allocate(Math.max(INITIAL_CAPACITY, remaining + (remaining >> 1)));
+        for (int i = 0; i < remaining; i++) {
+            hot.set(i, days.get(sealed + i));
+        }
+        days.release();
+        days = hot;
+        size = remaining;
+    }
+
+    private int coldLastDay() {
+        return cold == null ? Integer.MIN_VALUE : cold.lastDay();
+    }
+
+    /**
+     * Возвращает последний день перед концом горячего окна с учетом холодной части.
+     */
+    private int previousDay() {
+        return size > 0 ? days.get(size - 1) : coldLastDay();
+    }
+
+    /**
+     * Возвращает количество элементов отсортированного массива, не больших заданного дня.
+     */
+    private static int upperBound(int[] sorted, int day) {
+        int index = Arrays.binarySearch(sorted, day);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private int indexOf(int day) {
+        int index = lowerBound(day);
+        return index < size && days.get(index) == day ? index : -1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        int current = days.capacity();
+        if (capacity > current) {
+            int grownCapacity = Math.max(Math.max(capacity, INITIAL_CAPACITY), current + (current >> 1));
+            DayArray grown = current == 0 ? storage.allocate(grownCapacity) : days.copyOf(grownCapacity, size);
+            days.release();
+            days = grown;
+        }
+    }
+
+    private static List<LocalDate> toDates(int[] epochDays) {
+        List<LocalDate> dates = new ArrayList<>(epochDays.length);
+        for (int day : epochDays) {
+            dates.add(LocalDate.ofEpochDay(day));
+        }
+        return dates;
+    }
+
+    private static int toDay(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+}
@@ -2,11 +2,11 @@ package ru.masnaviev.habittracker.models;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Collection;
 
 public class Habit {
     private final LocalDateTime created;
-    private ArrayList<LocalDate> executionHistory;
+    private ExecutionHistory executionHistory;
     private long userId;
     private long id;
     private String title;
@@ -16,7 +16,7 @@ public class Habit {
 
     public Habit() {
         created = LocalDateTime.now();
-        executionHistory = new ArrayList<>();
+        executionHistory = new ExecutionHistory();
     }
 
     public Habit(String title, String description, Frequency frequency) {
@@ -25,19 +25,37 @@ public class Habit {
         this.frequency = frequency;
         status = Status.CREATED;
         created = LocalDateTime.now();
-        executionHistory = new ArrayList<>();
+        executionHistory = new ExecutionHistory();
+    }
+
+    public Habit(long id, long userId, String title, String description, Frequency frequency, Status status,
+                 LocalDateTime created) {
+        this.id = id;
+        this.userId = userId;
+        this.title = title;
+        this.description = description;
+        this.frequency = frequency;
+        this.status = status;
+        this.created = created;
+        executionHistory = new ExecutionHistory();
     }
 
     public LocalDateTime getCreated() {
         return created;
     }
 
-    public ArrayList<LocalDate> getExecutionHistory() {
+    public ExecutionHistory getExecutionHistory() {
         return executionHistory;
     }
 
-    public void setExecutionHistory(ArrayList<LocalDate> executionHistory) {
-        this.executionHistory = executionHistory;
+    /**
+     * Заменяет историю выполнения копией переданных дат. Прежняя история освобождается,
+     * чтобы занятая ей память вне кучи сразу вернулась распределителю.
+     */
+    public void setExecutionHistory(Collection<LocalDate> executionHistory) {
+        ExecutionHistory previous = this.executionHistory;
+        this.executionHistory = new ExecutionHistory(executionHistory);
+        previous.release();
     }
 
     public Status getStatus() {
@@ -0,0 +1,265 @@
+package ru.masnaviev.habittracker.models.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Холодная часть истории выполнения: упорядоченные сжатые сегменты, которые не пересекаются по датам.
+ * Отметки сегмента читаются лишь тогда, когда запрос затрагивает его частично, а количество и наличие дня
+ * считаются по кодировке потоком. Изменение старой даты переписывает затронутый сегмент в новый.
+ * Синхронизацией управляет владеющая история.
+ */
+public final class ColdHistory {
+
+    private final ColdStore store;
+    private final List<ColdSegment> segments = new ArrayList<>();
+    private int size;
+    private int trailingRun;
+    private int longestRun;
+
+    public ColdHistory(ColdStore store) {
+        this.store = store;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Возвращает последний день холодной части или {@link Integer#MIN_VALUE}, если она пуста.
+     */
+    public int lastDay() {
+        return segments.isEmpty() ? Integer.MIN_VALUE : segments.get(segments.size() - 1).getLast();
+    }
+
+    /**
+     * Возвращает длину серии подряд идущих дней, заканчивающейся последним днем холодной части.
+     */
+    public int trailingRun() {
+        return trailingRun;
+    }
+
+    public int longestRun() {
+        return longestRun;
+    }
+
+    /**
+     * Запечатывает отметки в сегменты. Все отметки должны быть позже последнего дня холодной части.
+     *
+     * @param days номера дней по строгому возрастанию.
+     */
+    public void append(int[] days) {
+        int max = store.maxSegmentDays();
+        for (int from = 0; from < days.length; from += max) {
+            segments.add(store.write(days, from, Math.min(days.length, from + max)));
+        }
+        summarize();
+    }
+
+    /**
+     * Сливает с холодной частью дни, не позже ее последнего дня.
+     *
+     * @param days номера дней по строгому возрастанию.
+     * @return добавленные номера дней по возрастанию.
+     */
+    public int[] merge(int[] days) {
+        int[] added = new int[days.length];
+        int addedCount = 0;
+        int from = 0;
+        for (int index = 0; index < segments.size() && from < days.length; index++) {
+            ColdSegment segment = segments.get(index);
+            int to = from;
+            while (to < days.length && days[to] <= segment.getLast()) {
+                to++;
+            }
+            if (to == from) {
+                continue;
+            }
+            int[] existing = store.read(segment);
+            int[] merged = new int[existing.length + to - from];
+            int count = 0;
+            int i = 0;
+            int j = from;
+            while (i < existing.length || j < to) {
+                if (j == to || (i < existing.length && existing[i] < days[j])) {
+                    merged[count++] = existing[i++];
+                } else {
+                    if (i == existing.length || existing[i] > days[j]) {
+                        added[addedCount++] = days[j];
+                    } else {
+                        i++;
+                    }
+                    merged[count++] = days[j++];
+                }
+            }
+            if (count > existing.length) {
+                index += replace(index, Arrays.copyOf(merged, count)) - 1;
+            }
+            from = to;
+        }
+        summarize();
+        return Arrays.copyOf(added, addedCount);
+    }
+
+    /**
+     * Удаляет день из холодной части.
+     *
+     * @return {@code true}, если день был отмечен.
+     */
+    public boolean remove(int day) {
+        int index = segmentOf(day);
+        if (index < 0) {
+            return false;
+        }
+        int[] existing = store.read(segments.get(index));
+        int position = Arrays.binarySearch(existing, day);
+        if (position < 0) {
+            return false;
+        }
+        int[] remaining = new int[existing.length - 1];
+        System.arraycopy(existing, 0, remaining, 0, position);
+        System.arraycopy(existing, position + 1, remaining, position, remaining.length - position);
+        replace(index, remaining);
+        summarize();
+        return true;
+    }
+
+    public boolean contains(int day) {
+        int index = segmentOf(day);
+        return index >= 0 && store.contains(segments.get(index), day);
+    }
+
+    /**
+     * Возвращает количество отметок в диапазоне включительно. Сегменты, целиком лежащие в диапазоне,
+     * считаются по сводкам, а в пограничных отметки считаются по кодировке.
+     */
+    public int count(int start, int end) {
+        int count = 0;
+        for (ColdSegment segment : segments) {
+            if (segment.getLast() < start || segment.getFirst() > end) {
+                continue;
+            }
+            if (segment.getFirst() >= start && segment.getLast() <= end) {
+                count += segment.getCount();
+            } else {
+                count += store.countBetween(segment, start, end);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Возвращает отметки в диапазоне включительно по возрастанию.
+     */
+    public int[] between(int start, int end) {
+        int[] result = new int[0];
+        int count = 0;
+        for (ColdSegment segment : segments) {
+            if (segment.getLast() < start || segment.getFirst() > end) {
+                continue;
+            }
+            int[] days = store.read(segment);
+            int from = lowerBound(days, start);
+            int to = upperBound(days, end);
+            result = Arrays.copyOf(result, count + to - from);
+            System.arraycopy(days, from, result, count, to - from);
+            count += to - from;
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает длину серии подряд идущих дней, заканчивающейся последней отметкой в диапазоне.
+     * Серия обрезается началом диапазона.
+     */
+    public int streakBetween(int start, int end) {
+        int[] days = between(start, end);
+        if (days.length == 0) {
+            return 0;
+        }
+        int streak = 1;
+        for (int i = days.length - 1; i > 0 && days[i - 1] == days[i] - 1; i--) {
+            streak++;
+        }
+        return streak;
+    }
+
+    /**
+     * Удаляет все сегменты вместе с файлами.
+     */
+    public void clear() {
+        for (ColdSegment segment : segments) {
+            store.delete(segment);
+        }
+        segments.clear();
+        summarize();
+    }
+
+    /**
+     * Заменяет сегмент новыми, записанными из отметок, и удаляет файл прежнего.
+     *
+     * @return количество сегментов, которыми заменен прежний.
+     */
+    private int replace(int index, int[] days) {
+        ColdSegment old = segments.remove(index);
+        int max = store.maxSegmentDays();
+        int written = 0;
+        for (int from = 0; from < days.length; from += max) {
+            segments.add(index + written++, store.write(days, from, Math.min(days.length, from + max)));
+        }
+        store.delete(old);
+        return written;
+    }
+
+    /**
+     * Пересчитывает размер и серии по сводкам сегментов.
+     */
+    private void summarize() {
+        int total = 0;
+        int run = 0;
+        int longest = 0;
+        int previous = Integer.MIN_VALUE;
+        for (ColdSegment segment : segments) {
+            int startRun = segment.getFirst() - 1 == previous ? run + segment.getLeadingRun()
+                    : segment.getLeadingRun();
+            longest = Math.max(longest, Math.max(startRun, segment.getLongestRun()));
+            run = segment.getLeadingRun() == segment.getCount() ? startRun : segment.getTrailingRun();
+            previous = segment.getLast();
+            total += segment.getCount();
+        }
+        size = total;
+        trailingRun = run;
+        longestRun = longest;
+    }
+
+    /**
+     * Возвращает индекс сегмента, в диапазон которого попадает день, или -1.
+     */
+    private int segmentOf(int day) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            ColdSegment segment = segments.get(mid);
+            if (segment.getLast() < day) {
+                low = mid + 1;
+            } else if (segment.getFirst() > day) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static int lowerBound(int[] days, int day) {
+        int index = Arrays.binarySearch(days, day);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static int upperBound(int[] days, int day) {
+        int index = Arrays.binarySearch(days, day);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
@@ -0,0 +1,82 @@
+package ru.masnaviev.habittracker.models.memory;
+
+import java.nio.file.Path;
+
+/**
+ * Сводка холодного сегмента: файл или сжатые байты, границы, количество отметок и серии подряд идущих
+ * дней у начала, у конца и самая длинная. По сводкам без чтения отметок считаются размер истории,
+ * серии и количество отметок в диапазоне, целиком покрывающем сегмент.
+ */
+final class ColdSegment {
+
+    private final Path file;
+    private final byte[] data;
+    private final int first;
+    private final int last;
+    private final int count;
+    private final int leadingRun;
+    private final int trailingRun;
+    private final int longestRun;
+
+    private ColdSegment(Path file, byte[] data, int first, int last, int count, int leadingRun, int trailingRun,
+                        int longestRun) {
+        this.file = file;
+        this.data = data;
+        this.first = first;
+        this.last = last;
+        this.count = count;
+        this.leadingRun = leadingRun;
+        this.trailingRun = trailingRun;
+        this.longestRun = longestRun;
+    }
+
+    /**
+     * @param file файл сегмента или {@code null}, если сегмент хранится в куче.
+     * @param data кодировка сегмента в куче или {@code null}, если сегмент хранится в файле.
+     */
+    static ColdSegment of(Path file, byte[] data, int[] days, int from, int to) {
+        int run = 0;
+        int longest = 0;
+        int leading = 0;
+        for (int i = from; i < to; i++) {
+            run = i > from && days[i - 1] == days[i] - 1 ? run + 1 : 1;
+            if (run == i - from + 1) {
+                leading = run;
+            }
+            longest = Math.max(longest, run);
+        }
+        return new ColdSegment(file, data, days[from], days[to - 1], to - from, leading, run, longest);
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    byte[] getData() {
+        return data;
+    }
+
+    int getFirst() {
+        return first;
+    }
+
+    int getLast() {
+        return last;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getLeadingRun() {
+        return leadingRun;
+    }
+
+    int getTrailingRun() {
+        return trailingRun;
+    }
+
+    int getLongestRun() {
+        return longestRun;
+    }
+}
@@ -0,0 +1,220 @@
+package ru.masnaviev.habittracker.models.memory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище холодных сегментов истории выполнения.
+ * <p>
+ * История держит в массиве только отметки за последние {@code hotDays} дней до последней отметки.
+ * Более старые отметки, когда их накопится не меньше {@code segmentDays}, запечатываются в неизменяемый
+ * сегмент в кодировке {@link DeltaVarint} - около байта на отметку ежедневной привычки. Сегменты лежат
+ * в файлах на локальном диске и читаются только запросами за старые даты, либо хранятся в куче массивами
+ * байт, если достаточно сжатия. Файлы сегментов - производные данные: история восстанавливается из снимка
+ * и журнала, поэтому каждый процесс пишет сегменты в свой подкаталог и удаляет его при закрытии.
+ * <p>
+ * Хранилище по умолчанию задается системными свойствами: {@code habittracker.history.cold} - {@code disk}
+ * (сегменты в каталоге {@code habittracker.history.cold-dir}; выбирается, если задан только каталог)
+ * или {@code memory}; размер горячего окна - {@code habittracker.history.hot-days} (по умолчанию 62 дня,
+ * с запасом больше месяца, за который считается статистика), размер сегмента -
+ * {@code habittracker.history.cold-segment-days} (по умолчанию 256 отметок).
+ */
+public final class ColdStore implements Closeable {
+
+    private static final int DEFAULT_HOT_DAYS = 62;
+    private static final int DEFAULT_SEGMENT_DAYS = 256;
+    private static final int MAX_SEGMENT_FACTOR = 4;
+    private static final ColdStore DEFAULT = fromSystemProperties();
+
+    private final Path directory;
+    private final int hotDays;
+    private final int segmentDays;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Создает хранилище сегментов на диске.
+     *
+     * @param parent      каталог, в котором создается подкаталог сегментов этого хранилища.
+     * @param hotDays     сколько дней до последней отметки история держит в массиве.
+     * @param segmentDays сколько старых отметок должно накопиться, чтобы запечатать их в сегмент.
+     */
+    public ColdStore(Path parent, int hotDays, int segmentDays) {
+        this(hotDays, segmentDays, createDirectory(parent));
+    }
+
+    private ColdStore(int hotDays, int segmentDays, Path directory) {
+        if (hotDays < 0 || segmentDays <= 0) {
+            throw new IllegalArgumentException("Размер горячего окна не может быть отрицательным, а сегмента - "
+                    + "меньше одной отметки");
+        }
+        this.directory = directory;
+        this.hotDays = hotDays;
+        this.segmentDays = segmentDays;
+    }
+
+    /**
+     * Создает хранилище, которое держит сжатые сегменты в куче.
+     *
+     * @param hotDays     сколько дней до последней отметки история держит в массиве.
+     * @param segmentDays сколько старых отметок должно накопиться, чтобы запечатать их в сегмент.
+     */
+    public static ColdStore inMemory(int hotDays, int segmentDays) {
+        return new ColdStore(hotDays, segmentDays, null);
+    }
+
+    /**
+     * Возвращает хранилище, заданное системными свойствами.
+     *
+     * @return хранилище или {@code null}, если история целиком хранится в массивах.
+     */
+    public static ColdStore getDefault() {
+        return DEFAULT;
+    }
+
+    public int getHotDays() {
+        return hotDays;
+    }
+
+    public int getSegmentDays() {
+        return segmentDays;
+    }
+
+    /**
+     * Возвращает каталог сегментов или {@code null}, если сегменты хранятся в куче.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Удаляет каталог сегментов вместе с файлами.
+     */
+    @Override
+    public void close() {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (NoSuchFileException e) {
+            // каталог уже удален
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось удалить каталог сегментов истории " + directory, e);
+        }
+    }
+
+    /**
+     * Наибольшее количество отметок в сегменте: длинная история при запечатывании делится на части,
+     * чтобы запрос за диапазон читал только нужные сегменты.
+     */
+    int maxSegmentDays() {
+        return segmentDays * MAX_SEGMENT_FACTOR;
+    }
+
+    /**
+     * Записывает отметки в новый сегмент.
+     *
+     * @param days номера дней по строгому возрастанию.
+     * @param from индекс первой отметки сегмента.
+     * @param to   индекс за последней отметкой сегмента.
+     */
+    ColdSegment write(int[] days, int from, int to) {
+        byte[] encoded = DeltaVarint.encode(days, from, to);
+        if (directory == null) {
+            return ColdSegment.of(null, encoded, days, from, to);
+        }
+        Path file = directory.resolve(sequence.incrementAndGet() + ".seg");
+        try {
+            Files.write(file, encoded);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать сегмент истории " + file, e);
+        }
+        return ColdSegment.of(file, null, days, from, to);
+    }
+
+    /**
+     * Читает отметки сегмента.
+     *
+     * @return номера дней по возрастанию.
+     */
+    int[] read(ColdSegment segment) {
+        return DeltaVarint.decode(bytes(segment));
+    }
+
+    /**
+     * Считает отметки сегмента в диапазоне включительно, не разворачивая сегмент в массив.
+     */
+    int countBetween(ColdSegment segment, int start, int end) {
+        return DeltaVarint.countBetween(bytes(segment), start, end);
+    }
+
+    boolean contains(ColdSegment segment, int day) {
+        return DeltaVarint.contains(bytes(segment), day);
+    }
+
+    void delete(ColdSegment segment) {
+        if (segment.getFile() == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(segment.getFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось удалить сегмент истории " + segment.getFile(), e);
+        }
+    }
+
+    private static ByteBuffer bytes(ColdSegment segment) {
+        if (segment.getData() != null) {
+            return ByteBuffer.wrap(segment.getData());
+        }
+        try {
+            return ByteBuffer.wrap(Files.readAllBytes(segment.getFile()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать сегмент истории " + segment.getFile(), e);
+        }
+    }
+
+    private static Path createDirectory(Path parent) {
+        try {
+            Files.createDirectories(parent);
+            return Files.createTempDirectory(parent, "history-");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать каталог сегментов истории в " + parent, e);
+        }
+    }
+
+    private static ColdStore fromSystemProperties() {
+        String directory = System.getProperty("habittracker.history.cold-dir");
+        String mode = System.getProperty("habittracker.history.cold",
+                directory == null || directory.isBlank() ? "none" : "disk");
+        int hotDays = Integer.getInteger("habittracker.history.hot-days", DEFAULT_HOT_DAYS);
+        int segmentDays = Integer.getInteger("habittracker.history.cold-segment-days", DEFAULT_SEGMENT_DAYS);
+        switch (mode.toLowerCase(Locale.ROOT)) {
+            case "none":
+                return null;
+            case "memory":
+                return inMemory(hotDays, segmentDays);
+            case "disk":
+                if (directory == null || directory.isBlank()) {
+                    throw new IllegalArgumentException("Для сегментов истории на диске нужно задать свойство "
+                            + "habittracker.history.cold-dir");
+                }
+                ColdStore store = new ColdStore(Path.of(directory), hotDays, segmentDays);
+                Runtime.getRuntime().addShutdownHook(new Thread(store::close, "cold-store-cleanup"));
+                return store;
+            default:
+                throw new IllegalArgumentException("Неизвестное хранилище старых отметок истории: " + mode);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ru.masnaviev.habittracker.models.memory;
+
+/**
+ * Массив номеров дней эпохи фиксированной емкости, в котором хранится история выполнения.
+ */
+public abstract class DayArray {
+
+    public abstract int capacity();
+
+    public abstract int get(int index);
+
+    public abstract void set(int index, int day);
+
+    /**
+     * Перемещает элементы внутри массива. Диапазоны могут пересекаться.
+     */
+    public abstract void move(int from, int to, int length);
+
+    /**
+     * Копирует первые элементы массива в новый массив той же памяти.
+     *
+     * @param capacity емкость нового массива.
+     * @param length   количество копируемых элементов.
+     * @return новый массив.
+     */
+    public abstract DayArray copyOf(int capacity, int length);
+
+    /**
+     * Освобождает память массива. После вызова массив использовать нельзя.
+     */
+    public abstract void release();
+
+    public int[] toArray(int length) {
+        int[] days = new int[length];
+        for (int i = 0; i < length; i++) {
+            days[i] = get(i);
+        }
+        return days;
+    }
+}
@@ -0,0 +1,465 @@
+package ru.masnaviev.habittracker.models.memory;
+
+import java.util.Arrays;
+
+/**
+ * Множество номеров дней эпохи в виде битовой карты, разбитой на блоки.
+ * <p>
+ * Блок покрывает {@value #CHUNK_DAYS} подряд идущих дней (около 2,8 года) и хранит их в
+ * {@value #WORDS} словах {@code long}, по биту на день; блоки без отметок не хранятся, ключи блоков
+ * упорядочены. Блок занимает 128 байт независимо от количества отметок, поэтому ежедневная привычка
+ * за три года занимает 128 байт вместо 4 КБ в массиве номеров дней, а редкие отметки стоят не больше
+ * блока на отметку.
+ * <p>
+ * Количество отметок в диапазоне считается подсчетом битов по словам, серии подряд идущих дней -
+ * поиском первого нулевого бита в слове, а пересечение и объединение карт - побитовыми операциями
+ * над словами блоков с общими ключами. Класс не синхронизирован.
+ */
+public final class DayBitmap {
+
+    static final int CHUNK_BITS = 10;
+    static final int CHUNK_DAYS = 1 << CHUNK_BITS;
+    static final int WORDS = CHUNK_DAYS / Long.SIZE;
+
+    private static final int OFFSET_MASK = CHUNK_DAYS - 1;
+
+    private int[] keys;
+    private long[][] chunks;
+    private int chunkCount;
+    private int cardinality;
+
+    public DayBitmap() {
+        this(0);
+    }
+
+    private DayBitmap(int capacity) {
+        keys = new int[capacity];
+        chunks = new long[capacity][];
+    }
+
+    /**
+     * Создает карту из номеров дней.
+     *
+     * @param days номера дней в любом порядке, возможно с повторами.
+     */
+    public static DayBitmap of(int... days) {
+        DayBitmap bitmap = new DayBitmap();
+        for (int day : days) {
+            bitmap.add(day);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Возвращает пересечение карт - дни, отмеченные в каждой из них.
+     */
+    public static DayBitmap and(DayBitmap... bitmaps) {
+        if (bitmaps.length == 0) {
+            return new DayBitmap();
+        }
+        DayBitmap result = bitmaps[0];
+        for (int i = 1; i < bitmaps.length && result.cardinality > 0; i++) {
+            result = result.and(bitmaps[i]);
+        }
+        return result == bitmaps[0] ? result.copy() : result;
+    }
+
+    /**
+     * Возвращает объединение карт - дни, отмеченные хотя бы в одной из них.
+     */
+    public static DayBitmap or(DayBitmap... bitmaps) {
+        DayBitmap result = new DayBitmap();
+        for (DayBitmap bitmap : bitmaps) {
+            result = result.or(bitmap);
+        }
+        return result;
+    }
+
+    /**
+     * @return {@code true}, если дня еще не было в карте.
+     */
+    public boolean add(int day) {
+        int index = Arrays.binarySearch(keys, 0, chunkCount, key(day));
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, key(day), new long[WORDS]);
+        }
+        long[] words = chunks[index];
+        int offset = day & OFFSET_MASK;
+        long bit = 1L << offset;
+        if ((words[offset >>> 6] & bit) != 0) {
+            return false;
+        }
+        words[offset >>> 6] |= bit;
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * Добавляет дни в карту.
+     *
+     * @param days номера дней по строгому возрастанию.
+     * @return добавленные номера дней по возрастанию.
+     */
+    public int[] addAll(int[] days) {
+        int[] added = new int[days.length];
+        int count = 0;
+        for (int day : days) {
+            if (add(day)) {
+                added[count++] = day;
+            }
+        }
+        return count == added.length ? added : Arrays.copyOf(added, count);
+    }
+
+    /**
+     * @return {@code true}, если день был в карте.
+     */
+    public boolean remove(int day) {
+        int index = Arrays.binarySearch(keys, 0, chunkCount, key(day));
+        if (index < 0) {
+            return false;
+        }
+        long[] words = chunks[index];
+        int offset = day & OFFSET_MASK;
+        long bit = 1L << offset;
+        if ((words[offset >>> 6] & bit) == 0) {
+            return false;
+        }
+        words[offset >>> 6] &= ~bit;
+        cardinality--;
+        if (isEmpty(words)) {
+            removeChunk(index);
+        }
+        return true;
+    }
+
+    public boolean contains(int day) {
+        int index = Arrays.binarySearch(keys, 0, chunkCount, key(day));
+        if (index < 0) {
+            return false;
+        }
+        int offset = day & OFFSET_MASK;
+        return (chunks[index][offset >>> 6] & (1L << offset)) != 0;
+    }
+
+    public void clear() {
+        keys = new int[0];
+        chunks = new long[0][];
+        chunkCount = 0;
+        cardinality = 0;
+    }
+
+    /**
+     * Возвращает количество дней в карте.
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Возвращает количество блоков карты; каждый занимает {@value #WORDS} слов.
+     */
+    public int chunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * Возвращает количество дней в диапазоне включительно.
+     */
+    public int countBetween(int start, int end) {
+        if (start > end) {
+            return 0;
+        }
+        int count = 0;
+        for (int index = firstChunk(key(start)); index < chunkCount && keys[index] <= key(end); index++) {
+            long[] words = chunks[index];
+            int from = keys[index] == key(start) ? start & OFFSET_MASK : 0;
+            int to = keys[index] == key(end) ? end & OFFSET_MASK : CHUNK_DAYS - 1;
+            if (from == 0 && to == CHUNK_DAYS - 1) {
+                for (long word : words) {
+                    count += Long.bitCount(word);
+                }
+                continue;
+            }
+            for (int w = from >>> 6; w <= to >>> 6; w++) {
+                count += Long.bitCount(words[w] & mask(w, from, to));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Возвращает последний день карты в диапазоне включительно или {@link Integer#MIN_VALUE}, если в диапазоне
+     * дней нет.
+     */
+    public int lastBetween(int start, int end) {
+        if (start > end) {
+            return Integer.MIN_VALUE;
+        }
+        for (int index = lastChunk(key(end)); index >= 0 && keys[index] >= key(start); index--) {
+            long[] words = chunks[index];
+            int from = keys[index] == key(start) ? start & OFFSET_MASK : 0;
+            int to = keys[index] == key(end) ? end & OFFSET_MASK : CHUNK_DAYS - 1;
+            for (int w = to >>> 6; w >= from >>> 6; w--) {
+                long word = words[w] & mask(w, from, to);
+                if (word != 0) {
+                    return day(keys[index], w, Long.SIZE - 1 - Long.numberOfLeadingZeros(word));
+                }
+            }
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * Возвращает последний день карты или {@link Integer#MIN_VALUE}, если карта пуста.
+     */
+    public int last() {
+        return lastBetween(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Возвращает длину серии подряд идущих дней карты, заканчивающейся заданным днем. Серия обрезается
+     * началом диапазона. Биты проверяются словами: серия внутри слова находится поиском старшего нулевого бита.
+     *
+     * @param day   последний день серии.
+     * @param start день, раньше которого серия не продолжается.
+     * @return длина серии или 0, если дня нет в карте или он раньше начала.
+     */
+    public int runEndingAt(int day, int start) {
+        if (day < start) {
+            return 0;
+        }
+        long limit = (long) day - start + 1;
+        long run = 0;
+        int index = Arrays.binarySearch(keys, 0, chunkCount, key(day));
+        int bit = day & OFFSET_MASK;
+        while (index >= 0 && run < limit) {
+            long[] words = chunks[index];
+            for (int w = bit >>> 6; w >= 0 && run < limit; w--) {
+                int top = w == bit >>> 6 ? bit & 63 : 63;
+                int ones = Long.numberOfLeadingZeros(~(words[w] << (63 - top)));
+                run += Math.min(ones, top + 1);
+                if (ones <= top) {
+                    return (int) Math.min(run, limit);
+                }
+            }
+            if (index == 0 || keys[index - 1] != keys[index] - 1) {
+                break;
+            }
+            index--;
+            bit = CHUNK_DAYS - 1;
+        }
+        return (int) Math.min(run, limit);
+    }
+
+    /**
+     * Возвращает длину самой длинной серии подряд идущих дней карты.
+     */
+    public int longestRun() {
+        int longest = 0;
+        int run = 0;
+        for (int index = 0; index < chunkCount; index++) {
+            if (index > 0 && keys[index - 1] != keys[index] - 1) {
+                run = 0;
+            }
+            for (long word : chunks[index]) {
+                if (word == -1L) {
+                    run += Long.SIZE;
+                    continue;
+                }
+                longest = Math.max(longest, run + Long.numberOfTrailingZeros(~word));
+                longest = Math.max(longest, longestRunInWord(word));
+                run = Long.numberOfLeadingZeros(~word);
+            }
+            longest = Math.max(longest, run);
+        }
+        return longest;
+    }
+
+    /**
+     * Возвращает дни карты в диапазоне включительно по возрастанию.
+     */
+    public int[] toArray(int start, int end) {
+        int[] days = new int[countBetween(start, end)];
+        int count = 0;
+        for (int index = firstChunk(key(start)); count < days.length; index++) {
+            long[] words = chunks[index];
+            int from = keys[index] == key(start) ? start & OFFSET_MASK : 0;
+            int to = keys[index] == key(end) ? end & OFFSET_MASK : CHUNK_DAYS - 1;
+            for (int w = from >>> 6; w <= to >>> 6; w++) {
+                long word = words[w] & mask(w, from, to);
+                while (word != 0) {
+                    days[count++] = day(keys[index], w, Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+        return days;
+    }
+
+    public int[] toArray() {
+        return toArray(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Возвращает новую карту с днями этой карты в диапазоне включительно.
+     */
+    public DayBitmap between(int start, int end) {
+        DayBitmap result = new DayBitmap(chunkCount);
+        if (start > end) {
+            return result;
+        }
+        for (int index = firstChunk(key(start)); index < chunkCount && keys[index] <= key(end); index++) {
+            int from = keys[index] == key(start) ? start & OFFSET_MASK : 0;
+            int to = keys[index] == key(end) ? end & OFFSET_MASK : CHUNK_DAYS - 1;
+            long[] words = new long[WORDS];
+            for (int w = from >>> 6; w <= to >>> 6; w++) {
+                words[w] = chunks[index][w] & mask(w, from, to);
+            }
+            result.appendChunk(keys[index], words);
+        }
+        return result;
+    }
+
+    public DayBitmap copy() {
+        return between(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Возвращает пересечение с другой картой: обходятся только блоки с общими ключами.
+     */
+    public DayBitmap and(DayBitmap other) {
+        DayBitmap result = new DayBitmap(Math.min(chunkCount, other.chunkCount));
+        int i = 0;
+        int j = 0;
+        while (i < chunkCount && j < other.chunkCount) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                long[] words = new long[WORDS];
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] = chunks[i][w] & other.chunks[j][w];
+                }
+                result.appendChunk(keys[i], words);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает объединение с другой картой.
+     */
+    public DayBitmap or(DayBitmap other) {
+        DayBitmap result = new DayBitmap(chunkCount + other.chunkCount);
+        int i = 0;
+        int j = 0;
+        while (i < chunkCount || j < other.chunkCount) {
+            if (j == other.chunkCount || (i < chunkCount && keys[i] < other.keys[j])) {
+                result.appendChunk(keys[i], chunks[i++].clone());
+            } else if (i == chunkCount || keys[i] > other.keys[j]) {
+                result.appendChunk(other.keys[j], other.chunks[j++].clone());
+            } else {
+                long[] words = new long[WORDS];
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] = chunks[i][w] | other.chunks[j][w];
+                }
+                result.appendChunk(keys[i++], words);
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Дописывает блок с ключом больше всех имеющихся; пустые блоки не сохраняются.
+     */
+    private void appendChunk(int key, long[] words) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        if (count == 0) {
+            return;
+        }
+        insertChunk(chunkCount, key, words);
+        cardinality += count;
+    }
+
+    private void insertChunk(int index, int key, long[] words) {
+        if (chunkCount == keys.length) {
+            int capacity = Math.max(4, chunkCount + (chunkCount >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            chunks = Arrays.copyOf(chunks, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, chunkCount - index);
+        System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+        keys[index] = key;
+        chunks[index] = words;
+        chunkCount++;
+    }
+
+    private void removeChunk(int index) {
+        System.arraycopy(keys, index + 1, keys, index, chunkCount - index - 1);
+        System.arraycopy(chunks, index + 1, chunks, index, chunkCount - index - 1);
+        chunks[--chunkCount] = null;
+    }
+
+    /**
+     * Возвращает индекс первого блока с ключом не меньше заданного.
+     */
+    private int firstChunk(int key) {
+        int index = Arrays.binarySearch(keys, 0, chunkCount, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Возвращает индекс последнего блока с ключом не больше заданного или -1.
+     */
+    private int lastChunk(int key) {
+        int index = Arrays.binarySearch(keys, 0, chunkCount, key);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Маска битов слова, попадающих в диапазон смещений внутри блока включительно.
+     */
+    private static long mask(int word, int from, int to) {
+        int low = Math.max(from - (word << 6), 0);
+        int high = Math.min(to - (word << 6), 63);
+        return (-1L << low) & (-1L >>> (63 - high));
+    }
+
+    /**
+     * Длина самой длинной серии единичных битов слова: каждый сдвиг укорачивает все серии на бит.
+     */
+    private static int longestRunInWord(long word) {
+        int length = 0;
+        while (word != 0) {
+            word &= word >>> 1;
+            length++;
+        }
+        return length;
+    }
+
+    private static boolean isEmpty(long[] words) {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int key(int day) {
+        return day >> CHUNK_BITS;
+    }
+
+    private static int day(int key, int word, int bit) {
+        return (key << CHUNK_BITS) + (word << 6) + bit;
+    }
+}
@@ -0,0 +1,152 @@
+package ru.masnaviev.habittracker.models.memory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Сжатая кодировка истории выполнения: номера дней эпохи по строгому возрастанию записываются
+ * разностями соседних дней в виде чисел переменной длины (по 7 бит в байте, старший бит - признак
+ * продолжения).
+ * <pre>
+ * количество дней | первый день (зигзаг) | (разность - 1) для каждого следующего дня
+ * </pre>
+ * Соседние отметки ежедневной привычки и еженедельной занимают по одному байту, а не четыре,
+ * как в массиве номеров дней. Разность уменьшена на единицу, потому что дни не повторяются,
+ * поэтому в один байт помещается пропуск до 128 дней.
+ * <p>
+ * Декодеры читают буфер с текущей позиции и продвигают ее. Количество отметок в диапазоне и наличие дня
+ * считаются потоком, без разворачивания истории в массив, и чтение останавливается на первом дне после
+ * конца диапазона.
+ */
+public final class DeltaVarint {
+
+    private static final int MAX_VARINT_BYTES = 5;
+
+    private DeltaVarint() {
+    }
+
+    /**
+     * Возвращает наибольший размер кодировки заданного количества дней.
+     */
+    public static int maxEncodedLength(int count) {
+        return MAX_VARINT_BYTES * (count + 1);
+    }
+
+    /**
+     * Кодирует дни в новый массив байт.
+     *
+     * @param days номера дней по строгому возрастанию.
+     * @param from индекс первого кодируемого дня.
+     * @param to   индекс за последним кодируемым днем.
+     * @return кодировка.
+     */
+    public static byte[] encode(int[] days, int from, int to) {
+        ByteBuffer buffer = ByteBuffer.allocate(maxEncodedLength(to - from));
+        encode(days, from, to, buffer);
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Кодирует дни в буфер с его текущей позиции.
+     *
+     * @param days номера дней по строгому возрастанию.
+     * @param from индекс первого кодируемого дня.
+     * @param to   индекс за последним кодируемым днем.
+     * @param out  буфер, в котором должно быть не меньше {@link #maxEncodedLength} свободных байт.
+     * @throws IllegalArgumentException если дни не возрастают строго.
+     */
+    public static void encode(int[] days, int from, int to, ByteBuffer out) {
+        putVarint(out, to - from);
+        if (to == from) {
+            return;
+        }
+        putVarint(out, (days[from] << 1) ^ (days[from] >> 31));
+        for (int i = from + 1; i < to; i++) {
+            if (days[i] <= days[i - 1]) {
+                throw new IllegalArgumentException("Дни должны возрастать строго: " + days[i - 1] + ", " + days[i]);
+            }
+            putVarint(out, days[i] - days[i - 1] - 1);
+        }
+    }
+
+    /**
+     * Декодирует дни целиком.
+     *
+     * @return номера дней по возрастанию.
+     */
+    public static int[] decode(ByteBuffer in) {
+        int count = count(in);
+        int[] days = new int[count];
+        int day = 0;
+        for (int i = 0; i < count; i++) {
+            day = next(in, i, day);
+            days[i] = day;
+        }
+        return days;
+    }
+
+    /**
+     * Считает дни в диапазоне включительно, не разворачивая кодировку в массив. Чтение останавливается
+     * на первом дне после конца диапазона, поэтому позиция буфера после вызова не определена.
+     *
+     * @param start начало диапазона.
+     * @param end   конец диапазона.
+     * @return количество дней в диапазоне.
+     */
+    public static int countBetween(ByteBuffer in, int start, int end) {
+        int count = count(in);
+        int found = 0;
+        int day = 0;
+        for (int i = 0; i < count; i++) {
+            day = next(in, i, day);
+            if (day > end) {
+                break;
+            }
+            if (day >= start) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Проверяет, есть ли день в кодировке, не разворачивая ее в массив.
+     */
+    public static boolean contains(ByteBuffer in, int target) {
+        return countBetween(in, target, target) > 0;
+    }
+
+    private static int count(ByteBuffer in) {
+        int count = getVarint(in);
+        if (count < 0 || count > in.remaining()) {
+            throw new IllegalArgumentException("Некорректное количество дней в кодировке: " + count);
+        }
+        return count;
+    }
+
+    private static int next(ByteBuffer in, int index, int previous) {
+        int value = getVarint(in);
+        return index == 0 ? (value >>> 1) ^ -(value & 1) : previous + value + 1;
+    }
+
+    private static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < MAX_VARINT_BYTES * 7; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Число в кодировке дней длиннее " + MAX_VARINT_BYTES + " байт");
+    }
+}
@@ -0,0 +1,55 @@
+package ru.masnaviev.habittracker.models.memory;
+
+import java.util.Arrays;
+
+/**
+ * Массив дней в куче.
+ */
+public class HeapDayArray extends DayArray {
+
+    private final int[] days;
+
+    public HeapDayArray(int capacity) {
+        this.days = new int[capacity];
+    }
+
+    private HeapDayArray(int[] days) {
+        this.days = days;
+    }
+
+    @Override
+    public int capacity() {
+        return days.length;
+    }
+
+    @Override
+    public int get(int index) {
+        return days[index];
+    }
+
+    @Override
+    public void set(int index, int day) {
+        days[index] = day;
+    }
+
+    @Override
+    public void move(int from, int to, int length) {
+        System.arraycopy(days, from, days, to, length);
+    }
+
+    @Override
+    public DayArray copyOf(int capacity, int length) {
+        int[] copy = Arrays.copyOf(days, capacity);
+        Arrays.fill(copy, length, Math.min(capacity, days.length), 0);
+        return new HeapDayArray(copy);
+    }
+
+    @Override
+    public void release() {
+    }
+
+    @Override
+    public int[] toArray(int length) {
+        return Arrays.copyOf(days, length);
+    }
+}
@@ -0,0 +1,62 @@
+package ru.masnaviev.habittracker.models.memory;
+
+import java.util.Locale;
+
+/**
+ * Место хранения историй выполнения.
+ * Выбирается системным свойством {@code habittracker.history.storage}: {@code heap} (по умолчанию),
+ * {@code off-heap} или {@code bitmap}.
+ */
+public enum HistoryStorage {
+    HEAP {
+        @Override
+        public DayArray allocate(int capacity) {
+            return new HeapDayArray(capacity);
+        }
+    },
+    OFF_HEAP {
+        @Override
+        public DayArray allocate(int capacity) {
+            return new OffHeapDayArray(ALLOCATOR, capacity);
+        }
+    },
+    /**
+     * История хранится битовой картой дней {@link DayBitmap}, а не массивом номеров дней.
+     * Массивы, которые все же нужны истории, выделяются в куче.
+     */
+    BITMAP {
+        @Override
+        public DayArray allocate(int capacity) {
+            return new HeapDayArray(capacity);
+        }
+    };
+
+    private static final SlabAllocator ALLOCATOR = new SlabAllocator();
+    private static final HistoryStorage DEFAULT = fromSystemProperties();
+
+    /**
+     * Выделяет массив дней заданной емкости.
+     */
+    public abstract DayArray allocate(int capacity);
+
+    public static HistoryStorage getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Возвращает распределитель памяти вне кучи, общий для всех историй.
+     */
+    public static SlabAllocator getAllocator() {
+        return ALLOCATOR;
+    }
+
+    private static HistoryStorage fromSystemProperties() {
+        String value = System.getProperty("habittracker.history.storage", "heap");
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "heap" -> HEAP;
+            case "off-heap", "offheap" -> OFF_HEAP;
+            case "bitmap" -> BITMAP;
+            default -> throw new IllegalArgumentException("Неизвестное хранилище истории выполнения: " + value);
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package ru.masnaviev.habittracker.models.memory;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+
+/**
+ * Массив дней в блоке памяти вне кучи, выделенном {@link SlabAllocator}.
+ * <p>
+ * Блок возвращается распределителю явным вызовом {@link #release()}, а если массив стал
+ * недостижим без освобождения - после его сборки сборщиком мусора.
+ */
+public class OffHeapDayArray extends DayArray {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final SlabAllocator.Block block;
+    private final ByteBuffer memory;
+    private final int base;
+    private final int capacity;
+    private final Cleaner.Cleanable cleanable;
+
+    public OffHeapDayArray(SlabAllocator allocator, int capacity) {
+        this.block = allocator.allocate(capacity * Integer.BYTES);
+        this.memory = block.memory();
+        this.base = block.offset();
+        this.capacity = capacity;
+        this.cleanable = CLEANER.register(this, block::free);
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public int get(int index) {
+        return memory.getInt(offset(index));
+    }
+
+    @Override
+    public void set(int index, int day) {
+        memory.putInt(offset(index), day);
+    }
+
+    @Override
+    public void move(int from, int to, int length) {
+        if (length > 0) {
+            memory.put(offset(to), memory, offset(from), length * Integer.BYTES);
+        }
+    }
+
+    @Override
+    public DayArray copyOf(int capacity, int length) {
+        OffHeapDayArray copy = new OffHeapDayArray(block.allocator(), capacity);
+        int copied = Math.min(length, capacity);
+        if (copied > 0) {
+            copy.memory.put(copy.base, memory, base, copied * Integer.BYTES);
+        }
+        return copy;
+    }
+
+    @Override
+    public void release() {
+        cleanable.clean();
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= capacity) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return base + index * Integer.BYTES;
+    }
+}
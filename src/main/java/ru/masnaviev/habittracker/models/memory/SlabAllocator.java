@@ -0,0 +1,170 @@
+package ru.masnaviev.habittracker.models.memory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Распределитель памяти вне кучи для историй выполнения.
+ * <p>
+ * Блоки выделяются классами размеров, кратными степени двойки. Блоки одного класса нарезаются
+ * из общих плит, прямых {@link ByteBuffer} размером {@value #SLAB_BYTES} байт, поэтому
+ * выделение блока не обращается к системе, а сборщик мусора видит одну плиту вместо тысяч массивов.
+ * Освобожденные блоки переиспользуются, а полностью освободившаяся плита отдается системе.
+ * Блок больше плиты получает отдельный буфер.
+ */
+public class SlabAllocator {
+
+    static final int SLAB_BYTES = 1 << 20;
+    private static final int MIN_BLOCK_BYTES = 32;
+
+    private final SizeClass[] classes = new SizeClass[Integer.SIZE];
+    private long reservedBytes;
+    private long usedBytes;
+
+    /**
+     * Выделяет блок памяти.
+     *
+     * @param bytes требуемый размер в байтах.
+     * @return блок размером не меньше требуемого.
+     */
+    public synchronized Block allocate(int bytes) {
+        int blockBytes = Math.max(MIN_BLOCK_BYTES, Integer.highestOneBit(Math.max(1, bytes - 1)) << 1);
+        int sizeClass = Integer.numberOfTrailingZeros(blockBytes);
+        if (classes[sizeClass] == null) {
+            classes[sizeClass] = new SizeClass(blockBytes);
+        }
+        usedBytes += blockBytes;
+        return classes[sizeClass].allocate();
+    }
+
+    /**
+     * Возвращает объем памяти, занятый плитами.
+     */
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * Возвращает объем памяти, занятый выделенными блоками.
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    private synchronized void free(Slab slab, int index) {
+        usedBytes -= slab.blockBytes;
+        slab.sizeClass.free(slab, index);
+    }
+
+    private class SizeClass {
+        private final int blockBytes;
+        private final Deque<Slab> available = new ArrayDeque<>();
+
+        private SizeClass(int blockBytes) {
+            this.blockBytes = blockBytes;
+        }
+
+        private Block allocate() {
+            Slab slab = available.peekFirst();
+            if (slab == null) {
+                slab = new Slab(this, Math.max(1, SLAB_BYTES / blockBytes));
+                reservedBytes += (long) slab.blocks * blockBytes;
+                available.addFirst(slab);
+            }
+            Block block = slab.allocate();
+            if (slab.isFull()) {
+                available.removeFirst();
+            }
+            return block;
+        }
+
+        private void free(Slab slab, int index) {
+            boolean wasFull = slab.isFull();
+            slab.free(index);
+            if (slab.live == 0 && (wasFull || available.size() > 1)) {
+                available.remove(slab);
+                reservedBytes -= (long) slab.blocks * blockBytes;
+            } else if (wasFull) {
+                available.addLast(slab);
+            }
+        }
+    }
+
+    private class Slab {
+        private final SizeClass sizeClass;
+        private final ByteBuffer memory;
+        private final int blockBytes;
+        private final int blocks;
+        private final int[] freeBlocks;
+        private int freeCount;
+        private int bumped;
+        private int live;
+
+        private Slab(SizeClass sizeClass, int blocks) {
+            this.sizeClass = sizeClass;
+            this.blockBytes = sizeClass.blockBytes;
+            this.blocks = blocks;
+            this.memory = ByteBuffer.allocateDirect(blocks * blockBytes).order(ByteOrder.nativeOrder());
+            this.freeBlocks = new int[blocks];
+        }
+
+        private Block allocate() {
+            int index = freeCount > 0 ? freeBlocks[--freeCount] : bumped++;
+            live++;
+            return new Block(this, index);
+        }
+
+        private void free(int index) {
+            freeBlocks[freeCount++] = index;
+            live--;
+        }
+
+        private boolean isFull() {
+            return freeCount == 0 && bumped == blocks;
+        }
+    }
+
+    /**
+     * Выделенный блок памяти.
+     */
+    public class Block {
+        private final Slab slab;
+        private final int index;
+        private boolean freed;
+
+        private Block(Slab slab, int index) {
+            this.slab = slab;
+            this.index = index;
+        }
+
+        public ByteBuffer memory() {
+            return slab.memory;
+        }
+
+        public int offset() {
+            return index * slab.blockBytes;
+        }
+
+        public int size() {
+            return slab.blockBytes;
+        }
+
+        SlabAllocator allocator() {
+            return SlabAllocator.this;
+        }
+
+        /**
+         * Возвращает блок распределителю. Повторный вызов ничего не делает.
+         */
+        public void free() {
+            synchronized (SlabAllocator.this) {
+                if (!freed) {
+                    freed = true;
+                    SlabAllocator.this.free(slab, index);
+                }
+            }
+        }
+    }
+}
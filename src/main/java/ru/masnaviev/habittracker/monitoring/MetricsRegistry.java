@@ -0,0 +1,112 @@
+package ru.masnaviev.habittracker.monitoring;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Создает метрики операций и публикует их как MBean с именем
+ * {@code ru.masnaviev.habittracker:type=<компонент>,name=<операция>}.
+ * Повторная регистрация с тем же именем заменяет прежние метрики.
+ */
+public class MetricsRegistry {
+
+    private static final String DOMAIN = "ru.masnaviev.habittracker";
+    private static final MetricsRegistry DISABLED = new MetricsRegistry(null, 1);
+
+    private final MBeanServer server;
+    private final int sampleRate;
+
+    /**
+     * @param server     сервер MBean, в котором публикуются метрики.
+     * @param sampleRate у скольких вызовов в среднем замеряется задержка одного, 1 - у каждого.
+     */
+    public MetricsRegistry(MBeanServer server, int sampleRate) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("Частота выборки должна быть положительной");
+        }
+        this.server = server;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Возвращает реестр, публикующий метрики в платформенном сервере MBean.
+     *
+     * @param sampleRate у скольких вызовов в среднем замеряется задержка одного, 1 - у каждого.
+     */
+    public static MetricsRegistry platform(int sampleRate) {
+        return new MetricsRegistry(ManagementFactory.getPlatformMBeanServer(), sampleRate);
+    }
+
+    /**
+     * Возвращает реестр выключенных метрик, которые ничего не записывают и не публикуются.
+     */
+    public static MetricsRegistry disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Создает и публикует метрики операции.
+     *
+     * @param type      компонент, например имя контроллера.
+     * @param operation имя операции.
+     * @return метрики операции.
+     */
+    public OperationMetrics operation(String type, String operation) {
+        if (server == null) {
+            return new OperationMetrics(false, 1);
+        }
+        OperationMetrics metrics = new OperationMetrics(true, sampleRate);
+        register(metrics, type, operation);
+        return metrics;
+    }
+
+    /**
+     * Публикует готовый MBean компонента, например счетчики кэша. У выключенного реестра ничего не делает.
+     *
+     * @param mbean объект, реализующий стандартный интерфейс MBean.
+     * @param type  компонент.
+     * @param name  имя метрик компонента.
+     */
+    public void publish(Object mbean, String type, String name) {
+        if (server != null) {
+            register(mbean, type, name);
+        }
+    }
+
+    /**
+     * Возвращает имя MBean метрик операции.
+     */
+    public static ObjectName name(String type, String operation) {
+        try {
+            return new ObjectName(DOMAIN + ":type=" + type + ",name=" + operation);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Некорректное имя метрики " + type + "." + operation, e);
+        }
+    }
+
+    private void register(Object mbean, String type, String operation) {
+        try {
+            ObjectName name = name(type, operation);
+            try {
+                server.registerMBean(mbean, name);
+            } catch (InstanceAlreadyExistsException e) {
+                unregister(name);
+                server.registerMBean(mbean, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Не удалось опубликовать метрики " + type + "." + operation, e);
+        }
+    }
+
+    private void unregister(ObjectName name) throws JMException {
+        try {
+            server.unregisterMBean(name);
+        } catch (InstanceNotFoundException ignored) {
+            // Метрики уже сняты с публикации другим потоком.
+        }
+    }
+}
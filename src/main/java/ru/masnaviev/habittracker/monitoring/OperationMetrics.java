@@ -0,0 +1,156 @@
+package ru.masnaviev.habittracker.monitoring;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Количество вызовов, ошибок и гистограмма задержек одной операции.
+ * <p>
+ * Операция замеряется так:
+ * <pre>
+ * long started = metrics.start();
+ * try {
+ *     return metrics.succeeded(started, doWork());
+ * } catch (RuntimeException e) {
+ *     throw metrics.failed(started, e);
+ * }
+ * </pre>
+ * Вызовы и ошибки считаются все, а задержка замеряется у случайной выборки вызовов:
+ * чтение часов стоит десятки наносекунд, и замер каждого короткого вызова заметно его замедлил бы.
+ * Выключенные метрики не читают часы и ничего не записывают.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final boolean enabled;
+    private final int sampleRate;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * @param enabled    собирать ли метрики.
+     * @param sampleRate у скольких вызовов в среднем замеряется задержка одного, 1 - у каждого.
+     */
+    OperationMetrics(boolean enabled, int sampleRate) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("Частота выборки должна быть положительной");
+        }
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Начинает замер вызова.
+     *
+     * @return момент начала вызова или признак того, что задержка этого вызова не замеряется.
+     */
+    public long start() {
+        if (!enabled || (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0)) {
+            return NOT_SAMPLED;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Завершает замер успешного вызова.
+     *
+     * @param started значение, полученное из {@link #start()}.
+     */
+    public void succeeded(long started) {
+        if (enabled) {
+            calls.increment();
+            if (started != NOT_SAMPLED) {
+                histogram.record(System.nanoTime() - started);
+            }
+        }
+    }
+
+    /**
+     * Завершает замер успешного вызова и возвращает его результат.
+     */
+    public <T> T succeeded(long started, T result) {
+        succeeded(started);
+        return result;
+    }
+
+    /**
+     * Завершает замер успешного вызова и возвращает его результат без упаковки.
+     */
+    public int succeeded(long started, int result) {
+        succeeded(started);
+        return result;
+    }
+
+    /**
+     * Завершает замер вызова, завершившегося исключением.
+     *
+     * @param started значение, полученное из {@link #start()}.
+     * @param e       исключение вызова.
+     * @return то же исключение, чтобы его можно было выбросить дальше.
+     */
+    public RuntimeException failed(long started, RuntimeException e) {
+        if (enabled) {
+            errors.increment();
+            succeeded(started);
+        }
+        return e;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public long getCount() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getSampledCount() {
+        return histogram.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long count = histogram.getCount();
+        return count == 0 ? 0 : histogram.getTotalNanos() / 1_000.0 / count;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return histogram.valueAt(0.5) / 1_000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return histogram.valueAt(0.99) / 1_000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return histogram.valueAt(0.999) / 1_000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return histogram.getMaxNanos() / 1_000.0;
+    }
+
+    @Override
+    public void reset() {
+        histogram.reset();
+        calls.reset();
+        errors.reset();
+    }
+}
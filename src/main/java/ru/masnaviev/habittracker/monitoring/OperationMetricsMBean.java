@@ -0,0 +1,26 @@
+package ru.masnaviev.habittracker.monitoring;
+
+/**
+ * Метрики операции, публикуемые через JMX. Задержки указываются в микросекундах
+ * и рассчитываются по выборке вызовов размером {@code SampledCount}.
+ */
+public interface OperationMetricsMBean {
+
+    long getCount();
+
+    long getErrorCount();
+
+    long getSampledCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
@@ -0,0 +1,82 @@
+package ru.masnaviev.habittracker.out.persistence;
+
+import ru.masnaviev.habittracker.models.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Двоичное представление пользователей и привычек для журнала и снимков хранилища.
+ */
+public final class EntityCodec {
+
+    private EntityCodec() {
+    }
+
+    public static void writeUser(DataOutput out, User user) throws IOException {
+        out.writeLong(user.getId());
+        out.writeByte(user.getRole().ordinal());
+        writeString(out, user.getEmail());
+        writeString(out, user.getPassword());
+        writeString(out, user.getName());
+        out.writeBoolean(user.isBlocked());
+    }
+
+    public static User readUser(DataInput in) throws IOException {
+        long id = in.readLong();
+        Role role = Role.values()[in.readByte()];
+        String email = readString(in);
+        String password = readString(in);
+        String name = readString(in);
+        boolean blocked = in.readBoolean();
+        return new User(role, id, email, password, name, blocked);
+    }
+
+    /**
+     * Записывает поля привычки без истории выполнения.
+     */
+    public static void writeHabit(DataOutput out, Habit habit) throws IOException {
+        out.writeLong(habit.getId());
+        out.writeLong(habit.getUserId());
+        writeString(out, habit.getTitle());
+        writeString(out, habit.getDescription());
+        writeEnum(out, habit.getFrequency());
+        writeEnum(out, habit.getStatus());
+        out.writeLong(habit.getCreated().toLocalDate().toEpochDay());
+        out.writeLong(habit.getCreated().toLocalTime().toNanoOfDay());
+    }
+
+    public static Habit readHabit(DataInput in) throws IOException {
+        long id = in.readLong();
+        long userId = in.readLong();
+        String title = readString(in);
+        String description = readString(in);
+        int frequency = in.readByte();
+        int status = in.readByte();
+        LocalDateTime created = LocalDateTime.of(
+                LocalDate.ofEpochDay(in.readLong()), LocalTime.ofNanoOfDay(in.readLong()));
+        return new Habit(id, userId, title, description,
+                frequency < 0 ? null : Frequency.values()[frequency],
+                status < 0 ? null : Status.values()[status],
+                created);
+    }
+
+    private static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+        out.writeByte(value == null ? -1 : value.ordinal());
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
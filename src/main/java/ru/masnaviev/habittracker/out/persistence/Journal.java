@@ -0,0 +1,231 @@
+package ru.masnaviev.habittracker.out.persistence;
+
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.models.User;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Журнал изменений пользователей и привычек поверх {@link WriteAheadLog}.
+ * <p>
+ * Каждое изменение записывается отдельной записью. Воспроизведение записей идемпотентно:
+ * сохранение перезаписывает поля сущности, а добавление выполнений не создает повторов.
+ * Журнал состоит из пронумерованных сегментов: после создания снимка хранилища запись
+ * переключается на новый сегмент, а предыдущие сегменты удаляются.
+ */
+public class Journal implements Closeable {
+
+    private static final byte USER_SAVED = 1;
+    private static final byte USER_DELETED = 2;
+    private static final byte HABIT_SAVED = 3;
+    private static final byte HABIT_DELETED = 4;
+    private static final byte EXECUTIONS_ADDED = 5;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final JournalSettings settings;
+    private final ReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    private WriteAheadLog log;
+    private long segment;
+
+    private Journal(Path directory, JournalSettings settings, WriteAheadLog log, long segment) {
+        this.directory = directory;
+        this.settings = settings;
+        this.log = log;
+        this.segment = segment;
+    }
+
+    /**
+     * Открывает журнал и передает слушателю все изменения из сегментов начиная с указанного.
+     *
+     * @param directory    каталог с сегментами журнала.
+     * @param firstSegment номер первого воспроизводимого сегмента.
+     * @param settings     параметры сброса журнала на диск.
+     * @param listener     получатель воспроизводимых изменений.
+     * @return открытый журнал, дописывающий изменения в последний сегмент.
+     * @throws IOException если журнал не удалось прочитать или открыть, или запись в середине журнала
+     *                     повреждена. Оборванный хвост последнего сегмента отбрасывается.
+     */
+    public static Journal open(Path directory, long firstSegment, JournalSettings settings,
+                               JournalListener listener) throws IOException {
+        List<Long> segments = segments(directory);
+        segments.removeIf(number -> number < firstSegment);
+        long last = segments.isEmpty() ? firstSegment : segments.remove(segments.size() - 1);
+        for (long number : segments) {
+            Path file = segmentFile(directory, number);
+            long validLength = WriteAheadLog.replay(file, (type, payload) -> dispatch(type, payload, listener));
+            if (validLength != Files.size(file)) {
+                throw new IOException("Сегмент журнала " + file + " поврежден: корректны " + validLength
+                        + " байт из " + Files.size(file));
+            }
+        }
+        WriteAheadLog log = openSegment(directory, last, settings, listener);
+        return new Journal(directory, settings, log, last);
+    }
+
+    /**
+     * Переключает запись на новый сегмент. Все изменения, записанные до вызова,
+     * остаются в предыдущих сегментах и сброшены на диск.
+     *
+     * @return номер нового сегмента.
+     * @throws IOException если сегмент не удалось закрыть или создать.
+     */
+    public long rotate() throws IOException {
+        rotationLock.writeLock().lock();
+        try {
+            log.close();
+            log = openSegment(directory, segment + 1, settings, null);
+            return ++segment;
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет сегменты с номером меньше указанного.
+     *
+     * @param segment номер первого сохраняемого сегмента.
+     * @throws IOException если сегмент не удалось удалить.
+     */
+    public void deleteSegmentsBefore(long segment) throws IOException {
+        for (long number : segments(directory)) {
+            if (number < segment) {
+                Files.deleteIfExists(segmentFile(directory, number));
+            }
+        }
+    }
+
+    public Path getCurrentSegmentFile() {
+        rotationLock.readLock().lock();
+        try {
+            return segmentFile(directory, segment);
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    public void userSaved(User user) {
+        append(USER_SAVED, out -> EntityCodec.writeUser(out, user));
+    }
+
+    public void userDeleted(long userId) {
+        append(USER_DELETED, out -> out.writeLong(userId));
+    }
+
+    public void habitSaved(Habit habit) {
+        append(HABIT_SAVED, out -> EntityCodec.writeHabit(out, habit));
+    }
+
+    public void habitDeleted(long habitId) {
+        append(HABIT_DELETED, out -> out.writeLong(habitId));
+    }
+
+    public void executionsAdded(long habitId, int... epochDays) {
+        append(EXECUTIONS_ADDED, out -> {
+            out.writeLong(habitId);
+            out.writeInt(epochDays.length);
+            for (int day : epochDays) {
+                out.writeInt(day);
+            }
+        });
+    }
+
+    /**
+     * Дожидается сброса всех записанных изменений на диск.
+     */
+    public void sync() {
+        rotationLock.readLock().lock();
+        try {
+            log.sync();
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        rotationLock.writeLock().lock();
+        try {
+            log.close();
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+    }
+
+    private void append(byte type, PayloadWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            writer.write(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        rotationLock.readLock().lock();
+        try {
+            log.append(type, bytes.toByteArray());
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    private static WriteAheadLog openSegment(Path directory, long number, JournalSettings settings,
+                                             JournalListener listener) throws IOException {
+        return WriteAheadLog.open(segmentFile(directory, number), settings.getBatchSize(),
+                settings.getFlushIntervalMillis(), settings.isFsync(), (type, payload) -> {
+                    if (listener != null) {
+                        dispatch(type, payload, listener);
+                    }
+                });
+    }
+
+    private static Path segmentFile(Path directory, long number) {
+        return directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+    }
+
+    private static List<Long> segments(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static void dispatch(byte type, DataInput in, JournalListener listener) throws IOException {
+        switch (type) {
+            case USER_SAVED -> listener.onUserSaved(EntityCodec.readUser(in));
+            case USER_DELETED -> listener.onUserDeleted(in.readLong());
+            case HABIT_SAVED -> listener.onHabitSaved(EntityCodec.readHabit(in));
+            case HABIT_DELETED -> listener.onHabitDeleted(in.readLong());
+            case EXECUTIONS_ADDED -> {
+                long habitId = in.readLong();
+                int[] days = new int[in.readInt()];
+                for (int i = 0; i < days.length; i++) {
+                    days[i] = in.readInt();
+                }
+                listener.onExecutionsAdded(habitId, days);
+            }
+            default -> throw new IOException("Неизвестный тип записи журнала: " + type);
+        }
+    }
+
+    private interface PayloadWriter {
+        void write(DataOutput out) throws IOException;
+    }
+}
@@ -0,0 +1,20 @@
+package ru.masnaviev.habittracker.out.persistence;
+
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.models.User;
+
+/**
+ * Получатель изменений, воспроизводимых из журнала при запуске.
+ */
+public interface JournalListener {
+
+    void onUserSaved(User user);
+
+    void onUserDeleted(long userId);
+
+    void onHabitSaved(Habit habit);
+
+    void onHabitDeleted(long habitId);
+
+    void onExecutionsAdded(long habitId, int[] epochDays);
+}
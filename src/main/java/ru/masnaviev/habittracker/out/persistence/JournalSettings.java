@@ -0,0 +1,60 @@
+package ru.masnaviev.habittracker.out.persistence;
+
+/**
+ * Параметры группового сброса журнала на диск и загрузки снимков.
+ */
+public class JournalSettings {
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final boolean fsync;
+    private final long checkpointIntervalMillis;
+    private final boolean lazySnapshotLoading;
+
+    /**
+     * @param batchSize                количество записей, после которого сброс начинается немедленно.
+     * @param flushIntervalMillis      максимальная задержка записи на диск.
+     * @param fsync                    вызывать ли fsync после каждого сброса.
+     * @param checkpointIntervalMillis период создания снимков хранилища, 0 - снимки только по запросу.
+     * @param lazySnapshotLoading      читать ли привычки из снимка при первом обращении, а не при запуске.
+     */
+    public JournalSettings(int batchSize, long flushIntervalMillis, boolean fsync, long checkpointIntervalMillis,
+                           boolean lazySnapshotLoading) {
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.fsync = fsync;
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+        this.lazySnapshotLoading = lazySnapshotLoading;
+    }
+
+    public JournalSettings(int batchSize, long flushIntervalMillis, boolean fsync, long checkpointIntervalMillis) {
+        this(batchSize, flushIntervalMillis, fsync, checkpointIntervalMillis, true);
+    }
+
+    public JournalSettings(int batchSize, long flushIntervalMillis, boolean fsync) {
+        this(batchSize, flushIntervalMillis, fsync, 0);
+    }
+
+    public static JournalSettings defaults() {
+        return new JournalSettings(256, 10, true, 10 * 60 * 1000);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    public long getCheckpointIntervalMillis() {
+        return checkpointIntervalMillis;
+    }
+
+    public boolean isLazySnapshotLoading() {
+        return lazySnapshotLoading;
+    }
+}
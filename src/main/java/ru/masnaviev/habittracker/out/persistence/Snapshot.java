@@ -0,0 +1,412 @@
+package ru.masnaviev.habittracker.out.persistence;
+
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.models.User;
+import ru.masnaviev.habittracker.models.memory.DeltaVarint;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Двоичный снимок всех пользователей и привычек вместе с историями выполнения.
+ * <p>
+ * Снимок записывается во временный файл и атомарно переименовывается, поэтому на диске
+ * всегда лежит либо предыдущий, либо полностью записанный новый снимок.
+ * <p>
+ * Файл отображается в память целиком. В конце файла лежат индекс записей привычек,
+ * отсортированный по идентификатору, и индекс тех же записей, отсортированный по владельцу.
+ * Поэтому открытие снимка не зависит от его размера, а отдельную привычку можно прочитать
+ * по требованию, не разбирая остальные.
+ * <pre>
+ * заголовок:   magic, версия, следующий id пользователя, следующий id привычки
+ * пользователи: количество, записи пользователей
+ * привычки:    записи привычек с историей выполнения в кодировке {@link DeltaVarint}, по возрастанию id
+ * индекс:      для каждой привычки id, id владельца, смещение и длина записи
+ * по владельцу: номера записей индекса, отсортированные по владельцу
+ * окончание:   смещение индекса, количество привычек, magic
+ * </pre>
+ * Снимки версии 2, где история записана массивом номеров дней (int32), читаются; при слиянии снимков
+ * их записи перекодируются.
+ */
+public final class Snapshot {
+
+    private static final int MAGIC = 0x48544B53;
+    private static final int VERSION = 3;
+    private static final int INT_HISTORY_VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES * 2;
+    private static final int FOOTER_SIZE = Long.BYTES + Integer.BYTES * 2;
+    private static final int ENTRY_SIZE = Long.BYTES * 3 + Integer.BYTES;
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int version;
+    private final long nextUserId;
+    private final long nextHabitId;
+    private final int habitCount;
+    private final int indexOffset;
+    private final int ownerIndexOffset;
+
+    private Snapshot(Path file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        int size = buffer.capacity();
+        if (size < HEADER_SIZE + FOOTER_SIZE || buffer.getInt(0) != MAGIC
+                || (buffer.getInt(Integer.BYTES) != VERSION && buffer.getInt(Integer.BYTES) != INT_HISTORY_VERSION)
+                || buffer.getInt(size - Integer.BYTES) != MAGIC) {
+            throw new IOException("Неизвестный формат снимка: " + file);
+        }
+        version = buffer.getInt(Integer.BYTES);
+        nextUserId = buffer.getLong(Integer.BYTES * 2);
+        nextHabitId = buffer.getLong(Integer.BYTES * 2 + Long.BYTES);
+        long index = buffer.getLong(size - FOOTER_SIZE);
+        habitCount = buffer.getInt(size - FOOTER_SIZE + Long.BYTES);
+        long ownerIndex = index + (long) habitCount * ENTRY_SIZE;
+        if (habitCount < 0 || index < HEADER_SIZE
+                || ownerIndex + (long) habitCount * Integer.BYTES != size - FOOTER_SIZE) {
+            throw new IOException("Поврежден индекс снимка: " + file);
+        }
+        indexOffset = (int) index;
+        ownerIndexOffset = (int) ownerIndex;
+    }
+
+    /**
+     * Отображает снимок в память. Записи привычек при этом не читаются.
+     *
+     * @param file файл снимка.
+     * @return открытый снимок.
+     * @throws IOException если файл не удалось открыть или он имеет неизвестный формат.
+     */
+    public static Snapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Снимок больше 2 ГБ не может быть отображен в память: " + file);
+            }
+            return new Snapshot(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Начинает запись нового снимка. Привычки добавляются в порядке возрастания идентификатора.
+     *
+     * @param file        файл снимка.
+     * @param nextUserId  следующий свободный идентификатор пользователя.
+     * @param nextHabitId следующий свободный идентификатор привычки.
+     * @param users       пользователи.
+     * @return запись снимка, которую нужно завершить вызовом {@link Writer#commit()}.
+     * @throws IOException если файл не удалось создать.
+     */
+    public static Writer create(Path file, long nextUserId, long nextHabitId, Collection<User> users)
+            throws IOException {
+        return new Writer(file, nextUserId, nextHabitId, users);
+    }
+
+    public long getNextUserId() {
+        return nextUserId;
+    }
+
+    public long getNextHabitId() {
+        return nextHabitId;
+    }
+
+    public int getHabitCount() {
+        return habitCount;
+    }
+
+    /**
+     * Читает всех пользователей снимка.
+     *
+     * @return пользователи.
+     */
+    public List<User> readUsers() {
+        DataInput in = input(buffer.slice(HEADER_SIZE, indexOffset - HEADER_SIZE));
+        try {
+            int count = in.readInt();
+            List<User> users = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                users.add(EntityCodec.readUser(in));
+            }
+            return users;
+        } catch (IOException e) {
+            throw corrupted(e);
+        }
+    }
+
+    /**
+     * Передает слушателю все содержимое снимка.
+     *
+     * @param listener получатель пользователей, привычек и их выполнений.
+     */
+    public void readAll(JournalListener listener) {
+        for (User user : readUsers()) {
+            listener.onUserSaved(user);
+        }
+        for (int entry = 0; entry < habitCount; entry++) {
+            Habit habit = readHabit(entry);
+            int[] days = habit.getExecutionHistory().toEpochDays();
+            habit.getExecutionHistory().clear();
+            listener.onHabitSaved(habit);
+            if (days.length > 0) {
+                listener.onExecutionsAdded(habit.getId(), days);
+            }
+        }
+    }
+
+    /**
+     * Ищет запись привычки по идентификатору.
+     *
+     * @param habitId идентификатор привычки.
+     * @return номер записи или -1, если привычки нет в снимке.
+     */
+    public int indexOf(long habitId) {
+        int low = 0;
+        int high = habitCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long id = getHabitId(mid);
+            if (id < habitId) {
+                low = mid + 1;
+            } else if (id > habitId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public long getHabitId(int entry) {
+        return buffer.getLong(entryOffset(entry));
+    }
+
+    public long getUserId(int entry) {
+        return buffer.getLong(entryOffset(entry) + Long.BYTES);
+    }
+
+    /**
+     * Возвращает номера записей привычек пользователя в порядке возрастания идентификатора.
+     *
+     * @param userId идентификатор пользователя.
+     * @return номера записей.
+     */
+    public int[] entriesOf(long userId) {
+        int low = 0;
+        int high = habitCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getUserId(ownerEntry(mid)) < userId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = low;
+        while (end < habitCount && getUserId(ownerEntry(end)) == userId) {
+            end++;
+        }
+        int[] entries = new int[end - low];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = ownerEntry(low + i);
+        }
+        return entries;
+    }
+
+    /**
+     * Читает привычку вместе с историей выполнения.
+     *
+     * @param entry номер записи.
+     * @return новая привычка.
+     */
+    public Habit readHabit(int entry) {
+        ByteBuffer record = record(entry);
+        DataInput in = input(record);
+        try {
+            Habit habit = EntityCodec.readHabit(in);
+            int[] days;
+            if (version == INT_HISTORY_VERSION) {
+                days = new int[in.readInt()];
+                for (int i = 0; i < days.length; i++) {
+                    days[i] = in.readInt();
+                }
+            } else {
+                days = DeltaVarint.decode(record);
+            }
+            habit.getExecutionHistory().mergeSortedEpochDays(days);
+            return habit;
+        } catch (IOException | RuntimeException e) {
+            throw corrupted(e);
+        }
+    }
+
+    private int entryOffset(int entry) {
+        Objects.checkIndex(entry, habitCount);
+        return indexOffset + entry * ENTRY_SIZE;
+    }
+
+    private int ownerEntry(int position) {
+        return buffer.getInt(ownerIndexOffset + position * Integer.BYTES);
+    }
+
+    private ByteBuffer record(int entry) {
+        int offset = entryOffset(entry);
+        return buffer.slice((int) buffer.getLong(offset + Long.BYTES * 2), buffer.getInt(offset + Long.BYTES * 3));
+    }
+
+    /**
+     * Оборачивает часть файла в поток без буферизации, поэтому после чтения из потока
+     * позиция части стоит сразу за прочитанными байтами.
+     */
+    private static DataInput input(ByteBuffer slice) {
+        return new DataInputStream(new InputStream() {
+            @Override
+            public int read() {
+                return slice.hasRemaining() ? slice.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int off, int len) {
+                if (!slice.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(len, slice.remaining());
+                slice.get(bytes, off, count);
+                return count;
+            }
+        });
+    }
+
+    private UncheckedIOException corrupted(Exception e) {
+        return new UncheckedIOException("Поврежден снимок: " + file,
+                e instanceof IOException io ? io : new IOException(e));
+    }
+
+    /**
+     * Запись нового снимка. Незавершенный снимок удаляется при закрытии.
+     */
+    public static class Writer implements Closeable {
+        private final Path file;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        private long[] ids = new long[16];
+        private long[] userIds = new long[16];
+        private long[] offsets = new long[16];
+        private int[] lengths = new int[16];
+        private int count;
+        private boolean committed;
+
+        private Writer(Path file, long nextUserId, long nextHabitId, Collection<User> users) throws IOException {
+            this.file = file;
+            this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(nextUserId);
+            out.writeLong(nextHabitId);
+            out.writeInt(users.size());
+            for (User user : users) {
+                EntityCodec.writeUser(out, user);
+            }
+        }
+
+        /**
+         * Записывает привычку вместе с историей выполнения.
+         */
+        public void writeHabit(Habit habit) throws IOException {
+            int start = begin(habit.getId(), habit.getUserId());
+            EntityCodec.writeHabit(out, habit);
+            int[] days = habit.getExecutionHistory().toEpochDays();
+            out.write(DeltaVarint.encode(days, 0, days.length));
+            end(start);
+        }
+
+        /**
+         * Копирует запись привычки из другого снимка без ее разбора.
+         */
+        public void copyHabit(Snapshot source, int entry) throws IOException {
+            if (source.version != VERSION) {
+                writeHabit(source.readHabit(entry));
+                return;
+            }
+            int start = begin(source.getHabitId(entry), source.getUserId(entry));
+            ByteBuffer record = source.record(entry);
+            byte[] bytes = new byte[record.remaining()];
+            record.get(bytes);
+            out.write(bytes);
+            end(start);
+        }
+
+        /**
+         * Дописывает индексы, сбрасывает снимок на диск и атомарно заменяет им файл.
+         */
+        public void commit() throws IOException {
+            long indexOffset = out.size();
+            for (int i = 0; i < count; i++) {
+                out.writeLong(ids[i]);
+                out.writeLong(userIds[i]);
+                out.writeLong(offsets[i]);
+                out.writeInt(lengths[i]);
+            }
+            Integer[] byOwner = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                byOwner[i] = i;
+            }
+            Arrays.sort(byOwner, Comparator.comparingLong(entry -> userIds[entry]));
+            for (Integer entry : byOwner) {
+                out.writeInt(entry);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(count);
+            out.writeInt(MAGIC);
+            out.flush();
+            checkSize();
+            channel.force(true);
+            out.close();
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                out.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        private int begin(long habitId, long userId) throws IOException {
+            if (count > 0 && habitId <= ids[count - 1]) {
+                throw new IllegalArgumentException("Привычки должны записываться в порядке возрастания id");
+            }
+            checkSize();
+            if (count == ids.length) {
+                int capacity = count * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                userIds = Arrays.copyOf(userIds, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+            ids[count] = habitId;
+            userIds[count] = userId;
+            offsets[count] = out.size();
+            return out.size();
+        }
+
+        private void end(int start) {
+            lengths[count++] = out.size() - start;
+        }
+
+        private void checkSize() throws IOException {
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Снимок больше 2 ГБ не может быть отображен в память: " + file);
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package ru.masnaviev.habittracker.out.persistence;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал предзаписи, в который последовательно дописываются изменения хранилища.
+ * <p>
+ * Запись в журнал только копирует байты записи в буфер в памяти, поэтому занимает микросекунды.
+ * Фоновый поток сбрасывает накопленные записи на диск группами: когда набирается заданное
+ * количество записей или истекает интервал сброса. Каждая запись снабжена длиной и контрольной
+ * суммой, поэтому оборванная при сбое запись в конце файла отбрасывается при восстановлении.
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final boolean fsync;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushRequested = lock.newCondition();
+    private final Condition flushCompleted = lock.newCondition();
+    private final CRC32 crc = new CRC32();
+    private final Thread flusher;
+
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private int pendingRecords;
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+
+    private WriteAheadLog(FileChannel channel, int batchSize, long flushIntervalMillis, boolean fsync) {
+        this.channel = channel;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        this.fsync = fsync;
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Открывает журнал: воспроизводит все целые записи и обрезает оборванный хвост файла.
+     *
+     * @param file                файл журнала.
+     * @param batchSize           количество записей, после которого сброс на диск начинается немедленно.
+     * @param flushIntervalMillis максимальная задержка сброса записей на диск.
+     * @param fsync               вызывать ли fsync после каждого сброса.
+     * @param handler             обработчик воспроизводимых записей.
+     * @return открытый для дозаписи журнал.
+     * @throws IOException если файл журнала не удалось прочитать или открыть.
+     */
+    public static WriteAheadLog open(Path file, int batchSize, long flushIntervalMillis, boolean fsync,
+                                     RecordHandler handler) throws IOException {
+        long validLength = replay(file, handler);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(validLength);
+        channel.position(validLength);
+        return new WriteAheadLog(channel, batchSize, flushIntervalMillis, fsync);
+    }
+
+    /**
+     * Воспроизводит записи журнала до первой оборванной или поврежденной записи.
+     *
+     * @param file    файл журнала.
+     * @param handler обработчик записей.
+     * @return длина корректной части файла в байтах.
+     * @throws IOException если файл не удалось прочитать.
+     */
+    public static long replay(Path file, RecordHandler handler) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long validLength = 0;
+        CRC32 checksum = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            byte[] record = new byte[256];
+            while (true) {
+                int length;
+                int expectedCrc;
+                try {
+                    length = in.readInt();
+                    expectedCrc = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length < 1 || length > MAX_RECORD_SIZE) {
+                    break;
+                }
+                if (record.length < length) {
+                    record = new byte[Math.max(length, record.length * 2)];
+                }
+                if (in.readNBytes(record, 0, length) < length) {
+                    break;
+                }
+                checksum.reset();
+                checksum.update(record, 0, length);
+                if ((int) checksum.getValue() != expectedCrc) {
+                    break;
+                }
+                handler.handle(record[0], new DataInputStream(new ByteArrayInputStream(record, 1, length - 1)));
+                validLength += HEADER_SIZE + length;
+            }
+        }
+        return validLength;
+    }
+
+    /**
+     * Дописывает запись в журнал. Запись попадает на диск при ближайшем групповом сбросе.
+     *
+     * @param type    тип записи.
+     * @param payload содержимое записи.
+     * @return порядковый номер записи.
+     * @throws UncheckedIOException если предыдущий сброс журнала на диск завершился ошибкой.
+     */
+    public long append(byte type, byte[] payload) {
+        int length = payload.length + 1;
+        lock.lock();
+        try {
+            ensureWritable();
+            ensurePendingCapacity(HEADER_SIZE + length);
+            crc.reset();
+            crc.update(type);
+            crc.update(payload);
+            pending.putInt(length).putInt((int) crc.getValue()).put(type).put(payload);
+            appendedSequence++;
+            if (++pendingRecords >= batchSize) {
+                flushRequested.signal();
+            }
+            return appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Дожидается, пока все ранее добавленные записи будут сброшены на диск.
+     *
+     * @throws UncheckedIOException если сброс журнала завершился ошибкой.
+     */
+    public void sync() {
+        lock.lock();
+        try {
+            long target = appendedSequence;
+            while (durableSequence < target) {
+                ensureHealthy();
+                flushRequested.signal();
+                flushCompleted.awaitUninterruptibly();
+            }
+            ensureHealthy();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushRequested.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long batchSequence;
+            lock.lock();
+            try {
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (!closed && pendingRecords < batchSize && !(pendingRecords > 0 && syncRequested())) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    flushRequested.awaitNanos(remaining);
+                }
+                if (pendingRecords == 0 && closed) {
+                    flushCompleted.signalAll();
+                    return;
+                }
+                if (pendingRecords == 0) {
+                    continue;
+                }
+                batch = pending;
+                pending = spare;
+                spare = null;
+                pendingRecords = 0;
+                batchSequence = appendedSequence;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = write(batch);
+
+            lock.lock();
+            try {
+                batch.clear();
+                spare = batch;
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                durableSequence = batchSequence;
+                flushCompleted.signalAll();
+                if (failure != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private IOException write(ByteBuffer batch) {
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+            return null;
+        } catch (IOException e) {
+            return e;
+        }
+    }
+
+    private boolean syncRequested() {
+        return lock.hasWaiters(flushCompleted);
+    }
+
+    private void ensurePendingCapacity(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+    }
+
+    private void ensureWritable() {
+        if (closed) {
+            throw new IllegalStateException("Журнал закрыт");
+        }
+        ensureHealthy();
+    }
+
+    private void ensureHealthy() {
+        if (failure != null) {
+            throw new UncheckedIOException("Не удалось записать журнал на диск", failure);
+        }
+    }
+
+    /**
+     * Обработчик записи журнала при восстановлении.
+     */
+    public interface RecordHandler {
+        void handle(byte type, DataInput payload) throws IOException;
+    }
+}
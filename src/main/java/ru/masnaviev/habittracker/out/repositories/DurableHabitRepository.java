@@ -0,0 +1,126 @@
+package ru.masnaviev.habittracker.out.repositories;
+
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.out.persistence.Journal;
+import ru.masnaviev.habittracker.out.repositories.util.StripedLock;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Репозиторий привычек, который хранит данные в памяти и записывает каждое изменение в журнал.
+ */
+public class DurableHabitRepository implements HabitRepository {
+
+    private final InMemoryHabitRepository delegate;
+    private final Journal journal;
+    private final StripedLock locks = new StripedLock();
+
+    DurableHabitRepository(InMemoryHabitRepository delegate, Journal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    @Override
+    public Habit add(Habit habit) {
+        habit.setId(delegate.nextId());
+        Lock lock = locks.get(habit.getId()).writeLock();
+        lock.lock();
+        try {
+            delegate.insert(habit);
+            journal.habitSaved(habit);
+            int[] days = habit.getExecutionHistory().toEpochDays();
+            if (days.length > 0) {
+                journal.executionsAdded(habit.getId(), days);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return habit;
+    }
+
+    @Override
+    public List<Habit> getAll(long userId) {
+        return delegate.getAll(userId);
+    }
+
+    @Override
+    public Habit update(Habit habit) {
+        Lock lock = locks.get(habit.getId()).writeLock();
+        lock.lock();
+        try {
+            delegate.update(habit);
+            journal.habitSaved(habit);
+        } finally {
+            lock.unlock();
+        }
+        return habit;
+    }
+
+    @Override
+    public void delete(long id) {
+        Lock lock = locks.get(id).writeLock();
+        lock.lock();
+        try {
+            if (delegate.exists(id)) {
+                delegate.delete(id);
+                journal.habitDeleted(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Habit> findById(long id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<LocalDate> getStatistic(long id, LocalDate start, LocalDate end) {
+        return delegate.getStatistic(id, start, end);
+    }
+
+    @Override
+    public int countExecutions(long id, LocalDate start, LocalDate end) {
+        return delegate.countExecutions(id, start, end);
+    }
+
+    @Override
+    public void saveExecution(long id, LocalDate date) {
+        Lock lock = locks.get(id).writeLock();
+        lock.lock();
+        try {
+            journal.executionsAdded(id, Math.toIntExact(date.toEpochDay()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void saveExecutions(long id, List<LocalDate> dates) {
+        int[] days = new int[dates.size()];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = Math.toIntExact(dates.get(i).toEpochDay());
+        }
+        Lock lock = locks.get(id).writeLock();
+        lock.lock();
+        try {
+            journal.executionsAdded(id, days);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(long id) {
+        return delegate.exists(id);
+    }
+
+    @Override
+    public List<Habit> getAll() {
+        return delegate.getAll();
+    }
+}
@@ -0,0 +1,223 @@
+package ru.masnaviev.habittracker.out.repositories;
+
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.models.Status;
+import ru.masnaviev.habittracker.models.User;
+import ru.masnaviev.habittracker.out.persistence.Journal;
+import ru.masnaviev.habittracker.out.persistence.JournalListener;
+import ru.masnaviev.habittracker.out.persistence.JournalSettings;
+import ru.masnaviev.habittracker.out.persistence.Snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Долговременное хранилище пользователей и привычек в каталоге на диске.
+ * <p>
+ * При открытии загружает последний снимок, воспроизводит записанные после него сегменты журнала
+ * и предоставляет репозитории, которые записывают в журнал каждое последующее изменение.
+ * Снимок по умолчанию отображается в память, и привычки из него читаются при первом обращении.
+ * Снимок создается в фоне без остановки записи: журнал переключается на новый сегмент,
+ * текущее состояние сохраняется в снимок, после чего старые сегменты удаляются.
+ * Ошибка фонового снимка запоминается и выбрасывается из {@link #sync()} и {@link #close()}.
+ */
+public class DurableStore implements Closeable {
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final Path directory;
+    private final InMemoryUserRepository users = new InMemoryUserRepository();
+    private final InMemoryHabitRepository habits = new InMemoryHabitRepository();
+    private final Journal journal;
+    private final DurableUserRepository userRepository;
+    private final DurableHabitRepository habitRepository;
+    private final ScheduledExecutorService checkpointer;
+    private volatile IOException checkpointFailure;
+
+    private DurableStore(Path directory, JournalSettings settings) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        Replayer replayer = new Replayer();
+        long snapshotSegment = latestSnapshotSegment();
+        if (snapshotSegment >= 0) {
+            Snapshot snapshot = Snapshot.open(snapshotFile(snapshotSegment));
+            if (settings.isLazySnapshotLoading()) {
+                snapshot.readUsers().forEach(users::restore);
+                habits.attach(snapshot);
+            } else {
+                snapshot.readAll(replayer);
+                habits.reserveIds(snapshot.getNextHabitId());
+            }
+            users.reserveIds(snapshot.getNextUserId());
+        }
+        journal = Journal.open(directory, Math.max(0, snapshotSegment), settings, replayer);
+        userRepository = new DurableUserRepository(users, journal);
+        habitRepository = new DurableHabitRepository(habits, journal);
+        checkpointer = startCheckpointer(settings.getCheckpointIntervalMillis());
+    }
+
+    /**
+     * Открывает хранилище в указанном каталоге, создавая его при необходимости.
+     *
+     * @param directory каталог хранилища.
+     * @param settings  параметры сброса журнала на диск и создания снимков.
+     * @return открытое хранилище.
+     * @throws IOException если снимок или журнал не удалось прочитать или открыть.
+     */
+    public static DurableStore open(Path directory, JournalSettings settings) throws IOException {
+        return new DurableStore(directory, settings);
+    }
+
+    public UserRepository getUserRepository() {
+        return userRepository;
+    }
+
+    public HabitRepository getHabitRepository() {
+        return habitRepository;
+    }
+
+    /**
+     * Дожидается сброса всех изменений на диск.
+     *
+     * @throws UncheckedIOException если сброс журнала или фоновое создание снимка завершились ошибкой.
+     */
+    public void sync() {
+        journal.sync();
+        if (checkpointFailure != null) {
+            throw new UncheckedIOException("Не удалось сохранить снимок хранилища", checkpointFailure);
+        }
+    }
+
+    /**
+     * Сохраняет снимок текущего состояния и удаляет ставшие ненужными сегменты журнала.
+     * Запись в репозитории во время создания снимка не останавливается.
+     *
+     * @throws IOException если снимок не удалось записать.
+     */
+    public synchronized void checkpoint() throws IOException {
+        long segment = journal.rotate();
+        try (Snapshot.Writer writer = Snapshot.create(snapshotFile(segment),
+                users.peekNextId(), habits.peekNextId(), users.getAll())) {
+            habits.writeTo(writer);
+            writer.commit();
+        }
+        for (long older : snapshotSegments()) {
+            if (older < segment) {
+                Files.deleteIfExists(snapshotFile(older));
+            }
+        }
+        journal.deleteSegmentsBefore(segment);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (checkpointer != null) {
+            checkpointer.shutdown();
+            try {
+                checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        journal.close();
+        if (checkpointFailure != null) {
+            throw checkpointFailure;
+        }
+    }
+
+    Path getJournalFile() {
+        return journal.getCurrentSegmentFile();
+    }
+
+    int getLoadedHabitCount() {
+        return habits.loadedCount();
+    }
+
+    private ScheduledExecutorService startCheckpointer(long intervalMillis) {
+        if (intervalMillis <= 0) {
+            return null;
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "store-checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                checkpointFailure = e;
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    private long latestSnapshotSegment() throws IOException {
+        long latest = -1;
+        for (long segment : snapshotSegments()) {
+            latest = Math.max(latest, segment);
+        }
+        return latest;
+    }
+
+    private List<Long> snapshotSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(
+                            name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return segments;
+    }
+
+    private Path snapshotFile(long segment) {
+        return directory.resolve(SNAPSHOT_PREFIX + segment + SNAPSHOT_SUFFIX);
+    }
+
+    private class Replayer implements JournalListener {
+
+        @Override
+        public void onUserSaved(User user) {
+            users.restore(user);
+        }
+
+        @Override
+        public void onUserDeleted(long userId) {
+            users.delete(userId);
+        }
+
+        @Override
+        public void onHabitSaved(Habit habit) {
+            habits.restore(habit);
+        }
+
+        @Override
+        public void onHabitDeleted(long habitId) {
+            habits.delete(habitId);
+        }
+
+        @Override
+        public void onExecutionsAdded(long habitId, int[] epochDays) {
+            habits.findById(habitId).ifPresent(habit -> {
+                habit.getExecutionHistory().addEpochDays(epochDays);
+                if (habit.getStatus() == Status.CREATED) {
+                    habit.setStatus(Status.IN_PROGRESS);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.masnaviev.habittracker.out.repositories;
+
+import ru.masnaviev.habittracker.models.User;
+import ru.masnaviev.habittracker.out.persistence.Journal;
+import ru.masnaviev.habittracker.out.repositories.util.StripedLock;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Репозиторий пользователей, который хранит данные в памяти и записывает каждое изменение в журнал.
+ */
+public class DurableUserRepository implements UserRepository {
+
+    private final InMemoryUserRepository delegate;
+    private final Journal journal;
+    private final StripedLock locks = new StripedLock();
+
+    DurableUserRepository(InMemoryUserRepository delegate, Journal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    @Override
+    public User add(User user) {
+        delegate.reserveEmail(user.getEmail());
+        long userId = delegate.nextId();
+        Lock lock = locks.get(userId).writeLock();
+        lock.lock();
+        try {
+            delegate.insert(user, userId);
+            journal.userSaved(user);
+        } finally {
+            lock.unlock();
+        }
+        return user;
+    }
+
+    @Override
+    public User update(User user) {
+        Lock lock = locks.get(user.getId()).writeLock();
+        lock.lock();
+        try {
+            delegate.update(user);
+            journal.userSaved(user);
+        } finally {
+            lock.unlock();
+        }
+        return user;
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public boolean isExistsByEmail(String email) {
+        return delegate.isExistsByEmail(email);
+    }
+
+    @Override
+    public void delete(Long id) {
+        Lock lock = locks.get(id).writeLock();
+        lock.lock();
+        try {
+            if (delegate.findById(id).isPresent()) {
+                delegate.delete(id);
+                journal.userDeleted(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<User> findById(long id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<User> getAll() {
+        return delegate.getAll();
+    }
+}
@@ -12,12 +12,33 @@ public interface HabitRepository {
 
     List<Habit> getAll(long id);
 
+    Habit update(Habit habit);
+
     void delete(long id);
 
     Optional<Habit> findById(long id);
 
     List<LocalDate> getStatistic(long id, LocalDate start, LocalDate end);
 
+    int countExecutions(long id, LocalDate start, LocalDate end);
+
+    /**
+     * Сохраняет отметку выполнения, уже добавленную в историю привычки.
+     * Привычка с отметкой выполнения считается начатой, поэтому вместе с отметкой
+     * сохраняется и статус {@link ru.masnaviev.habittracker.models.Status#IN_PROGRESS}.
+     */
+    void saveExecution(long id, LocalDate date);
+
+    /**
+     * Сохраняет несколько отметок выполнения, уже добавленных в историю привычки, как одно изменение.
+     * По умолчанию сохраняет их по одной.
+     */
+    default void saveExecutions(long id, List<LocalDate> dates) {
+        for (LocalDate date : dates) {
+            saveExecution(id, date);
+        }
+    }
+
     boolean exists(long id);
 
     List<Habit> getAll();
@@ -1,56 +1,328 @@
 package ru.masnaviev.habittracker.out.repositories;
 
 import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.out.persistence.Snapshot;
+import ru.masnaviev.habittracker.out.repositories.util.StripedLock;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
 
+/**
+ * Хранилище привычек в памяти.
+ * <p>
+ * Репозиторий может быть подключен к отображенному в память снимку: тогда привычки из снимка
+ * читаются только при первом обращении к ним через {@link #findById(long)}, {@link #getAll(long)}
+ * и другие методы, а до этого не занимают места в куче.
+ */
 public class InMemoryHabitRepository implements HabitRepository {
 
-    private static long id = 0;
-    private final Map<Long, Habit> habits = new HashMap<>();
+    private final AtomicLong id = new AtomicLong();
+    private final Map<Long, Habit> habits = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> habitIdsByUser = new ConcurrentHashMap<>();
+    private final Map<Long, Long> owners = new ConcurrentHashMap<>();
+    private final StripedLock locks = new StripedLock();
+    private Snapshot snapshot;
+    private AtomicLongArray detached;
 
     @Override
     public Habit add(Habit habit) {
-        habit.setId(id++);
-        return habits.put(habit.getId(), habit);
+        habit.setId(nextId());
+        return insert(habit);
+    }
+
+    long nextId() {
+        return id.getAndIncrement();
+    }
+
+    long peekNextId() {
+        return id.get();
+    }
+
+    void reserveIds(long nextId) {
+        id.accumulateAndGet(nextId, Math::max);
+    }
+
+    Habit insert(Habit habit) {
+        Lock lock = locks.get(habit.getId()).writeLock();
+        lock.lock();
+        try {
+            habits.put(habit.getId(), habit);
+            index(habit.getId(), habit.getUserId());
+        } finally {
+            lock.unlock();
+        }
+        return habit;
     }
 
     @Override
     public List<Habit> getAll(long userId) {
-        return habits.values().stream()
-                .filter(habit -> habit.getUserId() == userId)
-                .collect(Collectors.toList());
+        if (snapshot != null) {
+            for (int entry : snapshot.entriesOf(userId)) {
+                if (!isDetached(entry)) {
+                    materialize(snapshot.getHabitId(entry));
+                }
+            }
+        }
+        Set<Long> habitIds = habitIdsByUser.get(userId);
+        if (habitIds == null) {
+            return new ArrayList<>();
+        }
+        List<Habit> userHabits = new ArrayList<>(habitIds.size());
+        for (Long habitId : habitIds) {
+            Habit habit = habits.get(habitId);
+            if (habit != null) {
+                userHabits.add(habit);
+            }
+        }
+        userHabits.sort(Comparator.comparingLong(Habit::getId));
+        return userHabits;
+    }
+
+    @Override
+    public Habit update(Habit habit) {
+        Lock lock = locks.get(habit.getId()).writeLock();
+        lock.lock();
+        try {
+            if (resolve(habit.getId()) == null) {
+                throw new NoSuchElementException("Привычки с таким id не существует");
+            }
+            habits.put(habit.getId(), habit);
+            Long owner = owners.get(habit.getId());
+            if (owner == null || owner != habit.getUserId()) {
+                unindex(habit.getId());
+                index(habit.getId(), habit.getUserId());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return habit;
     }
 
     @Override
     public void delete(long habitId) {
-        habits.remove(habitId);
+        Lock lock = locks.get(habitId).writeLock();
+        lock.lock();
+        try {
+            if (snapshot != null) {
+                int entry = snapshot.indexOf(habitId);
+                if (entry >= 0) {
+                    detach(entry);
+                }
+            }
+            Habit removed = habits.remove(habitId);
+            if (removed != null) {
+                removed.getExecutionHistory().release();
+            }
+            unindex(habitId);
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public Optional<Habit> findById(long id) {
-        return Optional.ofNullable(habits.get(id));
+        return Optional.ofNullable(resolve(id));
     }
 
     @Override
     public List<LocalDate> getStatistic(long id, LocalDate start, LocalDate end) {
-        List<LocalDate> executionHistory = habits.get(id).getExecutionHistory();
-        return executionHistory.stream()
-                .filter(a -> !a.isBefore(start))
-                .filter(a -> !a.isAfter(end))
-                .collect(Collectors.toList());
+        resolve(id);
+        Lock lock = locks.get(id).readLock();
+        lock.lock();
+        try {
+            return getExisting(id).getExecutionHistory().between(start, end);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int countExecutions(long id, LocalDate start, LocalDate end) {
+        resolve(id);
+        Lock lock = locks.get(id).readLock();
+        lock.lock();
+        try {
+            return getExisting(id).getExecutionHistory().countBetween(start, end);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ничего не делает: история выполнения хранится в самой привычке, и сервис уже добавил в нее отметку.
+     */
+    @Override
+    public void saveExecution(long id, LocalDate date) {
     }
 
     @Override
     public boolean exists(long id) {
+        // Снимок проверяется первым: прочитанная привычка кладется в кучу до того, как ее запись
+        // в снимке помечается отсоединенной, поэтому одной проверки кучи после него достаточно.
+        if (snapshot != null) {
+            int entry = snapshot.indexOf(id);
+            if (entry >= 0 && !isDetached(entry)) {
+                return true;
+            }
+        }
         return habits.containsKey(id);
     }
 
     @Override
     public List<Habit> getAll() {
-
+        if (snapshot != null) {
+            for (int entry = 0; entry < snapshot.getHabitCount(); entry++) {
+                if (!isDetached(entry)) {
+                    materialize(snapshot.getHabitId(entry));
+                }
+            }
+        }
         return new ArrayList<>(habits.values());
     }
+
+    /**
+     * Возвращает количество привычек в куче, без еще не прочитанных привычек снимка.
+     */
+    int loadedCount() {
+        return habits.size();
+    }
+
+    /**
+     * Подключает снимок, привычки из которого будут прочитаны при первом обращении.
+     * Вызывается до начала работы с репозиторием.
+     */
+    void attach(Snapshot snapshot) {
+        this.detached = new AtomicLongArray((snapshot.getHabitCount() + Long.SIZE - 1) / Long.SIZE);
+        this.snapshot = snapshot;
+        reserveIds(snapshot.getNextHabitId());
+    }
+
+    /**
+     * Записывает все привычки в новый снимок в порядке возрастания id.
+     * Еще не прочитанные привычки подключенного снимка копируются без разбора.
+     */
+    void writeTo(Snapshot.Writer writer) throws IOException {
+        long[] heapIds = habits.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        int entries = snapshot == null ? 0 : snapshot.getHabitCount();
+        int entry = 0;
+        int position = 0;
+        while (entry < entries || position < heapIds.length) {
+            long snapshotId = entry < entries ? snapshot.getHabitId(entry) : Long.MAX_VALUE;
+            long heapId = position < heapIds.length ? heapIds[position] : Long.MAX_VALUE;
+            long habitId = Math.min(snapshotId, heapId);
+            Lock lock = locks.get(habitId).readLock();
+            lock.lock();
+            try {
+                if (habitId == snapshotId && !isDetached(entry)) {
+                    writer.copyHabit(snapshot, entry);
+                } else {
+                    Habit habit = habits.get(habitId);
+                    if (habit != null) {
+                        writer.writeHabit(habit);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (habitId == snapshotId) {
+                entry++;
+            }
+            if (habitId == heapId) {
+                position++;
+            }
+        }
+    }
+
+    void restore(Habit habit) {
+        Lock lock = locks.get(habit.getId()).writeLock();
+        lock.lock();
+        try {
+            Habit existing = resolve(habit.getId());
+            if (existing != null) {
+                existing.setUserId(habit.getUserId());
+                existing.setTitle(habit.getTitle());
+                existing.setDescription(habit.getDescription());
+                existing.setFrequency(habit.getFrequency());
+                existing.setStatus(habit.getStatus());
+                unindex(habit.getId());
+            } else {
+                habits.put(habit.getId(), habit);
+            }
+            index(habit.getId(), habit.getUserId());
+            id.accumulateAndGet(habit.getId() + 1, Math::max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Habit resolve(long id) {
+        Habit habit = habits.get(id);
+        return habit != null || snapshot == null ? habit : materialize(id);
+    }
+
+    private Habit materialize(long id) {
+        int entry = snapshot.indexOf(id);
+        if (entry < 0 || isDetached(entry)) {
+            return habits.get(id);
+        }
+        Lock lock = locks.get(id).writeLock();
+        lock.lock();
+        try {
+            if (isDetached(entry)) {
+                return habits.get(id);
+            }
+            Habit habit = snapshot.readHabit(entry);
+            habits.put(id, habit);
+            index(id, habit.getUserId());
+            detach(entry);
+            return habit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isDetached(int entry) {
+        return (detached.get(entry / Long.SIZE) & (1L << entry)) != 0;
+    }
+
+    private void detach(int entry) {
+        long bit = 1L << entry;
+        int word = entry / Long.SIZE;
+        long current;
+        do {
+            current = detached.get(word);
+        } while ((current & bit) == 0 && !detached.compareAndSet(word, current, current | bit));
+    }
+
+    private Habit getExisting(long id) {
+        Habit habit = habits.get(id);
+        if (habit == null) {
+            throw new NoSuchElementException("Привычки с таким id не существует");
+        }
+        return habit;
+    }
+
+    private void index(long habitId, long userId) {
+        owners.put(habitId, userId);
+        habitIdsByUser.compute(userId, (key, habitIds) -> {
+            Set<Long> ids = habitIds != null ? habitIds : ConcurrentHashMap.newKeySet();
+            ids.add(habitId);
+            return ids;
+        });
+    }
+
+    private void unindex(long habitId) {
+        Long userId = owners.remove(habitId);
+        if (userId != null) {
+            habitIdsByUser.computeIfPresent(userId, (key, habitIds) -> {
+                habitIds.remove(habitId);
+                return habitIds.isEmpty() ? null : habitIds;
+            });
+        }
+    }
 }
@@ -4,11 +4,17 @@ import ru.masnaviev.habittracker.models.Role;
 import ru.masnaviev.habittracker.models.User;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class InMemoryUserRepository implements UserRepository {
 
-    private static long id = 0;
-    private final Map<Long, User> users = new HashMap<>();
+    private static final long RESERVED = -1;
+
+    private final AtomicLong id = new AtomicLong();
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    private final Map<String, Long> idsByEmail = new ConcurrentHashMap<>();
+    private final Map<Long, String> indexedEmails = new ConcurrentHashMap<>();
 
     {
         add(new User("admin@mail.ru", "admin", "admin", Role.ADMIN));
@@ -16,26 +22,87 @@ public class InMemoryUserRepository implements UserRepository {
 
     @Override
     public User add(User user) {
-        user.setId(id++);
-        return users.put(user.getId(), user);
+        reserveEmail(user.getEmail());
+        return insert(user, nextId());
+    }
+
+    long nextId() {
+        return id.getAndIncrement();
+    }
+
+    long peekNextId() {
+        return id.get();
+    }
+
+    void reserveIds(long nextId) {
+        id.accumulateAndGet(nextId, Math::max);
+    }
+
+    /**
+     * Занимает email до выделения идентификатора, чтобы отклоненная регистрация не расходовала id.
+     * Пока пользователь не вставлен, email считается занятым, но пользователь по нему не находится.
+     */
+    void reserveEmail(String email) {
+        if (idsByEmail.putIfAbsent(normalize(email), RESERVED) != null) {
+            throw new IllegalArgumentException("Пользователь с таким email уже существует");
+        }
+    }
+
+    /**
+     * Вставляет пользователя, email которого занят {@link #reserveEmail(String)}.
+     */
+    User insert(User user, long userId) {
+        idsByEmail.put(normalize(user.getEmail()), userId);
+        user.setId(userId);
+        indexedEmails.put(userId, user.getEmail());
+        users.put(userId, user);
+        return user;
+    }
+
+    @Override
+    public User update(User user) {
+        User updated = users.computeIfPresent(user.getId(), (userId, existing) -> {
+            String indexedEmail = indexedEmails.get(userId);
+            String oldKey = normalize(indexedEmail);
+            String newKey = normalize(user.getEmail());
+            if (!newKey.equals(oldKey)) {
+                Long holder = idsByEmail.putIfAbsent(newKey, userId);
+                if (holder != null && !holder.equals(userId)) {
+                    user.setEmail(indexedEmail);
+                    throw new IllegalArgumentException("Пользователь с таким email уже существует");
+                }
+                idsByEmail.remove(oldKey, userId);
+            }
+            indexedEmails.put(userId, user.getEmail());
+            return user;
+        });
+        if (updated == null) {
+            throw new NoSuchElementException("Пользователя с таким id не существует");
+        }
+        return updated;
     }
 
     @Override
     public Optional<User> findByEmail(String email) {
-        return users.entrySet().stream()
-                .filter(a ->
-                        a.getValue().getEmail().equals(email)).findFirst()
-                .map(Map.Entry::getValue);
+        if (email == null) {
+            return Optional.empty();
+        }
+        Long userId = idsByEmail.get(normalize(email));
+        return userId == null ? Optional.empty() : Optional.ofNullable(users.get(userId));
     }
 
     @Override
     public boolean isExistsByEmail(String email) {
-        return users.entrySet().stream().anyMatch(a -> a.getValue().getEmail().equals(email));
+        return email != null && idsByEmail.containsKey(normalize(email));
     }
 
     @Override
     public void delete(Long id) {
-        users.remove(id);
+        users.computeIfPresent(id, (userId, user) -> {
+            String indexedEmail = indexedEmails.remove(userId);
+            idsByEmail.remove(normalize(indexedEmail), userId);
+            return null;
+        });
     }
 
     @Override
@@ -47,4 +114,21 @@ public class InMemoryUserRepository implements UserRepository {
     public List<User> getAll() {
         return new ArrayList<>(users.values());
     }
+
+    void restore(User user) {
+        users.compute(user.getId(), (userId, existing) -> {
+            String indexedEmail = indexedEmails.remove(userId);
+            if (indexedEmail != null) {
+                idsByEmail.remove(normalize(indexedEmail), userId);
+            }
+            idsByEmail.put(normalize(user.getEmail()), userId);
+            indexedEmails.put(userId, user.getEmail());
+            return user;
+        });
+        id.accumulateAndGet(user.getId() + 1, Math::max);
+    }
+
+    static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
 }
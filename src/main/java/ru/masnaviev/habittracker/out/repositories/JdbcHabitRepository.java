@@ -0,0 +1,359 @@
+package ru.masnaviev.habittracker.out.repositories;
+
+import ru.masnaviev.habittracker.models.Frequency;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.models.Status;
+import ru.masnaviev.habittracker.out.repositories.util.ConnectionPool;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Хранилище привычек в реляционной базе данных.
+ * <p>
+ * Выборка выполнений за период и их подсчет выполняются в базе данных по индексу
+ * (привычка, дата), без чтения всей истории. История привычек загружается одним запросом
+ * на все запрашиваемые привычки, а отметки новой привычки вставляются пакетом.
+ */
+public class JdbcHabitRepository implements HabitRepository {
+
+    private static final String COLUMNS = "id, user_id, title, description, frequency, status, created";
+    private static final String INSERT =
+            "INSERT INTO habits (user_id, title, description, frequency, status, created) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE =
+            "UPDATE habits SET user_id = ?, title = ?, description = ?, frequency = ?, status = ? WHERE id = ?";
+    private static final String DELETE = "DELETE FROM habits WHERE id = ?";
+    private static final String EXISTS = "SELECT 1 FROM habits WHERE id = ?";
+    private static final String FIND_BY_ID = "SELECT " + COLUMNS + " FROM habits WHERE id = ?";
+    private static final String FIND_BY_USER = "SELECT " + COLUMNS + " FROM habits WHERE user_id = ? ORDER BY id";
+    private static final String FIND_ALL = "SELECT " + COLUMNS + " FROM habits ORDER BY id";
+    private static final String EXECUTIONS_BY_ID =
+            "SELECT habit_id, execution_date FROM habit_executions WHERE habit_id = ? ORDER BY execution_date";
+    private static final String EXECUTIONS_BY_USER = """
+            SELECT e.habit_id, e.execution_date FROM habit_executions e JOIN habits h ON h.id = e.habit_id
+            WHERE h.user_id = ? ORDER BY e.habit_id, e.execution_date""";
+    private static final String EXECUTIONS_ALL =
+            "SELECT habit_id, execution_date FROM habit_executions ORDER BY habit_id, execution_date";
+    private static final String EXECUTIONS_BETWEEN = """
+            SELECT execution_date FROM habit_executions
+            WHERE habit_id = ? AND execution_date BETWEEN ? AND ? ORDER BY execution_date""";
+    private static final String COUNT_BETWEEN = """
+            SELECT COUNT(*) FROM habit_executions
+            WHERE habit_id = ? AND execution_date BETWEEN ? AND ?""";
+    private static final String INSERT_EXECUTION =
+            "MERGE INTO habit_executions (habit_id, execution_date) KEY (habit_id, execution_date) VALUES (?, ?)";
+    private static final String START_HABIT = "UPDATE habits SET status = ? WHERE id = ? AND status = ?";
+    private static final String FOREIGN_KEY_VIOLATION = "23506";
+
+    private final ConnectionPool pool;
+
+    JdbcHabitRepository(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public Habit add(Habit habit) {
+        try {
+            return pool.execute(connection -> inTransaction(connection, () -> {
+                PreparedStatement statement = connection.prepare(INSERT);
+                statement.setLong(1, habit.getUserId());
+                statement.setString(2, habit.getTitle());
+                statement.setString(3, habit.getDescription());
+                statement.setString(4, name(habit.getFrequency()));
+                statement.setString(5, name(habit.getStatus()));
+                statement.setObject(6, habit.getCreated());
+                statement.executeUpdate();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    keys.next();
+                    habit.setId(keys.getLong(1));
+                }
+                int[] days = habit.getExecutionHistory().toEpochDays();
+                if (days.length > 0) {
+                    PreparedStatement executions = connection.prepare(INSERT_EXECUTION);
+                    for (int day : days) {
+                        executions.setLong(1, habit.getId());
+                        executions.setObject(2, LocalDate.ofEpochDay(day));
+                        executions.addBatch();
+                    }
+                    executions.executeBatch();
+                }
+                return habit;
+            }));
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public List<Habit> getAll(long userId) {
+        try {
+            return pool.execute(connection -> {
+                PreparedStatement habits = connection.prepare(FIND_BY_USER);
+                habits.setLong(1, userId);
+                PreparedStatement executions = connection.prepare(EXECUTIONS_BY_USER);
+                executions.setLong(1, userId);
+                return load(habits, executions);
+            });
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public Habit update(Habit habit) {
+        int updated;
+        try {
+            updated = pool.execute(connection -> {
+                PreparedStatement statement = connection.prepare(UPDATE);
+                statement.setLong(1, habit.getUserId());
+                statement.setString(2, habit.getTitle());
+                statement.setString(3, habit.getDescription());
+                statement.setString(4, name(habit.getFrequency()));
+                statement.setString(5, name(habit.getStatus()));
+                statement.setLong(6, habit.getId());
+                return statement.executeUpdate();
+            });
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+        if (updated == 0) {
+            throw new NoSuchElementException("Привычки с таким id не существует");
+        }
+        return habit;
+    }
+
+    @Override
+    public void delete(long id) {
+        try {
+            pool.execute(connection -> {
+                PreparedStatement statement = connection.prepare(DELETE);
+                statement.setLong(1, id);
+                return statement.executeUpdate();
+            });
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public Optional<Habit> findById(long id) {
+        try {
+            return pool.execute(connection -> {
+                PreparedStatement habits = connection.prepare(FIND_BY_ID);
+                habits.setLong(1, id);
+                PreparedStatement executions = connection.prepare(EXECUTIONS_BY_ID);
+                executions.setLong(1, id);
+                return load(habits, executions).stream().findFirst();
+            });
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public List<LocalDate> getStatistic(long id, LocalDate start, LocalDate end) {
+        try {
+            return pool.execute(connection -> {
+                PreparedStatement statement = connection.prepare(EXECUTIONS_BETWEEN);
+                bindRange(statement, id, start, end);
+                List<LocalDate> dates = new ArrayList<>();
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        dates.add(rows.getObject(1, LocalDate.class));
+                    }
+                }
+                if (dates.isEmpty()) {
+                    requireExisting(connection, id);
+                }
+                return dates;
+            });
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public int countExecutions(long id, LocalDate start, LocalDate end) {
+        try {
+            return pool.execute(connection -> {
+                PreparedStatement statement = connection.prepare(COUNT_BETWEEN);
+                bindRange(statement, id, start, end);
+                int count;
+                try (ResultSet rows = statement.executeQuery()) {
+                    rows.next();
+                    count = rows.getInt(1);
+                }
+                if (count == 0) {
+                    requireExisting(connection, id);
+                }
+                return count;
+            });
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void saveExecution(long id, LocalDate date) {
+        saveExecutions(id, List.of(date));
+    }
+
+    @Override
+    public void saveExecutions(long id, List<LocalDate> dates) {
+        try {
+            pool.execute(connection -> inTransaction(connection, () -> {
+                PreparedStatement execution = connection.prepare(INSERT_EXECUTION);
+                if (dates.size() == 1) {
+                    execution.setLong(1, id);
+                    execution.setObject(2, dates.get(0));
+                    execution.executeUpdate();
+                } else {
+                    for (LocalDate date : dates) {
+                        execution.setLong(1, id);
+                        execution.setObject(2, date);
+                        execution.addBatch();
+                    }
+                    execution.executeBatch();
+                }
+                PreparedStatement status = connection.prepare(START_HABIT);
+                status.setString(1, Status.IN_PROGRESS.name());
+                status.setLong(2, id);
+                status.setString(3, Status.CREATED.name());
+                return status.executeUpdate();
+            }));
+        } catch (SQLException e) {
+            if (isForeignKeyViolation(e)) {
+                throw new NoSuchElementException("Привычки с таким id не существует");
+            }
+            throw failure(e);
+        }
+    }
+
+    /**
+     * Проверяет, нарушен ли внешний ключ. Ошибка пакетной вставки приходит цепочкой исключений.
+     */
+    private static boolean isForeignKeyViolation(SQLException e) {
+        for (SQLException cause = e; cause != null; cause = cause.getNextException()) {
+            if (FOREIGN_KEY_VIOLATION.equals(cause.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean exists(long id) {
+        try {
+            return pool.execute(connection -> exists(connection, id));
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public List<Habit> getAll() {
+        try {
+            return pool.execute(connection -> load(connection.prepare(FIND_ALL), connection.prepare(EXECUTIONS_ALL)));
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    /**
+     * Читает привычки и их выполнения, отсортированные по id привычки, и собирает из них сущности.
+     */
+    private List<Habit> load(PreparedStatement habitQuery, PreparedStatement executionQuery) throws SQLException {
+        List<Habit> habits = new ArrayList<>();
+        Map<Long, Habit> byId = new HashMap<>();
+        try (ResultSet rows = habitQuery.executeQuery()) {
+            while (rows.next()) {
+                Habit habit = read(rows);
+                habits.add(habit);
+                byId.put(habit.getId(), habit);
+            }
+        }
+        if (habits.isEmpty()) {
+            return habits;
+        }
+        try (ResultSet rows = executionQuery.executeQuery()) {
+            long current = -1;
+            int[] days = new int[16];
+            int count = 0;
+            while (rows.next()) {
+                long habitId = rows.getLong(1);
+                if (habitId != current) {
+                    attach(byId.get(current), days, count);
+                    current = habitId;
+                    count = 0;
+                }
+                if (count == days.length) {
+                    days = Arrays.copyOf(days, count * 2);
+                }
+                days[count++] = Math.toIntExact(rows.getObject(2, LocalDate.class).toEpochDay());
+            }
+            attach(byId.get(current), days, count);
+        }
+        return habits;
+    }
+
+    private void attach(Habit habit, int[] days, int count) {
+        if (habit != null && count > 0) {
+            habit.getExecutionHistory().addEpochDays(Arrays.copyOf(days, count));
+        }
+    }
+
+    private Habit read(ResultSet rows) throws SQLException {
+        String frequency = rows.getString(5);
+        String status = rows.getString(6);
+        return new Habit(rows.getLong(1), rows.getLong(2), rows.getString(3), rows.getString(4),
+                frequency == null ? null : Frequency.valueOf(frequency),
+                status == null ? null : Status.valueOf(status),
+                rows.getObject(7, LocalDateTime.class));
+    }
+
+    private void bindRange(PreparedStatement statement, long id, LocalDate start, LocalDate end) throws SQLException {
+        statement.setLong(1, id);
+        statement.setObject(2, start);
+        statement.setObject(3, end);
+    }
+
+    private void requireExisting(ConnectionPool.Pooled connection, long id) throws SQLException {
+        if (!exists(connection, id)) {
+            throw new NoSuchElementException("Привычки с таким id не существует");
+        }
+    }
+
+    private boolean exists(ConnectionPool.Pooled connection, long id) throws SQLException {
+        PreparedStatement statement = connection.prepare(EXISTS);
+        statement.setLong(1, id);
+        try (ResultSet rows = statement.executeQuery()) {
+            return rows.next();
+        }
+    }
+
+    private <T> T inTransaction(ConnectionPool.Pooled pooled, Transaction<T> transaction) throws SQLException {
+        Connection connection = pooled.getConnection();
+        connection.setAutoCommit(false);
+        T result = transaction.run();
+        connection.commit();
+        connection.setAutoCommit(true);
+        return result;
+    }
+
+    private static String name(Enum<?> value) {
+        return value == null ? null : value.name();
+    }
+
+    private static RuntimeException failure(SQLException e) {
+        return new IllegalStateException("Ошибка обращения к базе данных", e);
+    }
+
+    private interface Transaction<T> {
+        T run() throws SQLException;
+    }
+}
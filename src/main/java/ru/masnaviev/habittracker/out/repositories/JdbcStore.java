@@ -0,0 +1,102 @@
+package ru.masnaviev.habittracker.out.repositories;
+
+import ru.masnaviev.habittracker.out.repositories.util.ConnectionPool;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Хранилище пользователей и привычек в реляционной базе данных.
+ * <p>
+ * При открытии создает недостающие таблицы и индексы: по владельцу привычки, по email пользователя
+ * и по паре (привычка, дата выполнения), а также администратора по умолчанию.
+ */
+public class JdbcStore implements Closeable {
+
+    private static final String[] SCHEMA = {
+            """
+            CREATE TABLE IF NOT EXISTS users (
+                id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY,
+                role VARCHAR(16) NOT NULL,
+                email VARCHAR(255),
+                email_key VARCHAR(255),
+                password VARCHAR(255),
+                name VARCHAR(255),
+                blocked BOOLEAN NOT NULL DEFAULT FALSE
+            )""",
+            "CREATE UNIQUE INDEX IF NOT EXISTS idx_users_email ON users (email_key)",
+            """
+            CREATE TABLE IF NOT EXISTS habits (
+                id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 0 MINVALUE 0) PRIMARY KEY,
+                user_id BIGINT NOT NULL,
+                title VARCHAR,
+                description VARCHAR,
+                frequency VARCHAR(16),
+                status VARCHAR(16),
+                created TIMESTAMP(9)
+            )""",
+            "CREATE INDEX IF NOT EXISTS idx_habits_user_id ON habits (user_id)",
+            """
+            CREATE TABLE IF NOT EXISTS habit_executions (
+                habit_id BIGINT NOT NULL REFERENCES habits (id) ON DELETE CASCADE,
+                execution_date DATE NOT NULL,
+                PRIMARY KEY (habit_id, execution_date)
+            )""",
+            """
+            INSERT INTO users (id, role, email, email_key, password, name, blocked)
+            SELECT 0, 'ADMIN', 'admin@mail.ru', 'admin@mail.ru', 'admin', 'admin', FALSE
+            WHERE NOT EXISTS (SELECT 1 FROM users WHERE id = 0 OR email_key = 'admin@mail.ru')"""
+    };
+
+    private final ConnectionPool pool;
+    private final JdbcUserRepository userRepository;
+    private final JdbcHabitRepository habitRepository;
+
+    private JdbcStore(ConnectionPool pool) {
+        this.pool = pool;
+        this.userRepository = new JdbcUserRepository(pool);
+        this.habitRepository = new JdbcHabitRepository(pool);
+    }
+
+    /**
+     * Подключается к базе данных и создает схему, если ее еще нет.
+     *
+     * @param url      адрес базы данных JDBC.
+     * @param user     имя пользователя базы данных.
+     * @param password пароль пользователя базы данных.
+     * @param poolSize количество соединений в пуле.
+     * @return открытое хранилище.
+     * @throws SQLException если не удалось подключиться к базе или создать схему.
+     */
+    public static JdbcStore open(String url, String user, String password, int poolSize) throws SQLException {
+        ConnectionPool pool = new ConnectionPool(url, user, password, poolSize, 30_000);
+        try {
+            pool.execute(connection -> {
+                try (Statement statement = connection.getConnection().createStatement()) {
+                    for (String sql : SCHEMA) {
+                        statement.execute(sql);
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            pool.close();
+            throw e;
+        }
+        return new JdbcStore(pool);
+    }
+
+    public UserRepository getUserRepository() {
+        return userRepository;
+    }
+
+    public HabitRepository getHabitRepository() {
+        return habitRepository;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
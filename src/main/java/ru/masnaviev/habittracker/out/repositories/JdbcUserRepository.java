@@ -0,0 +1,172 @@
+package ru.masnaviev.habittracker.out.repositories;
+
+import ru.masnaviev.habittracker.models.Role;
+import ru.masnaviev.habittracker.models.User;
+import ru.masnaviev.habittracker.out.repositories.util.ConnectionPool;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Хранилище пользователей в реляционной базе данных.
+ * Уникальность email обеспечивается индексом по нормализованному адресу.
+ */
+public class JdbcUserRepository implements UserRepository {
+
+    private static final String COLUMNS = "id, role, email, password, name, blocked";
+    private static final String INSERT =
+            "INSERT INTO users (role, email, email_key, password, name, blocked) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE =
+            "UPDATE users SET email = ?, email_key = ?, password = ?, name = ?, blocked = ? WHERE id = ?";
+    private static final String DELETE = "DELETE FROM users WHERE id = ?";
+    private static final String FIND_BY_ID = "SELECT " + COLUMNS + " FROM users WHERE id = ?";
+    private static final String FIND_BY_EMAIL = "SELECT " + COLUMNS + " FROM users WHERE email_key = ?";
+    private static final String EXISTS_BY_EMAIL = "SELECT 1 FROM users WHERE email_key = ?";
+    private static final String FIND_ALL = "SELECT " + COLUMNS + " FROM users ORDER BY id";
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private final ConnectionPool pool;
+
+    JdbcUserRepository(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public User add(User user) {
+        try {
+            return pool.execute(connection -> {
+                PreparedStatement statement = connection.prepare(INSERT);
+                statement.setString(1, user.getRole().name());
+                statement.setString(2, user.getEmail());
+                statement.setString(3, normalize(user.getEmail()));
+                statement.setString(4, user.getPassword());
+                statement.setString(5, user.getName());
+                statement.setBoolean(6, user.isBlocked());
+                statement.executeUpdate();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    keys.next();
+                    user.setId(keys.getLong(1));
+                }
+                return user;
+            });
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public User update(User user) {
+        int updated;
+        try {
+            updated = pool.execute(connection -> {
+                PreparedStatement statement = connection.prepare(UPDATE);
+                statement.setString(1, user.getEmail());
+                statement.setString(2, normalize(user.getEmail()));
+                statement.setString(3, user.getPassword());
+                statement.setString(4, user.getName());
+                statement.setBoolean(5, user.isBlocked());
+                statement.setLong(6, user.getId());
+                return statement.executeUpdate();
+            });
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+        if (updated == 0) {
+            throw new NoSuchElementException("Пользователя с таким id не существует");
+        }
+        return user;
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return findOne(FIND_BY_EMAIL, normalize(email));
+    }
+
+    @Override
+    public boolean isExistsByEmail(String email) {
+        if (email == null) {
+            return false;
+        }
+        try {
+            return pool.execute(connection -> {
+                PreparedStatement statement = connection.prepare(EXISTS_BY_EMAIL);
+                statement.setString(1, normalize(email));
+                try (ResultSet rows = statement.executeQuery()) {
+                    return rows.next();
+                }
+            });
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void delete(Long id) {
+        try {
+            pool.execute(connection -> {
+                PreparedStatement statement = connection.prepare(DELETE);
+                statement.setLong(1, id);
+                return statement.executeUpdate();
+            });
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public Optional<User> findById(long id) {
+        return findOne(FIND_BY_ID, id);
+    }
+
+    @Override
+    public List<User> getAll() {
+        try {
+            return pool.execute(connection -> {
+                List<User> users = new ArrayList<>();
+                try (ResultSet rows = connection.prepare(FIND_ALL).executeQuery()) {
+                    while (rows.next()) {
+                        users.add(read(rows));
+                    }
+                }
+                return users;
+            });
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    private Optional<User> findOne(String sql, Object key) {
+        try {
+            return pool.execute(connection -> {
+                PreparedStatement statement = connection.prepare(sql);
+                statement.setObject(1, key);
+                try (ResultSet rows = statement.executeQuery()) {
+                    return rows.next() ? Optional.of(read(rows)) : Optional.empty();
+                }
+            });
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    private User read(ResultSet rows) throws SQLException {
+        return new User(Role.valueOf(rows.getString(2)), rows.getLong(1), rows.getString(3),
+                rows.getString(4), rows.getString(5), rows.getBoolean(6));
+    }
+
+    private static String normalize(String email) {
+        return email == null ? null : InMemoryUserRepository.normalize(email);
+    }
+
+    private static RuntimeException failure(SQLException e) {
+        if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+            return new IllegalArgumentException("Пользователь с таким email уже существует");
+        }
+        return new IllegalStateException("Ошибка обращения к базе данных", e);
+    }
+}
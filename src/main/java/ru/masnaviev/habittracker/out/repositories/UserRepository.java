@@ -9,6 +9,8 @@ public interface UserRepository {
 
     User add(User user);
 
+    User update(User user);
+
     Optional<User> findByEmail(String email);
 
     boolean isExistsByEmail(String email);
@@ -0,0 +1,202 @@
+package ru.masnaviev.habittracker.out.repositories.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пул соединений с базой данных фиксированного размера.
+ * <p>
+ * Каждое соединение хранит подготовленные запросы, поэтому повторный запрос с тем же текстом
+ * не разбирается и не планируется заново. Соединение, на котором произошла ошибка,
+ * при возврате в пул закрывается и заменяется новым. Если новое соединение открыть не удалось,
+ * место в пуле сохраняется пустым, и соединение открывается заново при следующей выдаче.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final long timeoutMillis;
+    private final BlockingQueue<Pooled> idle;
+    private volatile boolean closed;
+
+    /**
+     * @param url           адрес базы данных JDBC.
+     * @param user          имя пользователя базы данных.
+     * @param password      пароль пользователя базы данных.
+     * @param size          количество соединений.
+     * @param timeoutMillis максимальное время ожидания свободного соединения.
+     * @throws SQLException если соединения не удалось открыть.
+     */
+    public ConnectionPool(String url, String user, String password, int size, long timeoutMillis)
+            throws SQLException {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.timeoutMillis = timeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            idle.add(new Pooled(DriverManager.getConnection(url, user, password)));
+        }
+    }
+
+    /**
+     * Берет свободное соединение из пула, ожидая его не дольше заданного времени.
+     *
+     * @return соединение, которое возвращается в пул методом {@link Pooled#close()}.
+     * @throws SQLException если свободное соединение не появилось или пул закрыт.
+     */
+    public Pooled borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Пул соединений закрыт");
+        }
+        try {
+            Pooled connection = idle.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (connection == null) {
+                throw new SQLException("Нет свободных соединений с базой данных");
+            }
+            if (connection.connection == null) {
+                try {
+                    connection = new Pooled(DriverManager.getConnection(url, user, password));
+                } catch (SQLException e) {
+                    release(connection);
+                    throw e;
+                }
+            }
+            return connection;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Ожидание соединения прервано", e);
+        }
+    }
+
+    /**
+     * Выполняет действие на соединении из пула и возвращает соединение обратно.
+     *
+     * @param work действие.
+     * @return результат действия.
+     * @throws SQLException если действие завершилось ошибкой базы данных.
+     */
+    public <T> T execute(Work<T> work) throws SQLException {
+        try (Pooled connection = borrow()) {
+            try {
+                return work.run(connection);
+            } catch (SQLException e) {
+                if (e.getSQLState() != null && e.getSQLState().startsWith("08")) {
+                    connection.invalidate();
+                }
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Pooled connection;
+        while ((connection = idle.poll()) != null) {
+            connection.closePhysically();
+        }
+    }
+
+    private void release(Pooled connection) {
+        Pooled returned = connection;
+        if (connection.broken && connection.connection != null) {
+            connection.closePhysically();
+            try {
+                returned = new Pooled(DriverManager.getConnection(url, user, password));
+            } catch (SQLException e) {
+                returned = new Pooled(null);
+            }
+        }
+        if (closed || !idle.offer(returned)) {
+            returned.closePhysically();
+        }
+    }
+
+    /**
+     * Действие над соединением из пула.
+     */
+    public interface Work<T> {
+        T run(Pooled connection) throws SQLException;
+    }
+
+    /**
+     * Соединение, взятое из пула.
+     */
+    public class Pooled implements AutoCloseable {
+        /**
+         * Соединение или {@code null}, если место в пуле ждет повторного открытия соединения.
+         */
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        private boolean broken;
+
+        private Pooled(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Возвращает подготовленный запрос, созданный на этом соединении ранее или сейчас.
+         *
+         * @param sql текст запроса.
+         * @return подготовленный запрос без параметров.
+         * @throws SQLException если запрос не удалось подготовить.
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = sql.regionMatches(true, 0, "INSERT", 0, 6)
+                        ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                        : connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+                statement.clearBatch();
+            }
+            return statement;
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Отмечает соединение как неисправное: при возврате в пул оно будет заменено.
+         */
+        public void invalidate() {
+            broken = true;
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                broken = true;
+            }
+            release(this);
+        }
+
+        private void closePhysically() {
+            if (connection == null) {
+                return;
+            }
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ru.masnaviev.habittracker.out.repositories.util;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Набор блокировок, распределенных по идентификаторам сущностей.
+ * <p>
+ * Операции над разными идентификаторами, как правило, попадают в разные полосы
+ * и не конкурируют друг с другом, а число объектов-блокировок остается фиксированным.
+ */
+public class StripedLock {
+
+    private final ReadWriteLock[] stripes;
+    private final int mask;
+
+    public StripedLock(int concurrencyLevel) {
+        int size = Integer.highestOneBit(Math.max(1, concurrencyLevel - 1) << 1);
+        stripes = new ReadWriteLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+        mask = size - 1;
+    }
+
+    public StripedLock() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public ReadWriteLock get(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (hash ^ (hash >>> 32)) & mask];
+    }
+}
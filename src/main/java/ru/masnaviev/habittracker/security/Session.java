@@ -4,7 +4,7 @@ import ru.masnaviev.habittracker.models.Role;
 import ru.masnaviev.habittracker.models.User;
 
 public class Session {
-    private User user;
+    private volatile User user;
 
     public User getUser() {
         return user;
@@ -0,0 +1,281 @@
+package ru.masnaviev.habittracker.security;
+
+import ru.masnaviev.habittracker.models.User;
+
+import java.io.Closeable;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Реестр одновременных сессий пользователей.
+ * <p>
+ * Каждой сессии выдается непрозрачный токен из 128 случайных бит, по которому сессия находится
+ * за O(1) в {@link ConcurrentHashMap}. Сессия истекает, если ей не пользовались дольше тайм-аута
+ * бездействия, и в любом случае по истечении абсолютного тайм-аута с момента входа.
+ * <p>
+ * Истекшие сессии удаляет фоновый поток с помощью колеса таймеров: каждая сессия лежит в ячейке
+ * своего срока, и за такт просматривается только одна ячейка. Обращение к сессии лишь обновляет
+ * время последнего использования; продленная сессия переносится в новую ячейку, когда колесо
+ * доходит до прежней. Поиск проверяет срок сам, поэтому истекшая сессия не находится
+ * и до того, как ее удалит фоновый поток.
+ * <p>
+ * Сессия хранит пользователя на момент входа, поэтому блокировка и удаление пользователя закрывают
+ * все его сессии ({@link #closeAll(long)}), а изменение профиля подменяет пользователя в них
+ * ({@link #updateUser(User)}).
+ */
+public class SessionRegistry implements Closeable {
+
+    private static final int TOKEN_BYTES = 16;
+    private static final int WHEEL_SIZE = 512;
+
+    private final ConcurrentHashMap<String, RegisteredSession> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<RegisteredSession> created = new ConcurrentLinkedQueue<>();
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private final long idleTimeoutMillis;
+    private final long absoluteTimeoutMillis;
+    private final long tickMillis;
+    private final LongSupplier clock;
+    private final List<List<RegisteredSession>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private long processedTick;
+    private ScheduledExecutorService reaper;
+
+    /**
+     * @param idleTimeoutMillis     время бездействия, после которого сессия истекает.
+     * @param absoluteTimeoutMillis время с момента входа, после которого сессия истекает в любом случае.
+     * @param tickMillis            такт колеса таймеров, с этой точностью удаляются истекшие сессии.
+     * @param clock                 источник текущего времени в миллисекундах.
+     */
+    public SessionRegistry(long idleTimeoutMillis, long absoluteTimeoutMillis, long tickMillis, LongSupplier clock) {
+        if (idleTimeoutMillis <= 0 || absoluteTimeoutMillis <= 0 || tickMillis <= 0) {
+            throw new IllegalArgumentException("Тайм-ауты сессии и такт должны быть положительными");
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.absoluteTimeoutMillis = absoluteTimeoutMillis;
+        this.tickMillis = tickMillis;
+        this.clock = clock;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        processedTick = clock.getAsLong() / tickMillis;
+    }
+
+    /**
+     * Создает реестр с системными часами и запускает фоновое удаление истекших сессий раз в секунду.
+     *
+     * @param idleTimeoutMillis     время бездействия, после которого сессия истекает.
+     * @param absoluteTimeoutMillis время с момента входа, после которого сессия истекает в любом случае.
+     * @return реестр сессий.
+     */
+    public static SessionRegistry start(long idleTimeoutMillis, long absoluteTimeoutMillis) {
+        SessionRegistry registry = new SessionRegistry(idleTimeoutMillis, absoluteTimeoutMillis, 1_000,
+                System::currentTimeMillis);
+        registry.startReaper();
+        return registry;
+    }
+
+    /**
+     * Открывает сессию пользователя.
+     *
+     * @param user вошедший пользователь.
+     * @return токен сессии.
+     */
+    public String open(User user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = encoder.encodeToString(bytes);
+        RegisteredSession session = new RegisteredSession(token, user, clock.getAsLong());
+        sessions.put(token, session);
+        created.add(session);
+        return token;
+    }
+
+    /**
+     * Находит действующую сессию по токену и отмечает ее использование.
+     * <p>
+     * Пользователь сессии читается один раз, и возвращается снимок с этим пользователем: одновременный
+     * выход или блокировка не обнулят пользователя у вызывающего кода посреди обработки запроса.
+     *
+     * @param token токен сессии.
+     * @return снимок сессии или пустое значение, если токен неизвестен, сессия истекла
+     * или пользователь заблокирован.
+     */
+    public Optional<Session> find(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        RegisteredSession session = sessions.get(token);
+        if (session == null) {
+            return Optional.empty();
+        }
+        long now = clock.getAsLong();
+        User user = session.getUser();
+        if (deadline(session) <= now || user == null || user.isBlocked()) {
+            sessions.remove(token, session);
+            return Optional.empty();
+        }
+        if (session.lastAccess != now) {
+            session.lastAccess = now;
+        }
+        Session snapshot = new Session();
+        snapshot.setUser(user);
+        return Optional.of(snapshot);
+    }
+
+    /**
+     * Закрывает сессию. Неизвестный токен игнорируется.
+     *
+     * @param token токен сессии.
+     */
+    public void close(String token) {
+        RegisteredSession session = token == null ? null : sessions.remove(token);
+        if (session != null) {
+            session.logout();
+        }
+    }
+
+    /**
+     * Закрывает все сессии пользователя, например после его блокировки или удаления.
+     * Просматривает все сессии, поэтому предназначен для редких административных действий.
+     *
+     * @param userId идентификатор пользователя.
+     * @return количество закрытых сессий.
+     */
+    public int closeAll(long userId) {
+        int closed = 0;
+        for (RegisteredSession session : sessions.values()) {
+            User user = session.getUser();
+            if (user != null && user.getId() == userId && sessions.remove(session.token, session)) {
+                session.logout();
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    /**
+     * Подменяет пользователя во всех его сессиях, чтобы после изменения профиля сессии не держали
+     * устаревшую копию.
+     *
+     * @param user измененный пользователь.
+     */
+    public void updateUser(User user) {
+        for (RegisteredSession session : sessions.values()) {
+            User current = session.getUser();
+            if (current != null && current.getId() == user.getId()) {
+                session.setUser(user);
+            }
+        }
+    }
+
+    /**
+     * Возвращает количество сессий, включая истекшие, но еще не удаленные.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Продвигает колесо таймеров до текущего времени и удаляет истекшие сессии.
+     * Вызывается фоновым потоком, а в тестах - напрямую.
+     *
+     * @return количество удаленных сессий.
+     */
+    public synchronized int expire() {
+        long now = clock.getAsLong();
+        RegisteredSession session;
+        while ((session = created.poll()) != null) {
+            schedule(session, deadline(session));
+        }
+        int expired = 0;
+        long targetTick = now / tickMillis;
+        while (processedTick < targetTick) {
+            processedTick++;
+            List<RegisteredSession> slot = wheel.get(slotOf(processedTick));
+            if (slot.isEmpty()) {
+                continue;
+            }
+            List<RegisteredSession> due = new ArrayList<>(slot);
+            slot.clear();
+            for (RegisteredSession candidate : due) {
+                if (sessions.get(candidate.token) != candidate) {
+                    continue;
+                }
+                long deadline = deadline(candidate);
+                if (deadline <= now) {
+                    if (sessions.remove(candidate.token, candidate)) {
+                        expired++;
+                    }
+                } else {
+                    schedule(candidate, deadline);
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Запускает фоновое удаление истекших сессий раз в такт.
+     */
+    public synchronized void startReaper() {
+        if (reaper != null) {
+            return;
+        }
+        reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reaper.scheduleAtFixedRate(this::expire, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (reaper != null) {
+            reaper.shutdownNow();
+            reaper = null;
+        }
+    }
+
+    /**
+     * Кладет сессию в ячейку ее срока. Срок дальше оборота колеса попадает в ячейку по модулю
+     * и переносится при каждом проходе, пока не наступит.
+     */
+    private void schedule(RegisteredSession session, long deadline) {
+        long tick = Math.max(processedTick + 1, (deadline + tickMillis - 1) / tickMillis);
+        wheel.get(slotOf(tick)).add(session);
+    }
+
+    private long deadline(RegisteredSession session) {
+        return Math.min(session.lastAccess + idleTimeoutMillis, session.created + absoluteTimeoutMillis);
+    }
+
+    private static int slotOf(long tick) {
+        return (int) (tick & (WHEEL_SIZE - 1));
+    }
+
+    /**
+     * Сессия реестра. Наследует {@link Session}, чтобы запись реестра занимала один объект.
+     */
+    private static final class RegisteredSession extends Session {
+        private final String token;
+        private final long created;
+        private volatile long lastAccess;
+
+        private RegisteredSession(String token, User user, long created) {
+            this.token = token;
+            this.created = created;
+            this.lastAccess = created;
+            setUser(user);
+        }
+    }
+}
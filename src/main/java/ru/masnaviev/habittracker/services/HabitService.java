@@ -1,31 +1,89 @@
 package ru.masnaviev.habittracker.services;
 
+import ru.masnaviev.habittracker.controllers.util.ExecutionMark;
+import ru.masnaviev.habittracker.controllers.util.MarkResult;
 import ru.masnaviev.habittracker.controllers.util.StatisticEntity;
 import ru.masnaviev.habittracker.controllers.util.TimePeriod;
+import ru.masnaviev.habittracker.models.ExecutionHistory;
 import ru.masnaviev.habittracker.models.Frequency;
 import ru.masnaviev.habittracker.models.Habit;
 import ru.masnaviev.habittracker.models.Status;
+import ru.masnaviev.habittracker.models.memory.DayBitmap;
 import ru.masnaviev.habittracker.out.repositories.HabitRepository;
+import ru.masnaviev.habittracker.services.util.ExecutionPipeline;
+import ru.masnaviev.habittracker.services.util.StatisticCache;
+import ru.masnaviev.habittracker.services.util.StatisticSettings;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Сервис для управления привычками пользователей.
  * <p>
  * Этот класс предоставляет методы для создания, обновления, удаления и получения привычек,
  * а также для отслеживания выполнения привычек и расчета статистики.
+ * Статистика может кэшироваться: каждое изменение привычки сбрасывает кэш ее владельца.
+ * Статистика пользователя с большим количеством привычек может рассчитываться параллельно
+ * в {@link java.util.concurrent.ForkJoinPool}, см. {@link StatisticSettings}.
+ * <p>
+ * Если задан {@link ExecutionPipeline}, отметка, пакет отметок и импорт меняют только историю привычки,
+ * сохраняют отметки и помечают статистику владельца устаревшей, а на каждую добавленную дату публикуют
+ * событие: производные данные (удаление записей кэша, сводки по дням, аудит) обновляют обработчики
+ * конвейера вне пути запроса. Если обработчики отстают, запись отклоняется до изменения состояния.
  */
 public class HabitService {
 
+    private static final int MIN_LEAF_SIZE = 32;
+
     private final HabitRepository habitRepository;
+    private final StatisticCache statisticCache;
+    private final StatisticSettings statisticSettings;
+    private final ExecutionPipeline executionPipeline;
 
     public HabitService(HabitRepository habitRepository) {
+        this(habitRepository, null);
+    }
+
+    /**
+     * @param habitRepository хранилище привычек.
+     * @param statisticCache  кэш статистики или {@code null}, если статистику не нужно кэшировать.
+     */
+    public HabitService(HabitRepository habitRepository, StatisticCache statisticCache) {
+        this(habitRepository, statisticCache, StatisticSettings.sequential());
+    }
+
+    /**
+     * @param habitRepository   хранилище привычек.
+     * @param statisticCache    кэш статистики или {@code null}, если статистику не нужно кэшировать.
+     * @param statisticSettings параметры параллельного расчета статистики.
+     */
+    public HabitService(HabitRepository habitRepository, StatisticCache statisticCache,
+                        StatisticSettings statisticSettings) {
+        this(habitRepository, statisticCache, statisticSettings, null);
+    }
+
+    /**
+     * @param habitRepository   хранилище привычек.
+     * @param statisticCache    кэш статистики или {@code null}, если статистику не нужно кэшировать.
+     * @param statisticSettings параметры параллельного расчета статистики.
+     * @param executionPipeline конвейер событий отметки выполнения или {@code null}, если производные данные
+     *                          обновляются при записи.
+     */
+    public HabitService(HabitRepository habitRepository, StatisticCache statisticCache,
+                        StatisticSettings statisticSettings, ExecutionPipeline executionPipeline) {
         this.habitRepository = habitRepository;
+        this.statisticCache = statisticCache;
+        this.statisticSettings = statisticSettings;
+        this.executionPipeline = executionPipeline;
     }
 
     /**
@@ -37,7 +95,9 @@ public class HabitService {
      */
     public Habit create(Habit habit, long userId) {
         habit.setUserId(userId);
-        return habitRepository.add(habit);
+        Habit created = habitRepository.add(habit);
+        invalidateStatistic(userId);
+        return created;
     }
 
     /**
@@ -50,6 +110,8 @@ public class HabitService {
     public Habit update(Habit habit, long id) {
         Habit existingHabit = get(id);
         copyNonNullFields(habit, existingHabit);
+        habitRepository.update(existingHabit);
+        invalidateStatistic(existingHabit.getUserId());
         return existingHabit;
     }
 
@@ -59,7 +121,7 @@ public class HabitService {
      * @param id Идентификатор привычки, которую необходимо удалить.
      */
     public void delete(long id) {
-        habitRepository.delete(id);
+        deleteHabit(id);
     }
 
     /**
@@ -94,14 +156,205 @@ public class HabitService {
      *
      * @param id Идентификатор привычки.
      * @throws IllegalStateException если привычка уже выполнена сегодня или на этой неделе (в зависимости от частоты).
+     * @throws java.util.concurrent.RejectedExecutionException если обработчики конвейера событий не успевают;
+     *                                                          отметка в этом случае не сохраняется.
      */
     public void addHabitExecution(long id) {
         Habit habit = get(id);
-        habitAlreadyCompleted(habit);
-        if (habit.getStatus().equals(Status.CREATED)) {
-            habit.setStatus(Status.IN_PROGRESS);
+        LocalDate today = LocalDate.now();
+        if (executionPipeline != null) {
+            synchronized (habit.getExecutionHistory()) {
+                habitAlreadyCompleted(habit);
+            }
+            executionPipeline.awaitCapacity();
+        }
+        synchronized (habit.getExecutionHistory()) {
+            habitAlreadyCompleted(habit);
+            if (habit.getStatus().equals(Status.CREATED)) {
+                habit.setStatus(Status.IN_PROGRESS);
+            }
+            habit.getExecutionHistory().add(today);
+            habitRepository.saveExecution(id, today);
+        }
+        executionsAdded(id, habit.getUserId(), List.of(today));
+    }
+
+    /**
+     * Отмечает выполнения привычек пользователя за указанные дни, например накопленные клиентом без связи.
+     * <p>
+     * Отметки группируются по привычкам: каждая привычка загружается и проверяется на принадлежность
+     * пользователю один раз, ее история блокируется один раз, а принятые отметки добавляются в историю
+     * и сохраняются одним изменением. Отметки проверяются по тем же правилам, что и отметка за сегодня,
+     * с учетом уже принятых отметок того же пакета; отклоненная отметка не мешает остальным.
+     *
+     * @param userId идентификатор пользователя.
+     * @param marks  отметки в любом порядке.
+     * @return результаты в порядке отметок.
+     * @throws java.util.concurrent.RejectedExecutionException если обработчики конвейера событий не успевают;
+     *                                                          отметки в этом случае не сохраняются.
+     */
+    public List<MarkResult> addHabitExecutions(long userId, List<ExecutionMark> marks) {
+        if (executionPipeline != null && !marks.isEmpty()) {
+            executionPipeline.awaitCapacity();
+        }
+        Map<Long, List<Integer>> indexesByHabit = new LinkedHashMap<>();
+        for (int i = 0; i < marks.size(); i++) {
+            indexesByHabit.computeIfAbsent(marks.get(i).getHabitId(), habitId -> new ArrayList<>()).add(i);
+        }
+        MarkResult[] results = new MarkResult[marks.size()];
+        LocalDate today = LocalDate.now();
+        for (Map.Entry<Long, List<Integer>> entry : indexesByHabit.entrySet()) {
+            Optional<Habit> found = habitRepository.findById(entry.getKey());
+            if (found.isEmpty() || found.get().getUserId() != userId) {
+                for (int index : entry.getValue()) {
+                    results[index] = result(marks.get(index), MarkResult.Outcome.NOT_FOUND,
+                            "Привычки с таким id не существует");
+                }
+                continue;
+            }
+            List<LocalDate> accepted = addHabitExecutions(found.get(), marks, entry.getValue(), results, today);
+            if (!accepted.isEmpty()) {
+                executionsAdded(entry.getKey(), userId, accepted);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Проверяет и добавляет отметки одной привычки под одной блокировкой ее истории.
+     *
+     * @return добавленные даты по возрастанию.
+     */
+    private List<LocalDate> addHabitExecutions(Habit habit, List<ExecutionMark> marks, List<Integer> indexes,
+                                       MarkResult[] results, LocalDate today) {
+        ExecutionHistory history = habit.getExecutionHistory();
+        synchronized (history) {
+            TreeSet<LocalDate> accepted = new TreeSet<>();
+            for (int index : indexes) {
+                ExecutionMark mark = marks.get(index);
+                LocalDate date = mark.getDate();
+                if (date == null || date.isAfter(today)) {
+                    results[index] = result(mark, MarkResult.Outcome.INVALID_DATE,
+                            "Нельзя отметить выполнение за день, который еще не наступил.");
+                } else if (completedAround(habit, date, accepted)) {
+                    results[index] = result(mark, MarkResult.Outcome.ALREADY_COMPLETED,
+                            habit.getFrequency() == Frequency.WEEKLY ? "Привычка уже выполнена на этой неделе."
+                                    : "Привычка уже выполнена в этот день.");
+                } else {
+                    accepted.add(date);
+                    results[index] = result(mark, MarkResult.Outcome.MARKED, null);
+                }
+            }
+            if (accepted.isEmpty()) {
+                return List.of();
+            }
+            List<LocalDate> dates = new ArrayList<>(accepted);
+            int[] days = new int[dates.size()];
+            for (int i = 0; i < days.length; i++) {
+                days[i] = Math.toIntExact(dates.get(i).toEpochDay());
+            }
+            if (habit.getStatus().equals(Status.CREATED)) {
+                habit.setStatus(Status.IN_PROGRESS);
+            }
+            history.addEpochDays(days);
+            habitRepository.saveExecutions(habit.getId(), dates);
+            return dates;
+        }
+    }
+
+    /**
+     * Импортирует прошлые выполнения привычки, например перенесенные из другого трекера.
+     * <p>
+     * Даты сортируются и очищаются от повторов до блокировки истории, затем сливаются с историей за один
+     * линейный проход, поэтому чтение истории другими потоками ждет только слияния. Сохраняются только
+     * даты, которых еще не было в истории. Импортируемые даты - уже состоявшиеся факты, поэтому правило
+     * одной отметки в день или неделю к ним не применяется.
+     *
+     * @param id    идентификатор привычки.
+     * @param dates даты выполнения в любом порядке, возможно с повторами.
+     * @return количество добавленных дат.
+     * @throws IllegalArgumentException если среди дат есть еще не наступивший день.
+     * @throws NoSuchElementException   если привычки не существует.
+     * @throws java.util.concurrent.RejectedExecutionException если обработчики конвейера событий не успевают;
+     *                                                          отметки в этом случае не сохраняются.
+     */
+    public int importExecutions(long id, Collection<LocalDate> dates) {
+        Habit habit = get(id);
+        long today = LocalDate.now().toEpochDay();
+        int[] epochDays = new int[dates.size()];
+        int count = 0;
+        for (LocalDate date : dates) {
+            if (date == null || date.toEpochDay() > today) {
+                throw new IllegalArgumentException("Нельзя импортировать выполнение за день, который еще не наступил.");
+            }
+            epochDays[count++] = Math.toIntExact(date.toEpochDay());
+        }
+        int[] sorted = ExecutionHistory.sortedDistinct(epochDays);
+        if (executionPipeline != null && sorted.length > 0) {
+            executionPipeline.awaitCapacity();
+        }
+        ExecutionHistory history = habit.getExecutionHistory();
+        List<LocalDate> addedDates;
+        synchronized (history) {
+            int[] added = history.mergeSortedEpochDays(sorted);
+            if (added.length == 0) {
+                return 0;
+            }
+            if (habit.getStatus().equals(Status.CREATED)) {
+                habit.setStatus(Status.IN_PROGRESS);
+            }
+            addedDates = new ArrayList<>(added.length);
+            for (int day : added) {
+                addedDates.add(LocalDate.ofEpochDay(day));
+            }
+            habitRepository.saveExecutions(id, addedDates);
+        }
+        executionsAdded(id, habit.getUserId(), addedDates);
+        return addedDates.size();
+    }
+
+    /**
+     * Обновляет производные данные после добавления отметок привычки. Без конвейера сбрасывает статистику
+     * владельца; с конвейером помечает ее устаревшей и публикует событие на каждую дату, занимая ячейки
+     * уже после изменения: если обработчики отстают, вызов ждет, а не отклоняет сохраненные отметки.
+     * Вызывается вне блокировки истории.
+     */
+    private void executionsAdded(long habitId, long userId, List<LocalDate> dates) {
+        if (executionPipeline == null) {
+            invalidateStatistic(userId);
+            return;
+        }
+        if (statisticCache != null) {
+            statisticCache.markStale(userId);
+        }
+        long timestamp = System.currentTimeMillis();
+        for (LocalDate date : dates) {
+            long sequence = executionPipeline.claim();
+            try {
+                executionPipeline.get(sequence).set(habitId, userId, date, timestamp);
+            } finally {
+                executionPipeline.publish(sequence);
+            }
+        }
+    }
+
+    /**
+     * Проверяет, выполнена ли привычка в день отметки, а еженедельная - в пределах недели от него.
+     * Учитываются и отметки, уже принятые в том же пакете.
+     */
+    private boolean completedAround(Habit habit, LocalDate date, TreeSet<LocalDate> accepted) {
+        int window = habit.getFrequency() == Frequency.WEEKLY ? 6 : 0;
+        LocalDate from = date.minusDays(window);
+        LocalDate to = date.plusDays(window);
+        if (habit.getExecutionHistory().countBetween(from, to) > 0) {
+            return true;
         }
-        habit.getExecutionHistory().add(LocalDate.now());
+        LocalDate nearest = accepted.ceiling(from);
+        return nearest != null && !nearest.isAfter(to);
+    }
+
+    private static MarkResult result(ExecutionMark mark, MarkResult.Outcome outcome, String message) {
+        return new MarkResult(mark.getHabitId(), mark.getDate(), outcome, message);
     }
 
     /**
@@ -113,13 +366,19 @@ public class HabitService {
      */
     public List<LocalDate> getExecutions(long id, TimePeriod timePeriod) {
         exists(id);
-        LocalDate start;
-        switch (timePeriod) {
-            case DAY -> start = LocalDate.now().minusDays(1);
-            case WEEK -> start = LocalDate.now().minusWeeks(1);
-            default -> start = LocalDate.now().minusMonths(1);
-        }
-        return habitRepository.getStatistic(id, start, LocalDate.now());
+        return habitRepository.getStatistic(id, periodStart(timePeriod), LocalDate.now());
+    }
+
+    /**
+     * Получает количество выполнений привычки за указанный период без построения списка дат.
+     *
+     * @param id         Идентификатор привычки.
+     * @param timePeriod Период времени (день, неделя или месяц).
+     * @return Количество выполнений привычки.
+     */
+    public int countExecutions(long id, TimePeriod timePeriod) {
+        exists(id);
+        return habitRepository.countExecutions(id, periodStart(timePeriod), LocalDate.now());
     }
 
     /**
@@ -130,19 +389,75 @@ public class HabitService {
      * @return Список статистики для привычек пользователя.
      */
     public List<StatisticEntity> getStatistic(long userId, TimePeriod timePeriod) {
+        LocalDate today = LocalDate.now();
+        if (statisticCache == null) {
+            return calculateStatistic(userId, timePeriod, today);
+        }
+        return statisticCache.get(userId, timePeriod, today, () -> calculateStatistic(userId, timePeriod, today));
+    }
+
+    /**
+     * Получает дни периода, в которые пользователь выполнил все свои привычки.
+     * <p>
+     * Отметки каждой привычки за период берутся битовой картой дней, и карты пересекаются по словам;
+     * обход прекращается, как только пересечение становится пустым.
+     *
+     * @param userId     Идентификатор пользователя.
+     * @param timePeriod Период времени (день, неделя или месяц).
+     * @return Дни по возрастанию; пустой список, если у пользователя нет привычек.
+     */
+    public List<LocalDate> getDaysAllCompleted(long userId, TimePeriod timePeriod) {
+        LocalDate today = LocalDate.now();
+        LocalDate start = periodStart(timePeriod, today);
+        DayBitmap completed = null;
+        for (Habit habit : habitRepository.getAll(userId)) {
+            DayBitmap days = habit.getExecutionHistory().toBitmap(start, today);
+            completed = completed == null ? days : completed.and(days);
+            if (completed.cardinality() == 0) {
+                break;
+            }
+        }
+        List<LocalDate> dates = new ArrayList<>();
+        if (completed != null) {
+            for (int day : completed.toArray()) {
+                dates.add(LocalDate.ofEpochDay(day));
+            }
+        }
+        return dates;
+    }
+
+    private List<StatisticEntity> calculateStatistic(long userId, TimePeriod timePeriod, LocalDate today) {
         List<Habit> habits = habitRepository.getAll(userId);
-        List<StatisticEntity> statistics = new ArrayList<>();
+        LocalDate start = periodStart(timePeriod, today);
+        int parallelThreshold = statisticSettings.getParallelThreshold();
+        if (parallelThreshold > 0 && habits.size() >= parallelThreshold) {
+            Habit[] source = habits.toArray(new Habit[0]);
+            StatisticEntity[] target = new StatisticEntity[source.length];
+            int leafSize = Math.max(MIN_LEAF_SIZE, source.length / (statisticSettings.getPool().getParallelism() * 4));
+            statisticSettings.getPool().invoke(
+                    new StatisticTask(source, target, 0, source.length, leafSize, timePeriod, start, today));
+            return new ArrayList<>(Arrays.asList(target));
+        }
+        List<StatisticEntity> statistics = new ArrayList<>(habits.size());
         for (Habit habit : habits) {
-            StatisticEntity statistic = new StatisticEntity();
-            statistic.setHabitId(habit.getId());
+            statistics.add(calculateStatistic(habit, timePeriod, start, today));
+        }
+        return statistics;
+    }
 
-            List<LocalDate> executions = getExecutions(habit, timePeriod);
+    private StatisticEntity calculateStatistic(Habit habit, TimePeriod timePeriod, LocalDate start, LocalDate today) {
+        StatisticEntity statistic = new StatisticEntity();
+        statistic.setHabitId(habit.getId());
+
+        ExecutionHistory history = habit.getExecutionHistory();
+        synchronized (history) {
+            List<LocalDate> executions = history.between(start, today);
             statistic.setHabitExecutions(executions);
-            statistic.setCurrentStreak(calculateStreak(executions, habit.getFrequency()));
-            statistic.setSuccessRate(calculateSuccessRate(executions.size(), habit, timePeriod));
-            statistics.add(statistic);
+            statistic.setCurrentStreak(calculateStreak(history, habit.getFrequency(), start, today));
+            statistic.setLongestStreak(habit.getFrequency() == Frequency.DAILY ? history.longestStreak() : 0);
+            statistic.setSuccessRate(calculateSuccessRate(executions.size(), habit, timePeriod, today));
         }
-        return statistics;
+        return statistic;
     }
 
     /**
@@ -160,7 +475,15 @@ public class HabitService {
      * @param habitId Идентификатор привычки, которую необходимо удалить.
      */
     public void deleteHabit(long habitId) {
+        if (statisticCache == null) {
+            habitRepository.delete(habitId);
+            return;
+        }
+        Habit habit = habitRepository.findById(habitId).orElse(null);
         habitRepository.delete(habitId);
+        if (habit != null) {
+            invalidateStatistic(habit.getUserId());
+        }
     }
 
     /**
@@ -171,14 +494,36 @@ public class HabitService {
      * @return Список дат выполнения привычки.
      */
     public List<LocalDate> getExecutions(Habit habit, TimePeriod timePeriod) {
-        LocalDate start;
-        switch (timePeriod) {
-            case DAY -> start = LocalDate.now().minusDays(1);
-            case WEEK -> start = LocalDate.now().minusWeeks(1);
-            default -> start = LocalDate.now().minusMonths(1);
+        return habit.getExecutionHistory().between(periodStart(timePeriod), LocalDate.now());
+    }
+
+    /**
+     * Получает количество выполнений привычки за указанный период.
+     *
+     * @param habit      Привычка.
+     * @param timePeriod Период времени (день, неделя или месяц).
+     * @return Количество выполнений привычки.
+     */
+    public int countExecutions(Habit habit, TimePeriod timePeriod) {
+        return habit.getExecutionHistory().countBetween(periodStart(timePeriod), LocalDate.now());
+    }
+
+    private LocalDate periodStart(TimePeriod timePeriod) {
+        return periodStart(timePeriod, LocalDate.now());
+    }
+
+    private LocalDate periodStart(TimePeriod timePeriod, LocalDate today) {
+        return switch (timePeriod) {
+            case DAY -> today.minusDays(1);
+            case WEEK -> today.minusWeeks(1);
+            default -> today.minusMonths(1);
+        };
+    }
+
+    private void invalidateStatistic(long userId) {
+        if (statisticCache != null) {
+            statisticCache.invalidate(userId);
         }
-        return habit.getExecutionHistory().stream().filter(
-                a -> !a.isBefore(start)).filter(a -> !a.isAfter(LocalDate.now())).collect(Collectors.toList());
     }
 
     private void copyNonNullFields(Habit source, Habit target) {
@@ -193,36 +538,19 @@ public class HabitService {
         }
     }
 
-    private long calculateStreak(List<LocalDate> executions, Frequency frequency) {
-        if (executions.isEmpty()) {
-            return 0;
-        }
-        Collections.sort(executions);
-        long streak = 0;
-        LocalDate previousDate = executions.get(executions.size() - 1);
-        for (int i = executions.size() - 1; i >= 0; i--) {
-            LocalDate currentDate = executions.get(i);
-            if (frequency == Frequency.DAILY) {
-                if (previousDate.equals(currentDate) || previousDate.minusDays(1).equals(currentDate)) {
-                    streak++;
-                    previousDate = currentDate;
-                } else break;
-            } else if (frequency == Frequency.WEEKLY) {
-                if (previousDate.minusWeeks(1).equals(currentDate)) {
-                    streak++;
-                    previousDate = currentDate;
-                } else break;
-            }
+    private long calculateStreak(ExecutionHistory history, Frequency frequency, LocalDate start, LocalDate end) {
+        if (frequency == Frequency.DAILY) {
+            return history.streakBetween(start, end);
         }
-        return streak;
+        return 0;
     }
 
-    private double calculateSuccessRate(int executionsCount, Habit habit, TimePeriod timePeriod) {
+    private double calculateSuccessRate(int executionsCount, Habit habit, TimePeriod timePeriod, LocalDate today) {
         long totalDays;
         switch (timePeriod) {
             case DAY -> totalDays = 1;
             case WEEK -> totalDays = 7;
-            default -> totalDays = LocalDate.now().lengthOfMonth();
+            default -> totalDays = today.lengthOfMonth();
         }
         if (habit.getFrequency() == Frequency.DAILY) {
             return totalDays > 0 ? (double) executionsCount / totalDays * 100 : 0;
@@ -240,11 +568,53 @@ public class HabitService {
     }
 
     private void habitAlreadyCompleted(Habit habit) {
+        LocalDate latest = habit.getExecutionHistory().latest();
         if (habit.getFrequency() == Frequency.DAILY && habit.getExecutionHistory().contains(LocalDate.now())) {
             throw new IllegalStateException("Привычка уже выполнена сегодня.");
-        } else if (habit.getFrequency() == Frequency.WEEKLY && habit.getExecutionHistory().stream().anyMatch(
-                date -> date.isAfter(LocalDate.now().minusDays(7)))) {
+        } else if (habit.getFrequency() == Frequency.WEEKLY && latest != null
+                && latest.isAfter(LocalDate.now().minusDays(7))) {
             throw new IllegalStateException("Привычка уже выполнена на этой неделе.");
         }
     }
+
+    /**
+     * Рассчитывает статистику диапазона привычек, деля его пополам, пока он не станет меньше листа.
+     */
+    private class StatisticTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Habit[] habits;
+        private final StatisticEntity[] statistics;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final TimePeriod timePeriod;
+        private final LocalDate start;
+        private final LocalDate today;
+
+        private StatisticTask(Habit[] habits, StatisticEntity[] statistics, int from, int to, int leafSize,
+                              TimePeriod timePeriod, LocalDate start, LocalDate today) {
+            this.habits = habits;
+            this.statistics = statistics;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.timePeriod = timePeriod;
+            this.start = start;
+            this.today = today;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                for (int i = from; i < to; i++) {
+                    statistics[i] = calculateStatistic(habits[i], timePeriod, start, today);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new StatisticTask(habits, statistics, from, middle, leafSize, timePeriod, start, today),
+                    new StatisticTask(habits, statistics, middle, to, leafSize, timePeriod, start, today));
+        }
+    }
 }
@@ -29,12 +29,13 @@ public class UserService {
      * @throws IllegalArgumentException если пользователь с таким email уже существует
      */
     public User create(User user) {
-        userAlreadyExists(user.getEmail());
         return userRepository.add(user);
     }
 
     /**
      * Метод для обновления данных пользователя.
+     * Изменения применяются к копии пользователя, поэтому при отказе репозитория
+     * сохраненный пользователь остается прежним.
      *
      * @param updatedUser объект с обновлёнными данными пользователя
      * @param id          идентификатор пользователя, которого необходимо обновить
@@ -50,8 +51,11 @@ public class UserService {
                 throw new IllegalArgumentException("Пользователь с таким email уже существует");
             }
         }
-        copyNonNullFields(updatedUser, existingUser);
-        return existingUser;
+        User user = new User(existingUser.getRole(), existingUser.getId(), existingUser.getEmail(),
+                existingUser.getPassword(), existingUser.getName(), existingUser.isBlocked());
+        copyNonNullFields(updatedUser, user);
+        userRepository.update(user);
+        return user;
     }
 
     /**
@@ -104,6 +108,7 @@ public class UserService {
             System.out.println("Нельзя заблокировать администратора");
         } else {
             user.setBlocked(true);
+            userRepository.update(user);
         }
     }
 
@@ -113,7 +118,10 @@ public class UserService {
      * @param userId идентификатор пользователя, которого необходимо разблокировать
      */
     public void unblockUser(long userId) {
-        userRepository.findById(userId).ifPresent(user -> user.setBlocked(false));
+        userRepository.findById(userId).ifPresent(user -> {
+            user.setBlocked(false);
+            userRepository.update(user);
+        });
     }
 
     /**
@@ -156,11 +164,6 @@ public class UserService {
         }
     }
 
-    private void userAlreadyExists(String email) {
-        if (userRepository.isExistsByEmail(email))
-            throw new IllegalArgumentException("Пользователь с таким email уже существует");
-    }
-
     private User findByEmail(String email) {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new NoSuchElementException("Пользователя с таким email не существует"));
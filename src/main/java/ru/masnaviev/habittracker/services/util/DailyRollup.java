@@ -0,0 +1,47 @@
+package ru.masnaviev.habittracker.services.util;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Количество отметок выполнения по дням для всех пользователей. Обновляется обработчиком
+ * {@link ExecutionPipeline}, поэтому может отставать от записей на несколько событий.
+ * Хранятся только последние {@value #RETAINED_DAYS} дней.
+ */
+public class DailyRollup implements ExecutionEventHandler {
+
+    private static final int RETAINED_DAYS = 366;
+
+    private final ConcurrentNavigableMap<LocalDate, Long> counts = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void onEvent(ExecutionEvent event) {
+        if (counts.merge(event.getDate(), 1L, Long::sum) == 1L) {
+            counts.headMap(event.getDate().minusDays(RETAINED_DAYS)).clear();
+        }
+    }
+
+    /**
+     * Возвращает количество отметок за день.
+     */
+    public long getCount(LocalDate date) {
+        return counts.getOrDefault(date, 0L);
+    }
+
+    /**
+     * Возвращает количество отметок по дням за последние дни, включая сегодня. Дни без отметок не входят.
+     *
+     * @param days количество дней.
+     * @return количество отметок по дням в порядке возрастания дат.
+     */
+    public Map<LocalDate, Long> getCounts(int days) {
+        if (days <= 0) {
+            throw new IllegalArgumentException("Количество дней должно быть положительным");
+        }
+        LocalDate today = LocalDate.now();
+        return new TreeMap<>(counts.subMap(today.minusDays(days - 1L), true, today, true));
+    }
+}
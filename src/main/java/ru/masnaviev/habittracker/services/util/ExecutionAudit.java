@@ -0,0 +1,56 @@
+package ru.masnaviev.habittracker.services.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Журнал аудита отметок выполнения: строка на отметку с временем, привычкой, владельцем и днем.
+ * Обработчик {@link ExecutionPipeline} пишет строки в буфер и сбрасывает его один раз на пачку событий.
+ */
+public class ExecutionAudit implements ExecutionEventHandler, Closeable {
+
+    private final Writer writer;
+
+    public ExecutionAudit(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Открывает журнал аудита в файле, дописывая строки в конец.
+     */
+    public static ExecutionAudit open(Path file) throws IOException {
+        return new ExecutionAudit(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+
+    @Override
+    public void onEvent(ExecutionEvent event) {
+        try {
+            writer.write(Instant.ofEpochMilli(event.getTimestamp()) + " habit=" + event.getHabitId()
+                    + " user=" + event.getUserId() + " date=" + event.getDate() + "\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать журнал аудита", e);
+        }
+    }
+
+    @Override
+    public void onBatchEnd() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось сбросить журнал аудита", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
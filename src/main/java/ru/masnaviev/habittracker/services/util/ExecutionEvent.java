@@ -0,0 +1,77 @@
+package ru.masnaviev.habittracker.services.util;
+
+import java.time.LocalDate;
+
+/**
+ * Событие отметки выполнения привычки в {@link ExecutionPipeline}.
+ * <p>
+ * Объекты событий создаются один раз вместе с кольцевым буфером и переиспользуются: запись заполняет
+ * занятую ячейку, а обработчики читают ее до того, как ячейка будет занята снова. Поэтому обработчик
+ * не должен сохранять ссылку на событие - только скопированные из него значения.
+ */
+public final class ExecutionEvent {
+
+    private long habitId;
+    private long userId;
+    private LocalDate date;
+    private long timestamp;
+
+    /**
+     * Создает событие вне буфера, например чтобы вызвать обработчики напрямую.
+     */
+    public ExecutionEvent() {
+    }
+
+    /**
+     * Заполняет событие.
+     *
+     * @param habitId   идентификатор привычки.
+     * @param userId    идентификатор владельца привычки.
+     * @param date      отмеченный день.
+     * @param timestamp время отметки в миллисекундах эпохи.
+     */
+    public void set(long habitId, long userId, LocalDate date, long timestamp) {
+        this.habitId = habitId;
+        this.userId = userId;
+        this.date = date;
+        this.timestamp = timestamp;
+    }
+
+    void clear() {
+        set(0, 0, null, 0);
+    }
+
+    /**
+     * Возвращает {@code true}, если ячейка была занята, но отметка не состоялась. Такие события
+     * обработчикам не передаются.
+     */
+    boolean isEmpty() {
+        return date == null;
+    }
+
+    public long getHabitId() {
+        return habitId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionEvent{" +
+                "habitId=" + habitId +
+                ", userId=" + userId +
+                ", date=" + date +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
@@ -0,0 +1,21 @@
+package ru.masnaviev.habittracker.services.util;
+
+/**
+ * Обработчик событий отметки выполнения. Каждый обработчик {@link ExecutionPipeline} вызывается
+ * из своего потока, события приходят в порядке публикации.
+ */
+@FunctionalInterface
+public interface ExecutionEventHandler {
+
+    /**
+     * Обрабатывает событие. Ссылку на событие сохранять нельзя: ячейка буфера будет переиспользована.
+     */
+    void onEvent(ExecutionEvent event);
+
+    /**
+     * Вызывается после пачки событий, которые обработчик забрал из буфера за один проход, например
+     * чтобы один раз сбросить буферизованную запись на диск.
+     */
+    default void onBatchEnd() {
+    }
+}
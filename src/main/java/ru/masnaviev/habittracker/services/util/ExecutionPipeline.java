@@ -0,0 +1,333 @@
+package ru.masnaviev.habittracker.services.util;
+
+import java.io.Closeable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ограниченный конвейер событий отметки выполнения на кольцевом буфере, по образцу LMAX Disruptor.
+ * <p>
+ * Ячейки буфера и объекты событий создаются заранее. Запись занимает следующий номер
+ * ({@link #next()}), заполняет событие ({@link #get(long)}) и публикует его ({@link #publish(long)});
+ * номер занимается сравнением с обменом, без блокировок, поэтому писать могут несколько потоков
+ * одновременно. Каждый обработчик работает в своем потоке со своим номером прочитанного события
+ * и забирает все опубликованные события пачкой.
+ * <p>
+ * Запись не может обогнать самый медленный обработчик больше чем на размер буфера. Если буфер полон,
+ * {@link #next()} ждет освобождения ячейки не дольше заданного времени и затем отклоняет запись
+ * {@link RejectedExecutionException}, ничего не заняв. Запись, которая публикует событие уже после изменения
+ * состояния, проверяет место заранее ({@link #awaitCapacity()}), пока еще может отказать клиенту, а ячейку
+ * занимает после изменения ({@link #claim()}) и при отставании обработчиков ждет ее сколько нужно.
+ * <p>
+ * Исключение обработчика учитывается в {@link #getHandlerErrors()} и не останавливает его поток.
+ */
+public class ExecutionPipeline implements Closeable {
+
+    private static final int SPIN_TRIES = 100;
+    private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ExecutionEvent[] events;
+    private final int mask;
+    private final int shift;
+    private final AtomicIntegerArray published;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final Processor[] processors;
+    private final long publishTimeoutNanos;
+    private final LongAdder stalls = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder handlerErrors = new LongAdder();
+    private volatile long gatingSequence = -1;
+    private volatile boolean closed;
+
+    /**
+     * @param bufferSize           количество ячеек буфера, степень двойки.
+     * @param publishTimeoutMillis сколько запись ждет свободной ячейки, если обработчики отстают,
+     *                             0 - отклонять запись сразу.
+     * @param handlers             обработчики, каждый в своем потоке.
+     */
+    public ExecutionPipeline(int bufferSize, long publishTimeoutMillis, ExecutionEventHandler... handlers) {
+        if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Размер буфера событий должен быть степенью двойки");
+        }
+        if (publishTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Время ожидания свободной ячейки не может быть отрицательным");
+        }
+        if (handlers.length == 0) {
+            throw new IllegalArgumentException("Нужен хотя бы один обработчик событий");
+        }
+        this.events = new ExecutionEvent[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            events[i] = new ExecutionEvent();
+        }
+        this.mask = bufferSize - 1;
+        this.shift = Integer.numberOfTrailingZeros(bufferSize);
+        this.published = new AtomicIntegerArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            published.set(i, -1);
+        }
+        this.publishTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(publishTimeoutMillis);
+        this.processors = new Processor[handlers.length];
+        for (int i = 0; i < handlers.length; i++) {
+            processors[i] = new Processor(handlers[i]);
+        }
+        for (int i = 0; i < processors.length; i++) {
+            Thread thread = new Thread(processors[i], "execution-pipeline-" + i);
+            thread.setDaemon(true);
+            processors[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Занимает следующую ячейку буфера. Занятую ячейку нужно опубликовать в любом случае, даже если запись
+     * не состоялась: незаполненное событие обработчикам не передается.
+     *
+     * @return номер занятой ячейки.
+     * @throws RejectedExecutionException если обработчики не освободили ячейку за время ожидания
+     *                                    или конвейер закрыт.
+     */
+    public long next() {
+        return next(true);
+    }
+
+    /**
+     * Занимает следующую ячейку буфера, ожидая ее освобождения сколько нужно. Предназначен для событий
+     * об уже выполненных изменениях, которые поздно отклонять; место для них проверяется заранее
+     * {@link #awaitCapacity()}.
+     *
+     * @return номер занятой ячейки.
+     * @throws RejectedExecutionException если конвейер закрыт.
+     */
+    public long claim() {
+        return next(false);
+    }
+
+    /**
+     * Ждет, пока в буфере появится свободная ячейка, не дольше заданного при создании времени.
+     * Ячейка не занимается, поэтому ее может занять другая запись - проверка ограничивает прием новых
+     * записей, пока обработчики отстают, а не гарантирует место.
+     *
+     * @throws RejectedExecutionException если обработчики не освободили ячейку за время ожидания
+     *                                    или конвейер закрыт.
+     */
+    public void awaitCapacity() {
+        if (closed) {
+            throw new RejectedExecutionException("Конвейер событий выполнения закрыт");
+        }
+        Backoff backoff = new Backoff(true);
+        while (cursor.get() + 1 - events.length > minimumSequence()) {
+            backoff.await();
+        }
+    }
+
+    private long next(boolean bounded) {
+        Backoff backoff = new Backoff(bounded);
+        while (true) {
+            long current = cursor.get();
+            long next = current + 1;
+            long wrapPoint = next - events.length;
+            if (wrapPoint > gatingSequence) {
+                long gating = minimumSequence();
+                gatingSequence = gating;
+                if (wrapPoint > gating) {
+                    backoff.await();
+                    continue;
+                }
+            }
+            if (closed) {
+                throw new RejectedExecutionException("Конвейер событий выполнения закрыт");
+            }
+            if (cursor.compareAndSet(current, next)) {
+                events[(int) next & mask].clear();
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Возвращает событие занятой ячейки для заполнения.
+     */
+    public ExecutionEvent get(long sequence) {
+        return events[(int) sequence & mask];
+    }
+
+    /**
+     * Публикует событие занятой ячейки, делая его видимым обработчикам.
+     */
+    public void publish(long sequence) {
+        published.lazySet((int) sequence & mask, (int) (sequence >>> shift));
+    }
+
+    /**
+     * Ждет, пока все обработчики обработают события, опубликованные до вызова.
+     *
+     * @return {@code true}, если обработчики успели за отведенное время.
+     */
+    public boolean awaitProcessed(long timeout, TimeUnit unit) {
+        long target = cursor.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (minimumSequence() < target) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(MIN_PARK_NANOS);
+        }
+        return true;
+    }
+
+    public int getBufferSize() {
+        return events.length;
+    }
+
+    /**
+     * Возвращает количество занятых ячеек, которые еще не обработал самый медленный обработчик.
+     */
+    public long getBacklog() {
+        return cursor.get() - minimumSequence();
+    }
+
+    /**
+     * Возвращает, сколько раз запись ждала свободной ячейки.
+     */
+    public long getStalls() {
+        return stalls.sum();
+    }
+
+    /**
+     * Возвращает количество записей, отклоненных из-за полного буфера.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getHandlerErrors() {
+        return handlerErrors.sum();
+    }
+
+    /**
+     * Закрывает конвейер: новые записи отклоняются, а обработчики дорабатывают уже занятые ячейки
+     * и завершаются.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            for (Processor processor : processors) {
+                LockSupport.unpark(processor.thread);
+                processor.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionPipeline{" +
+                "bufferSize=" + events.length +
+                ", backlog=" + getBacklog() +
+                ", stalls=" + getStalls() +
+                ", rejected=" + getRejected() +
+                ", handlerErrors=" + getHandlerErrors() +
+                '}';
+    }
+
+    private long minimumSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (Processor processor : processors) {
+            minimum = Math.min(minimum, processor.sequence.get());
+        }
+        return minimum;
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == (int) (sequence >>> shift);
+    }
+
+    /**
+     * Ожидание записи, которой не хватило места в буфере: сначала активное, затем с короткими паузами.
+     */
+    private final class Backoff {
+        private final boolean bounded;
+        private long deadline;
+        private int tries;
+
+        private Backoff(boolean bounded) {
+            this.bounded = bounded;
+        }
+
+        private void await() {
+            if (closed) {
+                throw new RejectedExecutionException("Конвейер событий выполнения закрыт");
+            }
+            if (tries == 0) {
+                deadline = System.nanoTime() + publishTimeoutNanos;
+                stalls.increment();
+            } else if (bounded && System.nanoTime() - deadline >= 0) {
+                rejected.increment();
+                throw new RejectedExecutionException("Обработчики событий выполнения не успевают, "
+                        + "повторите запрос позже");
+            }
+            if (tries++ < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(MIN_PARK_NANOS);
+            }
+        }
+    }
+
+    private final class Processor implements Runnable {
+        private final ExecutionEventHandler handler;
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private Thread thread;
+
+        private Processor(ExecutionEventHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            long parkNanos = 0;
+            while (true) {
+                long available = next - 1;
+                long claimed = cursor.get();
+                while (available < claimed && isPublished(available + 1)) {
+                    available++;
+                }
+                if (available < next) {
+                    if (closed && next > cursor.get()) {
+                        return;
+                    }
+                    parkNanos = parkNanos == 0 ? MIN_PARK_NANOS : Math.min(MAX_PARK_NANOS, parkNanos * 2);
+                    LockSupport.parkNanos(parkNanos);
+                    continue;
+                }
+                parkNanos = 0;
+                for (long current = next; current <= available; current++) {
+                    ExecutionEvent event = events[(int) current & mask];
+                    if (event.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        handler.onEvent(event);
+                    } catch (RuntimeException e) {
+                        handlerErrors.increment();
+                    }
+                }
+                try {
+                    handler.onBatchEnd();
+                } catch (RuntimeException e) {
+                    handlerErrors.increment();
+                }
+                sequence.set(available);
+                next = available + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package ru.masnaviev.habittracker.services.util;
+
+import ru.masnaviev.habittracker.controllers.util.StatisticEntity;
+import ru.masnaviev.habittracker.controllers.util.TimePeriod;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Ограниченный кэш статистики пользователей по периодам.
+ * <p>
+ * Записи вытесняются по давности использования, а вычисленная вчера статистика считается
+ * устаревшей: границы периода и процент выполнения зависят от текущей даты.
+ * Кэш разбит на сегменты, каждый со своей блокировкой, и все записи одного пользователя
+ * лежат в одном сегменте. Статистика, вычисленная одновременно с изменением привычек
+ * пользователя, в кэш не попадает.
+ * <p>
+ * Запись помнит поколение, при котором вычислена статистика. {@link #markStale} только увеличивает
+ * поколение, без блокировки сегмента, и запись после этого считается устаревшей; удалить ее можно позже,
+ * вне пути запроса ({@link #removeStale}). Поколения общие для пользователей с одинаковым хешем,
+ * поэтому их достаточно много, чтобы изменение одного пользователя редко сбрасывало статистику других.
+ * <p>
+ * Счетчики попаданий, промахов, вытеснений и устаревших записей публикуются через JMX
+ * ({@link StatisticCacheMBean}).
+ */
+public class StatisticCache implements StatisticCacheMBean {
+
+    private static final int SEGMENTS = 16;
+    private static final int GENERATIONS = 4096;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATIONS);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final int capacity;
+
+    /**
+     * @param capacity максимальное количество записей (пользователь, период).
+     */
+    public StatisticCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер кэша должен быть положительным");
+        }
+        this.capacity = capacity;
+        int segmentCapacity = Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * Возвращает статистику из кэша или вычисляет и сохраняет ее.
+     *
+     * @param userId     идентификатор пользователя.
+     * @param timePeriod период статистики.
+     * @param today      текущая дата.
+     * @param loader     вычисление статистики.
+     * @return неизменяемый список статистики.
+     */
+    public List<StatisticEntity> get(long userId, TimePeriod timePeriod, LocalDate today,
+                                     Supplier<List<StatisticEntity>> loader) {
+        Key key = new Key(userId, timePeriod);
+        Segment segment = segment(userId);
+        int generation = generation(userId);
+        synchronized (segment) {
+            Entry entry = segment.get(key);
+            if (entry != null) {
+                if (entry.day.equals(today) && entry.version == generations.get(generation)) {
+                    hits.increment();
+                    return entry.statistics;
+                }
+                segment.remove(key);
+                if (!entry.day.equals(today)) {
+                    expirations.increment();
+                }
+            }
+        }
+        misses.increment();
+        long version = generations.get(generation);
+        List<StatisticEntity> statistics = Collections.unmodifiableList(loader.get());
+        synchronized (segment) {
+            if (generations.get(generation) == version) {
+                segment.put(key, new Entry(today, version, statistics));
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Удаляет статистику пользователя за все периоды.
+     *
+     * @param userId идентификатор пользователя.
+     */
+    public void invalidate(long userId) {
+        generations.incrementAndGet(generation(userId));
+        Segment segment = segment(userId);
+        synchronized (segment) {
+            for (TimePeriod timePeriod : TimePeriod.values()) {
+                segment.remove(new Key(userId, timePeriod));
+            }
+        }
+    }
+
+    /**
+     * Помечает статистику пользователя устаревшей, не блокируя сегмент: следующее обращение ее пересчитает.
+     *
+     * @param userId идентификатор пользователя.
+     */
+    public void markStale(long userId) {
+        generations.incrementAndGet(generation(userId));
+    }
+
+    /**
+     * Удаляет записи пользователя, помеченные устаревшими.
+     *
+     * @param userId идентификатор пользователя.
+     */
+    public void removeStale(long userId) {
+        long version = generations.get(generation(userId));
+        Segment segment = segment(userId);
+        synchronized (segment) {
+            for (TimePeriod timePeriod : TimePeriod.values()) {
+                Key key = new Key(userId, timePeriod);
+                Entry entry = segment.get(key);
+                if (entry != null && entry.version != version) {
+                    segment.remove(key);
+                }
+            }
+        }
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "StatisticCache{" +
+                "size=" + getSize() +
+                ", capacity=" + capacity +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", evictions=" + getEvictions() +
+                ", expirations=" + getExpirations() +
+                '}';
+    }
+
+    private Segment segment(long userId) {
+        return segments[hash(userId) & (SEGMENTS - 1)];
+    }
+
+    private int generation(long userId) {
+        return Math.floorMod(hash(userId) >>> 4, generations.length());
+    }
+
+    private static int hash(long userId) {
+        long hash = userId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private class Segment extends LinkedHashMap<Key, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static class Key {
+        private final long userId;
+        private final TimePeriod timePeriod;
+
+        private Key(long userId, TimePeriod timePeriod) {
+            this.userId = userId;
+            this.timePeriod = timePeriod;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return userId == key.userId && timePeriod == key.timePeriod;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, timePeriod);
+        }
+    }
+
+    private static class Entry {
+        private final LocalDate day;
+        private final long version;
+        private final List<StatisticEntity> statistics;
+
+        private Entry(LocalDate day, long version, List<StatisticEntity> statistics) {
+            this.day = day;
+            this.version = version;
+            this.statistics = statistics;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.masnaviev.habittracker.services.util;
+
+/**
+ * Счетчики кэша статистики, публикуемые через JMX. Устаревшими считаются записи,
+ * вычисленные в другой день.
+ */
+public interface StatisticCacheMBean {
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    long getExpirations();
+
+    int getSize();
+
+    int getCapacity();
+}
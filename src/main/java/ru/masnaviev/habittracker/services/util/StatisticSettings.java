@@ -0,0 +1,40 @@
+package ru.masnaviev.habittracker.services.util;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Параметры параллельного расчета статистики.
+ */
+public class StatisticSettings {
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param parallelThreshold количество привычек, начиная с которого статистика рассчитывается параллельно,
+     *                          0 - всегда рассчитывать последовательно.
+     * @param pool              пул потоков для параллельного расчета.
+     */
+    public StatisticSettings(int parallelThreshold, ForkJoinPool pool) {
+        if (parallelThreshold < 0) {
+            throw new IllegalArgumentException("Порог параллельного расчета не может быть отрицательным");
+        }
+        this.parallelThreshold = parallelThreshold;
+        this.pool = pool;
+    }
+
+    public StatisticSettings(int parallelThreshold) {
+        this(parallelThreshold, ForkJoinPool.commonPool());
+    }
+
+    public static StatisticSettings sequential() {
+        return new StatisticSettings(0);
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+}
@@ -0,0 +1,164 @@
+package ru.masnaviev.habittracker.in.binary;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.masnaviev.habittracker.controllers.HabitController;
+import ru.masnaviev.habittracker.controllers.UserController;
+import ru.masnaviev.habittracker.controllers.util.TimePeriod;
+import ru.masnaviev.habittracker.in.dto.CreateHabitRequest;
+import ru.masnaviev.habittracker.in.dto.CreateUserRequest;
+import ru.masnaviev.habittracker.models.Frequency;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.models.User;
+import ru.masnaviev.habittracker.models.memory.DeltaVarint;
+import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
+import ru.masnaviev.habittracker.out.repositories.InMemoryUserRepository;
+import ru.masnaviev.habittracker.security.SessionRegistry;
+import ru.masnaviev.habittracker.services.HabitService;
+import ru.masnaviev.habittracker.services.UserService;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.LocalDate;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryServerTest {
+
+    private SessionRegistry sessionRegistry;
+    private BinaryServer binaryServer;
+    private User user;
+    private Habit habit;
+    private Habit foreignHabit;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        UserService userService = new UserService(new InMemoryUserRepository());
+        HabitService habitService = new HabitService(new InMemoryHabitRepository());
+        UserController userController = new UserController(userService);
+        HabitController habitController = new HabitController(habitService);
+        user = userController.create(new CreateUserRequest("user@mail.ru", "secret", "User"));
+        habit = habitController.create(new CreateHabitRequest("Зарядка", "Утром", Frequency.DAILY), user.getId());
+        foreignHabit = habitController.create(new CreateHabitRequest("Чтение", "Вечером", Frequency.DAILY), 0);
+        sessionRegistry = new SessionRegistry(60_000, 60_000, 1_000, System::currentTimeMillis);
+        binaryServer = new BinaryServer(userController, habitController, sessionRegistry);
+        binaryServer.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        binaryServer.stop();
+    }
+
+    @Test
+    void server_shouldExecuteOperations_whenUserLoggedIn() throws Exception {
+        try (BinaryClient client = connect()) {
+            client.login(1, "user@mail.ru", "secret");
+            BinaryClient.Response login = client.receive();
+            assertEquals(BinaryProtocol.OK, login.getStatus());
+            assertEquals(user.getId(), login.getBody().getLong());
+            assertEquals("User", BinaryProtocol.getString(login.getBody()));
+
+            client.mark(2, habit.getId());
+            assertEquals(BinaryProtocol.OK, client.receive().getStatus());
+            client.mark(3, habit.getId());
+            BinaryClient.Response repeated = client.receive();
+            assertEquals(BinaryProtocol.CONFLICT, repeated.getStatus());
+            assertEquals("Привычка уже выполнена сегодня.", repeated.getError());
+
+            client.listHabits(4);
+            ByteBuffer habits = client.receive().getBody();
+            assertEquals(1, habits.getInt());
+            assertEquals(habit.getId(), habits.getLong());
+            assertEquals("Зарядка", BinaryProtocol.getString(habits));
+
+            client.statistic(5, TimePeriod.WEEK);
+            ByteBuffer statistics = client.receive().getBody();
+            assertEquals(1, statistics.getInt());
+            assertEquals(habit.getId(), statistics.getLong());
+            assertEquals(1, statistics.getInt());
+            statistics.getInt();
+            statistics.getDouble();
+            assertArrayEquals(new int[]{(int) LocalDate.now().toEpochDay()}, DeltaVarint.decode(statistics));
+
+            habit.getExecutionHistory().addEpochDays((int) LocalDate.now().toEpochDay() - 30);
+            client.history(6, habit.getId());
+            assertArrayEquals(habit.getExecutionHistory().toEpochDays(), DeltaVarint.decode(client.receive().getBody()));
+        }
+        assertEventually(() -> sessionRegistry.size() == 0);
+    }
+
+    @Test
+    void server_shouldAnswerInOrder_whenRequestsArePipelined() throws Exception {
+        try (BinaryClient client = connect()) {
+            client.login(0, "user@mail.ru", "secret");
+            for (int i = 1; i <= 1_000; i++) {
+                if (i % 2 == 0) {
+                    client.listHabits(i);
+                } else {
+                    client.statistic(i, TimePeriod.MONTH);
+                }
+            }
+            client.flush();
+
+            for (int i = 0; i <= 1_000; i++) {
+                BinaryClient.Response response = client.receive();
+                assertEquals(i, response.getRequestId());
+                assertEquals(BinaryProtocol.OK, response.getStatus());
+            }
+        }
+    }
+
+    @Test
+    void server_shouldRejectRequest_whenNotLoggedInOrHabitIsForeign() throws Exception {
+        try (BinaryClient client = connect()) {
+            client.listHabits(1);
+            assertEquals(BinaryProtocol.UNAUTHORIZED, client.receive().getStatus());
+
+            client.login(2, "user@mail.ru", "wrong");
+            assertEquals(BinaryProtocol.BAD_REQUEST, client.receive().getStatus());
+
+            client.login(3, "user@mail.ru", "secret");
+            client.mark(4, foreignHabit.getId());
+            assertEquals(BinaryProtocol.OK, client.receive().getStatus());
+            assertEquals(BinaryProtocol.NOT_FOUND, client.receive().getStatus());
+        }
+    }
+
+    @Test
+    void server_shouldReturnBadRequest_whenRequestIsTruncated() throws Exception {
+        try (BinaryClient client = connect();
+             SocketChannel channel = SocketChannel.open(
+                     new InetSocketAddress(InetAddress.getLoopbackAddress(), binaryServer.getPort()))) {
+            ByteBuffer frame = ByteBuffer.allocate(11);
+            frame.putInt(7).put(BinaryProtocol.LOGIN).putInt(7).putShort((short) 100).flip();
+            channel.write(frame);
+            ByteBuffer response = ByteBuffer.allocate(64);
+            while (response.position() < 9) {
+                channel.read(response);
+            }
+            response.flip();
+            response.getInt();
+            assertEquals(7, response.getInt());
+            assertEquals(BinaryProtocol.BAD_REQUEST, response.get());
+
+            client.login(1, "user@mail.ru", "secret");
+            assertEquals(BinaryProtocol.OK, client.receive().getStatus());
+        }
+    }
+
+    private BinaryClient connect() throws Exception {
+        return new BinaryClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), binaryServer.getPort()));
+    }
+
+    private void assertEventually(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
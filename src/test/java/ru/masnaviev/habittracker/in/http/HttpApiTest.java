@@ -0,0 +1,182 @@
+package ru.masnaviev.habittracker.in.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.masnaviev.habittracker.controllers.AdminController;
+import ru.masnaviev.habittracker.controllers.HabitController;
+import ru.masnaviev.habittracker.controllers.UserController;
+import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
+import ru.masnaviev.habittracker.out.repositories.InMemoryUserRepository;
+import ru.masnaviev.habittracker.security.SessionRegistry;
+import ru.masnaviev.habittracker.services.HabitService;
+import ru.masnaviev.habittracker.services.UserService;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpApiTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private SessionRegistry sessionRegistry;
+    private HttpApi httpApi;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        UserService userService = new UserService(new InMemoryUserRepository());
+        HabitService habitService = new HabitService(new InMemoryHabitRepository());
+        sessionRegistry = new SessionRegistry(60_000, 60_000, 1_000, System::currentTimeMillis);
+        httpApi = new HttpApi(new UserController(userService), new HabitController(habitService),
+                new AdminController(userService, habitService), sessionRegistry);
+        httpApi.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        httpApi.stop(0);
+    }
+
+    @Test
+    void api_shouldManageHabits_whenUserLoggedIn() throws Exception {
+        assertEquals(201, send("POST", "/api/users", null,
+                "{\"email\":\"user@mail.ru\",\"password\":\"secret\",\"name\":\"User\"}").statusCode());
+        String token = login("user@mail.ru", "secret");
+
+        HttpResponse<String> created = send("POST", "/api/habits", token,
+                "{\"title\":\"Зарядка\",\"description\":\"Утром\",\"frequency\":\"daily\"}");
+        assertEquals(201, created.statusCode());
+        long habitId = ((Number) json(created).get("id")).longValue();
+
+        assertEquals(204, send("POST", "/api/habits/" + habitId + "/executions", token, null).statusCode());
+        HttpResponse<String> repeated = send("POST", "/api/habits/" + habitId + "/executions", token, null);
+        assertEquals(409, repeated.statusCode());
+        assertEquals("Привычка уже выполнена сегодня.", json(repeated).get("error"));
+
+        HttpResponse<String> count = send("GET", "/api/habits/" + habitId + "/executions/count?period=day",
+                token, null);
+        assertEquals(1L, json(count).get("count"));
+        List<?> statistics = (List<?>) Json.parse(send("GET", "/api/statistics?period=week", token, null).body());
+        assertEquals(1, statistics.size());
+
+        assertEquals(204, send("DELETE", "/api/habits/" + habitId, token, null).statusCode());
+        assertEquals("[]", send("GET", "/api/habits", token, null).body());
+    }
+
+    @Test
+    void api_shouldReturnUnauthorized_whenTokenIsMissingOrClosed() throws Exception {
+        assertEquals(401, send("GET", "/api/habits", null, null).statusCode());
+
+        String token = login("admin@mail.ru", "admin");
+        assertEquals(200, send("GET", "/api/habits", token, null).statusCode());
+        assertEquals(204, send("DELETE", "/api/sessions", token, null).statusCode());
+
+        assertEquals(401, send("GET", "/api/habits", token, null).statusCode());
+    }
+
+    @Test
+    void api_shouldCloseAllUserSessions_whenUserBlocked() throws Exception {
+        long userId = ((Number) json(send("POST", "/api/users", null,
+                "{\"email\":\"user@mail.ru\",\"password\":\"secret\",\"name\":\"User\"}")).get("id")).longValue();
+        String first = login("user@mail.ru", "secret");
+        String second = login("user@mail.ru", "secret");
+        String admin = login("admin@mail.ru", "admin");
+
+        assertEquals(204, send("POST", "/api/admin/users/" + userId + "/block", admin, null).statusCode());
+
+        assertEquals(401, send("GET", "/api/habits", first, null).statusCode());
+        assertEquals(401, send("GET", "/api/users/me", second, null).statusCode());
+        assertEquals(200, send("GET", "/api/habits", admin, null).statusCode());
+    }
+
+    @Test
+    void api_shouldReturnUpdatedProfile_whenAnotherSessionChangedIt() throws Exception {
+        send("POST", "/api/users", null, "{\"email\":\"user@mail.ru\",\"password\":\"secret\",\"name\":\"User\"}");
+        String first = login("user@mail.ru", "secret");
+        String second = login("user@mail.ru", "secret");
+
+        assertEquals(200, send("PATCH", "/api/users/me", first,
+                "{\"email\":\"user@mail.ru\",\"password\":\"secret\",\"name\":\"Renamed\"}").statusCode());
+
+        assertEquals("Renamed", json(send("GET", "/api/users/me", second, null)).get("name"));
+    }
+
+    @Test
+    void api_shouldHideHabit_whenItBelongsToAnotherUser() throws Exception {
+        send("POST", "/api/users", null, "{\"email\":\"user@mail.ru\",\"password\":\"secret\",\"name\":\"User\"}");
+        String owner = login("user@mail.ru", "secret");
+        String admin = login("admin@mail.ru", "admin");
+        long habitId = ((Number) json(send("POST", "/api/habits", owner,
+                "{\"title\":\"Чтение\",\"description\":\"Вечером\",\"frequency\":\"weekly\"}")).get("id")).longValue();
+
+        assertEquals(404, send("GET", "/api/habits/" + habitId, admin, null).statusCode());
+        assertEquals(403, send("GET", "/api/admin/users", owner, null).statusCode());
+        assertEquals(200, send("GET", "/api/admin/habits", admin, null).statusCode());
+    }
+
+    @Test
+    void api_shouldReturnBadRequest_whenBodyIsInvalid() throws Exception {
+        HttpResponse<String> response = send("POST", "/api/users", null, "{\"email\":");
+
+        assertEquals(400, response.statusCode());
+        assertTrue(json(response).containsKey("error"));
+        assertFalse(send("POST", "/api/sessions", null,
+                "{\"email\":\"admin@mail.ru\",\"password\":\"admin\"}").body().contains("password"));
+    }
+
+    @Test
+    void api_shouldReturnBadRequest_whenBodyIsNestedTooDeeply() throws Exception {
+        HttpResponse<String> response = send("POST", "/api/sessions", null, "[".repeat(60_000));
+
+        assertEquals(400, response.statusCode());
+        assertTrue(json(response).containsKey("error"));
+        assertFalse(login("admin@mail.ru", "admin").isEmpty());
+    }
+
+    @Test
+    void api_shouldMarkExecutionsInBatch_whenDatesGiven() throws Exception {
+        String token = login("admin@mail.ru", "admin");
+        long habitId = ((Number) json(send("POST", "/api/habits", token,
+                "{\"title\":\"Бег\",\"description\":\"Утром\",\"frequency\":\"daily\"}")).get("id")).longValue();
+
+        HttpResponse<String> response = send("POST", "/api/executions", token, "{\"executions\":["
+                + "{\"habitId\":" + habitId + ",\"date\":\"2024-05-01\"},"
+                + "{\"habitId\":" + habitId + ",\"date\":\"2024-05-01\"},"
+                + "{\"habitId\":" + (habitId + 100) + ",\"date\":\"2024-05-02\"}]}");
+
+        assertEquals(200, response.statusCode());
+        List<?> results = (List<?>) Json.parse(response.body());
+        assertEquals(List.of("MARKED", "ALREADY_COMPLETED", "NOT_FOUND"),
+                results.stream().map(result -> ((Map<?, ?>) result).get("outcome")).toList());
+        assertEquals(400, send("POST", "/api/executions", token,
+                "{\"executions\":[{\"habitId\":" + habitId + ",\"date\":\"01.05.2024\"}]}").statusCode());
+    }
+
+    private String login(String email, String password) throws Exception {
+        HttpResponse<String> response = send("POST", "/api/sessions", null,
+                "{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}");
+        assertEquals(201, response.statusCode());
+        return (String) json(response).get("token");
+    }
+
+    private HttpResponse<String> send(String method, String path, String token, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + httpApi.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private Map<?, ?> json(HttpResponse<String> response) {
+        return (Map<?, ?>) Json.parse(response.body());
+    }
+}
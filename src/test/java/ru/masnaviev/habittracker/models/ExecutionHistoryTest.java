@@ -0,0 +1,290 @@
+package ru.masnaviev.habittracker.models;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.masnaviev.habittracker.models.memory.ColdStore;
+import ru.masnaviev.habittracker.models.memory.HistoryStorage;
+import ru.masnaviev.habittracker.models.memory.SlabAllocator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionHistoryTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @Test
+    void add_shouldKeepDatesSortedAndUnique() {
+        ExecutionHistory history = new ExecutionHistory();
+
+        assertTrue(history.add(DAY.plusDays(5)));
+        assertTrue(history.add(DAY));
+        assertTrue(history.add(DAY.plusDays(2)));
+        assertFalse(history.add(DAY.plusDays(2)));
+
+        assertEquals(List.of(DAY, DAY.plusDays(2), DAY.plusDays(5)), List.copyOf(history));
+        assertEquals(DAY.plusDays(5), history.latest());
+    }
+
+    @Test
+    void addEpochDays_shouldMergeWithExistingDates() {
+        ExecutionHistory history = new ExecutionHistory(List.of(DAY, DAY.plusDays(4)));
+        int day = (int) DAY.toEpochDay();
+
+        assertEquals(3, history.addEpochDays(day + 3, day + 1, day + 4, day + 2, day + 1));
+
+        assertEquals(5, history.size());
+        assertEquals(5, history.currentStreak());
+        assertEquals(0, history.addEpochDays(day));
+    }
+
+    @Test
+    void mergeSortedEpochDays_shouldReturnOnlyNewDays() {
+        ExecutionHistory history = new ExecutionHistory(List.of(DAY, DAY.plusDays(2)));
+        int day = (int) DAY.toEpochDay();
+
+        assertArrayEquals(new int[]{day - 1, day + 1, day + 3},
+                history.mergeSortedEpochDays(ExecutionHistory.sortedDistinct(day + 3, day, day + 1, day - 1, day + 1)));
+        assertEquals(5, history.currentStreak());
+
+        assertArrayEquals(new int[]{day + 5, day + 6}, history.mergeSortedEpochDays(new int[]{day + 5, day + 6}));
+        assertEquals(7, history.size());
+        assertEquals(2, history.currentStreak());
+        assertEquals(5, history.longestStreak());
+        assertArrayEquals(new int[0], history.mergeSortedEpochDays(new int[]{day, day + 6}));
+    }
+
+    @Test
+    void contains_shouldFindOnlyAddedDates() {
+        ExecutionHistory history = new ExecutionHistory(List.of(DAY, DAY.plusDays(3)));
+
+        assertTrue(history.contains(DAY.plusDays(3)));
+        assertFalse(history.contains(DAY.plusDays(1)));
+        assertFalse(history.contains("2024-03-01"));
+    }
+
+    @Test
+    void rangeQueries_shouldIncludeBothBounds() {
+        ExecutionHistory history = new ExecutionHistory();
+        for (int i = 0; i < 30; i += 2) {
+            history.add(DAY.plusDays(i));
+        }
+
+        assertEquals(3, history.countBetween(DAY.plusDays(2), DAY.plusDays(6)));
+        assertEquals(List.of(DAY.plusDays(2), DAY.plusDays(4), DAY.plusDays(6)),
+                history.between(DAY.plusDays(1), DAY.plusDays(7)));
+        assertEquals(0, history.countBetween(DAY.plusDays(31), DAY.plusDays(40)));
+        assertEquals(0, history.countBetween(DAY.plusDays(6), DAY.plusDays(2)));
+    }
+
+    @Test
+    void remove_shouldDeleteDate() {
+        ExecutionHistory history = new ExecutionHistory(List.of(DAY, DAY.plusDays(1), DAY.plusDays(2)));
+
+        assertTrue(history.remove(DAY.plusDays(1)));
+        assertFalse(history.remove(DAY.plusDays(1)));
+
+        assertEquals(2, history.size());
+        assertArrayEquals(new int[]{(int) DAY.toEpochDay(), (int) DAY.plusDays(2).toEpochDay()}, history.toEpochDays());
+    }
+
+    @Test
+    void streaks_shouldBeMaintainedOnWrite() {
+        ExecutionHistory history = new ExecutionHistory();
+        history.add(DAY);
+        history.add(DAY.plusDays(1));
+        history.add(DAY.plusDays(2));
+        history.add(DAY.plusDays(5));
+
+        assertEquals(1, history.currentStreak());
+        assertEquals(3, history.longestStreak());
+
+        history.add(DAY.plusDays(4));
+        history.add(DAY.plusDays(3));
+
+        assertEquals(6, history.currentStreak());
+        assertEquals(6, history.longestStreak());
+        assertEquals(3, history.streakBetween(DAY.plusDays(3), DAY.plusDays(10)));
+        assertEquals(2, history.streakBetween(DAY, DAY.plusDays(1)));
+
+        history.remove(DAY.plusDays(2));
+
+        assertEquals(3, history.currentStreak());
+        assertEquals(3, history.longestStreak());
+    }
+
+    @Test
+    void offHeapHistory_shouldBehaveLikeHeapHistory() {
+        Random random = new Random(11);
+        ExecutionHistory heap = new ExecutionHistory(HistoryStorage.HEAP);
+        ExecutionHistory offHeap = new ExecutionHistory(HistoryStorage.OFF_HEAP);
+
+        for (int i = 0; i < 20_000; i++) {
+            LocalDate date = DAY.plusDays(random.nextInt(3_000));
+            switch (random.nextInt(4)) {
+                case 0 -> assertEquals(heap.remove(date), offHeap.remove(date));
+                case 1 -> {
+                    int day = (int) date.toEpochDay();
+                    assertEquals(heap.addEpochDays(day, day + 2, day - 1), offHeap.addEpochDays(day, day + 2, day - 1));
+                }
+                default -> assertEquals(heap.add(date), offHeap.add(date));
+            }
+        }
+
+        assertArrayEquals(heap.toEpochDays(), offHeap.toEpochDays());
+        assertEquals(heap.longestStreak(), offHeap.longestStreak());
+        assertEquals(heap.currentStreak(), offHeap.currentStreak());
+        assertEquals(heap.between(DAY.plusDays(100), DAY.plusDays(900)),
+                offHeap.between(DAY.plusDays(100), DAY.plusDays(900)));
+    }
+
+    @Test
+    void bitmapHistory_shouldBehaveLikeHeapHistory() {
+        Random random = new Random(29);
+        ExecutionHistory heap = new ExecutionHistory(HistoryStorage.HEAP, null);
+        ExecutionHistory bitmap = new ExecutionHistory(HistoryStorage.BITMAP, null);
+
+        for (int i = 0; i < 5_000; i++) {
+            LocalDate date = DAY.plusDays(i < 2_000 ? i : random.nextInt(2_500));
+            switch (random.nextInt(5)) {
+                case 0 -> assertEquals(heap.remove(date), bitmap.remove(date));
+                case 1 -> {
+                    int day = (int) date.toEpochDay();
+                    assertEquals(heap.addEpochDays(day, day - 70, day + 1), bitmap.addEpochDays(day, day - 70, day + 1));
+                }
+                default -> assertEquals(heap.add(date), bitmap.add(date));
+            }
+            assertEquals(heap.currentStreak(), bitmap.currentStreak());
+            assertEquals(heap.longestStreak(), bitmap.longestStreak());
+        }
+
+        assertArrayEquals(heap.toEpochDays(), bitmap.toEpochDays());
+        assertEquals(heap.size(), bitmap.size());
+        assertEquals(heap.latest(), bitmap.latest());
+        for (int start = -10; start < 2_600; start += 37) {
+            LocalDate from = DAY.plusDays(start);
+            LocalDate to = from.plusDays(start % 300);
+            assertEquals(heap.countBetween(from, to), bitmap.countBetween(from, to));
+            assertEquals(heap.between(from, to), bitmap.between(from, to));
+            assertEquals(heap.streakBetween(from, to), bitmap.streakBetween(from, to));
+            assertEquals(heap.contains(from), bitmap.contains(from));
+            assertArrayEquals(heap.toBitmap(from, to).toArray(), bitmap.toBitmap(from, to).toArray());
+        }
+        bitmap.release();
+        assertTrue(bitmap.isEmpty());
+        assertNull(bitmap.latest());
+    }
+
+    @Test
+    void tieredHistory_shouldBehaveLikeInMemoryHistory(@TempDir Path directory) {
+        Random random = new Random(17);
+        ExecutionHistory memory = new ExecutionHistory(HistoryStorage.HEAP, null);
+        ColdStore coldStore = new ColdStore(directory, 30, 16);
+        try (coldStore) {
+            ExecutionHistory tiered = new ExecutionHistory(HistoryStorage.HEAP, coldStore);
+            for (int i = 0; i < 3_000; i++) {
+                LocalDate date = DAY.plusDays(i < 1_500 ? i : random.nextInt(1_600));
+                switch (random.nextInt(5)) {
+                    case 0 -> assertEquals(memory.remove(date), tiered.remove(date));
+                    case 1 -> {
+                        int day = (int) date.toEpochDay();
+                        assertEquals(memory.addEpochDays(day, day - 40, day - 3), tiered.addEpochDays(day, day - 40, day - 3));
+                    }
+                    default -> assertEquals(memory.add(date), tiered.add(date));
+                }
+                assertEquals(memory.currentStreak(), tiered.currentStreak());
+                assertEquals(memory.longestStreak(), tiered.longestStreak());
+            }
+
+            assertArrayEquals(memory.toEpochDays(), tiered.toEpochDays());
+            assertEquals(memory.size(), tiered.size());
+            assertEquals(memory.latest(), tiered.latest());
+            for (int start = -10; start < 1_600; start += 37) {
+                LocalDate from = DAY.plusDays(start);
+                LocalDate to = from.plusDays(start % 200);
+                assertEquals(memory.countBetween(from, to), tiered.countBetween(from, to));
+                assertEquals(memory.between(from, to), tiered.between(from, to));
+                assertEquals(memory.streakBetween(from, to), tiered.streakBetween(from, to));
+                assertEquals(memory.contains(from), tiered.contains(from));
+            }
+            tiered.clear();
+            assertTrue(tiered.isEmpty());
+        }
+        assertFalse(Files.exists(coldStore.getDirectory()));
+    }
+
+    @Test
+    void inMemoryColdStore_shouldKeepCompressedSegmentsOnHeap() {
+        ColdStore coldStore = ColdStore.inMemory(30, 16);
+        ExecutionHistory history = new ExecutionHistory(HistoryStorage.HEAP, coldStore);
+        int day = (int) DAY.toEpochDay();
+        for (int i = 0; i < 500; i += 2) {
+            history.addEpochDays(day + i);
+        }
+
+        assertNull(coldStore.getDirectory());
+        assertTrue(history.hotSize() < 40);
+        assertEquals(250, history.size());
+        assertEquals(50, history.countBetween(DAY.plusDays(100), DAY.plusDays(199)));
+        assertTrue(history.contains(DAY.plusDays(10)));
+        assertTrue(history.remove(DAY.plusDays(10)));
+        assertFalse(history.contains(DAY.plusDays(10)));
+        assertTrue(history.add(DAY.plusDays(11)));
+        assertEquals(2, history.streakBetween(DAY, DAY.plusDays(13)));
+    }
+
+    @Test
+    void tieredHistory_shouldKeepHotWindowBounded_whenHistoryGrows(@TempDir Path directory) throws Exception {
+        try (ColdStore coldStore = new ColdStore(directory, 62, 256)) {
+            ExecutionHistory history = new ExecutionHistory(HistoryStorage.HEAP, coldStore);
+            for (int i = 0; i < 10 * 365; i++) {
+                history.add(DAY.plusDays(i));
+                assertTrue(history.hotSize() <= 62 + 256);
+            }
+
+            assertEquals(10 * 365, history.size());
+            assertEquals(10 * 365, history.longestStreak());
+            assertEquals(31, history.countBetween(DAY.plusDays(10 * 365 - 31), DAY.plusDays(10 * 365)));
+            try (Stream<Path> segments = Files.list(coldStore.getDirectory())) {
+                assertTrue(segments.count() > 0);
+            }
+        }
+    }
+
+    @Test
+    void release_shouldReturnOffHeapMemory() {
+        SlabAllocator allocator = HistoryStorage.getAllocator();
+        long usedBefore = allocator.getUsedBytes();
+        ExecutionHistory history = new ExecutionHistory(HistoryStorage.OFF_HEAP);
+        for (int i = 0; i < 1_000; i++) {
+            history.add(DAY.plusDays(i));
+        }
+        assertTrue(allocator.getUsedBytes() - usedBefore >= 4_000);
+
+        history.release();
+
+        assertEquals(usedBefore, allocator.getUsedBytes());
+        assertTrue(history.isEmpty());
+        assertTrue(history.add(DAY));
+        history.release();
+    }
+
+    @Test
+    void heapStorage_shouldNotUseOffHeapMemory() {
+        SlabAllocator allocator = HistoryStorage.getAllocator();
+        long usedBefore = allocator.getUsedBytes();
+        ExecutionHistory history = new ExecutionHistory(HistoryStorage.HEAP);
+        for (int i = 0; i < 1_000; i++) {
+            history.add(DAY.plusDays(i));
+        }
+
+        assertEquals(usedBefore, allocator.getUsedBytes());
+        assertEquals(1_000, history.size());
+    }
+}
@@ -0,0 +1,25 @@
+package ru.masnaviev.habittracker.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HabitTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @Test
+    void setExecutionHistory_shouldReleasePreviousHistory() {
+        Habit habit = new Habit("Бег", "Утром", Frequency.DAILY);
+        habit.setExecutionHistory(List.of(DAY, DAY.plusDays(1)));
+        ExecutionHistory previous = habit.getExecutionHistory();
+
+        habit.setExecutionHistory(previous);
+
+        assertEquals(0, previous.size());
+        assertEquals(List.of(DAY, DAY.plusDays(1)), List.copyOf(habit.getExecutionHistory()));
+    }
+}
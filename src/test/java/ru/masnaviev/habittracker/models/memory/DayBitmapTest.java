@@ -0,0 +1,81 @@
+package ru.masnaviev.habittracker.models.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DayBitmapTest {
+
+    @Test
+    void queries_shouldMatchSortedSet_whenDaysSpanSeveralChunks() {
+        Random random = new Random(23);
+        DayBitmap bitmap = new DayBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            int day = -1_500 + random.nextInt(6_000);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(day), bitmap.remove(day));
+            } else {
+                assertEquals(expected.add(day), bitmap.add(day));
+            }
+        }
+
+        assertEquals(expected.size(), bitmap.cardinality());
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), bitmap.toArray());
+        assertEquals(expected.last(), bitmap.last());
+        for (int start = -1_600; start < 4_600; start += 97) {
+            int end = start + Math.floorMod(start, 1_500);
+            assertEquals(expected.subSet(start, true, end, true).size(), bitmap.countBetween(start, end));
+            Integer last = expected.floor(end);
+            assertEquals(last == null || last < start ? Integer.MIN_VALUE : last, bitmap.lastBetween(start, end));
+            assertEquals(expected.contains(start), bitmap.contains(start));
+        }
+    }
+
+    @Test
+    void runs_shouldCrossWordAndChunkBoundaries() {
+        DayBitmap bitmap = new DayBitmap();
+        for (int day = DayBitmap.CHUNK_DAYS - 100; day < DayBitmap.CHUNK_DAYS + 200; day++) {
+            bitmap.add(day);
+        }
+        bitmap.add(5);
+        bitmap.add(6);
+
+        assertEquals(300, bitmap.longestRun());
+        assertEquals(300, bitmap.runEndingAt(DayBitmap.CHUNK_DAYS + 199, Integer.MIN_VALUE));
+        assertEquals(151, bitmap.runEndingAt(DayBitmap.CHUNK_DAYS + 50, DayBitmap.CHUNK_DAYS - 100));
+        assertEquals(11, bitmap.runEndingAt(DayBitmap.CHUNK_DAYS + 50, DayBitmap.CHUNK_DAYS + 40));
+        assertEquals(2, bitmap.runEndingAt(6, 0));
+        assertEquals(0, bitmap.runEndingAt(7, 0));
+    }
+
+    @Test
+    void andOr_shouldCombineDaysOfSeveralBitmaps() {
+        DayBitmap daily = new DayBitmap();
+        DayBitmap weekly = new DayBitmap();
+        DayBitmap even = new DayBitmap();
+        for (int day = 0; day < 3_000; day++) {
+            daily.add(day);
+            if (day % 7 == 0) {
+                weekly.add(day);
+            }
+            if (day % 2 == 0) {
+                even.add(day);
+            }
+        }
+
+        DayBitmap all = DayBitmap.and(daily, weekly, even);
+        DayBitmap any = DayBitmap.or(weekly, even);
+
+        assertEquals(3_000 / 14 + 1, all.cardinality());
+        assertTrue(all.contains(14));
+        assertFalse(all.contains(7));
+        assertEquals(1_500 + 3_000 / 7 + 1 - (3_000 / 14 + 1), any.cardinality());
+        assertEquals(3_000, daily.cardinality());
+        assertEquals(0, DayBitmap.and(weekly, DayBitmap.of(1, 2, 3)).cardinality());
+        assertArrayEquals(new int[]{14, 28}, all.between(10, 30).toArray());
+    }
+}
@@ -0,0 +1,57 @@
+package ru.masnaviev.habittracker.models.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeltaVarintTest {
+
+    @Test
+    void decode_shouldRestoreEncodedDays_whenGapsAndNegativeDaysPresent() {
+        int[] days = {-400_000, -1, 0, 1, 129, 130, 20_000, 19_000_000};
+
+        byte[] encoded = DeltaVarint.encode(days, 0, days.length);
+
+        assertArrayEquals(days, DeltaVarint.decode(ByteBuffer.wrap(encoded)));
+        assertArrayEquals(new int[0], DeltaVarint.decode(ByteBuffer.wrap(DeltaVarint.encode(days, 3, 3))));
+    }
+
+    @Test
+    void encode_shouldUseOneBytePerMark_whenHabitIsDaily() {
+        int[] days = new int[3_650];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = 19_000 + i;
+        }
+
+        byte[] encoded = DeltaVarint.encode(days, 0, days.length);
+
+        assertTrue(encoded.length <= days.length + 5);
+    }
+
+    @Test
+    void countBetween_shouldMatchArrayCount_whenDecodingStreamed() {
+        Random random = new Random(5);
+        int[] days = Arrays.stream(new int[2_000]).map(i -> 18_000 + random.nextInt(5_000)).sorted().distinct().toArray();
+        byte[] encoded = DeltaVarint.encode(days, 0, days.length);
+
+        for (int i = 0; i < 200; i++) {
+            int start = 17_900 + random.nextInt(5_200);
+            int end = start + random.nextInt(400);
+            long expected = Arrays.stream(days).filter(day -> day >= start && day <= end).count();
+            assertEquals(expected, DeltaVarint.countBetween(ByteBuffer.wrap(encoded), start, end));
+            assertEquals(Arrays.binarySearch(days, start) >= 0, DeltaVarint.contains(ByteBuffer.wrap(encoded), start));
+        }
+    }
+
+    @Test
+    void encode_shouldThrowException_whenDaysAreNotIncreasing() {
+        assertThrows(IllegalArgumentException.class, () -> DeltaVarint.encode(new int[]{5, 5}, 0, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> DeltaVarint.decode(ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                        (byte) 0xFF, (byte) 0xFF, 1})));
+    }
+}
@@ -0,0 +1,53 @@
+package ru.masnaviev.habittracker.models.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlabAllocatorTest {
+
+    @Test
+    void allocate_shouldRoundUpToSizeClassAndReuseFreedBlocks() {
+        SlabAllocator allocator = new SlabAllocator();
+
+        SlabAllocator.Block first = allocator.allocate(100);
+        assertEquals(128, first.size());
+        first.free();
+        first.free();
+        SlabAllocator.Block second = allocator.allocate(128);
+
+        assertSame(first.memory(), second.memory());
+        assertEquals(first.offset(), second.offset());
+        assertEquals(128, allocator.getUsedBytes());
+    }
+
+    @Test
+    void free_shouldReturnEmptySlabsAndKeepOneForReuse() {
+        SlabAllocator allocator = new SlabAllocator();
+        int perSlab = SlabAllocator.SLAB_BYTES / 64;
+        List<SlabAllocator.Block> blocks = new ArrayList<>();
+        for (int i = 0; i < perSlab * 3; i++) {
+            blocks.add(allocator.allocate(64));
+        }
+        assertEquals(3L * SlabAllocator.SLAB_BYTES, allocator.getReservedBytes());
+
+        blocks.forEach(SlabAllocator.Block::free);
+
+        assertEquals(0, allocator.getUsedBytes());
+        assertEquals(SlabAllocator.SLAB_BYTES, allocator.getReservedBytes());
+    }
+
+    @Test
+    void allocate_shouldGiveLargeBlocksTheirOwnBuffer() {
+        SlabAllocator allocator = new SlabAllocator();
+
+        SlabAllocator.Block block = allocator.allocate(SlabAllocator.SLAB_BYTES * 2 + 1);
+        assertEquals(SlabAllocator.SLAB_BYTES * 4, block.memory().capacity());
+        block.free();
+
+        assertEquals(0, allocator.getReservedBytes());
+    }
+}
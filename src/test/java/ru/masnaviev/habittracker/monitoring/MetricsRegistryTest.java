@@ -0,0 +1,87 @@
+package ru.masnaviev.habittracker.monitoring;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.masnaviev.habittracker.controllers.HabitController;
+import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
+import ru.masnaviev.habittracker.controllers.util.TimePeriod;
+import ru.masnaviev.habittracker.services.HabitService;
+import ru.masnaviev.habittracker.services.util.StatisticCache;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    private MBeanServer server;
+    private MetricsRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        server = MBeanServerFactory.newMBeanServer();
+        registry = new MetricsRegistry(server, 1);
+    }
+
+    @Test
+    void operation_shouldPublishMetricsAsMBean() throws Exception {
+        OperationMetrics metrics = registry.operation("TestController", "call");
+        long started = metrics.start();
+        metrics.succeeded(started);
+        metrics.failed(metrics.start(), new IllegalStateException());
+
+        assertEquals(2L, server.getAttribute(MetricsRegistry.name("TestController", "call"), "Count"));
+        assertEquals(1L, server.getAttribute(MetricsRegistry.name("TestController", "call"), "ErrorCount"));
+    }
+
+    @Test
+    void operation_shouldReplaceMetrics_whenRegisteredTwice() throws Exception {
+        registry.operation("TestController", "call").succeeded(0);
+        registry.operation("TestController", "call");
+
+        assertEquals(0L, server.getAttribute(MetricsRegistry.name("TestController", "call"), "Count"));
+    }
+
+    @Test
+    void disabled_shouldNotRecord() {
+        OperationMetrics metrics = MetricsRegistry.disabled().operation("TestController", "call");
+
+        metrics.succeeded(metrics.start());
+
+        assertFalse(metrics.isEnabled());
+        assertEquals(0, metrics.getCount());
+    }
+
+    @Test
+    void controller_shouldRecordCallsAndErrors() throws Exception {
+        HabitController habitController = new HabitController(
+                new HabitService(new InMemoryHabitRepository()), registry);
+
+        assertThrows(NoSuchElementException.class, () -> habitController.get(42));
+        assertThrows(NoSuchElementException.class, () -> habitController.getAll(1));
+
+        assertEquals(1L, server.getAttribute(MetricsRegistry.name("HabitController", "get"), "ErrorCount"));
+        assertEquals(1L, server.getAttribute(MetricsRegistry.name("HabitController", "getAll"), "Count"));
+        assertTrue((Double) server.getAttribute(MetricsRegistry.name("HabitController", "get"), "MaxMicros") > 0);
+        assertEquals(0L, server.getAttribute(MetricsRegistry.name("HabitController", "getStatistic"), "Count"));
+    }
+
+    @Test
+    void publish_shouldExposeStatisticCacheCounters() throws Exception {
+        StatisticCache cache = new StatisticCache(64);
+        registry.publish(cache, "HabitService", "statisticCache");
+        LocalDate today = LocalDate.of(2024, 5, 1);
+
+        cache.get(1, TimePeriod.DAY, today, List::of);
+        cache.get(1, TimePeriod.DAY, today, List::of);
+
+        assertEquals(1L, server.getAttribute(MetricsRegistry.name("HabitService", "statisticCache"), "Hits"));
+        assertEquals(1L, server.getAttribute(MetricsRegistry.name("HabitService", "statisticCache"), "Misses"));
+        assertEquals(1, server.getAttribute(MetricsRegistry.name("HabitService", "statisticCache"), "Size"));
+        assertEquals(64, server.getAttribute(MetricsRegistry.name("HabitService", "statisticCache"), "Capacity"));
+    }
+}
@@ -0,0 +1,253 @@
+package ru.masnaviev.habittracker.out.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.masnaviev.habittracker.models.Frequency;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.models.User;
+import ru.masnaviev.habittracker.out.persistence.JournalSettings;
+import ru.masnaviev.habittracker.services.HabitService;
+import ru.masnaviev.habittracker.services.UserService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurableStoreTest {
+
+    private static final JournalSettings SETTINGS = new JournalSettings(64, 5, false);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void open_shouldRestoreStateWrittenBeforeClose() throws IOException {
+        long habitId;
+        try (DurableStore store = DurableStore.open(directory, SETTINGS)) {
+            UserService userService = new UserService(store.getUserRepository());
+            HabitService habitService = new HabitService(store.getHabitRepository());
+            User user = userService.create(new User("user@example.com", "password", "name"));
+            Habit habit = habitService.create(new Habit("Run", "Every morning", Frequency.DAILY), user.getId());
+            habitService.addHabitExecution(habit.getId());
+            habitId = habit.getId();
+        }
+
+        try (DurableStore store = DurableStore.open(directory, SETTINGS)) {
+            Habit habit = store.getHabitRepository().findById(habitId).orElseThrow();
+            assertEquals("Run", habit.getTitle());
+            assertTrue(habit.getExecutionHistory().contains(LocalDate.now()));
+            assertTrue(store.getUserRepository().findByEmail("user@example.com").isPresent());
+            Habit next = store.getHabitRepository().add(new Habit("Read", "Every evening", Frequency.DAILY));
+            assertTrue(next.getId() > habitId);
+        }
+    }
+
+    @Test
+    void open_shouldRecoverConsistentPrefix_whenJournalIsCutAtAnyByte() throws IOException {
+        List<Consumer<DurableStore>> operations = operations();
+        List<Long> journalSizes = new ArrayList<>();
+        List<String> states = new ArrayList<>();
+        Path journalFile;
+
+        try (DurableStore store = DurableStore.open(directory, SETTINGS)) {
+            journalFile = store.getJournalFile();
+            journalSizes.add(0L);
+            states.add(fingerprint(store));
+            for (Consumer<DurableStore> operation : operations) {
+                operation.accept(store);
+                store.sync();
+                journalSizes.add(Files.size(journalFile));
+                states.add(fingerprint(store));
+            }
+        }
+
+        byte[] journal = Files.readAllBytes(journalFile);
+        for (int cut = 0; cut <= journal.length; cut++) {
+            Path crashed = Files.createDirectories(directory.resolve("crash-" + cut));
+            Files.write(crashed.resolve(journalFile.getFileName()), Arrays.copyOf(journal, cut));
+
+            int completed = 0;
+            while (completed + 1 < journalSizes.size() && journalSizes.get(completed + 1) <= cut) {
+                completed++;
+            }
+            try (DurableStore store = DurableStore.open(crashed, SETTINGS)) {
+                assertEquals(states.get(completed), fingerprint(store), "обрыв журнала на байте " + cut);
+                store.getHabitRepository().add(new Habit("After crash", "Description", Frequency.WEEKLY));
+            }
+            try (DurableStore store = DurableStore.open(crashed, SETTINGS)) {
+                assertTrue(store.getHabitRepository().getAll().stream()
+                        .anyMatch(habit -> "After crash".equals(habit.getTitle())));
+            }
+        }
+    }
+
+    @Test
+    void open_shouldDropCorruptedTail() throws IOException {
+        Path journalFile;
+        try (DurableStore store = DurableStore.open(directory, SETTINGS)) {
+            journalFile = store.getJournalFile();
+            new UserService(store.getUserRepository()).create(new User("user@example.com", "password", "name"));
+        }
+        byte[] garbage = new byte[100];
+        new Random(7).nextBytes(garbage);
+        Files.write(journalFile, garbage, StandardOpenOption.APPEND);
+
+        try (DurableStore store = DurableStore.open(directory, SETTINGS)) {
+            assertTrue(store.getUserRepository().findByEmail("user@example.com").isPresent());
+        }
+    }
+
+    @Test
+    void open_shouldFail_whenSegmentBeforeLastIsTorn() throws IOException {
+        Path journalFile;
+        try (DurableStore store = DurableStore.open(directory, SETTINGS)) {
+            operations().forEach(operation -> operation.accept(store));
+            journalFile = store.getJournalFile();
+        }
+        byte[] journal = Files.readAllBytes(journalFile);
+        Files.write(journalFile, Arrays.copyOf(journal, journal.length - 3));
+        Files.createFile(directory.resolve("journal-1.log"));
+
+        assertThrows(IOException.class, () -> DurableStore.open(directory, SETTINGS).close());
+    }
+
+    @Test
+    void checkpoint_shouldReplaceOldSegmentsWithSnapshot() throws IOException {
+        List<Consumer<DurableStore>> operations = operations();
+        String expected;
+        try (DurableStore store = DurableStore.open(directory, SETTINGS)) {
+            for (int i = 0; i < operations.size(); i++) {
+                operations.get(i).accept(store);
+                if (i % 4 == 3) {
+                    store.checkpoint();
+                }
+            }
+            expected = fingerprint(store);
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+        try (DurableStore store = DurableStore.open(directory, SETTINGS)) {
+            assertEquals(expected, fingerprint(store));
+            Habit next = store.getHabitRepository().add(new Habit("Next", "Description", Frequency.DAILY));
+            assertEquals(5, next.getId());
+        }
+    }
+
+    @Test
+    void close_shouldThrow_whenBackgroundCheckpointFailed() throws Exception {
+        DurableStore store = DurableStore.open(directory, new JournalSettings(64, 5, false, 200));
+        for (int segment = 1; segment <= 3; segment++) {
+            Files.createFile(Files.createDirectories(directory.resolve("snapshot-" + segment + ".bin")).resolve("busy"));
+        }
+        store.getUserRepository().add(new User("user@mail.ru", "password", "User"));
+
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        assertThrows(UncheckedIOException.class, () -> {
+            while (System.nanoTime() < deadline) {
+                store.sync();
+                Thread.sleep(10);
+            }
+        });
+        assertThrows(IOException.class, store::close);
+    }
+
+    @Test
+    void open_shouldMaterializeSnapshotHabitsOnDemand() throws IOException {
+        List<Consumer<DurableStore>> operations = operations();
+        String expected;
+        try (DurableStore store = DurableStore.open(directory, SETTINGS)) {
+            operations.forEach(operation -> operation.accept(store));
+            store.checkpoint();
+            expected = fingerprint(store);
+        }
+
+        try (DurableStore store = DurableStore.open(directory, SETTINGS)) {
+            HabitService habitService = new HabitService(store.getHabitRepository());
+            assertTrue(store.getHabitRepository().exists(4));
+            assertEquals(List.of(1L, 3L), store.getHabitRepository().getAll(2).stream().map(Habit::getId).toList());
+            habitService.delete(4);
+            habitService.addHabitExecution(1);
+            store.checkpoint();
+            habitService.create(new Habit("After checkpoint", "Description", Frequency.DAILY), 1);
+        }
+
+        try (DurableStore store = DurableStore.open(directory, SETTINGS);
+             DurableStore eager = DurableStore.open(directory, new JournalSettings(64, 5, false, 0, false))) {
+            assertEquals(fingerprint(eager), fingerprint(store));
+            assertFalse(store.getHabitRepository().exists(4));
+            assertTrue(store.getHabitRepository().findById(1).orElseThrow()
+                    .getExecutionHistory().contains(LocalDate.now()));
+            assertNotEquals(expected, fingerprint(store));
+        }
+    }
+
+    @Test
+    void open_shouldReadOnlyRequestedHabits_whenSnapshotIsMapped() throws IOException {
+        try (DurableStore store = DurableStore.open(directory, SETTINGS)) {
+            for (int i = 0; i < 1_000; i++) {
+                Habit habit = new Habit("Habit " + i, "Description", Frequency.DAILY);
+                habit.setUserId(i % 10);
+                store.getHabitRepository().add(habit);
+            }
+            store.checkpoint();
+        }
+
+        try (DurableStore lazy = DurableStore.open(directory, SETTINGS);
+             DurableStore eager = DurableStore.open(directory, new JournalSettings(64, 5, false, 0, false))) {
+            assertEquals(0, lazy.getLoadedHabitCount());
+            assertEquals(100, lazy.getHabitRepository().getAll(7).size());
+            assertEquals(100, lazy.getLoadedHabitCount());
+            assertEquals(1_000, eager.getLoadedHabitCount());
+        }
+    }
+
+    private List<Consumer<DurableStore>> operations() {
+        List<Consumer<DurableStore>> operations = new ArrayList<>();
+        operations.add(store -> new UserService(store.getUserRepository())
+                .create(new User("first@example.com", "password", "First")));
+        operations.add(store -> new UserService(store.getUserRepository())
+                .create(new User("second@example.com", "password", "Second")));
+        for (int i = 0; i < 5; i++) {
+            int number = i;
+            operations.add(store -> new HabitService(store.getHabitRepository())
+                    .create(new Habit("Habit " + number, "Description", Frequency.DAILY), 1 + number % 2));
+        }
+        operations.add(store -> new HabitService(store.getHabitRepository()).addHabitExecution(0));
+        operations.add(store -> new HabitService(store.getHabitRepository()).addHabitExecution(3));
+        operations.add(store -> new HabitService(store.getHabitRepository())
+                .update(new Habit("Renamed", null, Frequency.WEEKLY), 1));
+        operations.add(store -> new HabitService(store.getHabitRepository()).delete(2));
+        operations.add(store -> new UserService(store.getUserRepository()).blockUser(2));
+        operations.add(store -> {
+            User update = new User("renamed@example.com", null, null);
+            new UserService(store.getUserRepository()).update(update, 1);
+        });
+        operations.add(store -> new UserService(store.getUserRepository()).deleteUserByAdmin(2));
+        return operations;
+    }
+
+    private String fingerprint(DurableStore store) {
+        StringBuilder state = new StringBuilder();
+        store.getUserRepository().getAll().stream()
+                .sorted(Comparator.comparingLong(User::getId))
+                .forEach(user -> state.append(user).append(user.isBlocked()).append('\n'));
+        store.getHabitRepository().getAll().stream()
+                .sorted(Comparator.comparingLong(Habit::getId))
+                .forEach(habit -> state.append(habit).append('\n'));
+        return state.toString();
+    }
+}
@@ -0,0 +1,136 @@
+package ru.masnaviev.habittracker.out.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.masnaviev.habittracker.models.Frequency;
+import ru.masnaviev.habittracker.models.Habit;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryHabitRepositoryTest {
+
+    private static final int HABITS_PER_THREAD = 10_000;
+
+    private InMemoryHabitRepository habitRepository;
+
+    @BeforeEach
+    void setUp() {
+        habitRepository = new InMemoryHabitRepository();
+    }
+
+    @Test
+    void add_shouldAssignUniqueIdsAndLoseNoWrites_whenCalledConcurrently() throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+        runConcurrently(threads, thread -> {
+            for (int i = 0; i < HABITS_PER_THREAD; i++) {
+                Habit habit = new Habit("Habit " + i, "Description", Frequency.DAILY);
+                habit.setUserId(thread);
+                habitRepository.add(habit);
+            }
+        });
+
+        List<Habit> habits = habitRepository.getAll();
+        assertEquals(threads * HABITS_PER_THREAD, habits.size());
+        Set<Long> ids = new HashSet<>();
+        for (Habit habit : habits) {
+            assertTrue(ids.add(habit.getId()));
+        }
+        for (int thread = 0; thread < threads; thread++) {
+            assertEquals(HABITS_PER_THREAD, habitRepository.getAll(thread).size());
+        }
+    }
+
+    @Test
+    void add_shouldReturnStoredHabit() {
+        Habit habit = new Habit("Habit", "Description", Frequency.DAILY);
+
+        Habit added = habitRepository.add(habit);
+
+        assertSame(habit, added);
+        assertEquals(Optional.of(habit), habitRepository.findById(added.getId()));
+    }
+
+    @Test
+    void getAll_shouldFollowOwnershipChanges() {
+        Habit first = new Habit("First", "Description", Frequency.DAILY);
+        first.setUserId(1);
+        Habit second = new Habit("Second", "Description", Frequency.WEEKLY);
+        second.setUserId(1);
+        habitRepository.add(first);
+        habitRepository.add(second);
+
+        second.setUserId(2);
+        habitRepository.update(second);
+        habitRepository.delete(first.getId());
+
+        assertTrue(habitRepository.getAll(1).isEmpty());
+        assertEquals(List.of(second), habitRepository.getAll(2));
+    }
+
+    @Test
+    void idsShouldBeAllocatedPerRepositoryInstance() {
+        Habit first = habitRepository.add(new Habit("Habit", "Description", Frequency.DAILY));
+        Habit second = new InMemoryHabitRepository().add(new Habit("Habit", "Description", Frequency.DAILY));
+
+        assertEquals(0, first.getId());
+        assertEquals(0, second.getId());
+    }
+
+    @Test
+    void mixedOperations_shouldNotFail_whenHabitsAreDeletedConcurrently() throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        LocalDate today = LocalDate.now();
+
+        runConcurrently(threads, thread -> {
+            for (int i = 0; i < HABITS_PER_THREAD; i++) {
+                Habit habit = habitRepository.add(new Habit("Habit " + i, "Description", Frequency.DAILY));
+                habit.getExecutionHistory().add(today);
+                habitRepository.findById(habit.getId()).orElseThrow();
+                assertEquals(1, habitRepository.getStatistic(habit.getId(), today.minusDays(1), today).size());
+                if (i % 2 == 0) {
+                    habitRepository.delete(habit.getId());
+                    assertFalse(habitRepository.exists(habit.getId()));
+                }
+            }
+        });
+
+        assertEquals(threads * HABITS_PER_THREAD / 2, habitRepository.getAll().size());
+    }
+
+    private void runConcurrently(int threads, ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int number = thread;
+            futures.add(executor.submit(() -> {
+                try {
+                    startSignal.await();
+                    task.run(number);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+                return null;
+            }));
+        }
+        startSignal.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        if (failure.get() != null) {
+            fail(failure.get());
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+}
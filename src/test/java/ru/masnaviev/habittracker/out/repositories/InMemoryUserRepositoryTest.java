@@ -0,0 +1,115 @@
+package ru.masnaviev.habittracker.out.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.masnaviev.habittracker.models.User;
+
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserRepositoryTest {
+
+    private InMemoryUserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = new InMemoryUserRepository();
+    }
+
+    @Test
+    void findByEmail_shouldIgnoreCaseAndSurroundingSpaces() {
+        User user = userRepository.add(new User("User@Example.com", "password", "name"));
+
+        assertEquals(Optional.of(user), userRepository.findByEmail(" user@example.COM "));
+        assertTrue(userRepository.isExistsByEmail("USER@example.com"));
+    }
+
+    @Test
+    void add_shouldThrowIllegalArgumentException_whenEmailIsTaken() {
+        userRepository.add(new User("user@example.com", "password", "name"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> userRepository.add(new User("USER@example.com", "password", "other")));
+    }
+
+    @Test
+    void add_shouldNotConsumeId_whenEmailIsTaken() {
+        User first = userRepository.add(new User("user@example.com", "password", "name"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> userRepository.add(new User("user@example.com", "password", "other")));
+        User second = userRepository.add(new User("second@example.com", "password", "name"));
+
+        assertEquals(first.getId() + 1, second.getId());
+    }
+
+    @Test
+    void add_shouldRegisterEmailOnce_whenCalledConcurrently() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        AtomicInteger created = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                startSignal.await();
+                try {
+                    userRepository.add(new User("race@example.com", "password", "name"));
+                    created.incrementAndGet();
+                } catch (IllegalArgumentException ignored) {
+                }
+                return null;
+            });
+        }
+        startSignal.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void update_shouldMoveEmailIndex_whenEmailChanged() {
+        User user = userRepository.add(new User("old@example.com", "password", "name"));
+
+        user.setEmail("new@example.com");
+        userRepository.update(user);
+
+        assertFalse(userRepository.isExistsByEmail("old@example.com"));
+        assertEquals(Optional.of(user), userRepository.findByEmail("new@example.com"));
+        assertDoesNotThrow(() -> userRepository.add(new User("old@example.com", "password", "other")));
+    }
+
+    @Test
+    void update_shouldKeepOldEmail_whenNewEmailIsTaken() {
+        userRepository.add(new User("taken@example.com", "password", "name"));
+        User user = userRepository.add(new User("old@example.com", "password", "name"));
+
+        user.setEmail("taken@example.com");
+
+        assertThrows(IllegalArgumentException.class, () -> userRepository.update(user));
+        assertEquals("old@example.com", user.getEmail());
+        assertEquals(Optional.of(user), userRepository.findByEmail("old@example.com"));
+    }
+
+    @Test
+    void update_shouldThrowNoSuchElementException_whenUserDoesNotExist() {
+        User user = new User("ghost@example.com", "password", "name");
+        user.setId(100);
+
+        assertThrows(NoSuchElementException.class, () -> userRepository.update(user));
+    }
+
+    @Test
+    void delete_shouldReleaseEmail() {
+        User user = userRepository.add(new User("user@example.com", "password", "name"));
+
+        userRepository.delete(user.getId());
+
+        assertTrue(userRepository.findByEmail("user@example.com").isEmpty());
+        assertDoesNotThrow(() -> userRepository.add(new User("user@example.com", "password", "name")));
+    }
+}
@@ -0,0 +1,134 @@
+package ru.masnaviev.habittracker.out.repositories;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.masnaviev.habittracker.models.Frequency;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.models.Status;
+import ru.masnaviev.habittracker.services.HabitService;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcHabitRepositoryTest {
+
+    private static final int OPERATIONS_PER_THREAD = 200;
+
+    private JdbcStore store;
+    private HabitRepository habitRepository;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        store = openStore();
+        habitRepository = store.getHabitRepository();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void add_shouldPersistHabitWithHistory() {
+        LocalDate today = LocalDate.now();
+        Habit habit = new Habit("Run", "Every morning", Frequency.DAILY);
+        habit.setUserId(7);
+        habit.setExecutionHistory(List.of(today.minusDays(2), today.minusDays(1), today));
+
+        Habit added = habitRepository.add(habit);
+
+        Habit found = habitRepository.findById(added.getId()).orElseThrow();
+        assertEquals("Run", found.getTitle());
+        assertEquals(habit.getCreated(), found.getCreated());
+        assertEquals(List.of(today.minusDays(2), today.minusDays(1), today), List.copyOf(found.getExecutionHistory()));
+        assertEquals(3, found.getExecutionHistory().currentStreak());
+        assertEquals(List.of(added.getId()), habitRepository.getAll(7).stream().map(Habit::getId).toList());
+    }
+
+    @Test
+    void getStatistic_shouldFilterAndCountInDatabase() {
+        LocalDate today = LocalDate.now();
+        Habit habit = habitRepository.add(new Habit("Read", "Every evening", Frequency.DAILY));
+        for (int i = 0; i < 30; i += 3) {
+            habitRepository.saveExecution(habit.getId(), today.minusDays(i));
+        }
+
+        assertEquals(List.of(today.minusDays(6), today.minusDays(3), today),
+                habitRepository.getStatistic(habit.getId(), today.minusDays(7), today));
+        assertEquals(4, habitRepository.countExecutions(habit.getId(), today.minusDays(9), today));
+        assertEquals(0, habitRepository.countExecutions(habit.getId(), today.plusDays(1), today.plusDays(2)));
+        assertThrows(NoSuchElementException.class, () -> habitRepository.countExecutions(999, today, today));
+    }
+
+    @Test
+    void saveExecution_shouldStartHabitAndIgnoreDuplicates() {
+        Habit habit = habitRepository.add(new Habit("Walk", "Every day", Frequency.DAILY));
+
+        habitRepository.saveExecution(habit.getId(), LocalDate.now());
+        habitRepository.saveExecution(habit.getId(), LocalDate.now());
+
+        Habit found = habitRepository.findById(habit.getId()).orElseThrow();
+        assertEquals(Status.IN_PROGRESS, found.getStatus());
+        assertEquals(1, found.getExecutionHistory().size());
+        assertThrows(NoSuchElementException.class, () -> habitRepository.saveExecution(999, LocalDate.now()));
+    }
+
+    @Test
+    void serviceOperations_shouldWorkOverDatabase() {
+        HabitService habitService = new HabitService(habitRepository);
+        Habit habit = habitService.create(new Habit("Swim", "Weekly", Frequency.WEEKLY), 3);
+
+        habitService.addHabitExecution(habit.getId());
+        habitService.update(new Habit("Swim twice", null, null), habit.getId());
+
+        assertThrows(IllegalStateException.class, () -> habitService.addHabitExecution(habit.getId()));
+        Habit found = habitRepository.findById(habit.getId()).orElseThrow();
+        assertEquals("Swim twice", found.getTitle());
+        assertEquals(Frequency.WEEKLY, found.getFrequency());
+        habitService.delete(habit.getId());
+        assertFalse(habitRepository.exists(habit.getId()));
+        assertTrue(habitRepository.getAll(3).isEmpty());
+    }
+
+    @Test
+    void repository_shouldKeepEveryChange_whenThreadsOutnumberConnections() throws Exception {
+        int threads = 8;
+        LocalDate today = LocalDate.now();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            long userId = thread;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    Habit habit = new Habit("Habit", "Description", Frequency.DAILY);
+                    habit.setUserId(userId);
+                    habit = habitRepository.add(habit);
+                    habitRepository.saveExecution(habit.getId(), today.minusDays(i % 30));
+                    assertEquals(1, habitRepository.countExecutions(habit.getId(), today.minusDays(30), today));
+                    assertEquals(userId, habitRepository.findById(habit.getId()).orElseThrow().getUserId());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        for (long userId = 0; userId < threads; userId++) {
+            assertEquals(OPERATIONS_PER_THREAD, habitRepository.getAll(userId).size());
+        }
+    }
+
+    static JdbcStore openStore() throws SQLException {
+        return JdbcStore.open("jdbc:h2:mem:" + UUID.randomUUID(), "sa", "", 4);
+    }
+}
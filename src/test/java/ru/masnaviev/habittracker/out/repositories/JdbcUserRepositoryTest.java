@@ -0,0 +1,75 @@
+package ru.masnaviev.habittracker.out.repositories;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.masnaviev.habittracker.models.Role;
+import ru.masnaviev.habittracker.models.User;
+
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcUserRepositoryTest {
+
+    private JdbcStore store;
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        store = JdbcHabitRepositoryTest.openStore();
+        userRepository = store.getUserRepository();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void open_shouldCreateAdmin() {
+        User admin = userRepository.findByEmail("admin@mail.ru").orElseThrow();
+
+        assertEquals(0, admin.getId());
+        assertEquals(Role.ADMIN, admin.getRole());
+    }
+
+    @Test
+    void add_shouldRejectEmailDifferingOnlyInCase() {
+        User user = userRepository.add(new User("User@Example.com", "password", "name"));
+
+        assertTrue(user.getId() > 0);
+        assertTrue(userRepository.isExistsByEmail(" user@example.COM "));
+        assertEquals(user.getId(), userRepository.findByEmail("USER@example.com").orElseThrow().getId());
+        assertThrows(IllegalArgumentException.class,
+                () -> userRepository.add(new User("user@example.com", "password", "other")));
+    }
+
+    @Test
+    void update_shouldMoveEmailIndex() {
+        User user = userRepository.add(new User("old@example.com", "password", "name"));
+        user.setEmail("new@example.com");
+        user.setBlocked(true);
+
+        userRepository.update(user);
+
+        assertFalse(userRepository.isExistsByEmail("old@example.com"));
+        assertTrue(userRepository.findById(user.getId()).orElseThrow().isBlocked());
+        user.setEmail("admin@mail.ru");
+        assertThrows(IllegalArgumentException.class, () -> userRepository.update(user));
+        assertThrows(NoSuchElementException.class, () -> userRepository.update(new User(Role.USER, 999,
+                "missing@example.com", "password", "name", false)));
+    }
+
+    @Test
+    void delete_shouldFreeEmail() {
+        User user = userRepository.add(new User("user@example.com", "password", "name"));
+
+        userRepository.delete(user.getId());
+
+        assertTrue(userRepository.findById(user.getId()).isEmpty());
+        assertEquals(1, userRepository.getAll().size());
+        userRepository.add(new User("user@example.com", "password", "name"));
+    }
+}
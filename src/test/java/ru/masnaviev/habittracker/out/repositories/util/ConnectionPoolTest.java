@@ -0,0 +1,40 @@
+package ru.masnaviev.habittracker.out.repositories.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+
+    @Test
+    void borrow_shouldReopenConnection_whenReplacementFailedOnRelease() throws SQLException {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID();
+        Connection keeper = DriverManager.getConnection(url, "sa", "");
+        try (ConnectionPool pool = new ConnectionPool(url + ";IFEXISTS=TRUE", "sa", "", 1, 100)) {
+            ConnectionPool.Pooled connection = pool.borrow();
+            connection.invalidate();
+            keeper.close();
+            connection.close();
+
+            SQLException failure = assertThrows(SQLException.class, pool::borrow);
+            assertNotEquals("Нет свободных соединений с базой данных", failure.getMessage());
+
+            keeper = DriverManager.getConnection(url, "sa", "");
+            int selected = pool.execute(pooled -> {
+                try (ResultSet result = pooled.prepare("SELECT 1").executeQuery()) {
+                    result.next();
+                    return result.getInt(1);
+                }
+            });
+            assertEquals(1, selected);
+        } finally {
+            keeper.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package ru.masnaviev.habittracker.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.masnaviev.habittracker.models.User;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRegistryTest {
+
+    private static final long IDLE = 30 * 60 * 1000;
+    private static final long ABSOLUTE = 12 * 60 * 60 * 1000;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final User user = new User("user@mail.ru", "password", "User");
+    private SessionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SessionRegistry(IDLE, ABSOLUTE, 1_000, clock::get);
+    }
+
+    @Test
+    void find_shouldReturnSession_whenTokenIsValid() {
+        String token = registry.open(user);
+
+        Session session = registry.find(token).orElseThrow();
+
+        assertSame(user, session.getUser());
+        assertTrue(registry.find("unknown").isEmpty());
+        assertTrue(registry.find(null).isEmpty());
+    }
+
+    @Test
+    void open_shouldIssueUniqueOpaqueTokens() {
+        Set<String> tokens = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            tokens.add(registry.open(user));
+        }
+
+        assertEquals(10_000, tokens.size());
+        assertTrue(tokens.stream().allMatch(token -> token.length() == 22 && !token.contains(user.getEmail())));
+    }
+
+    @Test
+    void find_shouldReturnEmpty_whenSessionIsIdle() {
+        String token = registry.open(user);
+
+        clock.addAndGet(IDLE);
+
+        assertTrue(registry.find(token).isEmpty());
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void find_shouldExtendIdleTimeout_butNotAbsoluteTimeout() {
+        String token = registry.open(user);
+
+        for (long elapsed = 0; elapsed + IDLE / 2 < ABSOLUTE; elapsed += IDLE / 2) {
+            clock.addAndGet(IDLE / 2);
+            assertTrue(registry.find(token).isPresent());
+        }
+        clock.addAndGet(IDLE / 2);
+
+        assertTrue(registry.find(token).isEmpty());
+    }
+
+    @Test
+    void expire_shouldRemoveOnlyExpiredSessions() {
+        String idle = registry.open(user);
+        String active = registry.open(user);
+        registry.expire();
+
+        clock.addAndGet(IDLE - 1_000);
+        registry.find(active);
+        clock.addAndGet(1_000);
+
+        assertEquals(1, registry.expire());
+        assertEquals(1, registry.size());
+        assertTrue(registry.find(active).isPresent());
+        assertTrue(registry.find(idle).isEmpty());
+
+        clock.addAndGet(IDLE);
+        assertEquals(1, registry.expire());
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void close_shouldLogoutSession_butKeepUserOfFoundSnapshot() {
+        String token = registry.open(user);
+        Session session = registry.find(token).orElseThrow();
+
+        registry.close(token);
+
+        assertSame(user, session.getUser());
+        assertTrue(registry.find(token).isEmpty());
+        assertEquals(0, registry.expire());
+    }
+
+    @Test
+    void closeAll_shouldCloseOnlySessionsOfUser() {
+        user.setId(1);
+        User other = new User("other@mail.ru", "password", "Other");
+        other.setId(2);
+        String first = registry.open(user);
+        String second = registry.open(user);
+        String foreign = registry.open(other);
+
+        assertEquals(2, registry.closeAll(1));
+
+        assertTrue(registry.find(first).isEmpty());
+        assertTrue(registry.find(second).isEmpty());
+        assertTrue(registry.find(foreign).isPresent());
+    }
+
+    @Test
+    void find_shouldReturnEmpty_whenUserBlocked() {
+        String token = registry.open(user);
+
+        user.setBlocked(true);
+
+        assertTrue(registry.find(token).isEmpty());
+    }
+
+    @Test
+    void expire_shouldRemoveSessionsOnDeadline_whenDeadlinesSpanSeveralWheelTurns() {
+        long started = clock.get();
+        int sessions = 2_000;
+        long step = 10_000;
+        String[] tokens = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            tokens[i] = registry.open(user);
+            clock.addAndGet(step);
+        }
+
+        int expired = 0;
+        for (long now = clock.get(); expired < sessions; now += 700_000) {
+            clock.set(now);
+            int due = (int) Math.min(sessions, Math.max(0, (now - started - IDLE) / step + 1));
+            assertEquals(due - expired, registry.expire());
+            assertEquals(sessions - due, registry.size());
+            expired = due;
+        }
+        for (String token : tokens) {
+            assertTrue(registry.find(token).isEmpty());
+        }
+    }
+}
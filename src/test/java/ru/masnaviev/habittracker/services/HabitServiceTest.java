@@ -5,18 +5,32 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import ru.masnaviev.habittracker.controllers.util.ExecutionMark;
+import ru.masnaviev.habittracker.controllers.util.MarkResult;
 import ru.masnaviev.habittracker.controllers.util.StatisticEntity;
 import ru.masnaviev.habittracker.controllers.util.TimePeriod;
 import ru.masnaviev.habittracker.models.Frequency;
 import ru.masnaviev.habittracker.models.Habit;
 import ru.masnaviev.habittracker.models.Status;
 import ru.masnaviev.habittracker.out.repositories.HabitRepository;
+import ru.masnaviev.habittracker.services.util.DailyRollup;
+import ru.masnaviev.habittracker.services.util.ExecutionAudit;
+import ru.masnaviev.habittracker.services.util.ExecutionPipeline;
+import ru.masnaviev.habittracker.services.util.StatisticSettings;
 
+import java.io.StringWriter;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -236,5 +250,204 @@ class HabitServiceTest {
 
         assertEquals(expectedExecutions, actualExecutions);
     }
-}
 
+    @Test
+    void countExecutions_shouldDelegateRangeCountToRepository_whenTimePeriodIsDay() {
+        long habitId = 1L;
+        LocalDate today = LocalDate.now();
+
+        when(habitRepository.exists(habitId)).thenReturn(true);
+        when(habitRepository.countExecutions(habitId, today.minusDays(1), today)).thenReturn(2);
+
+        assertEquals(2, habitService.countExecutions(habitId, TimePeriod.DAY));
+    }
+
+    @Test
+    void countExecutions_shouldCountHistoryInPeriod_whenHabitGiven() {
+        assertEquals(1, habitService.countExecutions(habit2, TimePeriod.WEEK));
+        assertEquals(2, habitService.countExecutions(habit2, TimePeriod.MONTH));
+    }
+
+    @Test
+    void addHabitExecutions_shouldReportOutcomePerMark_whenBatchIsMixed() {
+        LocalDate today = LocalDate.now();
+        habit1.setUserId(7);
+        habit1.setStatus(Status.CREATED);
+        habit2.setUserId(7);
+        Habit foreign = new Habit("Foreign", "Description", Frequency.DAILY);
+        foreign.setId(3);
+        foreign.setUserId(8);
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(habit1));
+        when(habitRepository.findById(2L)).thenReturn(Optional.of(habit2));
+        when(habitRepository.findById(3L)).thenReturn(Optional.of(foreign));
+        when(habitRepository.findById(4L)).thenReturn(Optional.empty());
+
+        List<MarkResult> results = habitService.addHabitExecutions(7, List.of(
+                new ExecutionMark(1, today.minusDays(5)),
+                new ExecutionMark(1, today.minusDays(5)),
+                new ExecutionMark(1, today),
+                new ExecutionMark(1, today.plusDays(1)),
+                new ExecutionMark(2, today.minusDays(20)),
+                new ExecutionMark(2, today.minusDays(17)),
+                new ExecutionMark(3, today),
+                new ExecutionMark(4, today)));
+
+        assertEquals(List.of(MarkResult.Outcome.MARKED, MarkResult.Outcome.ALREADY_COMPLETED,
+                MarkResult.Outcome.ALREADY_COMPLETED, MarkResult.Outcome.INVALID_DATE,
+                MarkResult.Outcome.MARKED, MarkResult.Outcome.ALREADY_COMPLETED,
+                MarkResult.Outcome.NOT_FOUND, MarkResult.Outcome.NOT_FOUND),
+                results.stream().map(MarkResult::getOutcome).toList());
+        assertEquals(Status.IN_PROGRESS, habit1.getStatus());
+        assertTrue(habit1.getExecutionHistory().contains(today.minusDays(5)));
+        assertTrue(habit2.getExecutionHistory().contains(today.minusDays(20)));
+        assertFalse(habit2.getExecutionHistory().contains(today.minusDays(17)));
+        verify(habitRepository).saveExecutions(1L, List.of(today.minusDays(5)));
+        verify(habitRepository).saveExecutions(2L, List.of(today.minusDays(20)));
+        verify(habitRepository, never()).saveExecutions(eq(3L), anyList());
+    }
+
+    @Test
+    void addHabitExecutions_shouldNotSave_whenNothingAccepted() {
+        habit1.setUserId(7);
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(habit1));
+
+        List<MarkResult> results = habitService.addHabitExecutions(7,
+                List.of(new ExecutionMark(1, LocalDate.now())));
+
+        assertEquals(MarkResult.Outcome.ALREADY_COMPLETED, results.get(0).getOutcome());
+        assertEquals("Привычка уже выполнена в этот день.", results.get(0).getMessage());
+        verify(habitRepository, never()).saveExecutions(anyLong(), anyList());
+    }
+
+    @Test
+    void importExecutions_shouldSaveOnlyNewDates_whenHistoryOverlaps() {
+        LocalDate today = LocalDate.now();
+        habit1.setStatus(Status.CREATED);
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(habit1));
+
+        int imported = habitService.importExecutions(1L, List.of(today.minusDays(30), today,
+                today.minusDays(2), today.minusDays(30)));
+
+        assertEquals(2, imported);
+        assertEquals(4, habit1.getExecutionHistory().size());
+        assertEquals(Status.IN_PROGRESS, habit1.getStatus());
+        verify(habitRepository).saveExecutions(1L, List.of(today.minusDays(30), today.minusDays(2)));
+    }
+
+    @Test
+    void importExecutions_shouldThrowException_whenDateIsInFuture() {
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(habit1));
+
+        assertThrows(IllegalArgumentException.class, () -> habitService.importExecutions(1L,
+                List.of(LocalDate.now().minusDays(3), LocalDate.now().plusDays(1))));
+        assertEquals(2, habit1.getExecutionHistory().size());
+        verify(habitRepository, never()).saveExecutions(anyLong(), anyList());
+    }
+
+    @Test
+    void getDaysAllCompleted_shouldReturnDaysMarkedInEveryHabit() {
+        LocalDate today = LocalDate.now();
+        habit2.getExecutionHistory().add(today);
+        habit2.getExecutionHistory().add(today.minusDays(1));
+        when(habitRepository.getAll(1L)).thenReturn(List.of(habit1, habit2));
+
+        assertEquals(List.of(today.minusDays(1), today), habitService.getDaysAllCompleted(1L, TimePeriod.MONTH));
+        assertEquals(List.of(today.minusDays(1), today), habitService.getDaysAllCompleted(1L, TimePeriod.DAY));
+    }
+
+    @Test
+    void getDaysAllCompleted_shouldReturnEmptyList_whenUserHasNoHabitsOrNoCommonDays() {
+        when(habitRepository.getAll(1L)).thenReturn(List.of(habit1, habit2));
+        when(habitRepository.getAll(2L)).thenReturn(List.of());
+
+        assertTrue(habitService.getDaysAllCompleted(1L, TimePeriod.MONTH).isEmpty());
+        assertTrue(habitService.getDaysAllCompleted(2L, TimePeriod.MONTH).isEmpty());
+    }
+
+    @Test
+    void addHabitExecution_shouldPublishEventOnlyForMarkedExecution_whenPipelineConfigured() {
+        DailyRollup rollup = new DailyRollup();
+        ExecutionPipeline pipeline = new ExecutionPipeline(8, 1000, rollup);
+        try (pipeline) {
+            HabitService service = new HabitService(habitRepository, null, StatisticSettings.sequential(), pipeline);
+            Habit habit = new Habit("Habit 3", "Description 3", Frequency.DAILY);
+            habit.setId(3);
+            when(habitRepository.findById(3L)).thenReturn(Optional.of(habit));
+            when(habitRepository.findById(1L)).thenReturn(Optional.of(habit1));
+
+            service.addHabitExecution(3L);
+            assertThrows(IllegalStateException.class, () -> service.addHabitExecution(1L));
+
+            assertTrue(pipeline.awaitProcessed(5, TimeUnit.SECONDS));
+            assertEquals(1, rollup.getCount(LocalDate.now()));
+            assertEquals(0, pipeline.getBacklog());
+            verify(habitRepository).saveExecution(3L, LocalDate.now());
+        }
+    }
+
+    @Test
+    void addHabitExecutions_shouldPublishAcceptedAndImportedDates_whenPipelineConfigured() throws Exception {
+        LocalDate today = LocalDate.now();
+        DailyRollup rollup = new DailyRollup();
+        StringWriter log = new StringWriter();
+        ExecutionPipeline pipeline = new ExecutionPipeline(8, 1000, rollup, new ExecutionAudit(log));
+        try (pipeline) {
+            HabitService service = new HabitService(habitRepository, null, StatisticSettings.sequential(), pipeline);
+            Habit habit = new Habit("Habit 3", "Description 3", Frequency.DAILY);
+            habit.setId(3);
+            habit.setUserId(7);
+            habit1.setUserId(7);
+            when(habitRepository.findById(3L)).thenReturn(Optional.of(habit));
+            when(habitRepository.findById(1L)).thenReturn(Optional.of(habit1));
+
+            service.addHabitExecutions(7, List.of(
+                    new ExecutionMark(3, today.minusDays(2)),
+                    new ExecutionMark(3, today.minusDays(2)),
+                    new ExecutionMark(1, today),
+                    new ExecutionMark(1, today.minusDays(1)),
+                    new ExecutionMark(1, today.minusDays(2))));
+            service.importExecutions(3L, List.of(today.minusDays(2), today.minusDays(1), today.minusDays(1)));
+
+            assertTrue(pipeline.awaitProcessed(5, TimeUnit.SECONDS));
+            assertEquals(2, rollup.getCount(today.minusDays(2)));
+            assertEquals(1, rollup.getCount(today.minusDays(1)));
+            assertEquals(0, rollup.getCount(today));
+            String[] lines = log.toString().split("\n");
+            assertEquals(3, lines.length);
+            assertTrue(lines[0].endsWith(" habit=3 user=7 date=" + today.minusDays(2)));
+            assertTrue(lines[1].endsWith(" habit=1 user=7 date=" + today.minusDays(2)));
+            assertTrue(lines[2].endsWith(" habit=3 user=7 date=" + today.minusDays(1)));
+        }
+    }
+
+    @Test
+    void addHabitExecution_shouldRejectRepeatMarkAsConflict_whenPipelineIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutionPipeline pipeline = new ExecutionPipeline(1, 0, event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try (pipeline) {
+            HabitService service = new HabitService(habitRepository, null, StatisticSettings.sequential(), pipeline);
+            Habit habit = new Habit("Habit 3", "Description 3", Frequency.DAILY);
+            habit.setId(3);
+            Habit habit4 = new Habit("Habit 4", "Description 4", Frequency.DAILY);
+            habit4.setId(4);
+            when(habitRepository.findById(3L)).thenReturn(Optional.of(habit));
+            when(habitRepository.findById(4L)).thenReturn(Optional.of(habit4));
+
+            service.addHabitExecution(3L);
+            assertThrows(IllegalStateException.class, () -> service.addHabitExecution(3L));
+            assertThrows(RejectedExecutionException.class, () -> service.addHabitExecution(4L));
+            assertTrue(habit4.getExecutionHistory().isEmpty());
+            verify(habitRepository, never()).saveExecution(eq(4L), any());
+
+            release.countDown();
+            assertTrue(pipeline.awaitProcessed(5, TimeUnit.SECONDS));
+            service.addHabitExecution(4L);
+        }
+    }
+}
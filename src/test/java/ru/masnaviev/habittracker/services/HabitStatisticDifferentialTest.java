@@ -0,0 +1,124 @@
+package ru.masnaviev.habittracker.services;
+
+import org.junit.jupiter.api.Test;
+import ru.masnaviev.habittracker.controllers.util.StatisticEntity;
+import ru.masnaviev.habittracker.controllers.util.TimePeriod;
+import ru.masnaviev.habittracker.models.Frequency;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Сверяет инкрементально поддерживаемую статистику с исходным алгоритмом,
+ * который пересчитывал серии и процент выполнения по полной истории.
+ */
+class HabitStatisticDifferentialTest {
+
+    private static final int ROUNDS = 500;
+
+    @Test
+    void getStatistic_shouldMatchRecomputedStatistic_forRandomHistories() {
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            InMemoryHabitRepository habitRepository = new InMemoryHabitRepository();
+            HabitService habitService = new HabitService(habitRepository);
+            Frequency frequency = random.nextBoolean() ? Frequency.DAILY : Frequency.WEEKLY;
+            Habit habit = habitService.create(new Habit("Habit", "Description", frequency), 1);
+            List<LocalDate> reference = new ArrayList<>();
+
+            int operations = random.nextInt(80);
+            for (int i = 0; i < operations; i++) {
+                LocalDate date = today.minusDays(random.nextInt(70));
+                if (random.nextInt(5) == 0) {
+                    habit.getExecutionHistory().remove(date);
+                    reference.remove(date);
+                } else if (habit.getExecutionHistory().add(date)) {
+                    reference.add(date);
+                }
+            }
+
+            for (TimePeriod timePeriod : TimePeriod.values()) {
+                StatisticEntity statistic = habitService.getStatistic(1, timePeriod).get(0);
+                List<LocalDate> executions = legacyExecutions(reference, timePeriod);
+
+                assertEquals(executions, statistic.getHabitExecutions());
+                assertEquals(legacyStreak(executions, frequency), statistic.getCurrentStreak());
+                assertEquals(legacySuccessRate(executions.size(), frequency, timePeriod), statistic.getSuccessRate());
+                if (frequency == Frequency.DAILY) {
+                    assertEquals(longestRun(reference), statistic.getLongestStreak());
+                }
+            }
+        }
+    }
+
+    private List<LocalDate> legacyExecutions(List<LocalDate> history, TimePeriod timePeriod) {
+        LocalDate start;
+        switch (timePeriod) {
+            case DAY -> start = LocalDate.now().minusDays(1);
+            case WEEK -> start = LocalDate.now().minusWeeks(1);
+            default -> start = LocalDate.now().minusMonths(1);
+        }
+        return history.stream().filter(
+                a -> !a.isBefore(start)).filter(a -> !a.isAfter(LocalDate.now())).sorted().collect(Collectors.toList());
+    }
+
+    private long legacyStreak(List<LocalDate> executions, Frequency frequency) {
+        if (executions.isEmpty()) {
+            return 0;
+        }
+        List<LocalDate> sorted = new ArrayList<>(executions);
+        Collections.sort(sorted);
+        long streak = 0;
+        LocalDate previousDate = sorted.get(sorted.size() - 1);
+        for (int i = sorted.size() - 1; i >= 0; i--) {
+            LocalDate currentDate = sorted.get(i);
+            if (frequency == Frequency.DAILY) {
+                if (previousDate.equals(currentDate) || previousDate.minusDays(1).equals(currentDate)) {
+                    streak++;
+                    previousDate = currentDate;
+                } else break;
+            } else if (frequency == Frequency.WEEKLY) {
+                if (previousDate.minusWeeks(1).equals(currentDate)) {
+                    streak++;
+                    previousDate = currentDate;
+                } else break;
+            }
+        }
+        return streak;
+    }
+
+    private double legacySuccessRate(int executionsCount, Frequency frequency, TimePeriod timePeriod) {
+        long totalDays;
+        switch (timePeriod) {
+            case DAY -> totalDays = 1;
+            case WEEK -> totalDays = 7;
+            default -> totalDays = LocalDate.now().lengthOfMonth();
+        }
+        if (frequency == Frequency.DAILY) {
+            return totalDays > 0 ? (double) executionsCount / totalDays * 100 : 0;
+        } else if (frequency == Frequency.WEEKLY) {
+            long weeksInPeriod = totalDays / 7;
+            return weeksInPeriod > 0 ? (double) executionsCount / weeksInPeriod * 100 : 0;
+        }
+        return 0;
+    }
+
+    private long longestRun(List<LocalDate> history) {
+        List<LocalDate> sorted = new ArrayList<>(history);
+        Collections.sort(sorted);
+        long longest = 0;
+        long run = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            run = i > 0 && sorted.get(i - 1).plusDays(1).equals(sorted.get(i)) ? run + 1 : 1;
+            longest = Math.max(longest, run);
+        }
+        return longest;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.masnaviev.habittracker.services;
+
+import org.junit.jupiter.api.Test;
+import ru.masnaviev.habittracker.controllers.util.StatisticEntity;
+import ru.masnaviev.habittracker.controllers.util.TimePeriod;
+import ru.masnaviev.habittracker.models.Frequency;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
+import ru.masnaviev.habittracker.services.util.StatisticSettings;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HabitStatisticParallelTest {
+
+    private static final long USER_ID = 1;
+
+    @Test
+    void getStatistic_shouldMatchSequentialStatistic_whenCalculatedInParallel() {
+        InMemoryHabitRepository habitRepository = fill(new InMemoryHabitRepository(), 2_000, 90);
+        HabitService sequential = new HabitService(habitRepository);
+        HabitService parallel = new HabitService(habitRepository, null, new StatisticSettings(1));
+
+        for (TimePeriod timePeriod : TimePeriod.values()) {
+            assertEquals(describe(sequential.getStatistic(USER_ID, timePeriod)),
+                    describe(parallel.getStatistic(USER_ID, timePeriod)));
+        }
+    }
+
+    @Test
+    void settings_shouldThrowException_whenThresholdIsNegative() {
+        assertThrows(IllegalArgumentException.class, () -> new StatisticSettings(-1));
+    }
+
+    private InMemoryHabitRepository fill(InMemoryHabitRepository habitRepository, int habits, int days) {
+        Random random = new Random(42);
+        int today = Math.toIntExact(LocalDate.now().toEpochDay());
+        for (int i = 0; i < habits; i++) {
+            Frequency frequency = i % 4 == 0 ? Frequency.WEEKLY : Frequency.DAILY;
+            Habit habit = new Habit("Habit " + i, "Description", frequency);
+            habit.setUserId(USER_ID);
+            int[] executions = new int[days / 2];
+            for (int j = 0; j < executions.length; j++) {
+                executions[j] = today - random.nextInt(days);
+            }
+            habit.getExecutionHistory().addEpochDays(executions);
+            habitRepository.add(habit);
+        }
+        return habitRepository;
+    }
+
+    private String describe(List<StatisticEntity> statistics) {
+        return statistics.toString();
+    }
+}
@@ -108,6 +108,22 @@ class UserServiceTest {
         assertThrows(IllegalArgumentException.class, () -> userService.update(updatedUser, userId));
     }
 
+    @Test
+    void update_shouldKeepStoredUser_whenRepositoryRejectsEmail() {
+        long userId = 1L;
+        User existingUser = new User(Role.USER, userId, "test@example.com", "password", "test", false);
+        User updatedUser = new User(Role.USER, userId, "updated@example.com", null, "updatedName", false);
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
+        when(userRepository.findByEmail("updated@example.com")).thenReturn(Optional.empty());
+        when(userRepository.update(any(User.class)))
+                .thenThrow(new IllegalArgumentException("Пользователь с таким email уже существует"));
+
+        assertThrows(IllegalArgumentException.class, () -> userService.update(updatedUser, userId));
+        assertEquals("test@example.com", existingUser.getEmail());
+        assertEquals("test", existingUser.getName());
+    }
+
     @Test
     void update_shouldThrowNoSuchElementException_whenUserDoesNotExist() {
         long userId = 1L;
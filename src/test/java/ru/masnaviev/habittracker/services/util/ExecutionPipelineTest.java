@@ -0,0 +1,116 @@
+package ru.masnaviev.habittracker.services.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionPipelineTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 1);
+
+    @Test
+    void handlers_shouldReceiveEveryEventInOrder_whenSeveralThreadsPublish() throws Exception {
+        List<Long> first = new ArrayList<>();
+        List<Long> second = new ArrayList<>();
+        ExecutionPipeline pipeline = new ExecutionPipeline(64, 10_000,
+                event -> first.add(event.getHabitId()), event -> second.add(event.getHabitId()));
+        try (pipeline) {
+            List<Thread> producers = new ArrayList<>();
+            for (int producer = 0; producer < 4; producer++) {
+                long base = producer * 1_000_000L;
+                Thread thread = new Thread(() -> {
+                    for (long i = 0; i < 5_000; i++) {
+                        long sequence = pipeline.next();
+                        pipeline.get(sequence).set(base + i, 1, DAY, 0);
+                        pipeline.publish(sequence);
+                    }
+                });
+                producers.add(thread);
+                thread.start();
+            }
+            for (Thread thread : producers) {
+                thread.join();
+            }
+
+            assertTrue(pipeline.awaitProcessed(10, TimeUnit.SECONDS));
+            assertEquals(20_000, first.size());
+            assertEquals(first, second);
+            for (int producer = 0; producer < 4; producer++) {
+                long base = producer * 1_000_000L;
+                List<Long> own = first.stream().filter(id -> id >= base && id < base + 1_000_000L).toList();
+                for (int i = 0; i < own.size(); i++) {
+                    assertEquals(base + i, own.get(i));
+                }
+            }
+            assertEquals(0, pipeline.getBacklog());
+        }
+    }
+
+    @Test
+    void next_shouldRejectWithoutClaiming_whenHandlerFallsBehind() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> handled = new ArrayList<>();
+        ExecutionPipeline pipeline = new ExecutionPipeline(4, 50, event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.add(event.getHabitId());
+        });
+        try (pipeline) {
+            for (long i = 0; i < 4; i++) {
+                publish(pipeline, i);
+            }
+
+            assertThrows(RejectedExecutionException.class, pipeline::next);
+            assertEquals(1, pipeline.getStalls());
+            assertEquals(1, pipeline.getRejected());
+
+            release.countDown();
+            publish(pipeline, 4);
+            assertTrue(pipeline.awaitProcessed(5, TimeUnit.SECONDS));
+            assertEquals(List.of(0L, 1L, 2L, 3L, 4L), handled);
+        }
+    }
+
+    @Test
+    void handlers_shouldSkipEmptyEventsAndSurviveErrors() {
+        StringWriter audit = new StringWriter();
+        DailyRollup rollup = new DailyRollup();
+        ExecutionPipeline pipeline = new ExecutionPipeline(8, 1000, new ExecutionAudit(audit), rollup, event -> {
+            throw new IllegalStateException("сбой обработчика");
+        });
+        try (pipeline) {
+            LocalDate today = LocalDate.now();
+            for (int i = 0; i < 20; i++) {
+                long sequence = pipeline.next();
+                if (i % 2 == 0) {
+                    pipeline.get(sequence).set(i, 7, today, 0);
+                }
+                pipeline.publish(sequence);
+            }
+
+            assertTrue(pipeline.awaitProcessed(5, TimeUnit.SECONDS));
+            assertEquals(10, rollup.getCount(today));
+            assertEquals(10, pipeline.getHandlerErrors());
+            assertEquals(10, audit.toString().lines().count());
+            assertTrue(audit.toString().startsWith("1970-01-01T00:00:00Z habit=0 user=7 date=" + today));
+        }
+        assertThrows(RejectedExecutionException.class, pipeline::next);
+    }
+
+    private static void publish(ExecutionPipeline pipeline, long habitId) {
+        long sequence = pipeline.next();
+        pipeline.get(sequence).set(habitId, 1, DAY, 0);
+        pipeline.publish(sequence);
+    }
+}
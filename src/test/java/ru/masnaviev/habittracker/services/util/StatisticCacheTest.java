@@ -0,0 +1,148 @@
+package ru.masnaviev.habittracker.services.util;
+
+import org.junit.jupiter.api.Test;
+import ru.masnaviev.habittracker.controllers.util.StatisticEntity;
+import ru.masnaviev.habittracker.controllers.util.TimePeriod;
+import ru.masnaviev.habittracker.models.Frequency;
+import ru.masnaviev.habittracker.models.Habit;
+import ru.masnaviev.habittracker.out.repositories.InMemoryHabitRepository;
+import ru.masnaviev.habittracker.services.HabitService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatisticCacheTest {
+
+    private final LocalDate today = LocalDate.now();
+
+    @Test
+    void get_shouldLoadOnce_whenStatisticIsCached() {
+        StatisticCache cache = new StatisticCache(100);
+        AtomicInteger loads = new AtomicInteger();
+
+        List<StatisticEntity> first = cache.get(1, TimePeriod.WEEK, today, () -> load(loads));
+        List<StatisticEntity> second = cache.get(1, TimePeriod.WEEK, today, () -> load(loads));
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void get_shouldReload_whenDayChanged() {
+        StatisticCache cache = new StatisticCache(100);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1, TimePeriod.DAY, today, () -> load(loads));
+        cache.get(1, TimePeriod.DAY, today.plusDays(1), () -> load(loads));
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getExpirations());
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    void get_shouldEvictLeastRecentlyUsed_whenCapacityExceeded() {
+        StatisticCache cache = new StatisticCache(16);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (long userId = 0; userId < 1000; userId++) {
+            cache.get(userId, TimePeriod.MONTH, today, () -> load(loads));
+        }
+
+        assertTrue(cache.getSize() <= 16);
+        assertEquals(1000 - cache.getSize(), cache.getEvictions());
+    }
+
+    @Test
+    void invalidate_shouldRemoveAllPeriodsOfUser() {
+        StatisticCache cache = new StatisticCache(100);
+        AtomicInteger loads = new AtomicInteger();
+        for (TimePeriod timePeriod : TimePeriod.values()) {
+            cache.get(1, timePeriod, today, () -> load(loads));
+        }
+        cache.get(2, TimePeriod.DAY, today, () -> load(loads));
+
+        cache.invalidate(1);
+
+        assertEquals(1, cache.getSize());
+        cache.get(2, TimePeriod.DAY, today, () -> load(loads));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void get_shouldNotCacheStatistic_whenInvalidatedDuringLoad() {
+        StatisticCache cache = new StatisticCache(100);
+
+        cache.get(1, TimePeriod.DAY, today, () -> {
+            cache.invalidate(1);
+            return new ArrayList<>();
+        });
+
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void getStatistic_shouldRecalculate_whenHabitExecutionAdded() {
+        StatisticCache cache = new StatisticCache(100);
+        HabitService habitService = new HabitService(new InMemoryHabitRepository(), cache);
+        Habit habit = habitService.create(new Habit("Habit", "Description", Frequency.DAILY), 1);
+
+        assertEquals(0, habitService.getStatistic(1, TimePeriod.DAY).get(0).getHabitExecutions().size());
+        assertEquals(0, habitService.getStatistic(1, TimePeriod.DAY).get(0).getHabitExecutions().size());
+        habitService.addHabitExecution(habit.getId());
+
+        assertEquals(List.of(today), habitService.getStatistic(1, TimePeriod.DAY).get(0).getHabitExecutions());
+        habitService.deleteHabit(habit.getId());
+        assertTrue(habitService.getStatistic(1, TimePeriod.DAY).isEmpty());
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    void markStale_shouldReload_whenEntryWasNotRemovedYet() {
+        StatisticCache cache = new StatisticCache(100);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(1, TimePeriod.WEEK, today, () -> load(loads));
+        cache.get(2, TimePeriod.WEEK, today, () -> load(loads));
+
+        cache.markStale(1);
+
+        assertEquals(2, cache.getSize());
+        cache.removeStale(1);
+        assertEquals(1, cache.getSize());
+        cache.get(1, TimePeriod.WEEK, today, () -> load(loads));
+        cache.get(2, TimePeriod.WEEK, today, () -> load(loads));
+        assertEquals(3, loads.get());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void getStatistic_shouldSeeExecution_whenCacheIsCleanedByPipeline() {
+        StatisticCache cache = new StatisticCache(100);
+        ExecutionPipeline pipeline = new ExecutionPipeline(16, 1000, event -> cache.removeStale(event.getUserId()));
+        try (pipeline) {
+            HabitService habitService = new HabitService(new InMemoryHabitRepository(), cache,
+                    StatisticSettings.sequential(), pipeline);
+            Habit habit = habitService.create(new Habit("Habit", "Description", Frequency.DAILY), 1);
+            assertEquals(0, habitService.getStatistic(1, TimePeriod.DAY).get(0).getHabitExecutions().size());
+
+            habitService.addHabitExecution(habit.getId());
+
+            assertEquals(List.of(today), habitService.getStatistic(1, TimePeriod.DAY).get(0).getHabitExecutions());
+            assertTrue(pipeline.awaitProcessed(5, TimeUnit.SECONDS));
+            assertEquals(0, cache.getHits());
+        }
+    }
+
+    private List<StatisticEntity> load(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return new ArrayList<>();
+    }
+}